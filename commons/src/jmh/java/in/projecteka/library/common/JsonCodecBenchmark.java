@@ -0,0 +1,99 @@
+package in.projecteka.library.common;
+
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static in.projecteka.library.common.Serializer.from;
+import static in.projecteka.library.common.Serializer.to;
+
+/**
+ * Compares the text round trip the repositories used to do for JSONB columns with {@link JsonCodec}. Run with
+ * {@code ./gradlew :commons:jmh}; the gc profiler reports gc.alloc.rate.norm, the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    public static class Reference {
+        public String id;
+        public String name;
+
+        public Reference() {
+        }
+
+        Reference(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    public static class Document {
+        public String consentId;
+        public LocalDateTime createdAt;
+        public Reference patient;
+        public Reference hip;
+        public Reference hiu;
+        public List<String> hiTypes;
+        public List<Reference> careContexts;
+        public LocalDateTime dataEraseAt;
+    }
+
+    private Document document;
+    private JsonObject column;
+
+    @Setup
+    public void setUp() {
+        document = new Document();
+        document.consentId = "5f7a5e0c-6b2e-4a3f-9a36-1a1c0e7f0f11";
+        document.createdAt = LocalDateTime.now();
+        document.patient = new Reference("patient@ncg", "Patient");
+        document.hip = new Reference("10000005", "Max Health Care");
+        document.hiu = new Reference("10000002", "Health Information User");
+        document.hiTypes = List.of("Condition", "Observation", "DiagnosticReport", "MedicationRequest");
+        document.careContexts = IntStream.range(0, 20)
+                .mapToObj(index -> new Reference("NCP" + index, "RVH" + index))
+                .collect(Collectors.toList());
+        document.dataEraseAt = document.createdAt.plusYears(1);
+        // what the pg client hands over for a JSONB column
+        column = new JsonObject(from(document));
+    }
+
+    @Benchmark
+    public Document decodeThroughText() {
+        return to(column.toString(), Document.class);
+    }
+
+    @Benchmark
+    public Document decode() {
+        return JsonCodec.decode(column, Document.class);
+    }
+
+    @Benchmark
+    public JsonObject encodeThroughText() {
+        return new JsonObject(from(document));
+    }
+
+    @Benchmark
+    public JsonObject encode() {
+        return JsonCodec.encode(document);
+    }
+}
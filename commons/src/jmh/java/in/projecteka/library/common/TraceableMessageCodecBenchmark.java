@@ -0,0 +1,100 @@
+package in.projecteka.library.common;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares how the listeners used to read a {@link TraceableMessage} (convert the envelope to a map, then convert
+ * the map with a new mapper) with {@link TraceableMessageCodec}, in messages per second on one core. Run with
+ * {@code ./gradlew :commons:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TraceableMessageCodecBenchmark {
+
+    public static class Reference {
+        public String id;
+        public String name;
+
+        public Reference() {
+        }
+
+        Reference(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    public static class Notification {
+        public String consentRequestId;
+        public String status;
+        public LocalDateTime timestamp;
+        public Reference hiu;
+        public List<Reference> consentArtefacts;
+    }
+
+    private Jackson2JsonMessageConverter converter;
+    private TraceableMessageCodec codec;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        var mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        converter = new Jackson2JsonMessageConverter(mapper);
+        codec = new TraceableMessageCodec(mapper);
+        var notification = new Notification();
+        notification.consentRequestId = UUID.randomUUID().toString();
+        notification.status = "GRANTED";
+        notification.timestamp = LocalDateTime.now();
+        notification.hiu = new Reference("10000002", "Health Information User");
+        notification.consentArtefacts = IntStream.range(0, 10)
+                .mapToObj(index -> new Reference(UUID.randomUUID().toString(), "artefact" + index))
+                .collect(Collectors.toList());
+        message = codec.toMessage(TraceableMessage.builder()
+                        .correlationId(UUID.randomUUID().toString())
+                        .message(notification)
+                        .build(),
+                new MessageProperties());
+    }
+
+    @Benchmark
+    public Notification decodeThroughMap() {
+        var traceableMessage = (TraceableMessage) converter.fromMessage(message);
+        var mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return mapper.convertValue(traceableMessage.getMessage(), Notification.class);
+    }
+
+    @Benchmark
+    public Notification decode() {
+        return codec.decode(message, Notification.class).getMessage();
+    }
+}
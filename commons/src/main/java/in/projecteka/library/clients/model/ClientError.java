@@ -138,6 +138,11 @@ public class ClientError extends Throwable {
                 new ErrorRepresentation(new Error(INVALID_LINK_REFERENCE, "Invalid link reference")));
     }
 
+    public static ClientError invalidPageCursor() {
+        return new ClientError(BAD_REQUEST,
+                new ErrorRepresentation(new Error(INVALID_REQUEST, "Invalid page cursor")));
+    }
+
     public static ClientError consentArtefactNotFound() {
         return new ClientError(NOT_FOUND,
                 new ErrorRepresentation(new Error(CONSENT_ARTEFACT_NOT_FOUND, CANNOT_FIND_THE_CONSENT_ARTEFACT)));
@@ -0,0 +1,105 @@
+package in.projecteka.library.common;
+
+import in.projecteka.library.common.cache.CacheAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.util.function.Tuple2;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches the gateway's callbacks to the requests waiting for them. A callback is stored in the results cache as
+ * before, and then completes the waiting request straight away when it is waiting on this node, or is relayed to the
+ * other nodes when it is not. Polling the cache stays only as a fallback for callbacks whose relay was lost.
+ */
+public class CallbackCorrelator {
+    private static final Logger logger = LoggerFactory.getLogger(CallbackCorrelator.class);
+
+    private final CacheAdapter<String, String> results;
+    private final CallbackRelay relay;
+    private final Duration pollInterval;
+    private final CallbackTimeouts timeouts;
+    private final Map<String, MonoProcessor<String>> waiting = new ConcurrentHashMap<>();
+    private Disposable relayed;
+
+    public CallbackCorrelator(CacheAdapter<String, String> results,
+                              CallbackRelay relay,
+                              Duration pollInterval,
+                              CallbackTimeouts timeouts) {
+        this.results = results;
+        this.relay = relay;
+        this.pollInterval = pollInterval;
+        this.timeouts = timeouts;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        relayed = relay.received()
+                .filter(waiting::containsKey)
+                .flatMap(requestId -> results.get(requestId)
+                        .doOnNext(response -> resolve(requestId, response))
+                        .onErrorResume(error -> {
+                            logger.error("Failed to read the relayed callback for {}", requestId, error);
+                            return Mono.empty();
+                        }))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (relayed != null) {
+            relayed.dispose();
+        }
+    }
+
+    // empty when the request is not sent; DelayTimeoutException when no callback comes in time
+    public <T> Mono<String> exchange(String requestId, Mono<T> request, Duration timeout) {
+        return Mono.defer(() -> {
+            MonoProcessor<String> callback = MonoProcessor.create();
+            waiting.put(requestId, callback);
+            return request
+                    .flatMap(sent -> Mono.first(callback, poll(requestId))
+                            .timeout(timeout, Mono.error(new DelayTimeoutException())))
+                    .doFinally(signal -> waiting.remove(requestId, callback));
+        });
+    }
+
+    // waits as long as the target's recent callbacks suggest, and adds this one to them
+    public <T> Mono<String> exchange(String requestId, String target, Mono<T> request) {
+        return Mono.defer(() -> exchange(requestId, request, timeouts.timeoutFor(target)))
+                .elapsed()
+                .doOnNext(callback -> timeouts.record(target, Duration.ofMillis(callback.getT1())))
+                .map(Tuple2::getT2)
+                .doOnError(DelayTimeoutException.class, error -> timeouts.timedOut(target));
+    }
+
+    public Mono<Void> complete(String requestId, String response) {
+        return results.put(requestId, response)
+                .then(Mono.defer(() -> resolve(requestId, response) ? Mono.empty() : relay.publish(requestId)));
+    }
+
+    private boolean resolve(String requestId, String response) {
+        var callback = waiting.remove(requestId);
+        if (callback == null) {
+            return false;
+        }
+        callback.onNext(response);
+        return true;
+    }
+
+    private Mono<String> poll(String requestId) {
+        return Flux.interval(pollInterval)
+                .concatMap(tick -> results.get(requestId))
+                .next();
+    }
+}
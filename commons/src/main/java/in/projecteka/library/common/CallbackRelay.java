@@ -0,0 +1,28 @@
+package in.projecteka.library.common;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Tells the other nodes that the callback for a request has arrived, for the node whose request is waiting on it.
+ */
+public interface CallbackRelay {
+    Mono<Void> publish(String requestId);
+
+    Flux<String> received();
+
+    // a single node has nothing to relay to
+    static CallbackRelay none() {
+        return new CallbackRelay() {
+            @Override
+            public Mono<Void> publish(String requestId) {
+                return Mono.empty();
+            }
+
+            @Override
+            public Flux<String> received() {
+                return Flux.never();
+            }
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package in.projecteka.library.common;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Derives how long to wait for a target's callback from how long its recent callbacks took: the configured
+ * percentile of its latencies, kept between a floor and a ceiling. Until a target has enough samples it gets the
+ * ceiling, which is the one timeout every target used to get.
+ */
+public class CallbackTimeouts {
+    private static final long DECAY_AT = 1000;
+
+    private final double percentile;
+    private final Duration floor;
+    private final Duration ceiling;
+    private final int minimumSamples;
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+
+    public CallbackTimeouts(double percentile, Duration floor, Duration ceiling, int minimumSamples) {
+        this.percentile = percentile;
+        this.floor = floor;
+        this.ceiling = ceiling;
+        this.minimumSamples = minimumSamples;
+    }
+
+    public Duration timeoutFor(String target) {
+        var latencies = targets.get(target);
+        if (latencies == null || latencies.histogram.count() < minimumSamples) {
+            return ceiling;
+        }
+        long timeout = latencies.histogram.percentile(percentile);
+        return Duration.ofMillis(Math.max(floor.toMillis(), Math.min(ceiling.toMillis(), timeout)));
+    }
+
+    public void record(String target, Duration latency) {
+        targetOf(target).histogram.record(latency.toMillis());
+    }
+
+    // all that is known of a callback that did not come in time is that it took longer than it was given, so it
+    // counts as the ceiling; leaving it out would keep a target that slows down past its timeout stuck there
+    public void timedOut(String target) {
+        var latencies = targetOf(target);
+        latencies.timeouts.incrementAndGet();
+        latencies.histogram.record(ceiling.toMillis());
+    }
+
+    public Map<String, CallbackStats> stats() {
+        return targets.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> CallbackStats.builder()
+                        .samples(entry.getValue().histogram.count())
+                        .timeouts(entry.getValue().timeouts.get())
+                        .p50(entry.getValue().histogram.percentile(50))
+                        .p90(entry.getValue().histogram.percentile(90))
+                        .p99(entry.getValue().histogram.percentile(99))
+                        .timeout(timeoutFor(entry.getKey()).toMillis())
+                        .build()));
+    }
+
+    private Target targetOf(String target) {
+        return targets.computeIfAbsent(target, key -> new Target(new LatencyHistogram(ceiling.toMillis(), DECAY_AT)));
+    }
+
+    private static class Target {
+        private final LatencyHistogram histogram;
+        private final AtomicLong timeouts = new AtomicLong();
+
+        Target(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+    }
+
+    // all in milliseconds, except the counts
+    @Value
+    @Builder
+    public static class CallbackStats {
+        long samples;
+        long timeouts;
+        long p50;
+        long p90;
+        long p99;
+        long timeout;
+    }
+}
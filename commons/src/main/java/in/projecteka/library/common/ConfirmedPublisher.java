@@ -0,0 +1,147 @@
+package in.projecteka.library.common;
+
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.amqp.rabbit.connection.CachingConnectionFactory.ConfirmType.CORRELATED;
+
+/**
+ * Publishes without holding the caller's thread and completes once the broker has confirmed the message. Sends are
+ * queued and drained by a pool of workers no larger than the channel pool; a worker sends everything queued (up to
+ * a batch) on one channel, so under load messages go out in batches, and the confirms complete each publish.
+ */
+public class ConfirmedPublisher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ConfirmedPublisher.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final Scheduler scheduler;
+    private final int batchSize;
+    private final Duration confirmTimeout;
+    private final Queue<PendingMessage> pending = new ConcurrentLinkedQueue<>();
+
+    public ConfirmedPublisher(RabbitTemplate rabbitTemplate, Scheduler scheduler, int batchSize,
+                              Duration confirmTimeout) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.scheduler = scheduler;
+        this.batchSize = batchSize;
+        this.confirmTimeout = confirmTimeout;
+    }
+
+    // a connection factory of its own, so publishers never wait on channels held by consumers
+    public static ConfirmedPublisher of(CachingConnectionFactory connectionFactory,
+                                        MessageConverter messageConverter,
+                                        int channels,
+                                        int batchSize,
+                                        Duration confirmTimeout) {
+        var publisherConnectionFactory = new CachingConnectionFactory(connectionFactory.getRabbitConnectionFactory());
+        publisherConnectionFactory.setPublisherConfirmType(CORRELATED);
+        publisherConnectionFactory.setPublisherReturns(true);
+        publisherConnectionFactory.setChannelCacheSize(channels);
+        publisherConnectionFactory.setChannelCheckoutTimeout(confirmTimeout.toMillis());
+        var rabbitTemplate = new RabbitTemplate(publisherConnectionFactory);
+        rabbitTemplate.setMessageConverter(messageConverter);
+        rabbitTemplate.setMandatory(true);
+        return new ConfirmedPublisher(rabbitTemplate,
+                Schedulers.newBoundedElastic(channels, Integer.MAX_VALUE, "amqp-publisher"),
+                batchSize,
+                confirmTimeout);
+    }
+
+    public Mono<Void> publish(String exchange, String routingKey, Object message) {
+        return Mono.<Void>create(sink -> {
+            var pendingMessage = new PendingMessage(exchange, routingKey, message, sink);
+            // a caller that timed out or went away before its message was sent takes it back, so it is not sent
+            // after the caller has already given up on it
+            sink.onCancel(() -> {
+                if (pendingMessage.claim()) {
+                    pending.remove(pendingMessage);
+                }
+            });
+            pending.add(pendingMessage);
+            scheduler.schedule(this::sendPending);
+        }).timeout(confirmTimeout);
+    }
+
+    private void sendPending() {
+        List<PendingMessage> batch = new ArrayList<>();
+        PendingMessage next;
+        while (batch.size() < batchSize && (next = pending.poll()) != null) {
+            if (next.claim()) {
+                batch.add(next);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            rabbitTemplate.invoke(operations -> {
+                batch.forEach(message -> message.send(operations));
+                return null;
+            });
+        } catch (AmqpException e) {
+            logger.error("Failed to publish {} messages: {}", batch.size(), e.getMessage(), e);
+            batch.forEach(message -> message.sink.error(e));
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.dispose();
+        var connectionFactory = rabbitTemplate.getConnectionFactory();
+        if (connectionFactory instanceof CachingConnectionFactory) {
+            ((CachingConnectionFactory) connectionFactory).destroy();
+        }
+    }
+
+    @AllArgsConstructor
+    private static class PendingMessage {
+        private final String exchange;
+        private final String routingKey;
+        private final Object message;
+        private final MonoSink<Void> sink;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        // either sent or taken back, whichever comes first
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        void send(RabbitOperations operations) {
+            var correlation = new CorrelationData(UUID.randomUUID().toString());
+            try {
+                operations.convertAndSend(exchange, routingKey, message, correlation);
+            } catch (AmqpException e) {
+                sink.error(e);
+                return;
+            }
+            correlation.getFuture().addCallback(confirm -> {
+                if (!confirm.isAck()) {
+                    sink.error(new AmqpException("Broker did not accept the message: " + confirm.getReason()));
+                } else if (correlation.getReturnedMessage() != null) {
+                    sink.error(new AmqpException("Message could not be routed to " + exchange + "/" + routingKey));
+                } else {
+                    sink.success();
+                }
+            }, sink::error);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package in.projecteka.library.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
+import lombok.SneakyThrows;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Moves JSON / JSONB columns between Vert.x rows and domain objects without a text round trip. By the time a row is
+ * handed over, the pg client has already parsed the column into a {@link JsonObject} (or {@link JsonArray}), so it
+ * is bound to the target type straight from that tree through a cached {@link ObjectReader}; parameters are built
+ * as a tree from the object instead of being written out as a string for {@link JsonObject} to parse again.
+ */
+public final class JsonCodec {
+    private static final TypeReference<Map<String, Object>> TREE = new TypeReference<>() {
+    };
+    private static final ObjectMapper mapper = Serializer.mapper().copy()
+            .registerModule(new SimpleModule()
+                    .addSerializer(JsonObject.class, new JsonSerializer<>() {
+                        @Override
+                        public void serialize(JsonObject value, JsonGenerator generator, SerializerProvider provider)
+                                throws IOException {
+                            generator.writeObject(value.getMap());
+                        }
+                    })
+                    .addSerializer(JsonArray.class, new JsonSerializer<>() {
+                        @Override
+                        public void serialize(JsonArray value, JsonGenerator generator, SerializerProvider provider)
+                                throws IOException {
+                            generator.writeObject(value.getList());
+                        }
+                    }));
+    private static final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    private JsonCodec() {
+
+    }
+
+    public static <T> T decode(Row row, String column, Class<T> type) {
+        return decode(row.getValue(column), type);
+    }
+
+    @SneakyThrows
+    public static <T> T decode(Object value, Class<T> type) {
+        if (value == null) {
+            return null;
+        }
+        ObjectReader reader = readers.computeIfAbsent(type, mapper::readerFor);
+        if (value instanceof JsonObject) {
+            return reader.readValue(tokens(((JsonObject) value).getMap()));
+        }
+        if (value instanceof JsonArray) {
+            return reader.readValue(tokens(((JsonArray) value).getList()));
+        }
+        if (value instanceof Buffer) {
+            return reader.readValue(((Buffer) value).getBytes());
+        }
+        return reader.readValue(value.toString());
+    }
+
+    public static JsonObject encode(Object value) {
+        return value == null ? null : new JsonObject(mapper.convertValue(value, TREE));
+    }
+
+    private static JsonParser tokens(Object tree) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(mapper, false);
+        mapper.writeValue(buffer, tree);
+        return buffer.asParser();
+    }
+}
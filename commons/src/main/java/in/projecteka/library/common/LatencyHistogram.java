@@ -0,0 +1,57 @@
+package in.projecteka.library.common;
+
+/**
+ * Counts latencies in buckets whose bounds grow by ten percent, so any percentile is within ten percent of the
+ * exact one over the whole range, in a fixed hundred or so counters. Once {@code decayAt} samples have been counted
+ * all counts are halved, so older samples weigh less and the percentiles follow the target as it speeds up or
+ * slows down.
+ */
+public class LatencyHistogram {
+    private static final double RATIO = 1.1;
+    private static final double LOG_RATIO = Math.log(RATIO);
+
+    private final long[] counts;
+    private final long decayAt;
+    private long total;
+
+    public LatencyHistogram(long maxMillis, long decayAt) {
+        this.counts = new long[indexOf(maxMillis) + 1];
+        this.decayAt = decayAt;
+    }
+
+    public synchronized void record(long millis) {
+        counts[Math.min(indexOf(millis), counts.length - 1)]++;
+        if (++total >= decayAt) {
+            total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] /= 2;
+                total += counts[i];
+            }
+        }
+    }
+
+    public synchronized long count() {
+        return total;
+    }
+
+    // the upper bound of the bucket the percentile falls in; 0 when nothing has been recorded
+    public synchronized long percentile(double percentile) {
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return upperBoundOf(i);
+            }
+        }
+        return 0;
+    }
+
+    private static int indexOf(long millis) {
+        return millis <= 1 ? 0 : (int) Math.ceil(Math.log(millis) / LOG_RATIO);
+    }
+
+    private static long upperBoundOf(int index) {
+        return (long) Math.ceil(Math.pow(RATIO, index));
+    }
+}
@@ -0,0 +1,73 @@
+package in.projecteka.library.common;
+
+import com.rabbitmq.client.Channel;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Hands each delivery to a reactive pipeline and returns the consumer thread straight away. The delivery is acked
+ * when the pipeline completes and rejected without requeue (so it is dead lettered) when it fails, which needs the
+ * container to run with manual acknowledgement; its prefetch count then bounds the deliveries in flight. Given
+ * {@link RetryTiers}, a failed delivery is sent to its next retry tier and acked instead, unless it could not even
+ * be read.
+ */
+@AllArgsConstructor
+public class ReactiveMessageListener implements ChannelAwareMessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMessageListener.class);
+
+    private final Function<Message, Mono<Void>> handler;
+    private final RetryTiers retryTiers;
+
+    public ReactiveMessageListener(Function<Message, Mono<Void>> handler) {
+        this(handler, null);
+    }
+
+    @Override
+    public void onMessage(Message message, Channel channel) {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        Mono.defer(() -> handler.apply(message))
+                .subscribe(null,
+                        error -> {
+                            logger.error("Failed to process message {}", error.getMessage(), error);
+                            retry(message, error, channel);
+                        },
+                        () -> acknowledge(() -> channel.basicAck(deliveryTag, false)));
+    }
+
+    private void retry(Message message, Throwable error, Channel channel) {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        if (retryTiers == null || error instanceof MessageConversionException) {
+            acknowledge(() -> channel.basicReject(deliveryTag, false));
+            return;
+        }
+        retryTiers.retry(message)
+                .subscribe(null,
+                        retryError -> {
+                            logger.error("Failed to retry message {}", retryError.getMessage(), retryError);
+                            acknowledge(() -> channel.basicReject(deliveryTag, false));
+                        },
+                        () -> acknowledge(() -> channel.basicAck(deliveryTag, false)));
+    }
+
+    private static void acknowledge(Acknowledgement acknowledgement) {
+        try {
+            acknowledgement.send();
+        } catch (IOException e) {
+            // the channel is gone; the broker redelivers everything that was unacked on it
+            logger.error("Failed to acknowledge message {}", e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Acknowledgement {
+        void send() throws IOException;
+    }
+}
@@ -0,0 +1,23 @@
+package in.projecteka.library.common;
+
+import lombok.AllArgsConstructor;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@AllArgsConstructor
+public class RedisCallbackRelay implements CallbackRelay {
+    private final ReactiveRedisOperations<String, String> redisOperations;
+    private final String channel;
+
+    @Override
+    public Mono<Void> publish(String requestId) {
+        return redisOperations.convertAndSend(channel, requestId).then();
+    }
+
+    @Override
+    public Flux<String> received() {
+        return redisOperations.listenToChannel(channel).map(ReactiveSubscription.Message::getMessage);
+    }
+}
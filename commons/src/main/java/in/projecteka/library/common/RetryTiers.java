@@ -0,0 +1,35 @@
+package in.projecteka.library.common;
+
+import lombok.AllArgsConstructor;
+import org.springframework.amqp.core.Message;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Sends a message that failed to the next of a series of delay tiers. Each tier exchange routes to a queue with a
+ * message TTL, dead lettered back to the queue's exchange, so the message comes back to the queue it was received
+ * from once its delay has passed and waits without holding a consumer. The attempt is counted in a header; a
+ * message that has been through every tier goes to the parking exchange.
+ */
+@AllArgsConstructor
+public class RetryTiers {
+    public static final String RETRY_ATTEMPT = "x-retry-attempt";
+
+    private final ConfirmedPublisher publisher;
+    private final List<String> tierExchanges;
+    private final String parkingExchange;
+
+    public Mono<Void> retry(Message message) {
+        var properties = message.getMessageProperties();
+        int attempt = attemptOf(message);
+        properties.setHeader(RETRY_ATTEMPT, attempt + 1);
+        var exchange = attempt < tierExchanges.size() ? tierExchanges.get(attempt) : parkingExchange;
+        return publisher.publish(exchange, properties.getReceivedRoutingKey(), message);
+    }
+
+    private static int attemptOf(Message message) {
+        var attempt = message.getMessageProperties().getHeaders().get(RETRY_ATTEMPT);
+        return attempt instanceof Number ? ((Number) attempt).intValue() : 0;
+    }
+}
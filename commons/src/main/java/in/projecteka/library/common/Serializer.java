@@ -24,6 +24,10 @@ public final class Serializer {
 
     }
 
+    static ObjectMapper mapper() {
+        return mapper;
+    }
+
     @SneakyThrows
     public static <T> String from(T data) {
         try {
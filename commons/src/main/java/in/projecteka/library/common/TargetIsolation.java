@@ -0,0 +1,165 @@
+package in.projecteka.library.common;
+
+import in.projecteka.library.clients.model.ClientError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Isolates outbound calls by the target (HIP or HIU) they are made for. Each target gets its own cap on concurrent
+ * calls and its own circuit breaker, which opens after {@code failureThreshold} consecutive failures and lets a single
+ * trial call through once {@code openDuration} has passed. A call that finds its target full waits in the target's
+ * queue of {@code maxQueuedCalls} for a call to finish; one that finds the queue full, or the circuit open, fails
+ * straight away with {@link TargetUnavailableException}, so a dead target costs one rejection per message instead of a
+ * timeout, and never holds capacity the healthy targets need. The calls waiting when the circuit opens fail as well.
+ */
+public class TargetIsolation {
+    private static final Logger logger = LoggerFactory.getLogger(TargetIsolation.class);
+
+    private final int maxConcurrentCalls;
+    private final int maxQueuedCalls;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+
+    public TargetIsolation(int maxConcurrentCalls,
+                           int maxQueuedCalls,
+                           int failureThreshold,
+                           Duration openDuration,
+                           Clock clock) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxQueuedCalls = maxQueuedCalls;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    public TargetIsolation(int maxConcurrentCalls, int maxQueuedCalls, int failureThreshold, Duration openDuration) {
+        this(maxConcurrentCalls, maxQueuedCalls, failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    public <T> Mono<T> call(String targetId, Mono<T> call) {
+        return Mono.defer(() -> {
+            var target = targets.computeIfAbsent(targetId, Target::new);
+            return target.acquire(clock.millis())
+                    .then(Mono.defer(() -> call
+                            .doOnSuccess(result -> target.succeeded())
+                            .doOnError(error -> {
+                                if (countsAgainst(error)) {
+                                    target.failed(clock.millis());
+                                } else {
+                                    target.succeeded();
+                                }
+                            })
+                            .doFinally(signal -> target.release(signal == SignalType.CANCEL))));
+        });
+    }
+
+    // a 4xx says the request was wrong, not that the target is unhealthy
+    private static boolean countsAgainst(Throwable error) {
+        return !(error instanceof ClientError) || ((ClientError) error).getHttpStatus().is5xxServerError();
+    }
+
+    private class Target {
+        private final String targetId;
+        private final Deque<MonoSink<Void>> waiting = new ArrayDeque<>();
+        private int inFlight;
+        private int failures;
+        private long openUntil;
+        private boolean open;
+        private boolean trial;
+
+        Target(String targetId) {
+            this.targetId = targetId;
+        }
+
+        // completes once the call holds one of the target's slots
+        Mono<Void> acquire(long now) {
+            return Mono.create(sink -> {
+                synchronized (this) {
+                    if (open) {
+                        if (now < openUntil || trial) {
+                            sink.error(new TargetUnavailableException(targetId));
+                            return;
+                        }
+                        trial = true;
+                    } else if (inFlight >= maxConcurrentCalls) {
+                        if (waiting.size() >= maxQueuedCalls) {
+                            sink.error(new TargetUnavailableException(targetId));
+                            return;
+                        }
+                        waiting.add(sink);
+                        sink.onCancel(() -> abandon(sink));
+                        return;
+                    }
+                    inFlight++;
+                }
+                sink.success();
+            });
+        }
+
+        // a waiting call that is cancelled leaves the queue; one that was handed a slot it never got to use gives it
+        // back
+        private void abandon(MonoSink<Void> sink) {
+            boolean queued;
+            synchronized (this) {
+                queued = waiting.remove(sink);
+            }
+            if (!queued) {
+                release(false);
+            }
+        }
+
+        synchronized void succeeded() {
+            failures = 0;
+            open = false;
+            trial = false;
+        }
+
+        void failed(long now) {
+            List<MonoSink<Void>> rejected = new ArrayList<>();
+            synchronized (this) {
+                failures++;
+                if (trial || failures >= failureThreshold) {
+                    if (!open) {
+                        logger.warn("Circuit opened for {} after {} consecutive failures", targetId, failures);
+                    }
+                    open = true;
+                    trial = false;
+                    openUntil = now + openDuration.toMillis();
+                    rejected.addAll(waiting);
+                    waiting.clear();
+                }
+            }
+            rejected.forEach(sink -> sink.error(new TargetUnavailableException(targetId)));
+        }
+
+        // a cancelled trial decided nothing, so the next call gets to try
+        void release(boolean cancelled) {
+            List<MonoSink<Void>> admitted = new ArrayList<>();
+            synchronized (this) {
+                inFlight--;
+                if (cancelled) {
+                    trial = false;
+                }
+                while (!open && inFlight < maxConcurrentCalls && !waiting.isEmpty()) {
+                    admitted.add(waiting.poll());
+                    inFlight++;
+                }
+            }
+            admitted.forEach(MonoSink::success);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package in.projecteka.library.common;
+
+public class TargetUnavailableException extends RuntimeException {
+    public TargetUnavailableException(String targetId) {
+        super(String.format("%s is unavailable, either at its concurrency limit or its circuit is open", targetId));
+    }
+}
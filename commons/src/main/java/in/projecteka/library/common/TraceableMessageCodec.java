@@ -0,0 +1,92 @@
+package in.projecteka.library.common;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.Value;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes a {@link TraceableMessage} with its correlation id as the AMQP correlation id and the payload class in the
+ * {@value #PAYLOAD_TYPE} header, and reads it back by streaming the envelope and binding the payload straight to the
+ * listener's type through a cached {@link ObjectReader}, instead of going through a map first. The envelope is
+ * still the one {@link Jackson2JsonMessageConverter} writes, so either side can be the older one.
+ */
+public class TraceableMessageCodec extends Jackson2JsonMessageConverter {
+    public static final String PAYLOAD_TYPE = "payloadType";
+    private static final String CORRELATION_ID_FIELD = "correlationId";
+    private static final String MESSAGE_FIELD = "message";
+
+    private final ObjectMapper mapper;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public TraceableMessageCodec(ObjectMapper mapper) {
+        super(mapper);
+        this.mapper = mapper;
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties, Type genericType) {
+        if (object instanceof TraceableMessage) {
+            var traceableMessage = (TraceableMessage) object;
+            messageProperties.setCorrelationId(traceableMessage.getCorrelationId());
+            if (traceableMessage.getMessage() != null) {
+                messageProperties.setHeader(PAYLOAD_TYPE, traceableMessage.getMessage().getClass().getName());
+            }
+        }
+        return super.createMessage(object, messageProperties, genericType);
+    }
+
+    public <T> Delivery<T> decode(Message message, Class<T> type) {
+        var properties = message.getMessageProperties();
+        var payloadType = properties.getHeaders().get(PAYLOAD_TYPE);
+        if (payloadType != null && !type.getName().equals(payloadType.toString())) {
+            throw new MessageConversionException(String.format("Expected %s but received %s",
+                    type.getName(),
+                    payloadType));
+        }
+        String correlationId = properties.getCorrelationId();
+        T payload = null;
+        try (JsonParser parser = mapper.getFactory().createParser(message.getBody())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MessageConversionException("Message is not a traceable message");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = parser.getCurrentName();
+                parser.nextToken();
+                if (MESSAGE_FIELD.equals(field)) {
+                    payload = readerOf(type).readValue(parser);
+                } else if (CORRELATION_ID_FIELD.equals(field) && correlationId == null) {
+                    correlationId = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to decode " + type.getName(), e);
+        }
+        return new Delivery<>(Optional.ofNullable(correlationId).orElseGet(() -> UUID.randomUUID().toString()),
+                payload);
+    }
+
+    private ObjectReader readerOf(Class<?> type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    @Value
+    public static class Delivery<T> {
+        String correlationId;
+        T message;
+    }
+}
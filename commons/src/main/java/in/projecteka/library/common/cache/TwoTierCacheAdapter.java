@@ -0,0 +1,176 @@
+package in.projecteka.library.common.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded in-process cache in front of an optional shared one. Invalidations are published on a redis channel,
+ * so every node drops its near copy of the key as well; without redis the adapter is near only. The near expiry is
+ * independent of the remote one, so values that a missed invalidation would leave stale can be kept briefly.
+ */
+public class TwoTierCacheAdapter implements CacheAdapter<String, String>, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TwoTierCacheAdapter.class);
+
+    private final String name;
+    private final Cache<String, String> near;
+    private final CacheAdapter<String, String> remote;
+    private final ReactiveRedisOperations<String, String> invalidations;
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    public TwoTierCacheAdapter(String name,
+                               long maximumSize,
+                               Duration expiry,
+                               CacheAdapter<String, String> remote,
+                               ReactiveRedisOperations<String, String> invalidations) {
+        this.name = name;
+        this.near = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expiry).build();
+        this.remote = remote;
+        this.invalidations = invalidations;
+    }
+
+    public static TwoTierCacheAdapter nearOnly(String name, long maximumSize, Duration expiry) {
+        return new TwoTierCacheAdapter(name, maximumSize, expiry, null, null);
+    }
+
+    public TwoTierCacheAdapter listen(Duration reportEvery) {
+        if (invalidations != null) {
+            subscriptions.add(invalidations.listenToChannel(channel())
+                    .doOnNext(message -> near.invalidate(message.getMessage()))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1)))
+                    .subscribe());
+        }
+        subscriptions.add(Flux.interval(reportEvery)
+                .subscribe(tick -> logger.info("Cache {} {}", name, statistics())));
+        return this;
+    }
+
+    @Override
+    public Mono<String> get(String key) {
+        return getIfPresent(key);
+    }
+
+    @Override
+    public Mono<Void> put(String key, String value) {
+        return Mono.defer(() -> store(key, value));
+    }
+
+    private Mono<Void> store(String key, String value) {
+        near.put(key, value);
+        if (remote == null) {
+            return Mono.empty();
+        }
+        return remote.put(remoteKey(key), value).onErrorResume(this::ignore);
+    }
+
+    @Override
+    public Mono<String> getIfPresent(String key) {
+        return Mono.defer(() -> lookup(key));
+    }
+
+    private Mono<String> lookup(String key) {
+        var value = near.getIfPresent(key);
+        if (value != null) {
+            nearHits.increment();
+            return Mono.just(value);
+        }
+        if (remote == null) {
+            misses.increment();
+            return Mono.empty();
+        }
+        return remote.getIfPresent(remoteKey(key))
+                .onErrorResume(this::ignore)
+                .doOnNext(remoteValue -> {
+                    remoteHits.increment();
+                    near.put(key, remoteValue);
+                })
+                .switchIfEmpty(Mono.fromRunnable(misses::increment));
+    }
+
+    // a failed invalidation is only logged, the write it follows has already been committed
+    @Override
+    public Mono<Void> invalidate(String key) {
+        return Mono.defer(() -> evict(key));
+    }
+
+    // the other nodes' near copies are dropped even when the remote one could not be
+    private Mono<Void> evict(String key) {
+        near.invalidate(key);
+        if (remote == null) {
+            return Mono.empty();
+        }
+        return remote.invalidate(remoteKey(key))
+                .onErrorResume(this::ignore)
+                .then(invalidations == null
+                      ? Mono.empty()
+                      : invalidations.convertAndSend(channel(), key).then().onErrorResume(this::ignore));
+    }
+
+    @Override
+    public Mono<Boolean> exists(String key) {
+        return Mono.defer(() -> near.getIfPresent(key) != null || remote == null
+                                ? Mono.just(near.getIfPresent(key) != null)
+                                : remote.exists(remoteKey(key)).onErrorReturn(false));
+    }
+
+    // counters live in the shared tier only, a near copy would lag behind the other nodes' increments
+    @Override
+    public Mono<Long> increment(String key) {
+        return Mono.defer(() -> {
+            if (remote == null) {
+                var count = near.asMap().merge(key, "1", (value, one) -> String.valueOf(Long.parseLong(value) + 1));
+                return Mono.just(Long.parseLong(count));
+            }
+            near.invalidate(key);
+            return remote.increment(remoteKey(key));
+        });
+    }
+
+    public Statistics statistics() {
+        return new Statistics(nearHits.sum(), remoteHits.sum(), misses.sum());
+    }
+
+    @Override
+    public void close() {
+        subscriptions.dispose();
+    }
+
+    private String remoteKey(String key) {
+        return name + ":" + key;
+    }
+
+    private String channel() {
+        return name + ":invalidations";
+    }
+
+    private <T> Mono<T> ignore(Throwable error) {
+        logger.error("Cache {} is not accessible, falling back to the source", name, error);
+        return Mono.empty();
+    }
+
+    @Value
+    public static class Statistics {
+        long nearHits;
+        long remoteHits;
+        long misses;
+
+        public double getHitRatio() {
+            long total = nearHits + remoteHits + misses;
+            return total == 0 ? 0 : (double) (nearHits + remoteHits) / total;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package common;
+
+import in.projecteka.library.common.CallbackCorrelator;
+import in.projecteka.library.common.CallbackRelay;
+import in.projecteka.library.common.CallbackTimeouts;
+import in.projecteka.library.common.DelayTimeoutException;
+import in.projecteka.library.common.cache.CacheAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static common.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class CallbackCorrelatorTest {
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(10);
+
+    @Mock
+    CacheAdapter<String, String> results;
+
+    @Mock
+    CallbackRelay relay;
+
+    private final DirectProcessor<String> relayed = DirectProcessor.create();
+
+    private CallbackTimeouts callbackTimeouts;
+
+    private CallbackCorrelator callbackCorrelator;
+
+    @BeforeEach
+    void init() {
+        initMocks(this);
+        when(results.put(anyString(), anyString())).thenReturn(Mono.empty());
+        when(results.get(anyString())).thenReturn(Mono.empty());
+        when(relay.publish(anyString())).thenReturn(Mono.empty());
+        when(relay.received()).thenReturn(relayed);
+        callbackTimeouts = new CallbackTimeouts(99, Duration.ofMillis(100), Duration.ofSeconds(5), 20);
+        callbackCorrelator = new CallbackCorrelator(results, relay, POLL_INTERVAL, callbackTimeouts);
+        callbackCorrelator.subscribe();
+    }
+
+    @Test
+    void shouldCompleteTheWaitingRequestWhenItsCallbackArrives() {
+        var requestId = string();
+        var response = string();
+
+        create(callbackCorrelator.exchange(requestId, Mono.just(true), Duration.ofSeconds(5)))
+                .then(() -> callbackCorrelator.complete(requestId, response).block())
+                .expectNext(response)
+                .verifyComplete();
+
+        verify(results).put(requestId, response);
+        verify(relay, never()).publish(anyString());
+    }
+
+    @Test
+    void shouldRelayACallbackNobodyHereIsWaitingFor() {
+        var requestId = string();
+        var response = string();
+
+        create(callbackCorrelator.complete(requestId, response)).verifyComplete();
+
+        verify(results).put(requestId, response);
+        verify(relay).publish(requestId);
+    }
+
+    @Test
+    void shouldCompleteTheWaitingRequestWhenItsCallbackIsRelayed() {
+        var requestId = string();
+        var response = string();
+
+        create(callbackCorrelator.exchange(requestId, Mono.just(true), Duration.ofSeconds(5)))
+                .then(() -> {
+                    when(results.get(requestId)).thenReturn(Mono.just(response));
+                    relayed.onNext(requestId);
+                })
+                .expectNext(response)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFallBackToPollingTheResults() {
+        var requestId = string();
+        var response = string();
+        when(results.get(requestId)).thenReturn(Mono.just(response));
+
+        StepVerifier.withVirtualTime(() -> callbackCorrelator.exchange(requestId, Mono.just(true), Duration.ofSeconds(30)))
+                .expectSubscription()
+                .thenAwait(POLL_INTERVAL)
+                .expectNext(response)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldTimeOutWhenNoCallbackArrives() {
+        create(callbackCorrelator.exchange(string(), Mono.just(true), Duration.ofMillis(100)))
+                .verifyError(DelayTimeoutException.class);
+    }
+
+    @Test
+    void shouldCountATimeoutAgainstTheTargetAsASample() {
+        StepVerifier.withVirtualTime(() -> callbackCorrelator.exchange(string(), "hip", Mono.just(true)))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(5))
+                .verifyError(DelayTimeoutException.class);
+
+        assertThat(callbackTimeouts.stats().get("hip").getTimeouts()).isEqualTo(1);
+        assertThat(callbackTimeouts.stats().get("hip").getSamples()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordHowLongTheTargetsCallbackTook() {
+        var requestId = string();
+
+        create(callbackCorrelator.exchange(requestId, "hip", Mono.just(true)))
+                .then(() -> callbackCorrelator.complete(requestId, string()).block())
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(callbackTimeouts.stats().get("hip").getSamples()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotWaitWhenTheRequestIsNotSent() {
+        create(callbackCorrelator.exchange(string(), Mono.empty(), Duration.ofSeconds(5)))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,92 @@
+package common;
+
+import in.projecteka.library.common.CallbackTimeouts;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallbackTimeoutsTest {
+    private static final Duration FLOOR = Duration.ofMillis(500);
+    private static final Duration CEILING = Duration.ofSeconds(10);
+
+    private final CallbackTimeouts callbackTimeouts = new CallbackTimeouts(99, FLOOR, CEILING, 20);
+
+    @Test
+    void shouldWaitTheCeilingForATargetWithTooFewCallbacks() {
+        record("hip", 19, 1000);
+
+        assertThat(callbackTimeouts.timeoutFor("hip")).isEqualTo(CEILING);
+        assertThat(callbackTimeouts.timeoutFor("unknown")).isEqualTo(CEILING);
+    }
+
+    @Test
+    void shouldWaitAboutThePercentileOfTheTargetsCallbacks() {
+        record("hip", 98, 1000);
+        record("hip", 2, 3000);
+
+        var timeout = callbackTimeouts.timeoutFor("hip").toMillis();
+
+        assertThat(timeout).isBetween(3000L, 3300L);
+    }
+
+    @Test
+    void shouldKeepTheTimeoutBetweenTheFloorAndTheCeiling() {
+        record("fast", 100, 10);
+        record("slow", 100, 60_000);
+
+        assertThat(callbackTimeouts.timeoutFor("fast")).isEqualTo(FLOOR);
+        assertThat(callbackTimeouts.timeoutFor("slow")).isEqualTo(CEILING);
+    }
+
+    @Test
+    void shouldFollowATargetThatSpeedsUp() {
+        record("hip", 100, 5000);
+        record("hip", 5000, 1000);
+
+        assertThat(callbackTimeouts.timeoutFor("hip").toMillis()).isBetween(1000L, 1100L);
+    }
+
+    @Test
+    void shouldFollowATargetThatSlowsDownPastItsTimeout() {
+        record("hip", 5000, 600);
+        assertThat(callbackTimeouts.timeoutFor("hip").toMillis()).isBetween(600L, 660L);
+
+        timeOut("hip", 100);
+
+        assertThat(callbackTimeouts.timeoutFor("hip")).isEqualTo(CEILING);
+
+        record("hip", 5000, 2000);
+
+        assertThat(callbackTimeouts.timeoutFor("hip").toMillis()).isBetween(2000L, 2200L);
+    }
+
+    @Test
+    void shouldReportTheStatsOfEveryTarget() {
+        record("hip", 10, 1000);
+        callbackTimeouts.timedOut("hip");
+        callbackTimeouts.timedOut("other");
+
+        var stats = callbackTimeouts.stats();
+
+        assertThat(stats).containsOnlyKeys("hip", "other");
+        assertThat(stats.get("hip").getSamples()).isEqualTo(11);
+        assertThat(stats.get("hip").getTimeouts()).isEqualTo(1);
+        assertThat(stats.get("hip").getP50()).isBetween(1000L, 1100L);
+        assertThat(stats.get("hip").getTimeout()).isEqualTo(CEILING.toMillis());
+        assertThat(stats.get("other").getSamples()).isEqualTo(1);
+    }
+
+    private void record(String target, int times, long millis) {
+        for (int i = 0; i < times; i++) {
+            callbackTimeouts.record(target, Duration.ofMillis(millis));
+        }
+    }
+
+    private void timeOut(String target, int times) {
+        for (int i = 0; i < times; i++) {
+            callbackTimeouts.timedOut(target);
+        }
+    }
+}
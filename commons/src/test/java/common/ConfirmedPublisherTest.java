@@ -0,0 +1,125 @@
+package common;
+
+import in.projecteka.library.common.ConfirmedPublisher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static common.TestBuilders.string;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class ConfirmedPublisherTest {
+    private static final String EXCHANGE = "exchange";
+    private static final String ROUTING_KEY = "routing-key";
+
+    @Mock
+    RabbitTemplate rabbitTemplate;
+
+    @Mock
+    RabbitOperations operations;
+
+    private ConfirmedPublisher confirmedPublisher;
+
+    @BeforeEach
+    void init() {
+        initMocks(this);
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operations));
+        confirmedPublisher = new ConfirmedPublisher(rabbitTemplate, Schedulers.immediate(), 10, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void shouldCompleteOnceTheBrokerConfirms() {
+        var message = string();
+        var correlation = ArgumentCaptor.forClass(CorrelationData.class);
+
+        create(confirmedPublisher.publish(EXCHANGE, ROUTING_KEY, message))
+                .then(() -> {
+                    verify(operations)
+                            .convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY), eq(message), correlation.capture());
+                    correlation.getValue().getFuture().set(new CorrelationData.Confirm(true, null));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFailWhenTheBrokerNacks() {
+        var message = string();
+        var correlation = ArgumentCaptor.forClass(CorrelationData.class);
+
+        create(confirmedPublisher.publish(EXCHANGE, ROUTING_KEY, message))
+                .then(() -> {
+                    verify(operations)
+                            .convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY), eq(message), correlation.capture());
+                    correlation.getValue().getFuture().set(new CorrelationData.Confirm(false, "queue full"));
+                })
+                .verifyErrorMessage("Broker did not accept the message: queue full");
+    }
+
+    @Test
+    void shouldFailWhenTheMessageIsReturned() {
+        var message = string();
+        var correlation = ArgumentCaptor.forClass(CorrelationData.class);
+
+        create(confirmedPublisher.publish(EXCHANGE, ROUTING_KEY, message))
+                .then(() -> {
+                    verify(operations)
+                            .convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY), eq(message), correlation.capture());
+                    correlation.getValue().setReturnedMessage(new Message(new byte[0], new MessageProperties()));
+                    correlation.getValue().getFuture().set(new CorrelationData.Confirm(true, null));
+                })
+                .verifyErrorMessage("Message could not be routed to exchange/routing-key");
+    }
+
+    @Test
+    void shouldFailWhenTheMessageCanNotBeSent() {
+        var message = string();
+        doThrow(new AmqpException("Connection refused"))
+                .when(operations)
+                .convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY), eq(message), any(CorrelationData.class));
+
+        create(confirmedPublisher.publish(EXCHANGE, ROUTING_KEY, message))
+                .verifyErrorMessage("Connection refused");
+    }
+
+    @Test
+    void shouldTimeOutWithoutAConfirm() {
+        var publisher = new ConfirmedPublisher(rabbitTemplate, Schedulers.immediate(), 10, Duration.ofMillis(50));
+
+        create(publisher.publish(EXCHANGE, ROUTING_KEY, string()))
+                .verifyError(TimeoutException.class);
+    }
+
+    @Test
+    void shouldNotSendAMessageWhoseCallerTimedOutBeforeItWasSent() {
+        List<Runnable> workers = new ArrayList<>();
+        var publisher = new ConfirmedPublisher(rabbitTemplate, Schedulers.fromExecutor(workers::add), 10,
+                Duration.ofMillis(50));
+
+        create(publisher.publish(EXCHANGE, ROUTING_KEY, string()))
+                .verifyError(TimeoutException.class);
+        workers.forEach(Runnable::run);
+
+        verify(rabbitTemplate, never()).invoke(any());
+    }
+}
@@ -0,0 +1,75 @@
+package common;
+
+import in.projecteka.library.common.JsonCodec;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonCodecTest {
+
+    enum Mode {
+        VIEW, STORE
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    static class Reference {
+        private String id;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    static class Document {
+        private String id;
+        private Mode mode;
+        private LocalDateTime createdAt;
+        private Reference hip;
+        private List<Reference> careContexts;
+    }
+
+    @Test
+    void shouldRoundTripThroughJsonObject() {
+        var document = new Document("id",
+                Mode.STORE,
+                LocalDateTime.of(2020, 8, 10, 12, 30, 5),
+                new Reference("hip"),
+                List.of(new Reference("first"), new Reference("second")));
+
+        var encoded = JsonCodec.encode(document);
+
+        assertThat(encoded.getString("mode")).isEqualTo("STORE");
+        assertThat(encoded.getString("createdAt")).isEqualTo("2020-08-10T12:30:05");
+        assertThat(JsonCodec.decode(encoded, Document.class)).isEqualTo(document);
+    }
+
+    @Test
+    void shouldDecodeNestedVertxJsonAndIgnoreUnknownFields() {
+        var value = new JsonObject()
+                .put("id", "id")
+                .put("unknown", "ignored")
+                .put("hip", new JsonObject().put("id", "hip"))
+                .put("careContexts", new JsonArray().add(new JsonObject().put("id", "first")));
+
+        var document = JsonCodec.decode(value, Document.class);
+
+        assertThat(document.getHip().getId()).isEqualTo("hip");
+        assertThat(document.getCareContexts()).containsExactly(new Reference("first"));
+    }
+
+    @Test
+    void shouldDecodeTextAndNull() {
+        assertThat(JsonCodec.decode("{\"id\":\"hip\"}", Reference.class)).isEqualTo(new Reference("hip"));
+        assertThat(JsonCodec.decode(null, Reference.class)).isNull();
+        assertThat(JsonCodec.encode(null)).isNull();
+    }
+}
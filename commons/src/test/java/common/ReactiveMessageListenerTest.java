@@ -0,0 +1,114 @@
+package common;
+
+import com.rabbitmq.client.Channel;
+import in.projecteka.library.common.ReactiveMessageListener;
+import in.projecteka.library.common.RetryTiers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.io.IOException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class ReactiveMessageListenerTest {
+    private static final long DELIVERY_TAG = 7L;
+
+    @Mock
+    Channel channel;
+
+    @Mock
+    RetryTiers retryTiers;
+
+    private Message message;
+
+    @BeforeEach
+    void init() {
+        initMocks(this);
+        var properties = new MessageProperties();
+        properties.setDeliveryTag(DELIVERY_TAG);
+        message = new Message(new byte[0], properties);
+    }
+
+    @Test
+    void shouldAckOnlyOnceThePipelineCompletes() throws IOException {
+        MonoProcessor<Void> processing = MonoProcessor.create();
+        var listener = new ReactiveMessageListener(received -> processing);
+
+        listener.onMessage(message, channel);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        processing.onComplete();
+        verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void shouldRejectWithoutRequeueWhenThePipelineFails() throws IOException {
+        var listener = new ReactiveMessageListener(received -> Mono.error(new Exception("Gateway unavailable")));
+
+        listener.onMessage(message, channel);
+
+        verify(channel).basicReject(DELIVERY_TAG, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldRejectWhenTheMessageCanNotBeRead() throws IOException {
+        var listener = new ReactiveMessageListener(received -> {
+            throw new IllegalArgumentException("Unreadable message");
+        });
+
+        listener.onMessage(message, channel);
+
+        verify(channel).basicReject(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void shouldAckOnceTheFailedMessageIsSentToItsRetryTier() throws IOException {
+        when(retryTiers.retry(message)).thenReturn(Mono.empty());
+        var listener = new ReactiveMessageListener(received -> Mono.error(new Exception("Gateway unavailable")),
+                retryTiers);
+
+        listener.onMessage(message, channel);
+
+        verify(retryTiers).retry(message);
+        verify(channel).basicAck(DELIVERY_TAG, false);
+        verify(channel, never()).basicReject(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldRejectWhenTheRetryCanNotBePublished() throws IOException {
+        when(retryTiers.retry(message)).thenReturn(Mono.error(new AmqpException("Broker unavailable")));
+        var listener = new ReactiveMessageListener(received -> Mono.error(new Exception("Gateway unavailable")),
+                retryTiers);
+
+        listener.onMessage(message, channel);
+
+        verify(channel).basicReject(DELIVERY_TAG, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldNotRetryAMessageThatCanNotBeDecoded() throws IOException {
+        var listener = new ReactiveMessageListener(received -> {
+            throw new MessageConversionException("Unreadable message");
+        }, retryTiers);
+
+        listener.onMessage(message, channel);
+
+        verify(retryTiers, never()).retry(any());
+        verify(channel).basicReject(DELIVERY_TAG, false);
+    }
+}
@@ -0,0 +1,77 @@
+package common;
+
+import in.projecteka.library.common.ConfirmedPublisher;
+import in.projecteka.library.common.RetryTiers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static in.projecteka.library.common.RetryTiers.RETRY_ATTEMPT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class RetryTiersTest {
+    private static final String QUEUE = "hip-consent-notification-queue";
+    private static final List<String> TIERS = List.of("retry-10s", "retry-1m", "retry-10m");
+    private static final String PARKING_EXCHANGE = "parking.exchange";
+
+    @Mock
+    ConfirmedPublisher publisher;
+
+    private RetryTiers retryTiers;
+
+    @BeforeEach
+    void init() {
+        initMocks(this);
+        when(publisher.publish(anyString(), anyString(), any())).thenReturn(Mono.empty());
+        retryTiers = new RetryTiers(publisher, TIERS, PARKING_EXCHANGE);
+    }
+
+    private static Message received(Integer attempt) {
+        var properties = new MessageProperties();
+        properties.setReceivedRoutingKey(QUEUE);
+        if (attempt != null) {
+            properties.setHeader(RETRY_ATTEMPT, attempt);
+        }
+        return new Message(new byte[0], properties);
+    }
+
+    @Test
+    void shouldSendAFirstFailureToTheFirstTier() {
+        var message = received(null);
+
+        create(retryTiers.retry(message)).verifyComplete();
+
+        verify(publisher).publish("retry-10s", QUEUE, message);
+        assertThat(message.getMessageProperties().getHeaders().get(RETRY_ATTEMPT)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEscalateToTheNextTier() {
+        var message = received(2);
+
+        create(retryTiers.retry(message)).verifyComplete();
+
+        verify(publisher).publish("retry-10m", QUEUE, message);
+        assertThat(message.getMessageProperties().getHeaders().get(RETRY_ATTEMPT)).isEqualTo(3);
+    }
+
+    @Test
+    void shouldParkOnceEveryTierIsExhausted() {
+        var message = received(3);
+
+        create(retryTiers.retry(message)).verifyComplete();
+
+        verify(publisher).publish(PARKING_EXCHANGE, QUEUE, message);
+    }
+}
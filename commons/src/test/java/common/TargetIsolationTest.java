@@ -0,0 +1,140 @@
+package common;
+
+import in.projecteka.library.clients.model.ClientError;
+import in.projecteka.library.common.TargetIsolation;
+import in.projecteka.library.common.TargetUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class TargetIsolationTest {
+    private static final String HIP = "10000005";
+    private static final String OTHER_HIP = "10000006";
+
+    @Mock
+    Clock clock;
+
+    private TargetIsolation targetIsolation;
+
+    @BeforeEach
+    void init() {
+        initMocks(this);
+        when(clock.millis()).thenReturn(0L);
+        targetIsolation = new TargetIsolation(2, 1, 3, Duration.ofSeconds(30), clock);
+    }
+
+    private void fail(String target, int times) {
+        for (int i = 0; i < times; i++) {
+            create(targetIsolation.call(target, Mono.error(new TimeoutException()))).verifyError(TimeoutException.class);
+        }
+    }
+
+    @Test
+    void shouldQueueCallsOverTheConcurrencyCapOfATargetOnly() {
+        MonoProcessor<Void> first = MonoProcessor.create();
+        MonoProcessor<Void> second = MonoProcessor.create();
+        targetIsolation.call(HIP, first).subscribe();
+        targetIsolation.call(HIP, second).subscribe();
+        var queued = new AtomicBoolean();
+
+        targetIsolation.call(HIP, Mono.fromRunnable(() -> queued.set(true))).subscribe();
+        create(targetIsolation.call(OTHER_HIP, Mono.empty())).verifyComplete();
+
+        assertThat(queued).isFalse();
+        first.onComplete();
+        assertThat(queued).isTrue();
+    }
+
+    @Test
+    void shouldRejectCallsOnceTheQueueOfATargetIsFull() {
+        MonoProcessor<Void> first = MonoProcessor.create();
+        targetIsolation.call(HIP, first).subscribe();
+        targetIsolation.call(HIP, Mono.never()).subscribe();
+        targetIsolation.call(HIP, Mono.empty()).subscribe();
+
+        create(targetIsolation.call(HIP, Mono.empty())).verifyError(TargetUnavailableException.class);
+
+        first.onComplete();
+        create(targetIsolation.call(HIP, Mono.empty())).verifyComplete();
+    }
+
+    @Test
+    void shouldFreeTheQueueOfACancelledCall() {
+        MonoProcessor<Void> first = MonoProcessor.create();
+        targetIsolation.call(HIP, first).subscribe();
+        targetIsolation.call(HIP, Mono.never()).subscribe();
+        var waiting = targetIsolation.call(HIP, Mono.empty()).subscribe();
+
+        waiting.dispose();
+
+        var queued = new AtomicBoolean();
+        targetIsolation.call(HIP, Mono.fromRunnable(() -> queued.set(true))).subscribe();
+        first.onComplete();
+        assertThat(queued).isTrue();
+    }
+
+    @Test
+    void shouldFailTheQueuedCallsWhenTheCircuitOpens() {
+        var isolation = new TargetIsolation(1, 1, 1, Duration.ofSeconds(30), clock);
+        MonoProcessor<Void> first = MonoProcessor.create();
+        isolation.call(HIP, first).onErrorResume(error -> Mono.empty()).subscribe();
+
+        create(isolation.call(HIP, Mono.empty()))
+                .then(() -> first.onError(new TimeoutException()))
+                .verifyError(TargetUnavailableException.class);
+    }
+
+    @Test
+    void shouldOpenTheCircuitAfterConsecutiveFailures() {
+        fail(HIP, 3);
+
+        create(targetIsolation.call(HIP, Mono.empty())).verifyError(TargetUnavailableException.class);
+        create(targetIsolation.call(OTHER_HIP, Mono.empty())).verifyComplete();
+    }
+
+    @Test
+    void shouldNotCountClientErrorsAgainstTheTarget() {
+        fail(HIP, 2);
+        create(targetIsolation.call(HIP, Mono.error(ClientError.unAuthorized()))).verifyError(ClientError.class);
+        fail(HIP, 2);
+
+        create(targetIsolation.call(HIP, Mono.empty())).verifyComplete();
+    }
+
+    @Test
+    void shouldCloseTheCircuitWhenTheTrialCallSucceeds() {
+        fail(HIP, 3);
+        when(clock.millis()).thenReturn(30_000L);
+        MonoProcessor<Void> trial = MonoProcessor.create();
+        targetIsolation.call(HIP, trial).subscribe();
+
+        create(targetIsolation.call(HIP, Mono.empty())).verifyError(TargetUnavailableException.class);
+
+        trial.onComplete();
+        create(targetIsolation.call(HIP, Mono.empty())).verifyComplete();
+    }
+
+    @Test
+    void shouldReopenTheCircuitWhenTheTrialCallFails() {
+        fail(HIP, 3);
+        when(clock.millis()).thenReturn(30_000L);
+
+        fail(HIP, 1);
+
+        create(targetIsolation.call(HIP, Mono.empty())).verifyError(TargetUnavailableException.class);
+        when(clock.millis()).thenReturn(60_000L);
+        create(targetIsolation.call(HIP, Mono.empty())).verifyComplete();
+    }
+}
@@ -0,0 +1,86 @@
+package common;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import in.projecteka.library.common.TraceableMessage;
+import in.projecteka.library.common.TraceableMessageCodec;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static in.projecteka.library.common.TraceableMessageCodec.PAYLOAD_TYPE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TraceableMessageCodecTest {
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    static class Notification {
+        private String id;
+        private LocalDateTime timestamp;
+        private List<String> careContexts;
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final TraceableMessageCodec codec = new TraceableMessageCodec(mapper);
+
+    private static Notification notification() {
+        return new Notification("id", LocalDateTime.of(2020, 9, 1, 10, 15), List.of("first", "second"));
+    }
+
+    @Test
+    void shouldCarryCorrelationIdAndPayloadTypeInProperties() {
+        var message = codec.toMessage(TraceableMessage.builder()
+                        .correlationId("correlation-id")
+                        .message(notification())
+                        .build(),
+                new MessageProperties());
+
+        assertThat(message.getMessageProperties().getCorrelationId()).isEqualTo("correlation-id");
+        assertThat(message.getMessageProperties().getHeaders().get(PAYLOAD_TYPE))
+                .isEqualTo(Notification.class.getName());
+
+        var delivery = codec.decode(message, Notification.class);
+
+        assertThat(delivery.getCorrelationId()).isEqualTo("correlation-id");
+        assertThat(delivery.getMessage()).isEqualTo(notification());
+    }
+
+    @Test
+    void shouldDecodeMessagesFromProducersWithoutTheCodec() {
+        var message = new Jackson2JsonMessageConverter(mapper).toMessage(TraceableMessage.builder()
+                        .correlationId("correlation-id")
+                        .message(notification())
+                        .build(),
+                new MessageProperties());
+
+        var delivery = codec.decode(message, Notification.class);
+
+        assertThat(delivery.getCorrelationId()).isEqualTo("correlation-id");
+        assertThat(delivery.getMessage()).isEqualTo(notification());
+    }
+
+    @Test
+    void shouldRejectPayloadOfAnotherType() {
+        var message = codec.toMessage(TraceableMessage.builder()
+                        .correlationId("correlation-id")
+                        .message(notification())
+                        .build(),
+                new MessageProperties());
+
+        assertThatThrownBy(() -> codec.decode(message, String.class))
+                .isInstanceOf(MessageConversionException.class);
+    }
+}
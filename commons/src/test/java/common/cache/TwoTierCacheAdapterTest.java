@@ -0,0 +1,149 @@
+package common.cache;
+
+import in.projecteka.library.common.cache.CacheAdapter;
+import in.projecteka.library.common.cache.TwoTierCacheAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+
+import java.time.Duration;
+
+import static common.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.core.publisher.Mono.empty;
+import static reactor.core.publisher.Mono.error;
+import static reactor.core.publisher.Mono.just;
+import static reactor.test.StepVerifier.create;
+
+class TwoTierCacheAdapterTest {
+    private static final String NAME = "consent-artefact";
+
+    @Mock
+    CacheAdapter<String, String> remote;
+
+    @Mock
+    ReactiveRedisOperations<String, String> invalidations;
+
+    private TwoTierCacheAdapter cache;
+
+    @BeforeEach
+    void init() {
+        initMocks(this);
+        cache = new TwoTierCacheAdapter(NAME, 10, Duration.ofMinutes(5), remote, invalidations);
+    }
+
+    @Test
+    void shouldServeFromNearCacheAfterPut() {
+        var key = string();
+        var value = string();
+        when(remote.put(NAME + ":" + key, value)).thenReturn(empty());
+
+        create(cache.put(key, value).then(cache.getIfPresent(key)))
+                .assertNext(actual -> assertThat(actual).isEqualTo(value))
+                .verifyComplete();
+
+        verify(remote, never()).getIfPresent(anyString());
+        assertThat(cache.statistics().getNearHits()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepRemoteHitInNearCache() {
+        var key = string();
+        var value = string();
+        when(remote.getIfPresent(NAME + ":" + key)).thenReturn(just(value));
+
+        create(cache.getIfPresent(key).then(cache.getIfPresent(key)))
+                .assertNext(actual -> assertThat(actual).isEqualTo(value))
+                .verifyComplete();
+
+        verify(remote, times(1)).getIfPresent(NAME + ":" + key);
+        assertThat(cache.statistics().getRemoteHits()).isEqualTo(1);
+        assertThat(cache.statistics().getNearHits()).isEqualTo(1);
+        assertThat(cache.statistics().getHitRatio()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCountMissWhenBothTiersAreEmpty() {
+        var key = string();
+        when(remote.getIfPresent(NAME + ":" + key)).thenReturn(empty());
+
+        create(cache.getIfPresent(key)).verifyComplete();
+
+        assertThat(cache.statistics().getMisses()).isEqualTo(1);
+        assertThat(cache.statistics().getHitRatio()).isZero();
+    }
+
+    @Test
+    void shouldTreatRemoteFailureAsMiss() {
+        var key = string();
+        when(remote.getIfPresent(NAME + ":" + key)).thenReturn(error(new Exception("Connection error")));
+
+        create(cache.getIfPresent(key)).verifyComplete();
+
+        assertThat(cache.statistics().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldInvalidateBothTiersAndPublishTheKey() {
+        var key = string();
+        var value = string();
+        when(remote.put(NAME + ":" + key, value)).thenReturn(empty());
+        when(remote.invalidate(NAME + ":" + key)).thenReturn(empty());
+        when(remote.getIfPresent(NAME + ":" + key)).thenReturn(empty());
+        when(invalidations.convertAndSend(NAME + ":invalidations", key)).thenReturn(just(1L));
+
+        create(cache.put(key, value).then(cache.invalidate(key)).then(cache.getIfPresent(key))).verifyComplete();
+
+        verify(invalidations).convertAndSend(NAME + ":invalidations", key);
+    }
+
+    @Test
+    void shouldPublishTheInvalidationEvenWhenTheRemoteCacheFails() {
+        var key = string();
+        when(remote.invalidate(NAME + ":" + key)).thenReturn(error(new Exception("Connection error")));
+        when(invalidations.convertAndSend(NAME + ":invalidations", key)).thenReturn(just(1L));
+
+        create(cache.invalidate(key)).verifyComplete();
+
+        verify(invalidations).convertAndSend(NAME + ":invalidations", key);
+    }
+
+    @Test
+    void shouldIncrementInTheRemoteCache() {
+        var key = string();
+        var value = string();
+        when(remote.put(NAME + ":" + key, value)).thenReturn(empty());
+        when(remote.increment(NAME + ":" + key)).thenReturn(just(3L));
+        when(remote.getIfPresent(NAME + ":" + key)).thenReturn(just("3"));
+
+        create(cache.put(key, value).then(cache.increment(key))).expectNext(3L).verifyComplete();
+        create(cache.getIfPresent(key)).expectNext("3").verifyComplete();
+    }
+
+    @Test
+    void shouldIncrementInProcessWhenNearOnly() {
+        var nearOnly = TwoTierCacheAdapter.nearOnly(NAME, 10, Duration.ofMinutes(5));
+        var key = string();
+
+        create(nearOnly.increment(key).then(nearOnly.increment(key))).expectNext(2L).verifyComplete();
+    }
+
+    @Test
+    void shouldKeepValuesInProcessWhenNearOnly() {
+        var nearOnly = TwoTierCacheAdapter.nearOnly(NAME, 10, Duration.ofMinutes(5));
+        var key = string();
+        var value = string();
+
+        create(nearOnly.put(key, value).then(nearOnly.exists(key)))
+                .assertNext(exists -> assertThat(exists).isTrue())
+                .verifyComplete();
+        create(nearOnly.invalidate(key).then(nearOnly.getIfPresent(key))).verifyComplete();
+    }
+}
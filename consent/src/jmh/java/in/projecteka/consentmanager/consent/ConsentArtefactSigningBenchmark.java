@@ -0,0 +1,106 @@
+package in.projecteka.consentmanager.consent;
+
+import in.projecteka.consentmanager.consent.model.AccessPeriod;
+import in.projecteka.consentmanager.consent.model.ConsentPermission;
+import in.projecteka.consentmanager.consent.model.GrantedContext;
+import in.projecteka.consentmanager.consent.model.HIPConsentArtefact;
+import in.projecteka.consentmanager.consent.model.HIPReference;
+import in.projecteka.consentmanager.consent.model.HIType;
+import in.projecteka.library.common.PatientReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.scheduler.Schedulers;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.SignedObject;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Signing throughput per algorithm, next to the SignedObject based signing it replaced (fresh Signature, Java
+ * serialized artefact). Run with
+ * {@code ./gradlew :consent:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ConsentArtefactSigningBenchmark {
+
+    @Param({"SHA1withRSA", "SHA256withRSA", "RSASSA-PSS", "SHA256withECDSA"})
+    public String algorithm;
+
+    private KeyPair keyPair;
+    private ConsentArtefactSigner signer;
+    private HIPConsentArtefact artefact;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        boolean ecdsa = algorithm.endsWith("ECDSA");
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(ecdsa ? "EC" : "RSA");
+        generator.initialize(ecdsa ? 256 : 2048);
+        keyPair = generator.generateKeyPair();
+        signer = new ConsentArtefactSigner(keyPair, algorithm, Schedulers.immediate());
+        LocalDateTime now = LocalDateTime.now();
+        artefact = HIPConsentArtefact.builder()
+                .consentId(UUID.randomUUID().toString())
+                .createdAt(now)
+                .patient(PatientReference.builder().id("patient@ncg").build())
+                .hip(HIPReference.builder().id("10000005").name("Max Health Care").build())
+                .hiTypes(HIType.values())
+                .careContexts(IntStream.range(0, 10)
+                        .mapToObj(index -> GrantedContext.builder()
+                                .patientReference("RVH" + index)
+                                .careContextReference("NCP" + index)
+                                .build())
+                        .collect(Collectors.toList()))
+                .permission(ConsentPermission.builder()
+                        .dateRange(AccessPeriod.builder().fromDate(now.minusYears(1)).toDate(now).build())
+                        .dataEraseAt(now.plusMonths(1))
+                        .build())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        signer.close();
+    }
+
+    @Benchmark
+    public String canonicalJson() {
+        return signer.signNow(artefact);
+    }
+
+    @Benchmark
+    public String signedObject() throws Exception {
+        Signature signature = Signature.getInstance(algorithm);
+        if (algorithm.equals(ConsentArtefactSigner.RSASSA_PSS)) {
+            signature.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+        }
+        return Base64.getEncoder()
+                .encodeToString(new SignedObject(artefact, keyPair.getPrivate(), signature).getSignature());
+    }
+}
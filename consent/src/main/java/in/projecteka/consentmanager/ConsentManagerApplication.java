@@ -2,7 +2,10 @@ package in.projecteka.consentmanager;
 
 import in.projecteka.consentmanager.consent.ConsentServiceProperties;
 import in.projecteka.consentmanager.consent.NHSProperties;
+import in.projecteka.consentmanager.consent.OutboxProperties;
+import in.projecteka.consentmanager.consent.SchedulerProperties;
 import in.projecteka.consentmanager.properties.CacheMethodProperty;
+import in.projecteka.consentmanager.properties.CallbackTimeoutProperties;
 import in.projecteka.consentmanager.properties.ClientRegistryProperties;
 import in.projecteka.consentmanager.properties.DbOptions;
 import in.projecteka.consentmanager.properties.GatewayServiceProperties;
@@ -11,9 +14,11 @@ import in.projecteka.consentmanager.properties.KeyPairConfig;
 import in.projecteka.consentmanager.properties.LinkServiceProperties;
 import in.projecteka.consentmanager.properties.LinkTokenCacheProperties;
 import in.projecteka.consentmanager.properties.ListenerProperties;
+import in.projecteka.consentmanager.properties.PublisherProperties;
 import in.projecteka.consentmanager.properties.OtpServiceProperties;
 import in.projecteka.consentmanager.properties.RabbitmqOptions;
 import in.projecteka.consentmanager.properties.RedisOptions;
+import in.projecteka.consentmanager.properties.TargetIsolationProperties;
 import in.projecteka.consentmanager.properties.UserServiceProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -34,13 +39,18 @@ import org.springframework.scheduling.annotation.EnableScheduling;
                                 ConsentServiceProperties.class,
                                 RedisOptions.class,
                                 ListenerProperties.class,
+                                PublisherProperties.class,
                                 GatewayServiceProperties.class,
                                 RabbitmqOptions.class,
                                 NHSProperties.class,
                                 KeyPairConfig.class,
                                 CacheMethodProperty.class,
                                 WebClientOptions.class,
-                                LinkTokenCacheProperties.class
+                                LinkTokenCacheProperties.class,
+                                SchedulerProperties.class,
+                                OutboxProperties.class,
+                                TargetIsolationProperties.class,
+                                CallbackTimeoutProperties.class
 })
 public class ConsentManagerApplication {
     public static void main(String[] args) {
@@ -6,6 +6,7 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.nimbusds.jose.jwk.JWKSet;
 import in.projecteka.consentmanager.DestinationsConfig.DestinationInfo;
+import in.projecteka.consentmanager.consent.ConsentServiceProperties;
 import in.projecteka.consentmanager.properties.CacheMethodProperty;
 import in.projecteka.consentmanager.properties.ClientRegistryProperties;
 import in.projecteka.consentmanager.properties.DbOptions;
@@ -34,9 +35,11 @@ import in.projecteka.library.common.cache.LoadingCacheAdapter;
 import in.projecteka.library.common.cache.LoadingCacheGenericAdapter;
 import in.projecteka.library.common.cache.RedisCacheAdapter;
 import in.projecteka.library.common.cache.RedisGenericAdapter;
+import in.projecteka.library.common.cache.TwoTierCacheAdapter;
 import in.projecteka.library.common.heartbeat.Heartbeat;
 import io.lettuce.core.ClientOptions;
 import io.lettuce.core.SocketOptions;
+import io.vertx.core.Vertx;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.PoolOptions;
@@ -82,6 +85,7 @@ import java.text.ParseException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static in.projecteka.consentmanager.Constants.CONSENT_REQUEST_QUEUE;
@@ -91,9 +95,14 @@ import static in.projecteka.consentmanager.Constants.HIP_CONSENT_NOTIFICATION_QU
 import static in.projecteka.consentmanager.Constants.HIP_DATA_FLOW_REQUEST_QUEUE;
 import static in.projecteka.consentmanager.Constants.HIP_LINK_QUEUE;
 import static in.projecteka.consentmanager.Constants.HIU_CONSENT_NOTIFICATION_QUEUE;
+import static in.projecteka.consentmanager.Constants.RETRY_10M_EXCHANGE;
+import static in.projecteka.consentmanager.Constants.RETRY_10S_EXCHANGE;
+import static in.projecteka.consentmanager.Constants.RETRY_1M_EXCHANGE;
 
 @Configuration
 public class ConsentManagerConfiguration {
+    private static final String CONSENT_ARTEFACT_CACHE = "consent-artefact";
+    private static final Duration CACHE_STATISTICS_INTERVAL = Duration.ofMinutes(1);
 
     @ConditionalOnProperty(value = "consentmanager.cacheMethod", havingValue = "guava", matchIfMissing = true)
     @Bean({"accessToken"})
@@ -165,18 +174,26 @@ public class ConsentManagerConfiguration {
     }
 
     @Bean
-    public PgPool pgPool(DbOptions dbOptions) {
-        PgConnectOptions connectOptions = new PgConnectOptions()
+    public Vertx vertx() {
+        return Vertx.vertx();
+    }
+
+    @Bean
+    public PgConnectOptions pgConnectOptions(DbOptions dbOptions) {
+        return new PgConnectOptions()
                 .setPort(dbOptions.getPort())
                 .setHost(dbOptions.getHost())
                 .setDatabase(dbOptions.getSchema())
                 .setUser(dbOptions.getUser())
                 .setPassword(dbOptions.getPassword());
+    }
 
+    @Bean
+    public PgPool pgPool(Vertx vertx, PgConnectOptions connectOptions, DbOptions dbOptions) {
         PoolOptions poolOptions = new PoolOptions()
                 .setMaxSize(dbOptions.getPoolSize());
 
-        return PgPool.pool(connectOptions, poolOptions);
+        return PgPool.pool(vertx, connectOptions, poolOptions);
     }
 
     @Bean
@@ -206,7 +223,7 @@ public class ConsentManagerConfiguration {
                 new DestinationInfo(EXCHANGE, HIP_DATA_FLOW_REQUEST_QUEUE));
         queues.put(HIP_LINK_QUEUE,
                 new DestinationInfo(EXCHANGE, HIP_LINK_QUEUE));
-        return new DestinationsConfig(queues);
+        return new DestinationsConfig(queues, List.of(RETRY_10S_EXCHANGE, RETRY_1M_EXCHANGE, RETRY_10M_EXCHANGE));
     }
 
     @Bean
@@ -449,4 +466,28 @@ public class ConsentManagerConfiguration {
         return new RedisCacheAdapter(stringReactiveRedisOperations, 24 * 60,
                 redisOptions.getRetry());
     }
+
+    @ConditionalOnProperty(value = "consentmanager.cacheMethod", havingValue = "guava", matchIfMissing = true)
+    @Bean({"consentArtefactCache"})
+    public TwoTierCacheAdapter consentArtefactNearCache(ConsentServiceProperties consentServiceProperties) {
+        return TwoTierCacheAdapter.nearOnly(CONSENT_ARTEFACT_CACHE,
+                consentServiceProperties.getArtefactCacheSize(),
+                Duration.ofSeconds(consentServiceProperties.getArtefactNearCacheExpiry()))
+                .listen(CACHE_STATISTICS_INTERVAL);
+    }
+
+    @ConditionalOnProperty(value = "consentmanager.cacheMethod", havingValue = "redis")
+    @Bean({"consentArtefactCache"})
+    public TwoTierCacheAdapter consentArtefactTwoTierCache(
+            ReactiveRedisOperations<String, String> stringReactiveRedisOperations,
+            RedisOptions redisOptions,
+            ConsentServiceProperties consentServiceProperties) {
+        var expiry = consentServiceProperties.getArtefactCacheExpiry();
+        return new TwoTierCacheAdapter(CONSENT_ARTEFACT_CACHE,
+                consentServiceProperties.getArtefactCacheSize(),
+                Duration.ofSeconds(consentServiceProperties.getArtefactNearCacheExpiry()),
+                new RedisCacheAdapter(stringReactiveRedisOperations, expiry, redisOptions.getRetry()),
+                stringReactiveRedisOperations)
+                .listen(CACHE_STATISTICS_INTERVAL);
+    }
 }
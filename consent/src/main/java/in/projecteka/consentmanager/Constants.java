@@ -15,6 +15,9 @@ public class Constants {
     public static final String HIP_DATA_FLOW_REQUEST_QUEUE = "hip-data-flow-request-queue";
     public static final String HIP_LINK_QUEUE = "cm-hip-link-queue";
     public static final String PARKING_EXCHANGE = "parking.exchange";
+    public static final String RETRY_10S_EXCHANGE = "cm-retry-10s-exchange";
+    public static final String RETRY_1M_EXCHANGE = "cm-retry-1m-exchange";
+    public static final String RETRY_10M_EXCHANGE = "cm-retry-10m-exchange";
     public static final String EXCHANGE = "exchange";
 
     //Headers
@@ -3,12 +3,15 @@ package in.projecteka.consentmanager;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.List;
 import java.util.Map;
 
 @AllArgsConstructor
 @Getter
 public class DestinationsConfig {
     private final Map<String, DestinationInfo> queues;
+    // exchanges of the delay queues a failed message goes through, shortest delay first
+    private final List<String> retryTiers;
 
     @Getter
     @AllArgsConstructor
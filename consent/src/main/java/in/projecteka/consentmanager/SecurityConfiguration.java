@@ -41,6 +41,7 @@ import static in.projecteka.consentmanager.consent.Constants.PATH_CONSENTS_FETCH
 import static in.projecteka.consentmanager.consent.Constants.PATH_CONSENT_REQUESTS_INIT;
 import static in.projecteka.consentmanager.consent.Constants.PATH_HIP_CONSENT_ON_NOTIFY;
 import static in.projecteka.consentmanager.consent.Constants.PATH_HIU_CONSENT_ON_NOTIFY;
+import static in.projecteka.consentmanager.link.Constants.APP_PATH_INTERNAL_HIP_CALLBACK_STATS;
 import static in.projecteka.consentmanager.link.Constants.PATH_CARE_CONTEXTS_ON_DISCOVER;
 import static in.projecteka.consentmanager.link.Constants.PATH_HIP_ADD_CONTEXTS;
 import static in.projecteka.consentmanager.link.Constants.PATH_LINK_ON_CONFIRM;
@@ -100,6 +101,7 @@ public class SecurityConfiguration {
         SERVICE_ONLY_URLS.add(Map.entry(PATH_HIP_ADD_CONTEXTS, HttpMethod.POST));
         SERVICE_ONLY_URLS.add(Map.entry(PATH_USER_AUTH_CONFIRM, HttpMethod.POST));
         SERVICE_ONLY_URLS.add(Map.entry(CONSENT_REQUESTS_STATUS, HttpMethod.POST));
+        SERVICE_ONLY_URLS.add(Map.entry(APP_PATH_INTERNAL_HIP_CALLBACK_STATS, HttpMethod.GET));
 
         RequestMatcher approveMatcher = new RequestMatcher("/consent-requests/**/approve",
                 HttpMethod.POST,
@@ -3,7 +3,9 @@ package in.projecteka.consentmanager.clients;
 import in.projecteka.consentmanager.properties.GatewayServiceProperties;
 import in.projecteka.consentmanager.consent.model.request.HIPNotificationRequest;
 import in.projecteka.consentmanager.consent.model.request.HIUNotificationRequest;
+import in.projecteka.consentmanager.consent.model.request.SignedHIPNotificationRequest;
 import in.projecteka.library.clients.model.ClientError;
+import in.projecteka.library.common.TargetIsolation;
 import org.slf4j.MDC;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -23,16 +25,19 @@ public class ConsentArtefactNotifier {
     private final WebClient webClient;
     private final Supplier<Mono<String>> tokenGenerator;
     private final GatewayServiceProperties gatewayServiceProperties;
+    private final TargetIsolation targetIsolation;
 
     private static final String HIP_CONSENT_NOTIFICATION_URL_PATH = "/consents/hip/notify";
     private static final String HIU_CONSENT_NOTIFICATION_URL_PATH = "/consents/hiu/notify";
 
     public ConsentArtefactNotifier(WebClient.Builder webClient,
                                    Supplier<Mono<String>> tokenGenerator,
-                                   GatewayServiceProperties gatewayServiceProperties) {
+                                   GatewayServiceProperties gatewayServiceProperties,
+                                   TargetIsolation targetIsolation) {
         this.webClient = webClient.build();
         this.tokenGenerator = tokenGenerator;
         this.gatewayServiceProperties = gatewayServiceProperties;
+        this.targetIsolation = targetIsolation;
     }
 
     public Mono<Void> sendConsentArtifactToHIU(HIUNotificationRequest request, String hiuId) {
@@ -43,8 +48,12 @@ public class ConsentArtefactNotifier {
         return postConsentArtefactToHip(notificationRequest, hipId);
     }
 
+    public Mono<Void> sendSignedConsentArtefactToHIP(SignedHIPNotificationRequest notificationRequest, String hipId) {
+        return postConsentArtefactToHip(notificationRequest, hipId);
+    }
+
     private Mono<Void> postConsentArtifactToHiu(HIUNotificationRequest body, String hiuId) {
-        return tokenGenerator.get()
+        return targetIsolation.call(hiuId, tokenGenerator.get()
                 .flatMap(token -> webClient
                                 .post()
                                 .uri(gatewayServiceProperties.getBaseUrl() + HIU_CONSENT_NOTIFICATION_URL_PATH)
@@ -60,11 +69,11 @@ public class ConsentArtefactNotifier {
                                         clientResponse -> error(ClientError.networkServiceCallFailed()))
                                 .toBodilessEntity())
                 .timeout(Duration.ofMillis(gatewayServiceProperties.getRequestTimeout()))
-                .then();
+                .then());
     }
 
-    private Mono<Void> postConsentArtefactToHip(HIPNotificationRequest body, String hipId) {
-        return tokenGenerator.get()
+    private Mono<Void> postConsentArtefactToHip(Object body, String hipId) {
+        return targetIsolation.call(hipId, tokenGenerator.get()
                 .flatMap(token -> webClient
                                 .post()
                                 .uri(gatewayServiceProperties.getBaseUrl() + HIP_CONSENT_NOTIFICATION_URL_PATH)
@@ -81,6 +90,6 @@ public class ConsentArtefactNotifier {
                                         clientResponse -> error(ClientError.networkServiceCallFailed()))
                                 .toBodilessEntity()
                                 .timeout(Duration.ofMillis(gatewayServiceProperties.getRequestTimeout())))
-                .then();
+                .then());
     }
 }
@@ -5,7 +5,6 @@ import in.projecteka.consentmanager.consent.model.ConsentStatus;
 import in.projecteka.consentmanager.consent.model.HIPConsentArtefactRepresentation;
 import in.projecteka.consentmanager.consent.model.Query;
 import in.projecteka.consentmanager.consent.model.QueryRepresentation;
-import io.vertx.core.json.JsonObject;
 import io.vertx.sqlclient.Tuple;
 import lombok.AllArgsConstructor;
 import reactor.core.publisher.Mono;
@@ -14,18 +13,18 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
 
-import static in.projecteka.library.common.Serializer.from;
+import static in.projecteka.consentmanager.consent.ConsentRequestRepository.UPDATE_CONSENT_REQUEST_STATUS_QUERY;
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.CONSENT_ARTEFACT;
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.counted;
+import static in.projecteka.library.common.JsonCodec.encode;
 
 @AllArgsConstructor
 public class ConsentArtefactQueryGenerator {
-    private static final String INSERT_CONSENT_ARTEFACT_QUERY = "INSERT INTO consent_artefact" +
-            " (consent_request_id, consent_artefact_id, patient_id, consent_artefact, signature, status) VALUES" +
-            " ($1, $2, $3, $4, $5, $6)";
-    private static final String INSERT_HIP_CONSENT_ARTEFACT_QUERY = "INSERT INTO hip_consent_artefact" +
-            " (consent_request_id, consent_artefact_id, patient_id, consent_artefact, signature, status) VALUES" +
-            " ($1, $2, $3, $4, $5, $6)";
-    private static final String UPDATE_CONSENT_REQUEST_STATUS_QUERY = "UPDATE consent_request SET status=$1, " +
-            "date_modified=$2 WHERE request_id=$3";
+    private static final String INSERT_CONSENT_ARTEFACT_QUERY = counted(CONSENT_ARTEFACT,
+            "INSERT INTO consent_artefact (consent_request_id, consent_artefact_id, patient_id, consent_artefact, " +
+                    "signature, status, data_erase_at, hip_signature) " +
+                    "VALUES ($1, $2, $3, $4, $5, $6, $7, $8) " +
+                    "RETURNING patient_id, NULL::text AS previous_status, status");
 
     public Mono<QueryRepresentation> toQueries(String requestId,
                                                String patientId,
@@ -36,23 +35,27 @@ public class ConsentArtefactQueryGenerator {
                 Tuple.of(requestId,
                         consentArtefact.getConsentId(),
                         patientId,
-                        new JsonObject(from(consentArtefact)),
+                        encode(consentArtefact),
                         consentArtefactSignature,
-                        ConsentStatus.GRANTED.toString()));
-        Query insertHIPCA = new Query(INSERT_HIP_CONSENT_ARTEFACT_QUERY,
-                Tuple.of(requestId,
-                        hipConsentArtefact.getConsentDetail().getConsentId(),
-                        patientId,
-                        new JsonObject(from(hipConsentArtefact.getConsentDetail())),
-                        consentArtefactSignature,
-                        ConsentStatus.GRANTED.toString()));
+                        ConsentStatus.GRANTED.toString(),
+                        consentArtefact.getPermission().getDataEraseAt(),
+                        hipConsentArtefact.getSignature()));
+        return Mono.just(QueryRepresentation.builder()
+                .queries(List.of(insertCA))
+                .hipConsentArtefactRepresentations(List.of(hipConsentArtefact))
+                .build());
+    }
+
+    // the inserts of all the granted consents go as one batch each, followed by a single status update
+    public QueryRepresentation toGrantQueries(String requestId, List<QueryRepresentation> consentQueries) {
         Query updateConsentReqStatus = new Query(UPDATE_CONSENT_REQUEST_STATUS_QUERY,
                 Tuple.of(ConsentStatus.GRANTED.toString(),
                         LocalDateTime.now(ZoneOffset.UTC),
                         requestId));
-        return Mono.just(QueryRepresentation.builder()
-                .queries(List.of(insertCA, insertHIPCA, updateConsentReqStatus))
-                .hipConsentArtefactRepresentations(List.of(hipConsentArtefact))
-                .build());
+        return consentQueries.stream()
+                .reduce(QueryRepresentation::add)
+                .map(QueryRepresentation::batched)
+                .orElseGet(() -> new QueryRepresentation(List.of(), List.of()))
+                .add(new QueryRepresentation(List.of(updateConsentReqStatus), List.of()));
     }
 }
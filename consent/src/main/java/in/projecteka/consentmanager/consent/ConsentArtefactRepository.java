@@ -2,35 +2,46 @@ package in.projecteka.consentmanager.consent;
 
 import in.projecteka.consentmanager.consent.model.ConsentArtefact;
 import in.projecteka.consentmanager.consent.model.ConsentExpiry;
+import in.projecteka.consentmanager.consent.model.ConsentPermission;
 import in.projecteka.consentmanager.consent.model.ConsentNotificationStatus;
 import in.projecteka.consentmanager.consent.model.ConsentRepresentation;
 import in.projecteka.consentmanager.consent.model.ConsentStatus;
-import in.projecteka.consentmanager.consent.model.HIPConsentArtefact;
-import in.projecteka.consentmanager.consent.model.HIPConsentArtefactRepresentation;
+import in.projecteka.consentmanager.consent.model.HIPReference;
+import in.projecteka.consentmanager.consent.model.HIUReference;
 import in.projecteka.consentmanager.consent.model.ListResult;
+import in.projecteka.consentmanager.consent.model.PageCursor;
 import in.projecteka.consentmanager.consent.model.Query;
 import in.projecteka.consentmanager.consent.model.request.ConsentArtefactReference;
+import in.projecteka.consentmanager.consent.model.response.ConsentArtefactLight;
+import in.projecteka.consentmanager.consent.model.response.ConsentArtefactLightRepresentation;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactRepresentation;
+import in.projecteka.consentmanager.consent.model.response.ConsentArtefactSummary;
 import in.projecteka.library.common.DbOperationError;
-import io.vertx.core.AsyncResult;
+import in.projecteka.library.common.cache.CacheAdapter;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.RowSet;
 import io.vertx.sqlclient.Tuple;
 import lombok.AllArgsConstructor;
-import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.StreamSupport;
 
-import static in.projecteka.library.common.Serializer.to;
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.countOf;
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.counted;
+import static in.projecteka.library.common.JsonCodec.decode;
+import static in.projecteka.library.common.Serializer.from;
+import static in.projecteka.library.common.Serializer.tryTo;
 
 @AllArgsConstructor
 public class ConsentArtefactRepository {
@@ -44,37 +55,75 @@ public class ConsentArtefactRepository {
     public static final String CONSENT_ARTEFACT_ID = "consent_artefact_id";
     public static final String SIGNATURE = "signature";
     private static final String SELECT_CONSENT_QUERY;
-    private static final String SELECT_HIP_CONSENT_QUERY;
+    private static final String SELECT_CONSENTS_OF_REQUEST_QUERY;
+    private static final String SELECT_CONSENT_LIGHT_QUERY = "SELECT status, consent_artefact -> 'hiu' AS hiu, " +
+            "consent_artefact -> 'hip' AS hip, consent_artefact -> 'permission' AS permission, " +
+            "hip_signature AS signature FROM consent_artefact WHERE consent_artefact_id = $1";
     private static final String SELECT_ALL_CONSENT_ARTEFACTS;
+    private static final String SELECT_CONSENT_ARTEFACTS_BEFORE;
+    private static final String SELECT_CONSENT_ARTEFACT_SUMMARIES;
+    private static final String SELECT_CONSENT_ARTEFACT_SUMMARIES_BEFORE;
     private static final String SELECT_CONSENT_WITH_REQUEST_QUERY = "SELECT status, consent_artefact, " +
             "consent_request_id, date_modified FROM consent_artefact WHERE consent_artefact_id = $1";
     private static final String SELECT_CONSENT_IDS_FROM_CONSENT_ARTEFACT = "SELECT consent_artefact_id " +
             "FROM consent_artefact WHERE consent_request_id=$1";
-    private static final String SELECT_CONSENTS_TO_VALIDATE_EXPIRY = "SELECT consent_artefact_id, " +
-            "consent_artefact -> 'permission' ->> 'dataEraseAt' as consent_expiry_date, patient_id " +
-            "FROM consent_artefact WHERE status=$1";
-    private static final String UPDATE_CONSENT_ARTEFACT_STATUS_QUERY = "UPDATE consent_artefact SET status=$1, " +
-            "date_modified=$2 WHERE consent_artefact_id=$3";
-    private static final String SELECT_CONSENT_ARTEFACTS_COUNT = "SELECT COUNT(*) FROM consent_artefact " +
-            "WHERE patient_id=$1 AND (status=$2 OR $2 IS NULL)";
+    private static final String SELECT_CONSENT_EXPIRIES;
+    private static final String SELECT_CONSENT_EXPIRIES_AFTER;
+    static final String UPDATE_CONSENT_ARTEFACTS_STATUS_QUERY = counted(ConsentStatusCounts.CONSENT_ARTEFACT,
+            "UPDATE consent_artefact ca SET status=$1, date_modified=$2 FROM (SELECT consent_artefact_id, status " +
+                    "FROM consent_artefact WHERE consent_artefact_id = ANY($3) AND status=$4 " +
+                    "FOR UPDATE SKIP LOCKED) previous WHERE ca.consent_artefact_id = previous.consent_artefact_id " +
+                    "RETURNING ca.consent_artefact_id, ca.consent_request_id, ca.data_erase_at, ca.date_modified, " +
+                    "ca.consent_artefact -> 'hip' as hip, ca.consent_artefact -> 'hiu' ->> 'id' as hiu_id, " +
+                    "ca.consent_artefact ->> 'createdAt' as created_at, ca.patient_id, " +
+                    "previous.status AS previous_status, ca.status");
+    private static final String UPDATE_CONSENT_ARTEFACT_STATUS_QUERY = counted(ConsentStatusCounts.CONSENT_ARTEFACT,
+            "UPDATE consent_artefact ca SET status=$1, date_modified=$2 FROM (SELECT consent_artefact_id, status " +
+                    "FROM consent_artefact WHERE consent_artefact_id=$3 FOR UPDATE) previous " +
+                    "WHERE ca.consent_artefact_id = previous.consent_artefact_id " +
+                    "RETURNING ca.patient_id, previous.status AS previous_status, ca.status");
+    private static final String SELECT_CONSENT_ARTEFACTS_COUNT = countOf(ConsentStatusCounts.CONSENT_ARTEFACT);
     private static final String SAVE_CONSENT_NOTIFICATION = "INSERT INTO consent_notification (consent_id, " +
             "status, receiver) VALUES ($1, $2, $3)";
     private static final String UPDATE_CONSENT_NOTIFICATION = "UPDATE consent_notification SET status = $1 " +
             "WHERE consent_id = $2 AND receiver = $3";
 
+    private static final String ARTEFACT_VIEW = "artefact";
+    private static final String LIGHT_VIEW = "light";
+    private static final String WITH_REQUEST_VIEW = "with-request";
+    private static final Duration REPEATED_EVICTION_DELAY = Duration.ofSeconds(2);
     private static final String FAILED_TO_RETRIEVE_CA = "Failed to retrieve Consent Artifact.";
     private static final String FAILED_TO_SAVE_CONSENT_ARTEFACT = "Failed to save consent artefact";
 
     static {
         String s = "SELECT status, consent_artefact, signature, date_modified FROM ";
         SELECT_CONSENT_QUERY = s + "consent_artefact where consent_artefact_id = $1";
-        SELECT_HIP_CONSENT_QUERY = "SELECT status, consent_artefact, signature FROM hip_consent_artefact WHERE consent_artefact_id = $1";
-        SELECT_ALL_CONSENT_ARTEFACTS = s + "consent_artefact WHERE patient_id=$1 and (status=$4 OR $4 IS NULL) " +
-                "ORDER BY date_modified DESC" +
+        SELECT_CONSENTS_OF_REQUEST_QUERY = s + "consent_artefact WHERE consent_request_id = $1";
+        String page = "consent_artefact WHERE patient_id=$1 and (status=$4 OR $4 IS NULL) " +
+                "ORDER BY date_modified DESC, consent_artefact_id DESC" +
                 " LIMIT $2 OFFSET $3";
+        String pageBefore = "consent_artefact WHERE patient_id=$1 and (status=$3 OR $3 IS NULL) " +
+                "AND (date_modified, consent_artefact_id) < ($4, $5) " +
+                "ORDER BY date_modified DESC, consent_artefact_id DESC" +
+                " LIMIT $2";
+        String summaries = "SELECT consent_artefact_id, status, date_modified, " +
+                ConsentSummaryColumns.of("consent_artefact") + " FROM ";
+        SELECT_ALL_CONSENT_ARTEFACTS = s + page;
+        SELECT_CONSENT_ARTEFACTS_BEFORE = s + pageBefore;
+        SELECT_CONSENT_ARTEFACT_SUMMARIES = summaries + page;
+        SELECT_CONSENT_ARTEFACT_SUMMARIES_BEFORE = summaries + pageBefore;
+        String expiries = "SELECT consent_artefact_id, data_erase_at FROM consent_artefact " +
+                "WHERE status=$1 AND data_erase_at < $2 AND " +
+                ExpiryPartitions.partitionOf("consent_artefact_id", "$4::int") + "::int = ANY($5::int[]) ";
+        String expiriesOrder = "ORDER BY data_erase_at, consent_artefact_id LIMIT $3";
+        SELECT_CONSENT_EXPIRIES = expiries + expiriesOrder;
+        SELECT_CONSENT_EXPIRIES_AFTER = expiries + "AND (data_erase_at, consent_artefact_id) > ($6, $7) " +
+                expiriesOrder;
     }
 
     private final PgPool dbClient;
+    // keyed by view and consent id; artefacts change only in status, and every status update invalidates all views
+    private final CacheAdapter<String, String> consentArtefactCache;
 
     public Mono<Void> process(List<Query> queries) {
         return doInTransaction(queries);
@@ -92,6 +141,10 @@ public class ConsentArtefactRepository {
     }
 
     public Mono<ConsentArtefactRepresentation> getConsentArtefact(String consentId) {
+        return cached(ARTEFACT_VIEW, consentId, ConsentArtefactRepresentation.class, selectConsentArtefact(consentId));
+    }
+
+    private Mono<ConsentArtefactRepresentation> selectConsentArtefact(String consentId) {
         return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_CONSENT_QUERY)
                 .execute(Tuple.of(consentId),
                         handler -> {
@@ -110,8 +163,13 @@ public class ConsentArtefactRepository {
                         }));
     }
 
-    public Mono<HIPConsentArtefactRepresentation> getHipConsentArtefact(String consentId) {
-        return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_HIP_CONSENT_QUERY)
+    public Mono<ConsentArtefactLightRepresentation> getConsentArtefactLight(String consentId) {
+        return cached(LIGHT_VIEW, consentId, ConsentArtefactLightRepresentation.class,
+                selectConsentArtefactLight(consentId));
+    }
+
+    private Mono<ConsentArtefactLightRepresentation> selectConsentArtefactLight(String consentId) {
+        return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_CONSENT_LIGHT_QUERY)
                 .execute(Tuple.of(consentId),
                         handler -> {
                             if (handler.failed()) {
@@ -121,32 +179,33 @@ public class ConsentArtefactRepository {
                             }
                             RowSet<Row> results = handler.result();
                             if (!results.iterator().hasNext()) {
-                                monoSink.success(null);
+                                monoSink.success();
                                 return;
                             }
                             Row row = results.iterator().next();
-                            var consentArtefact = to(row.getValue(CONSENT_ARTEFACT).toString(),
-                                    HIPConsentArtefact.class);
-                            var representation = HIPConsentArtefactRepresentation
-                                    .builder()
+                            var consentArtefactLight = ConsentArtefactLight.builder()
+                                    .hiu(decode(row, "hiu", HIUReference.class))
+                                    .hip(decode(row, "hip", HIPReference.class))
+                                    .permission(decode(row, "permission", ConsentPermission.class))
+                                    .build();
+                            monoSink.success(ConsentArtefactLightRepresentation.builder()
                                     .status(ConsentStatus.valueOf(row.getString(STATUS)))
-                                    .consentDetail(consentArtefact)
+                                    .consentDetail(consentArtefactLight)
                                     .signature(row.getString(SIGNATURE))
-                                    .build();
-                            monoSink.success(representation);
+                                    .build());
                         }));
     }
 
-    public Flux<String> getConsentArtefacts(String consentRequestId) {
-        return Flux.create(fluxSink -> dbClient.preparedQuery(SELECT_CONSENT_IDS_FROM_CONSENT_ARTEFACT)
+    public Flux<ConsentArtefactRepresentation> getConsentArtefacts(String consentRequestId) {
+        return Flux.create(fluxSink -> dbClient.preparedQuery(SELECT_CONSENTS_OF_REQUEST_QUERY)
                 .execute(Tuple.of(consentRequestId),
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
-                                fluxSink.error(new Exception("Failed to get consent id from consent request Id"));
+                                fluxSink.error(new RuntimeException(FAILED_TO_RETRIEVE_CA, handler.cause()));
                             } else {
                                 StreamSupport.stream(handler.result().spliterator(), false)
-                                        .map(row -> row.getString(CONSENT_ARTEFACT_ID))
+                                        .map(this::getConsentArtefactRepresentation)
                                         .forEach(fluxSink::next);
                                 fluxSink.complete();
                             }
@@ -172,55 +231,119 @@ public class ConsentArtefactRepository {
 
     public Mono<ListResult<List<ConsentArtefactRepresentation>>> getAllConsentArtefacts(String username,
                                                                                         int limit, int offset, String status) {
-        return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_ALL_CONSENT_ARTEFACTS)
-                .execute(Tuple.of(username, limit, offset, status), handler -> {
-                    List<ConsentArtefactRepresentation> artefacts = getConsentArtefactRepresentation(handler);
-                    dbClient.preparedQuery(SELECT_CONSENT_ARTEFACTS_COUNT)
-                            .execute(Tuple.of(username, status), counter -> {
-                                if (counter.failed()) {
-                                    logger.error(counter.cause().getMessage(), counter.cause());
-                                    monoSink.error(new DbOperationError());
-                                    return;
-                                }
-                                Integer count = counter.result().iterator().next().getInteger("count");
-                                monoSink.success(new ListResult<>(artefacts, count));
-                            });
+        return Mono.zip(consentArtefacts(SELECT_ALL_CONSENT_ARTEFACTS,
+                Tuple.of(username, limit, offset, status),
+                this::getConsentArtefactRepresentation),
+                consentArtefactsCount(username, status),
+                ListResult::new);
+    }
+
+    // keyset paginated on (date_modified, consent_artefact_id), newest first
+    public Mono<ListResult<List<ConsentArtefactRepresentation>>> getAllConsentArtefacts(String username,
+                                                                                        int limit,
+                                                                                        PageCursor before,
+                                                                                        String status,
+                                                                                        boolean withCount) {
+        return withCount(consentArtefacts(SELECT_CONSENT_ARTEFACTS_BEFORE,
+                Tuple.of(username, limit, status, before.getDateModified(), before.getId()),
+                this::getConsentArtefactRepresentation),
+                username,
+                status,
+                withCount);
+    }
+
+    public Mono<ListResult<List<ConsentArtefactSummary>>> getConsentArtefactSummaries(String username,
+                                                                                      int limit,
+                                                                                      int offset,
+                                                                                      String status) {
+        return Mono.zip(consentArtefacts(SELECT_CONSENT_ARTEFACT_SUMMARIES,
+                Tuple.of(username, limit, offset, status),
+                this::getConsentArtefactSummary),
+                consentArtefactsCount(username, status),
+                ListResult::new);
+    }
+
+    public Mono<ListResult<List<ConsentArtefactSummary>>> getConsentArtefactSummaries(String username,
+                                                                                      int limit,
+                                                                                      PageCursor before,
+                                                                                      String status,
+                                                                                      boolean withCount) {
+        return withCount(consentArtefacts(SELECT_CONSENT_ARTEFACT_SUMMARIES_BEFORE,
+                Tuple.of(username, limit, status, before.getDateModified(), before.getId()),
+                this::getConsentArtefactSummary),
+                username,
+                status,
+                withCount);
+    }
+
+    private <T> Mono<ListResult<List<T>>> withCount(Mono<List<T>> artefacts,
+                                                    String username,
+                                                    String status,
+                                                    boolean withCount) {
+        return withCount
+               ? Mono.zip(artefacts, consentArtefactsCount(username, status), ListResult::new)
+               : artefacts.map(result -> new ListResult<>(result, null));
+    }
+
+    private <T> Mono<List<T>> consentArtefacts(String query, Tuple params, Function<Row, T> mapper) {
+        return Mono.create(monoSink -> dbClient.preparedQuery(query)
+                .execute(params, handler -> {
+                    if (handler.failed()) {
+                        logger.error(handler.cause().getMessage(), handler.cause());
+                        monoSink.error(new DbOperationError());
+                        return;
+                    }
+                    List<T> artefacts = new ArrayList<>();
+                    for (Row row : handler.result()) {
+                        artefacts.add(mapper.apply(row));
+                    }
+                    monoSink.success(artefacts);
                 }));
     }
 
-    private List<ConsentArtefactRepresentation> getConsentArtefactRepresentation(AsyncResult<RowSet<Row>> handler) {
-        if (handler.failed()) {
-            return new ArrayList<>();
-        }
-        List<ConsentArtefactRepresentation> artefacts = new ArrayList<>();
-        RowSet<Row> results = handler.result();
-        for (Row result : results) {
-            artefacts.add(getConsentArtefactRepresentation(result));
-        }
-        return artefacts;
+    private Mono<Integer> consentArtefactsCount(String username, String status) {
+        return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_CONSENT_ARTEFACTS_COUNT)
+                .execute(Tuple.of(username, status), counter -> {
+                    if (counter.failed()) {
+                        logger.error(counter.cause().getMessage(), counter.cause());
+                        monoSink.error(new DbOperationError());
+                        return;
+                    }
+                    monoSink.success(counter.result().iterator().next().getInteger("count"));
+                }));
     }
 
-    @SneakyThrows
-    public Flux<ConsentExpiry> getConsentArtefacts(ConsentStatus consentStatus) {
-        return Flux.create(fluxSink -> dbClient.preparedQuery(SELECT_CONSENTS_TO_VALIDATE_EXPIRY)
-                .execute(Tuple.of(consentStatus.toString()),
+    // keyset paginated on (data_erase_at, consent_artefact_id); a null 'after' reads the first chunk
+    public Mono<List<ConsentExpiry>> getConsentExpiries(LocalDateTime expiringBefore,
+                                                        int partitionCount,
+                                                        List<Integer> partitions,
+                                                        ConsentExpiry after,
+                                                        int limit) {
+        var query = after == null ? SELECT_CONSENT_EXPIRIES : SELECT_CONSENT_EXPIRIES_AFTER;
+        var params = Tuple.of(ConsentStatus.GRANTED.toString(),
+                expiringBefore,
+                limit,
+                partitionCount,
+                partitions.toArray(Integer[]::new));
+        if (after != null) {
+            params.addLocalDateTime(after.getConsentExpiryDate()).addString(after.getConsentId());
+        }
+        return Mono.create(monoSink -> dbClient.preparedQuery(query)
+                .execute(params,
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
-                                fluxSink.error(new Exception("Failed to get GRANTED consents"));
+                                monoSink.error(new Exception("Failed to get consent expiries"));
                                 return;
                             }
-                            RowSet<Row> results = handler.result();
-                            if (results.iterator().hasNext()) {
-                                results.forEach(row -> {
-                                    fluxSink.next(ConsentExpiry.builder()
-                                            .consentId(row.getString("consent_artefact_id"))
-                                            .patientId(row.getString("patient_id"))
-                                            .consentExpiryDate(toDate(row.getString("consent_expiry_date")))
-                                            .build());
-                                });
+                            List<ConsentExpiry> consentExpiries = new ArrayList<>();
+                            for (Row row : handler.result()) {
+                                consentExpiries.add(ConsentExpiry.builder()
+                                        .consentId(row.getString(CONSENT_ARTEFACT_ID))
+                                        .consentExpiryDate(row.getLocalDateTime("data_erase_at"))
+                                        .build());
                             }
-                            fluxSink.complete();
+                            monoSink.success(consentExpiries);
                         }));
     }
 
@@ -228,20 +351,58 @@ public class ConsentArtefactRepository {
         return LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
     }
 
-    public Mono<Void> updateStatus(String consentId, String consentRequestId, ConsentStatus status) {
-        return Mono.create(monoSink -> dbClient.begin(connectionAttempt -> {
-            var queries = getUpdateQueries(consentId, consentRequestId, status);
+    // returns only the consents that were still in currentStatus, so a concurrently changed consent is skipped; the
+    // notifications of the expired consents are written in the same transaction
+    public Flux<ConsentExpiry> updateConsentArtefactStatus(List<String> consentIds,
+                                                           ConsentStatus currentStatus,
+                                                           ConsentStatus status,
+                                                           Function<List<ConsentExpiry>, List<Query>> notifications) {
+        var update = new Query(UPDATE_CONSENT_ARTEFACTS_STATUS_QUERY,
+                Tuple.of(status.toString(),
+                        LocalDateTime.now(ZoneOffset.UTC),
+                        consentIds.toArray(String[]::new),
+                        currentStatus.toString()));
+        return Flux.defer(() -> {
+            List<ConsentExpiry> consentExpiries = new ArrayList<>();
+            return Mono.<Void>create(monoSink -> dbClient.begin(connectionAttempt -> {
+                if (connectionAttempt.failed()) {
+                    monoSink.error(new RuntimeException("Can not get connectionAttempt to storage."));
+                    return;
+                }
+                TransactionContext context = new TransactionContext(connectionAttempt.result(), monoSink);
+                context.executeInTransaction(update, rows -> {
+                    rows.forEach(row -> consentExpiries.add(ConsentExpiry.builder()
+                            .consentId(row.getString(CONSENT_ARTEFACT_ID))
+                            .consentRequestId(row.getString(CONSENT_REQUEST_ID))
+                            .consentExpiryDate(row.getLocalDateTime("data_erase_at"))
+                            .hip(decode(row, "hip", HIPReference.class))
+                            .hiuId(row.getString("hiu_id"))
+                            .createdAt(toDate(row.getString("created_at")))
+                            .dateModified(row.getLocalDateTime(DATE_MODIFIED))
+                            .build()));
+                    return notifications.apply(consentExpiries);
+                }, "Failed to update consent artefact status");
+            })).thenMany(Flux.fromIterable(consentExpiries));
+        }).concatMap(expiry -> invalidate(expiry.getConsentId()).thenReturn(expiry));
+    }
+
+    public Mono<Void> updateStatus(String consentId,
+                                   String consentRequestId,
+                                   ConsentStatus status,
+                                   Query notification) {
+        return Mono.<Void>create(monoSink -> dbClient.begin(connectionAttempt -> {
+            var queries = getUpdateQueries(consentId, consentRequestId, status, notification);
             if (connectionAttempt.succeeded()) {
                 TransactionContext context = new TransactionContext(connectionAttempt.result(), monoSink);
                 context.executeInTransaction(queries.iterator(), "Failed to update status");
             } else {
                 monoSink.error(new RuntimeException("Can not get connectionAttempt to storage."));
             }
-        }));
+        })).then(invalidate(consentId));
     }
 
     public Mono<Void> updateConsentArtefactStatus(String consentId, ConsentStatus status) {
-        return Mono.create(monoSink -> dbClient.preparedQuery(UPDATE_CONSENT_ARTEFACT_STATUS_QUERY)
+        return Mono.<Void>create(monoSink -> dbClient.preparedQuery(UPDATE_CONSENT_ARTEFACT_STATUS_QUERY)
                 .execute(Tuple.of(status.toString(),
                         LocalDateTime.now(),
                         consentId),
@@ -252,10 +413,14 @@ public class ConsentArtefactRepository {
                                 return;
                             }
                             monoSink.success();
-                        }));
+                        })).then(invalidate(consentId));
     }
 
     public Mono<ConsentRepresentation> getConsentWithRequest(String consentId) {
+        return cached(WITH_REQUEST_VIEW, consentId, ConsentRepresentation.class, selectConsentWithRequest(consentId));
+    }
+
+    private Mono<ConsentRepresentation> selectConsentWithRequest(String consentId) {
         return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_CONSENT_WITH_REQUEST_QUERY)
                 .execute(Tuple.of(consentId),
                         handler -> {
@@ -270,8 +435,7 @@ public class ConsentArtefactRepository {
                                 return;
                             }
                             Row row = results.iterator().next();
-                            var consentArtefact = to(row.getValue(CONSENT_ARTEFACT).toString(),
-                                    ConsentArtefact.class);
+                            var consentArtefact = decode(row, CONSENT_ARTEFACT, ConsentArtefact.class);
                             var representation = ConsentRepresentation
                                     .builder()
                                     .status(ConsentStatus.valueOf(row.getString(STATUS)))
@@ -309,17 +473,50 @@ public class ConsentArtefactRepository {
                         }));
     }
 
-    private List<Query> getUpdateQueries(String consentId, String consentRequestId, ConsentStatus status) {
+    private <T> Mono<T> cached(String view, String consentId, Class<T> type, Mono<T> load) {
+        var key = view + ":" + consentId;
+        return consentArtefactCache.getIfPresent(key)
+                .flatMap(value -> Mono.justOrEmpty(tryTo(value, type)))
+                .switchIfEmpty(Mono.defer(() -> load
+                        .flatMap(value -> consentArtefactCache.put(key, from(value)).thenReturn(value))));
+    }
+
+    // a read that started before the update can put the old status back after the first eviction, so evict again
+    private Mono<Void> invalidate(String consentId) {
+        Mono<Void> eviction = Flux.just(ARTEFACT_VIEW, LIGHT_VIEW, WITH_REQUEST_VIEW)
+                .concatMap(view -> consentArtefactCache.invalidate(view + ":" + consentId))
+                .then();
+        return eviction.doOnSuccess(done -> eviction.delaySubscription(REPEATED_EVICTION_DELAY).subscribe());
+    }
+
+    private List<Query> getUpdateQueries(String consentId,
+                                         String consentRequestId,
+                                         ConsentStatus status,
+                                         Query notification) {
         Query consentArtefactUpdate = new Query(UPDATE_CONSENT_ARTEFACT_STATUS_QUERY,
                 Tuple.of(status.toString(),
                         LocalDateTime.now(),
                         consentId));
-        return List.of(consentArtefactUpdate);
+        return List.of(consentArtefactUpdate, notification);
+    }
+
+    private ConsentArtefactSummary getConsentArtefactSummary(Row row) {
+        return ConsentArtefactSummary.builder()
+                .consentId(row.getString(CONSENT_ARTEFACT_ID))
+                .status(ConsentStatus.valueOf(row.getString(STATUS)))
+                .createdAt(ConsentSummaryColumns.date(row, "created_at"))
+                .lastUpdated(row.getLocalDateTime(DATE_MODIFIED))
+                .purpose(ConsentSummaryColumns.purpose(row))
+                .hip(ConsentSummaryColumns.hip(row))
+                .hiu(ConsentSummaryColumns.hiu(row))
+                .requesterName(row.getString("requester_name"))
+                .dateRange(ConsentSummaryColumns.dateRange(row))
+                .dataEraseAt(ConsentSummaryColumns.date(row, "data_erase_at"))
+                .build();
     }
 
     private ConsentArtefactRepresentation getConsentArtefactRepresentation(Row row) {
-        ConsentArtefact consentArtefact = to(row.getValue(CONSENT_ARTEFACT).toString(),
-                ConsentArtefact.class);
+        ConsentArtefact consentArtefact = decode(row, CONSENT_ARTEFACT, ConsentArtefact.class);
         consentArtefact.setLastUpdated(row.getLocalDateTime(DATE_MODIFIED));
         return ConsentArtefactRepresentation
                 .builder()
@@ -0,0 +1,110 @@
+package in.projecteka.consentmanager.consent;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.SneakyThrows;
+import lombok.Value;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Base64;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+
+/**
+ * Signs consent artefacts over their canonical JSON form (properties and map keys sorted, ISO dates), so the signed
+ * bytes are rebuilt from the artefact itself instead of being stored alongside it. Every worker thread keeps its own initialised {@link Signature}, and
+ * signing runs on the given scheduler instead of the caller's thread.
+ */
+public class ConsentArtefactSigner implements AutoCloseable {
+    public static final String SHA_1_WITH_RSA = "SHA1withRSA";
+    public static final String RSASSA_PSS = "RSASSA-PSS";
+    private static final ObjectMapper canonical = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(WRITE_DATES_AS_TIMESTAMPS, false)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final KeyPair keyPair;
+    private final String algorithm;
+    private final Scheduler scheduler;
+    private final ThreadLocal<Signature> signatures;
+
+    public ConsentArtefactSigner(KeyPair keyPair, String algorithm, Scheduler scheduler) {
+        this.keyPair = keyPair;
+        this.algorithm = algorithm;
+        this.scheduler = scheduler;
+        this.signatures = ThreadLocal.withInitial(this::newSignature);
+        // fail at startup when the configured algorithm does not fit the key
+        newSignature();
+    }
+
+    public Mono<String> sign(Object artefact) {
+        return signContent(artefact).map(Signed::getSignature);
+    }
+
+    public Mono<Signed> signContent(Object artefact) {
+        return Mono.fromCallable(() -> signed(artefact)).subscribeOn(scheduler);
+    }
+
+    public String signNow(Object artefact) {
+        return signed(artefact).getSignature();
+    }
+
+    // the exact JSON a signature of the artefact is computed over
+    @SneakyThrows
+    public static String canonicalContentOf(Object artefact) {
+        return canonical.writeValueAsString(artefact);
+    }
+
+    @SneakyThrows
+    private Signed signed(Object artefact) {
+        byte[] content = canonicalContentOf(artefact).getBytes(StandardCharsets.UTF_8);
+        Signature signature = signatures.get();
+        try {
+            signature.update(content);
+            return new Signed(new String(content, StandardCharsets.UTF_8),
+                    Base64.getEncoder().encodeToString(signature.sign()));
+        } catch (Exception e) {
+            signatures.remove();
+            throw e;
+        }
+    }
+
+    public PublicKey getPublicKey() {
+        return keyPair.getPublic();
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public void close() {
+        scheduler.dispose();
+    }
+
+    @Value
+    public static class Signed {
+        String content;
+        String signature;
+    }
+
+    @SneakyThrows
+    private Signature newSignature() {
+        Signature signature = Signature.getInstance(algorithm);
+        if (RSASSA_PSS.equals(algorithm)) {
+            signature.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+        }
+        signature.initSign(keyPair.getPrivate());
+        return signature;
+    }
+}
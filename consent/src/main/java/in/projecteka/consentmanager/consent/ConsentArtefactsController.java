@@ -2,11 +2,13 @@ package in.projecteka.consentmanager.consent;
 
 import in.projecteka.consentmanager.consent.model.ConsentArtefactsStatusResponse;
 import in.projecteka.consentmanager.consent.model.FetchRequest;
+import in.projecteka.consentmanager.consent.model.PageCursor;
 import in.projecteka.consentmanager.consent.model.RevokeRequest;
 import in.projecteka.consentmanager.consent.model.request.ConsentRequestStatus;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactLightRepresentation;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactRepresentation;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactResponse;
+import in.projecteka.consentmanager.consent.model.response.ConsentArtefactSummaryResponse;
 import in.projecteka.consentmanager.consent.model.response.HIPConsentNotificationAcknowledgment;
 import in.projecteka.consentmanager.consent.model.response.HIUConsentNotificationAcknowledgment;
 import in.projecteka.library.clients.model.ClientError;
@@ -76,16 +78,56 @@ public class ConsentArtefactsController {
     public Mono<ConsentArtefactResponse> getAllConsentArtefacts(
             @RequestParam(defaultValue = "ALL") String status,
             @RequestParam(defaultValue = "-1") int limit,
-            @RequestParam(defaultValue = "0") int offset) {
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count) {
         int pageSize = getPageSize(limit);
         return ReactiveSecurityContextHolder.getContext()
                 .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
-                .flatMap(caller -> consentManager.getAllConsentArtefacts(caller.getUsername(), pageSize, offset, status))
+                .map(Caller::getUsername)
+                .flatMap(username -> cursor == null
+                                     ? consentManager.getAllConsentArtefacts(username, pageSize, offset, status)
+                                     : before(cursor).flatMap(before -> consentManager.getAllConsentArtefacts(
+                                             username, pageSize, before, status, count)))
                 .map(artefacts -> ConsentArtefactResponse.builder()
                         .consentArtefacts(artefacts.getResult())
                         .size(artefacts.getTotal())
                         .limit(pageSize)
-                        .offset(offset).build());
+                        .offset(cursor == null ? offset : 0)
+                        .next(PageCursor.next(artefacts.getResult(), pageSize, artefact -> new PageCursor(
+                                artefact.getConsentDetail().getLastUpdated(),
+                                artefact.getConsentDetail().getConsentId())))
+                        .build());
+    }
+
+    @GetMapping(value = Constants.APP_PATH_GET_CONSENT_ARTEFACTS, params = "view=summary")
+    public Mono<ConsentArtefactSummaryResponse> getConsentArtefactSummaries(
+            @RequestParam(defaultValue = "ALL") String status,
+            @RequestParam(defaultValue = "-1") int limit,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count) {
+        int pageSize = getPageSize(limit);
+        return ReactiveSecurityContextHolder.getContext()
+                .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
+                .map(Caller::getUsername)
+                .flatMap(username -> cursor == null
+                                     ? consentManager.getConsentArtefactSummaries(username, pageSize, offset, status)
+                                     : before(cursor).flatMap(before -> consentManager.getConsentArtefactSummaries(
+                                             username, pageSize, before, status, count)))
+                .map(artefacts -> ConsentArtefactSummaryResponse.builder()
+                        .consentArtefacts(artefacts.getResult())
+                        .size(artefacts.getTotal())
+                        .limit(pageSize)
+                        .offset(cursor == null ? offset : 0)
+                        .next(PageCursor.next(artefacts.getResult(), pageSize, artefact -> new PageCursor(
+                                artefact.getLastUpdated(),
+                                artefact.getConsentId())))
+                        .build());
+    }
+
+    private static Mono<PageCursor> before(String cursor) {
+        return Mono.justOrEmpty(PageCursor.decode(cursor)).switchIfEmpty(Mono.error(ClientError.invalidPageCursor()));
     }
 
     @PostMapping(value = Constants.APP_PATH_REVOKE_CONSENTS)
@@ -7,32 +7,39 @@ import in.projecteka.consentmanager.DestinationsConfig;
 import in.projecteka.consentmanager.MessageListenerContainerFactory;
 import in.projecteka.consentmanager.clients.ConsentArtefactNotifier;
 import in.projecteka.consentmanager.clients.ConsentManagerClient;
-import in.projecteka.consentmanager.clients.PatientServiceClient;
+import in.projecteka.consentmanager.link.link.PatientLinksIndex;
 import in.projecteka.consentmanager.properties.GatewayServiceProperties;
 import in.projecteka.consentmanager.properties.KeyPairConfig;
-import in.projecteka.consentmanager.properties.LinkServiceProperties;
 import in.projecteka.consentmanager.properties.ListenerProperties;
+import in.projecteka.consentmanager.properties.PublisherProperties;
+import in.projecteka.consentmanager.properties.TargetIsolationProperties;
 import in.projecteka.library.clients.OtpServiceClient;
 import in.projecteka.library.clients.UserServiceClient;
 import in.projecteka.library.common.CentralRegistry;
-import in.projecteka.library.common.IdentityService;
+import in.projecteka.library.common.ConfirmedPublisher;
+import in.projecteka.library.common.RetryTiers;
 import in.projecteka.library.common.ServiceAuthentication;
+import in.projecteka.library.common.TargetIsolation;
+import in.projecteka.library.common.TraceableMessageCodec;
 import in.projecteka.library.common.cache.CacheAdapter;
+import io.vertx.core.Vertx;
+import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import lombok.SneakyThrows;
-import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
 
 import java.security.KeyPair;
 import java.security.PublicKey;
 
+import static in.projecteka.consentmanager.Constants.PARKING_EXCHANGE;
+
 @Configuration
 public class ConsentConfiguration {
 
@@ -42,32 +49,38 @@ public class ConsentConfiguration {
     }
 
     @Bean
-    public ConsentArtefactRepository consentArtefactRepository(PgPool pgPool) {
-        return new ConsentArtefactRepository(pgPool);
+    public ConsentArtefactRepository consentArtefactRepository(
+            PgPool pgPool,
+            @Qualifier("consentArtefactCache") CacheAdapter<String, String> consentArtefactCache) {
+        return new ConsentArtefactRepository(pgPool, consentArtefactCache);
     }
 
     @Bean
-    public ConsentNotificationPublisher postConsentApproval(AmqpTemplate amqpTemplate,
-                                                            DestinationsConfig destinationsConfig) {
-        return new ConsentNotificationPublisher(amqpTemplate, destinationsConfig);
+    public ConfirmedPublisher confirmedPublisher(CachingConnectionFactory connectionFactory,
+                                                 Jackson2JsonMessageConverter jackson2JsonMessageConverter,
+                                                 PublisherProperties publisherProperties) {
+        return ConfirmedPublisher.of(connectionFactory,
+                jackson2JsonMessageConverter,
+                publisherProperties.getChannels(),
+                publisherProperties.getBatchSize(),
+                publisherProperties.getConfirmTimeout());
     }
 
     @Bean
-    public PostConsentRequest postConsentRequestNotification(AmqpTemplate amqpTemplate,
-                                                             DestinationsConfig destinationsConfig) {
-        return new PostConsentRequest(amqpTemplate, destinationsConfig);
+    public RetryTiers retryTiers(ConfirmedPublisher confirmedPublisher, DestinationsConfig destinationsConfig) {
+        return new RetryTiers(confirmedPublisher, destinationsConfig.getRetryTiers(), PARKING_EXCHANGE);
+    }
+
+    @Bean
+    public ConsentNotificationPublisher postConsentApproval(ConfirmedPublisher confirmedPublisher,
+                                                            DestinationsConfig destinationsConfig) {
+        return new ConsentNotificationPublisher(confirmedPublisher, destinationsConfig);
     }
 
     @Bean
-    public PatientServiceClient patientServiceClient(
-            @Qualifier("customBuilder") WebClient.Builder builder,
-            @Value("${consentmanager.authorization.header}") String authorizationHeader,
-            IdentityService identityService,
-            LinkServiceProperties linkServiceProperties) {
-        return new PatientServiceClient(builder.build(),
-                identityService::authenticate,
-                linkServiceProperties.getUrl(),
-                authorizationHeader);
+    public PostConsentRequest postConsentRequestNotification(ConfirmedPublisher confirmedPublisher,
+                                                             DestinationsConfig destinationsConfig) {
+        return new PostConsentRequest(confirmedPublisher, destinationsConfig);
     }
 
     @Bean
@@ -76,27 +89,35 @@ public class ConsentConfiguration {
             ConsentServiceProperties consentServiceProperties,
             ConsentRequestRepository repository,
             ConsentArtefactRepository consentArtefactRepository,
-            KeyPair keyPair,
-            ConsentNotificationPublisher consentNotificationPublisher,
+            ConsentArtefactSigner consentArtefactSigner,
             CentralRegistry centralRegistry,
             PostConsentRequest postConsentRequest,
             ConceptValidator conceptValidator,
             GatewayServiceProperties gatewayServiceProperties,
-            PatientServiceClient patientServiceClient,
-            ConsentManagerClient consentManagerClient) {
+            PatientLinksIndex patientLinksIndex,
+            ConsentManagerClient consentManagerClient,
+            ConsentExpiryEngine consentExpiryEngine) {
         return new ConsentManager(userServiceClient,
                 consentServiceProperties,
                 repository,
                 consentArtefactRepository,
-                keyPair,
-                consentNotificationPublisher,
+                consentArtefactSigner,
                 centralRegistry,
                 postConsentRequest,
-                patientServiceClient,
+                patientLinksIndex,
                 new CMProperties(gatewayServiceProperties.getClientId()),
                 conceptValidator,
                 new ConsentArtefactQueryGenerator(),
-                consentManagerClient);
+                consentManagerClient,
+                consentExpiryEngine);
+    }
+
+    @Bean
+    public ConsentArtefactSigner consentArtefactSigner(KeyPair keyPair,
+                                                       ConsentServiceProperties consentServiceProperties) {
+        return new ConsentArtefactSigner(keyPair,
+                consentServiceProperties.getSignatureAlgorithm(),
+                Schedulers.newParallel("consent-signer", consentServiceProperties.getSigningThreads()));
     }
 
     @Bean
@@ -110,94 +131,130 @@ public class ConsentConfiguration {
     }
 
     @Bean
-    @ConditionalOnProperty(prefix = "consentmanager.scheduler",
-            value = "consent-artefact-expiry-enabled",
-            havingValue = "true")
-    public ConsentScheduler consentScheduler(
-            ConsentArtefactRepository consentArtefactRepository,
-            ConsentNotificationPublisher consentNotificationPublisher) {
-        return new ConsentScheduler(consentArtefactRepository, consentNotificationPublisher);
+    public ConsentNotificationOutbox consentNotificationOutbox(
+            PgPool pgPool,
+            ConsentNotificationPublisher consentNotificationPublisher,
+            OutboxProperties outboxProperties) {
+        return new ConsentNotificationOutbox(pgPool, consentNotificationPublisher, outboxProperties);
+    }
+
+    @Bean
+    public ConsentScheduler consentScheduler(ConsentArtefactRepository consentArtefactRepository) {
+        return new ConsentScheduler(consentArtefactRepository);
+    }
+
+    @Bean
+    public ConsentRequestScheduler consentRequestScheduler(ConsentRequestRepository repository) {
+        return new ConsentRequestScheduler(repository);
     }
 
     @Bean
-    @ConditionalOnProperty(prefix = "consentmanager.scheduler",
-            value = "consent-request-expiry-enabled",
-            havingValue = "true")
-    ConsentRequestScheduler consentRequestScheduler(ConsentRequestRepository repository,
-                                                    ConsentServiceProperties consentServiceProperties,
-                                                    ConsentNotificationPublisher consentNotificationPublisher) {
-        return new ConsentRequestScheduler(repository, consentServiceProperties, consentNotificationPublisher);
+    public ExpiryPartitions expiryPartitions(Vertx vertx,
+                                             PgConnectOptions connectOptions,
+                                             SchedulerProperties schedulerProperties) {
+        return new ExpiryPartitions(vertx, connectOptions, schedulerProperties.getExpiryPartitions());
+    }
+
+    @Bean
+    public ConsentExpiryEngine consentExpiryEngine(ConsentArtefactRepository consentArtefactRepository,
+                                                   ConsentRequestRepository repository,
+                                                   ConsentScheduler consentScheduler,
+                                                   ConsentRequestScheduler consentRequestScheduler,
+                                                   ConsentServiceProperties consentServiceProperties,
+                                                   SchedulerProperties schedulerProperties,
+                                                   ExpiryPartitions expiryPartitions) {
+        return new ConsentExpiryEngine(consentArtefactRepository,
+                repository,
+                consentScheduler,
+                consentRequestScheduler,
+                consentServiceProperties,
+                schedulerProperties,
+                expiryPartitions);
     }
 
     @Bean
-    public Jackson2JsonMessageConverter converter() {
+    public TraceableMessageCodec converter() {
         var objectMapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule())
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        return new Jackson2JsonMessageConverter(objectMapper);
+        return new TraceableMessageCodec(objectMapper);
     }
 
     @Bean
     public MessageListenerContainerFactory messageListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter jackson2JsonMessageConverter) {
-        return new MessageListenerContainerFactory(connectionFactory, jackson2JsonMessageConverter);
+            Jackson2JsonMessageConverter jackson2JsonMessageConverter,
+            ListenerProperties listenerProperties) {
+        return new MessageListenerContainerFactory(connectionFactory, jackson2JsonMessageConverter, listenerProperties);
+    }
+
+    @Bean
+    public TargetIsolation targetIsolation(TargetIsolationProperties targetIsolationProperties) {
+        return new TargetIsolation(targetIsolationProperties.getMaxConcurrentCalls(),
+                targetIsolationProperties.getMaxQueuedCalls(),
+                targetIsolationProperties.getFailureThreshold(),
+                targetIsolationProperties.getOpenDuration());
     }
 
     @Bean
     public ConsentArtefactNotifier consentArtefactClient(@Qualifier("customBuilder") WebClient.Builder builder,
                                                          ServiceAuthentication serviceAuthentication,
-                                                         GatewayServiceProperties gatewayServiceProperties) {
-        return new ConsentArtefactNotifier(builder, serviceAuthentication::authenticate, gatewayServiceProperties);
+                                                         GatewayServiceProperties gatewayServiceProperties,
+                                                         TargetIsolation targetIsolation) {
+        return new ConsentArtefactNotifier(builder,
+                serviceAuthentication::authenticate,
+                gatewayServiceProperties,
+                targetIsolation);
     }
 
     @Bean
     public HiuConsentNotificationListener hiuNotificationListener(
             MessageListenerContainerFactory messageListenerContainerFactory,
-            Jackson2JsonMessageConverter jackson2JsonMessageConverter,
+            TraceableMessageCodec traceableMessageCodec,
             ConsentArtefactNotifier consentArtefactNotifier,
-            AmqpTemplate amqpTemplate,
-            ListenerProperties listenerProperties) {
+            RetryTiers retryTiers) {
         return new HiuConsentNotificationListener(
                 messageListenerContainerFactory,
-                jackson2JsonMessageConverter,
+                traceableMessageCodec,
                 consentArtefactNotifier,
-                amqpTemplate,
-                listenerProperties);
+                retryTiers);
     }
 
     @Bean
     public HipConsentNotificationListener hipNotificationListener(
             MessageListenerContainerFactory messageListenerContainerFactory,
-            Jackson2JsonMessageConverter jackson2JsonMessageConverter,
+            TraceableMessageCodec traceableMessageCodec,
             ConsentArtefactNotifier consentArtefactNotifier,
             ConsentArtefactRepository consentArtefactRepository,
-            CacheAdapter<String, String> hipConsentArtefactStatus) {
+            CacheAdapter<String, String> hipConsentArtefactStatus,
+            RetryTiers retryTiers) {
         return new HipConsentNotificationListener(
                 messageListenerContainerFactory,
-                jackson2JsonMessageConverter,
+                traceableMessageCodec,
                 consentArtefactNotifier,
-                consentArtefactRepository, hipConsentArtefactStatus);
+                consentArtefactRepository,
+                hipConsentArtefactStatus,
+                retryTiers);
     }
 
     @Bean
     public ConsentRequestNotificationListener consentRequestNotificationListener(
             MessageListenerContainerFactory messageListenerContainerFactory,
-            Jackson2JsonMessageConverter jackson2JsonMessageConverter,
+            TraceableMessageCodec traceableMessageCodec,
             OtpServiceClient otpServiceClient,
             ConsentServiceProperties consentServiceProperties,
             ConsentManager consentManager,
             NHSProperties nhsProperties,
             UserServiceClient userServiceClient,
-            PatientServiceClient patientServiceClient) {
+            PatientLinksIndex patientLinksIndex) {
         return new ConsentRequestNotificationListener(
                 messageListenerContainerFactory,
-                jackson2JsonMessageConverter,
+                traceableMessageCodec,
                 otpServiceClient,
                 userServiceClient,
                 consentServiceProperties,
                 consentManager,
-                patientServiceClient,
+                patientLinksIndex,
                 nhsProperties);
     }
 
@@ -0,0 +1,297 @@
+package in.projecteka.consentmanager.consent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static in.projecteka.library.common.Constants.CORRELATION_ID;
+
+/**
+ * Keeps the consents and consent requests expiring within the next {@code expiryHorizon} minutes in timing wheels
+ * and expires them within a tick of their expiry time. The wheels are reloaded from the database every
+ * {@code expiryReloadInterval} minutes, which also picks up anything missed while the service was down. Each node
+ * only loads the ids of the {@link ExpiryPartitions} it currently leases, but a consent granted or a consent request
+ * made on a node is also scheduled there, whichever node leases its partition, so that a short deadline fires within
+ * a tick rather than at the owner's next reload. Expiring only changes what is still granted or requested, so an id
+ * scheduled on two nodes is expired once. A batch that fails to expire goes back on its wheel with a backoff that
+ * doubles on every attempt, until its next attempt would fall beyond the loaded horizon and is left to the reload.
+ */
+public class ConsentExpiryEngine {
+    private static final Logger logger = LoggerFactory.getLogger(ConsentExpiryEngine.class);
+    private static final int WHEEL_SIZE = 64;
+    private static final int MAXIMUM_BACKOFF_SHIFT = 10;
+
+    private final ConsentArtefactRepository consentArtefactRepository;
+    private final ConsentRequestRepository consentRequestRepository;
+    private final ConsentScheduler consentScheduler;
+    private final ConsentRequestScheduler consentRequestScheduler;
+    private final ConsentServiceProperties consentServiceProperties;
+    private final SchedulerProperties schedulerProperties;
+    private final ExpiryPartitions expiryPartitions;
+    private final Clock clock;
+    private final long tickMs;
+    private final ExpiryWheel<String> consentWheel;
+    private final ExpiryWheel<String> consentRequestWheel;
+    private final Set<String> scheduledConsents = ConcurrentHashMap.newKeySet();
+    private final Set<String> scheduledConsentRequests = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+    // the only thing that keeps two rebalances of the partitions from running at once
+    private final AtomicBoolean rebalancing = new AtomicBoolean();
+    private volatile long loadedUntil;
+    private ScheduledExecutorService executor;
+
+    public ConsentExpiryEngine(ConsentArtefactRepository consentArtefactRepository,
+                               ConsentRequestRepository consentRequestRepository,
+                               ConsentScheduler consentScheduler,
+                               ConsentRequestScheduler consentRequestScheduler,
+                               ConsentServiceProperties consentServiceProperties,
+                               SchedulerProperties schedulerProperties,
+                               ExpiryPartitions expiryPartitions,
+                               Clock clock) {
+        this.consentArtefactRepository = consentArtefactRepository;
+        this.consentRequestRepository = consentRequestRepository;
+        this.consentScheduler = consentScheduler;
+        this.consentRequestScheduler = consentRequestScheduler;
+        this.consentServiceProperties = consentServiceProperties;
+        this.schedulerProperties = schedulerProperties;
+        this.expiryPartitions = expiryPartitions;
+        this.clock = clock;
+        long now = clock.millis();
+        this.tickMs = TimeUnit.SECONDS.toMillis(schedulerProperties.getExpiryTickInterval());
+        this.consentWheel = new ExpiryWheel<>(tickMs, WHEEL_SIZE, now);
+        this.consentRequestWheel = new ExpiryWheel<>(tickMs, WHEEL_SIZE, now);
+        this.loadedUntil = now + TimeUnit.MINUTES.toMillis(schedulerProperties.getExpiryHorizon());
+    }
+
+    public ConsentExpiryEngine(ConsentArtefactRepository consentArtefactRepository,
+                               ConsentRequestRepository consentRequestRepository,
+                               ConsentScheduler consentScheduler,
+                               ConsentRequestScheduler consentRequestScheduler,
+                               ConsentServiceProperties consentServiceProperties,
+                               SchedulerProperties schedulerProperties,
+                               ExpiryPartitions expiryPartitions) {
+        this(consentArtefactRepository,
+                consentRequestRepository,
+                consentScheduler,
+                consentRequestScheduler,
+                consentServiceProperties,
+                schedulerProperties,
+                expiryPartitions,
+                Clock.systemUTC());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!schedulerProperties.isConsentArtefactExpiryEnabled()
+                && !schedulerProperties.isConsentRequestExpiryEnabled()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "consent-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the first rebalance loads whatever partitions it acquires, so the first full reload can wait
+        executor.scheduleWithFixedDelay(this::rebalance, 0, schedulerProperties.getExpiryLeaseInterval(),
+                TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(this::reload,
+                schedulerProperties.getExpiryReloadInterval(),
+                schedulerProperties.getExpiryReloadInterval(),
+                TimeUnit.MINUTES);
+        executor.scheduleAtFixedRate(this::tick, schedulerProperties.getExpiryTickInterval(),
+                schedulerProperties.getExpiryTickInterval(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            expiryPartitions.close();
+        }
+    }
+
+    public void scheduleConsent(String consentId, LocalDateTime dataEraseAt) {
+        if (schedulerProperties.isConsentArtefactExpiryEnabled()) {
+            schedule(consentWheel, scheduledConsents, consentId, dataEraseAt);
+        }
+    }
+
+    public void scheduleConsentRequest(String requestId, LocalDateTime createdAt) {
+        if (schedulerProperties.isConsentRequestExpiryEnabled()) {
+            schedule(consentRequestWheel,
+                    scheduledConsentRequests,
+                    requestId,
+                    createdAt.plusMinutes(consentServiceProperties.getConsentRequestExpiry()));
+        }
+    }
+
+    private void schedule(ExpiryWheel<String> wheel, Set<String> scheduled, String id, LocalDateTime expiresAt) {
+        long deadline = expiresAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+        // anything beyond the loaded horizon is picked up by a later reload, which comes before it is due
+        if (deadline > loadedUntil || !scheduled.add(id)) {
+            return;
+        }
+        synchronized (wheel) {
+            wheel.add(id, deadline);
+        }
+    }
+
+    void tick() {
+        try {
+            long now = clock.millis();
+            List<String> consentIds;
+            synchronized (consentWheel) {
+                consentIds = consentWheel.advance(now);
+            }
+            List<String> requestIds;
+            synchronized (consentRequestWheel) {
+                requestIds = consentRequestWheel.advance(now);
+            }
+            expire(consentIds, consentWheel, scheduledConsents, consentScheduler::expire, "consents");
+            expire(requestIds,
+                    consentRequestWheel,
+                    scheduledConsentRequests,
+                    consentRequestScheduler::expire,
+                    "consent requests");
+        } catch (Exception e) {
+            logger.error("Failed to process consent expiries", e);
+        }
+    }
+
+    private void expire(List<String> ids,
+                        ExpiryWheel<String> wheel,
+                        Set<String> scheduled,
+                        Function<List<String>, Mono<Long>> expirer,
+                        String kind) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Flux.fromIterable(ids)
+                .buffer(schedulerProperties.getConsentExpiryBatchSize())
+                .concatMap(batch -> expirer.apply(batch)
+                        .doOnSuccess(count -> batch.forEach(id -> {
+                            scheduled.remove(id);
+                            attempts.remove(id);
+                        }))
+                        .onErrorResume(error -> {
+                            logger.error("Failed to expire " + kind + ", retrying them later", error);
+                            retry(wheel, scheduled, batch);
+                            return Mono.empty();
+                        }))
+                .reduce(0L, Long::sum)
+                .subscriberContext(ctx -> ctx.put(CORRELATION_ID, UUID.randomUUID().toString()))
+                .subscribe(count -> logger.info("Expired {} {}", count, kind));
+    }
+
+    private void retry(ExpiryWheel<String> wheel, Set<String> scheduled, List<String> ids) {
+        long now = clock.millis();
+        synchronized (wheel) {
+            for (String id : ids) {
+                int attempt = attempts.merge(id, 1, Integer::sum);
+                long deadline = now + (tickMs << Math.min(attempt, MAXIMUM_BACKOFF_SHIFT));
+                if (deadline > loadedUntil) {
+                    scheduled.remove(id);
+                    attempts.remove(id);
+                    continue;
+                }
+                wheel.add(id, deadline);
+            }
+        }
+    }
+
+    void rebalance() {
+        if (!rebalancing.compareAndSet(false, true)) {
+            return;
+        }
+        expiryPartitions.rebalance()
+                .filter(acquired -> !acquired.isEmpty())
+                .doFinally(signal -> rebalancing.set(false))
+                .subscribe(acquired -> load(List.copyOf(acquired),
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(loadedUntil), ZoneOffset.UTC)));
+    }
+
+    void reload() {
+        try {
+            var until = LocalDateTime.ofInstant(clock.instant(), ZoneOffset.UTC)
+                    .plusMinutes(schedulerProperties.getExpiryHorizon());
+            loadedUntil = until.toInstant(ZoneOffset.UTC).toEpochMilli();
+            load(expiryPartitions.owned(), until);
+        } catch (Exception e) {
+            logger.error("Failed to load consent expiries", e);
+        }
+    }
+
+    private void load(List<Integer> partitions, LocalDateTime until) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        logger.info("Loading consent expiries of partitions {} until {}", partitions, until);
+        if (schedulerProperties.isConsentArtefactExpiryEnabled()) {
+            loadConsentExpiries(until, partitions)
+                    .subscribe(count -> logger.info("Loaded {} consent expiries", count),
+                            error -> logger.error("Failed to load consent expiries", error));
+        }
+        if (schedulerProperties.isConsentRequestExpiryEnabled()) {
+            loadConsentRequestExpiries(until.minusMinutes(consentServiceProperties.getConsentRequestExpiry()),
+                    partitions)
+                    .subscribe(count -> logger.info("Loaded {} consent request expiries", count),
+                            error -> logger.error("Failed to load consent request expiries", error));
+        }
+    }
+
+    Mono<Long> loadConsentExpiries(LocalDateTime expiringBefore, List<Integer> partitions) {
+        int batchSize = schedulerProperties.getConsentExpiryBatchSize();
+        int partitionCount = expiryPartitions.getPartitionCount();
+        return consentArtefactRepository.getConsentExpiries(expiringBefore, partitionCount, partitions, null, batchSize)
+                .expand(consentExpiries -> consentExpiries.size() < batchSize
+                                           ? Mono.empty()
+                                           : consentArtefactRepository.getConsentExpiries(expiringBefore,
+                                                   partitionCount,
+                                                   partitions,
+                                                   consentExpiries.get(consentExpiries.size() - 1),
+                                                   batchSize))
+                .flatMapIterable(Function.identity())
+                .doOnNext(consentExpiry -> scheduleConsent(consentExpiry.getConsentId(),
+                        consentExpiry.getConsentExpiryDate()))
+                .count();
+    }
+
+    Mono<Long> loadConsentRequestExpiries(LocalDateTime createdBefore, List<Integer> partitions) {
+        int batchSize = schedulerProperties.getConsentExpiryBatchSize();
+        int partitionCount = expiryPartitions.getPartitionCount();
+        return consentRequestRepository.getConsentRequestExpiries(createdBefore,
+                partitionCount,
+                partitions,
+                null,
+                batchSize)
+                .expand(requestExpiries -> requestExpiries.size() < batchSize
+                                           ? Mono.empty()
+                                           : consentRequestRepository.getConsentRequestExpiries(createdBefore,
+                                                   partitionCount,
+                                                   partitions,
+                                                   requestExpiries.get(requestExpiries.size() - 1),
+                                                   batchSize))
+                .flatMapIterable(Function.identity())
+                .doOnNext(requestExpiry -> scheduleConsentRequest(requestExpiry.getRequestId(),
+                        requestExpiry.getCreatedAt()))
+                .count();
+    }
+}
@@ -1,7 +1,6 @@
 package in.projecteka.consentmanager.consent;
 
 import in.projecteka.consentmanager.clients.ConsentManagerClient;
-import in.projecteka.consentmanager.clients.PatientServiceClient;
 import in.projecteka.consentmanager.consent.model.CMReference;
 import in.projecteka.consentmanager.consent.model.CertDetails;
 import in.projecteka.consentmanager.consent.model.CertResponse;
@@ -24,6 +23,8 @@ import in.projecteka.consentmanager.consent.model.HIPConsentArtefactRepresentati
 import in.projecteka.consentmanager.consent.model.HIType;
 import in.projecteka.consentmanager.consent.model.HIUReference;
 import in.projecteka.consentmanager.consent.model.ListResult;
+import in.projecteka.consentmanager.consent.model.PageCursor;
+import in.projecteka.consentmanager.consent.model.Query;
 import in.projecteka.consentmanager.consent.model.QueryRepresentation;
 import in.projecteka.consentmanager.consent.model.RevokeRequest;
 import in.projecteka.consentmanager.consent.model.request.ConsentArtefactReference;
@@ -31,14 +32,16 @@ import in.projecteka.consentmanager.consent.model.request.ConsentRequestStatus;
 import in.projecteka.consentmanager.consent.model.request.GrantedConsent;
 import in.projecteka.consentmanager.consent.model.request.RequestedDetail;
 import in.projecteka.consentmanager.consent.model.response.ConsentApprovalResponse;
-import in.projecteka.consentmanager.consent.model.response.ConsentArtefactLight;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactLightRepresentation;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactRepresentation;
+import in.projecteka.consentmanager.consent.model.response.ConsentArtefactSummary;
 import in.projecteka.consentmanager.consent.model.response.ConsentReference;
 import in.projecteka.consentmanager.consent.model.response.ConsentRequestId;
 import in.projecteka.consentmanager.consent.model.response.ConsentRequestResult;
+import in.projecteka.consentmanager.consent.model.response.ConsentRequestSummary;
 import in.projecteka.consentmanager.consent.model.response.ConsentStatusResponse;
 import in.projecteka.consentmanager.consent.model.response.HIPConsentNotificationAcknowledgment;
+import in.projecteka.consentmanager.link.link.PatientLinksIndex;
 import in.projecteka.library.clients.UserServiceClient;
 import in.projecteka.library.clients.model.ClientError;
 import in.projecteka.library.clients.model.Error;
@@ -47,7 +50,6 @@ import in.projecteka.library.clients.model.GatewayResponse;
 import in.projecteka.library.common.CentralRegistry;
 import in.projecteka.library.common.PatientReference;
 import lombok.AllArgsConstructor;
-import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -55,11 +57,6 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-import java.io.Serializable;
-import java.security.KeyPair;
-import java.security.PrivateKey;
-import java.security.Signature;
-import java.security.SignedObject;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
@@ -73,6 +70,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import static in.projecteka.consentmanager.consent.ConsentNotificationOutbox.enqueue;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.DENIED;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.EXPIRED;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.GRANTED;
@@ -95,22 +93,21 @@ import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 @AllArgsConstructor
 public class ConsentManager {
-    public static final String SHA_1_WITH_RSA = "SHA1withRSA";
     public static final String ALL_CONSENT_ARTEFACTS = "ALL";
     private static final Logger logger = LoggerFactory.getLogger(ConsentManager.class);
     private final UserServiceClient userServiceClient;
     private final ConsentServiceProperties consentServiceProperties;
     private final ConsentRequestRepository consentRequestRepository;
     private final ConsentArtefactRepository consentArtefactRepository;
-    private final KeyPair keyPair;
-    private final ConsentNotificationPublisher consentNotificationPublisher;
+    private final ConsentArtefactSigner consentArtefactSigner;
     private final CentralRegistry centralRegistry;
     private final PostConsentRequest postConsentRequest;
-    private final PatientServiceClient patientServiceClient;
+    private final PatientLinksIndex patientLinksIndex;
     private final CMProperties cmProperties;
     private final ConceptValidator conceptValidator;
     private final ConsentArtefactQueryGenerator consentArtefactQueryGenerator;
     private final ConsentManagerClient consentManagerClient;
+    private final ConsentExpiryEngine consentExpiryEngine;
 
     private static boolean isSameRequester(ConsentArtefact consentDetail, String requesterId) {
         return consentDetail.getHiu().getId().equals(requesterId) ||
@@ -148,7 +145,8 @@ public class ConsentManager {
     public Mono<CertResponse> getCert() {
         try {
             CertDetails certDetails = CertDetails.builder()
-                    .publicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()))
+                    .publicKey(Base64.getEncoder().encodeToString(consentArtefactSigner.getPublicKey().getEncoded()))
+                    .algorithm(consentArtefactSigner.getAlgorithm())
                     .startDate("2020-01-01:00:00:00Z")
                     .build();
             var keys = new ArrayList<CertDetails>();
@@ -167,6 +165,10 @@ public class ConsentManager {
                 .build());
     }
 
+    private void scheduleExpiry(UUID requestId) {
+        consentExpiryEngine.scheduleConsentRequest(requestId.toString(), LocalDateTime.now(ZoneOffset.UTC));
+    }
+
     private Mono<Void> saveConsentRequest(RequestedDetail requestedDetail, UUID requestId) {
         var request = ConsentRequestId.builder().id(requestId).build();
         var consentRequestResult = ConsentRequestResult.builder()
@@ -177,6 +179,7 @@ public class ConsentManager {
                 .build();
 
         return consentRequestRepository.insert(requestedDetail, requestId)
+                .doOnSuccess(s -> scheduleExpiry(requestId))
                 .doOnSuccess(s -> Mono.defer(() -> consentManagerClient
                         .sendInitResponseToGateway(consentRequestResult, requestedDetail.getHiu().getId()))
                         .subscriberContext(ctx -> {
@@ -224,7 +227,8 @@ public class ConsentManager {
     }
 
     private Mono<Void> saveRequest(RequestedDetail requestedDetail, UUID requestId) {
-        return consentRequestRepository.insert(requestedDetail, requestId);
+        return consentRequestRepository.insert(requestedDetail, requestId)
+                .doOnSuccess(s -> scheduleExpiry(requestId));
     }
 
     private Mono<Boolean> isValidHIP(RequestedDetail requestedDetail) {
@@ -246,16 +250,47 @@ public class ConsentManager {
                : consentRequestRepository.requestsForPatient(patientId, limit, offset, status);
     }
 
+    public Mono<ListResult<List<ConsentRequestDetail>>> findRequestsForPatient(String patientId,
+                                                                               int limit,
+                                                                               PageCursor before,
+                                                                               String status,
+                                                                               boolean withCount) {
+        return consentRequestRepository.requestsForPatient(patientId,
+                limit,
+                before,
+                ALL_CONSENT_ARTEFACTS.equals(status) ? null : status,
+                withCount);
+    }
+
+    public Mono<ListResult<List<ConsentRequestSummary>>> findRequestSummariesForPatient(String patientId,
+                                                                                        int limit,
+                                                                                        int offset,
+                                                                                        String status) {
+        return consentRequestRepository.requestSummariesForPatient(patientId,
+                limit,
+                offset,
+                ALL_CONSENT_ARTEFACTS.equals(status) ? null : status);
+    }
+
+    public Mono<ListResult<List<ConsentRequestSummary>>> findRequestSummariesForPatient(String patientId,
+                                                                                        int limit,
+                                                                                        PageCursor before,
+                                                                                        String status,
+                                                                                        boolean withCount) {
+        return consentRequestRepository.requestSummariesForPatient(patientId,
+                limit,
+                before,
+                ALL_CONSENT_ARTEFACTS.equals(status) ? null : status,
+                withCount);
+    }
+
     private Mono<Void> validateLinkedHips(String username, List<GrantedConsent> grantedConsents) {
-        return patientServiceClient.retrievePatientLinks(username)
-                .flatMap(linkedCareContexts ->
-                        Flux.fromIterable(grantedConsents)
-                                .filter(grantedConsent ->
-                                        linkedCareContexts.hasCCReferences(
-                                                grantedConsent.getHip().getId(),
-                                                careContextsIn(grantedConsent)))
-                                .collectList()
-                                .filter(filteredList -> filteredList.size() == grantedConsents.size()))
+        return Flux.fromIterable(grantedConsents)
+                .flatMap(grantedConsent -> patientLinksIndex.hasCareContexts(username,
+                        grantedConsent.getHip().getId(),
+                        careContextsIn(grantedConsent)))
+                .all(Boolean::booleanValue)
+                .filter(Boolean::booleanValue)
                 .switchIfEmpty(Mono.error(ClientError.invalidProviderOrCareContext()))
                 .then();
     }
@@ -277,28 +312,21 @@ public class ConsentManager {
                 .switchIfEmpty(Mono.defer(() -> processExpiredConsentRequestForApprove(requestId)
                         .then(Mono.error(ClientError.consentRequestExpired()))))
                 .flatMap(consentRequest -> validateLinkedHips(patientId, grantedConsents)
-                        .then(generateConsentArtefacts(requestId, grantedConsents, patientId, consentRequest)
-                                .flatMap(consents ->
-                                        broadcastConsentArtefacts(consents,
-                                                requestId,
-                                                GRANTED,
-                                                consentRequest.getLastUpdated(),
-                                                consentRequest.getHiu())
-                                                .thenReturn(consentApprovalResponse(consents)))));
+                        .then(generateConsentArtefacts(requestId, grantedConsents, patientId, consentRequest))
+                        .map(this::consentApprovalResponse));
     }
 
     private Mono<Void> processExpiredConsentRequestForApprove(String requestId) {
         return consentRequestRepository.requestOf(requestId)
                 .filter(consentRequest -> consentRequest.getStatus().equals(REQUESTED))
                 .switchIfEmpty(Mono.empty())
-                .flatMap(response -> consentRequestRepository.updateStatus(requestId, EXPIRED)
-                        .then(consentRequestRepository.requestOf(requestId))
-                        .flatMap(consentRequest ->
-                                broadcastConsentArtefacts(List.of(),
-                                        requestId,
-                                        EXPIRED,
-                                        consentRequest.getLastUpdated(),
-                                        consentRequest.getHiu())));
+                .flatMap(consentRequest -> consentRequestRepository.updateStatus(requestId,
+                        EXPIRED,
+                        notificationOf(List.of(),
+                                requestId,
+                                EXPIRED,
+                                LocalDateTime.now(ZoneOffset.UTC),
+                                consentRequest.getHiu())));
     }
 
     private Mono<Void> validateDate(List<GrantedConsent> grantedConsents) {
@@ -336,11 +364,11 @@ public class ConsentManager {
                 .toArray(HIType[]::new);
     }
 
-    private Mono<Void> broadcastConsentArtefacts(List<HIPConsentArtefactRepresentation> consents,
-                                                 String requestId,
-                                                 ConsentStatus status,
-                                                 LocalDateTime lastUpdated,
-                                                 HIUReference consentRequest) {
+    private Query notificationOf(List<HIPConsentArtefactRepresentation> consents,
+                                 String requestId,
+                                 ConsentStatus status,
+                                 LocalDateTime lastUpdated,
+                                 HIUReference consentRequest) {
         ConsentArtefactsMessage message = ConsentArtefactsMessage
                 .builder()
                 .status(status)
@@ -349,7 +377,7 @@ public class ConsentManager {
                 .consentArtefacts(consents)
                 .hiuId(consentRequest.getId())
                 .build();
-        return consentNotificationPublisher.publish(message);
+        return enqueue(message);
     }
 
     private ConsentApprovalResponse consentApprovalResponse(
@@ -374,9 +402,22 @@ public class ConsentManager {
                                                                                   String patientId,
                                                                                   ConsentRequestDetail consentRequest) {
         return getAllQueries(requestId, grantedConsents, patientId, consentRequest)
-                .map(caQueries -> caQueries.stream().reduce(QueryRepresentation::add).get())
-                .flatMap(queryRepresentation -> consentArtefactRepository.process(queryRepresentation.getQueries())
-                        .thenReturn(queryRepresentation.getHipConsentArtefactRepresentations()));
+                .map(caQueries -> consentArtefactQueryGenerator.toGrantQueries(requestId, caQueries))
+                .flatMap(queryRepresentation -> {
+                    var consents = queryRepresentation.getHipConsentArtefactRepresentations();
+                    var notification = notificationOf(consents,
+                            requestId,
+                            GRANTED,
+                            consentRequest.getLastUpdated(),
+                            consentRequest.getHiu());
+                    return consentArtefactRepository.process(queryRepresentation
+                            .add(new QueryRepresentation(List.of(notification), List.of()))
+                            .getQueries())
+                            .thenReturn(consents);
+                })
+                .doOnNext(consents -> consents.forEach(consent -> consentExpiryEngine.scheduleConsent(
+                        consent.getConsentId(),
+                        consent.getConsentDetail().getPermission().getDataEraseAt())));
     }
 
     private Mono<List<QueryRepresentation>> getAllQueries(String requestId,
@@ -384,12 +425,14 @@ public class ConsentManager {
                                                           String patientId,
                                                           ConsentRequestDetail consentRequest) {
         return Flux.fromIterable(grantedConsents)
-                .flatMap(grantedConsent -> toConsentArtefact(consentRequest, grantedConsent)
-                        .flatMap(consentArtefact -> consentArtefactQueryGenerator.toQueries(requestId,
-                                patientId,
-                                consentArtefact,
-                                from(consentArtefact, GRANTED),
-                                signConsentArtefact(consentArtefact))))
+                .flatMapSequential(grantedConsent -> toConsentArtefact(consentRequest, grantedConsent)
+                        .flatMap(consentArtefact -> Mono.zip(from(consentArtefact, GRANTED),
+                                consentArtefactSigner.sign(consentArtefact))
+                                .flatMap(signed -> consentArtefactQueryGenerator.toQueries(requestId,
+                                        patientId,
+                                        consentArtefact,
+                                        signed.getT1(),
+                                        signed.getT2()))))
                 .collectList();
     }
 
@@ -397,7 +440,7 @@ public class ConsentManager {
         return Mono.just(from(requestDetail, grantedConsent));
     }
 
-    private HIPConsentArtefactRepresentation from(ConsentArtefact consentArtefact, ConsentStatus status) {
+    private Mono<HIPConsentArtefactRepresentation> from(ConsentArtefact consentArtefact, ConsentStatus status) {
         HIPConsentArtefact hipConsentArtefact = HIPConsentArtefact.builder()
                 .consentId(consentArtefact.getConsentId())
                 .createdAt(consentArtefact.getCreatedAt())
@@ -409,23 +452,15 @@ public class ConsentManager {
                 .permission(consentArtefact.getPermission())
                 .consentManager(getConsentManagerRef())
                 .build();
-        String signature = signConsentArtefact(hipConsentArtefact);
-
-        return HIPConsentArtefactRepresentation
-                .builder()
-                .consentId(consentArtefact.getConsentId())
-                .consentDetail(hipConsentArtefact)
-                .signature(signature)
-                .status(status)
-                .build();
-    }
-
-    @SneakyThrows
-    private String signConsentArtefact(Serializable consentArtefact) {
-        PrivateKey privateKey = keyPair.getPrivate();
-        Signature signature = Signature.getInstance(SHA_1_WITH_RSA);
-        SignedObject signedObject = new SignedObject(consentArtefact, privateKey, signature);
-        return Base64.getEncoder().encodeToString(signedObject.getSignature());
+        return consentArtefactSigner.signContent(hipConsentArtefact)
+                .map(signed -> HIPConsentArtefactRepresentation
+                        .builder()
+                        .consentId(consentArtefact.getConsentId())
+                        .consentDetail(hipConsentArtefact)
+                        .signature(signed.getSignature())
+                        .signedConsentDetail(signed.getContent())
+                        .status(status)
+                        .build());
     }
 
     private ConsentArtefact from(ConsentRequestDetail requestDetail, GrantedConsent granted) {
@@ -521,10 +556,8 @@ public class ConsentManager {
     }
 
     public Mono<ConsentArtefactLightRepresentation> getConsentArtefactLight(String consentId) {
-        return getHipConsentArtefact(consentId)
-                .flatMap(hipConsentArtefactRepresentation -> getConsentArtefact(consentId)
-                        .flatMap(consentArtefactRepresentation ->
-                                Mono.just(from(hipConsentArtefactRepresentation, consentArtefactRepresentation))));
+        return consentArtefactRepository.getConsentArtefactLight(consentId)
+                .switchIfEmpty(Mono.error(ClientError.consentArtefactNotFound()));
     }
 
     private Mono<ConsentArtefactRepresentation> getConsentArtefact(String consentId) {
@@ -532,28 +565,8 @@ public class ConsentManager {
                 .switchIfEmpty(Mono.error(ClientError.consentArtefactNotFound()));
     }
 
-    private Mono<HIPConsentArtefactRepresentation> getHipConsentArtefact(String consentId) {
-        return consentArtefactRepository.getHipConsentArtefact(consentId)
-                .switchIfEmpty(Mono.error(ClientError.consentArtefactNotFound()));
-    }
-
-    private ConsentArtefactLightRepresentation from(HIPConsentArtefactRepresentation hipConsentArtefact,
-                                                    ConsentArtefactRepresentation consentArtefact) {
-        ConsentArtefactLight consentArtefactLight = ConsentArtefactLight.builder()
-                .hiu(consentArtefact.getConsentDetail().getHiu())
-                .hip(consentArtefact.getConsentDetail().getHip())
-                .permission(consentArtefact.getConsentDetail().getPermission())
-                .build();
-        return ConsentArtefactLightRepresentation.builder()
-                .status(consentArtefact.getStatus())
-                .consentDetail(consentArtefactLight)
-                .signature(hipConsentArtefact.getSignature())
-                .build();
-    }
-
     public Flux<ConsentArtefactRepresentation> getConsents(String consentRequestId, String requesterId) {
         return consentArtefactRepository.getConsentArtefacts(consentRequestId)
-                .flatMap(consentArtefactRepository::getConsentArtefact)
                 .switchIfEmpty(Mono.error(ClientError.consentArtefactNotFound()))
                 .filter(consentArtefact -> isSameRequester(consentArtefact.getConsentDetail(), requesterId))
                 .switchIfEmpty(Mono.error(ClientError.consentArtefactForbidden()));
@@ -584,7 +597,7 @@ public class ConsentManager {
                                                                                String requesterId) {
         return Flux.fromIterable(revokeRequest.getConsents())
                 .flatMap(consentId -> getConsentRepresentation(consentId, requesterId)
-                        .map(consentRepresentation ->
+                        .flatMap(consentRepresentation ->
                                 from(consentRepresentation.getConsentDetail(), REVOKED)))
                 .collectList();
     }
@@ -605,17 +618,16 @@ public class ConsentManager {
                                                 String consentId,
                                                 ConsentRepresentation consentRepresentation,
                                                 ConsentRequestDetail consentRequestDetail) {
-        return consentArtefactRepository.updateStatus(
-                consentId,
-                consentRepresentation.getConsentRequestId(),
-                REVOKED)
-                .then(getHIPConsentArtefacts(revokeRequest, requesterId))
-                .flatMap(hipConsentArtefactRepresentations -> broadcastConsentArtefacts(
-                        hipConsentArtefactRepresentations,
-                        "",
+        return getHIPConsentArtefacts(revokeRequest, requesterId)
+                .flatMap(hipConsentArtefactRepresentations -> consentArtefactRepository.updateStatus(
+                        consentId,
+                        consentRepresentation.getConsentRequestId(),
                         REVOKED,
-                        consentRepresentation.getDateModified(),
-                        consentRequestDetail.getHiu()));
+                        notificationOf(hipConsentArtefactRepresentations,
+                                "",
+                                REVOKED,
+                                consentRepresentation.getDateModified(),
+                                consentRequestDetail.getHiu())));
     }
 
     public Mono<Void> deny(String id, String patientId) {
@@ -633,22 +645,24 @@ public class ConsentManager {
                                 format("Consent request is not in %s state", REQUESTED.toString()))))))
                 .filter(consentRequest -> !isConsentRequestExpired(consentRequest.getCreatedAt()))
                 .switchIfEmpty(Mono.defer(() -> processExpiredConsentRequestsForDeny(id).then(Mono.error(ClientError.consentRequestExpired()))))
-                .flatMap(consentRequest -> consentRequestRepository.updateStatus(id, DENIED)
-                        .thenReturn(consentRequest.toBuilder().status(DENIED).build()))
-                .flatMap(consentRequest -> broadcastConsentArtefacts(List.of(),
-                        consentRequest.getRequestId(),
-                        consentRequest.getStatus(),
-                        consentRequest.getLastUpdated(),
-                        consentRequest.getHiu()));
+                .flatMap(consentRequest -> consentRequestRepository.updateStatus(id,
+                        DENIED,
+                        notificationOf(List.of(),
+                                consentRequest.getRequestId(),
+                                DENIED,
+                                consentRequest.getLastUpdated(),
+                                consentRequest.getHiu())));
     }
 
     private Mono<Void> processExpiredConsentRequestsForDeny(String id) {
-        return consentRequestRepository.updateStatus(id, EXPIRED).then(consentRequestRepository.requestOf(id))
-                .flatMap(consentRequest -> broadcastConsentArtefacts(List.of(),
-                        consentRequest.getRequestId(),
-                        consentRequest.getStatus(),
-                        consentRequest.getLastUpdated(),
-                        consentRequest.getHiu()));
+        return consentRequestRepository.requestOf(id)
+                .flatMap(consentRequest -> consentRequestRepository.updateStatus(id,
+                        EXPIRED,
+                        notificationOf(List.of(),
+                                consentRequest.getRequestId(),
+                                EXPIRED,
+                                LocalDateTime.now(ZoneOffset.UTC),
+                                consentRequest.getHiu())));
     }
 
     public Mono<ListResult<List<ConsentArtefactRepresentation>>> getAllConsentArtefacts(String username,
@@ -660,6 +674,40 @@ public class ConsentManager {
                : consentArtefactRepository.getAllConsentArtefacts(username, limit, offset, status);
     }
 
+    public Mono<ListResult<List<ConsentArtefactRepresentation>>> getAllConsentArtefacts(String username,
+                                                                                        int limit,
+                                                                                        PageCursor before,
+                                                                                        String status,
+                                                                                        boolean withCount) {
+        return consentArtefactRepository.getAllConsentArtefacts(username,
+                limit,
+                before,
+                status.equals(ALL_CONSENT_ARTEFACTS) ? null : status,
+                withCount);
+    }
+
+    public Mono<ListResult<List<ConsentArtefactSummary>>> getConsentArtefactSummaries(String username,
+                                                                                      int limit,
+                                                                                      int offset,
+                                                                                      String status) {
+        return consentArtefactRepository.getConsentArtefactSummaries(username,
+                limit,
+                offset,
+                status.equals(ALL_CONSENT_ARTEFACTS) ? null : status);
+    }
+
+    public Mono<ListResult<List<ConsentArtefactSummary>>> getConsentArtefactSummaries(String username,
+                                                                                      int limit,
+                                                                                      PageCursor before,
+                                                                                      String status,
+                                                                                      boolean withCount) {
+        return consentArtefactRepository.getConsentArtefactSummaries(username,
+                limit,
+                before,
+                status.equals(ALL_CONSENT_ARTEFACTS) ? null : status,
+                withCount);
+    }
+
     public Mono<Void> updateConsentNotification(HIPConsentNotificationAcknowledgment acknowledgment) {
         if (acknowledgment.getError() != null) {
             logger.error("Error in HIP Consent Notification Acknowledgment for requestId {}", acknowledgment.getResp().getRequestId());
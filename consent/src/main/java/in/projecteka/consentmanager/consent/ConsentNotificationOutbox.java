@@ -0,0 +1,245 @@
+package in.projecteka.consentmanager.consent;
+
+import in.projecteka.consentmanager.consent.model.ConsentArtefactsMessage;
+import in.projecteka.consentmanager.consent.model.Query;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static in.projecteka.library.common.Constants.CORRELATION_ID;
+import static in.projecteka.library.common.JsonCodec.decode;
+import static in.projecteka.library.common.JsonCodec.encode;
+
+/**
+ * Consent notifications are written to an outbox table by the transaction that changes the consent state, so a
+ * notification exists if and only if its state change was committed. The relay drains the outbox every
+ * {@code relayInterval}: it claims the oldest batch for {@code relayClaim} in a short transaction, publishes the
+ * notifications of different consent requests concurrently and those of one consent request one after the other in
+ * the order the rows were written, and deletes what the broker confirmed. The claims of all the nodes are
+ * serialized, and a consent request whose notifications are claimed by one node is skipped by the others, so the
+ * notifications of a consent reach the broker in the order of its state changes. A notification that fails stops
+ * the rest of its consent request until the next batch; one that has failed {@code relayAttempts} times is moved
+ * to the parked table, so it does not hold back the ones after it for ever. A notification is sent at least once.
+ */
+public class ConsentNotificationOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(ConsentNotificationOutbox.class);
+    // serializes the claims of all the nodes
+    private static final long RELAY_LOCK = 0x434d_6f7574L;
+    private static final String INSERT_NOTIFICATION = "INSERT INTO consent_notification_outbox " +
+            "(correlation_id, message, consent_request_id) VALUES ($1, $2, $3)";
+    private static final String LOCK_RELAY = "SELECT pg_advisory_xact_lock($1)";
+    private static final String CLAIM_NOTIFICATIONS = "UPDATE consent_notification_outbox " +
+            "SET claimed_until = timezone('utc'::text, now()) + $2 * interval '1 millisecond' " +
+            "WHERE id IN (SELECT id FROM consent_notification_outbox outbox WHERE NOT EXISTS " +
+            "(SELECT 1 FROM consent_notification_outbox claimed " +
+            "WHERE claimed.consent_request_id = outbox.consent_request_id " +
+            "AND claimed.claimed_until > timezone('utc'::text, now())) " +
+            "ORDER BY id LIMIT $1) " +
+            "RETURNING id, consent_request_id, correlation_id, message, attempts";
+    private static final String DELETE_NOTIFICATIONS = "DELETE FROM consent_notification_outbox WHERE id = ANY($1)";
+    private static final String RELEASE_NOTIFICATIONS = "UPDATE consent_notification_outbox SET claimed_until = NULL " +
+            "WHERE id = ANY($1)";
+    private static final String RECORD_FAILURES = "UPDATE consent_notification_outbox " +
+            "SET attempts = attempts + 1, claimed_until = NULL WHERE id = ANY($1)";
+    private static final String PARK_NOTIFICATIONS = "WITH parked AS (DELETE FROM consent_notification_outbox " +
+            "WHERE id = ANY($1) AND attempts >= $2 " +
+            "RETURNING id, consent_request_id, correlation_id, message, attempts) " +
+            "INSERT INTO consent_notification_parked (id, consent_request_id, correlation_id, message, attempts) " +
+            "SELECT id, consent_request_id, correlation_id, message, attempts FROM parked";
+
+    private final PgPool dbClient;
+    private final ConsentNotificationPublisher consentNotificationPublisher;
+    private final OutboxProperties outboxProperties;
+    private Disposable relay;
+
+    public ConsentNotificationOutbox(PgPool dbClient,
+                                     ConsentNotificationPublisher consentNotificationPublisher,
+                                     OutboxProperties outboxProperties) {
+        this.dbClient = dbClient;
+        this.consentNotificationPublisher = consentNotificationPublisher;
+        this.outboxProperties = outboxProperties;
+    }
+
+    // to be executed in the transaction of the state change it notifies
+    public static Query enqueue(ConsentArtefactsMessage message) {
+        return new Query(INSERT_NOTIFICATION,
+                Tuple.of(MDC.get(CORRELATION_ID), encode(message), message.getConsentRequestId()));
+    }
+
+    // all of them as a single batch; nothing at all when there are none
+    public static List<Query> enqueue(List<ConsentArtefactsMessage> messages) {
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+        var correlationId = MDC.get(CORRELATION_ID);
+        return List.of(new Query(INSERT_NOTIFICATION, messages.stream()
+                .map(message -> Tuple.of(correlationId, encode(message), message.getConsentRequestId()))
+                .collect(Collectors.toList())));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!outboxProperties.isRelayEnabled()) {
+            return;
+        }
+        relay = Flux.interval(outboxProperties.getRelayInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> relayAll()
+                        .onErrorResume(error -> {
+                            logger.error("Failed to relay consent notifications", error);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (relay != null) {
+            relay.dispose();
+        }
+    }
+
+    // keeps draining while whole batches are relayed
+    Mono<Integer> relayAll() {
+        int batchSize = outboxProperties.getRelayBatchSize();
+        return relayBatch(batchSize)
+                .expand(relayed -> relayed < batchSize ? Mono.empty() : relayBatch(batchSize))
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<Integer> relayBatch(int batchSize) {
+        return claim(batchSize)
+                .filter(claimed -> !claimed.isEmpty())
+                .flatMap(claimed -> Flux.fromIterable(byConsentRequest(claimed))
+                        .flatMap(notifications -> Flux.fromIterable(notifications)
+                                .concatMap(this::publish)
+                                .onErrorResume(error -> Mono.empty()))
+                        .collect(Collectors.toSet())
+                        .flatMap(relayed -> finish(claimed, relayed)))
+                .defaultIfEmpty(0);
+    }
+
+    // in the order they were written
+    private static Collection<List<Row>> byConsentRequest(List<Row> claimed) {
+        return claimed.stream()
+                .collect(Collectors.groupingBy(row -> String.valueOf(row.getString("consent_request_id")),
+                        LinkedHashMap::new,
+                        Collectors.toList()))
+                .values();
+    }
+
+    // the row locks are held only for the claim; an expired claim, such as the one of a node that went away, is
+    // claimed again by the next batch
+    private Mono<List<Row>> claim(int batchSize) {
+        return Mono.create(monoSink -> dbClient.begin(connectionAttempt -> {
+            if (connectionAttempt.failed()) {
+                monoSink.error(new RuntimeException("Can not get connectionAttempt to storage."));
+                return;
+            }
+            var transaction = connectionAttempt.result();
+            transaction.preparedQuery(LOCK_RELAY).execute(Tuple.of(RELAY_LOCK), lock -> {
+                if (lock.failed()) {
+                    logger.error(lock.cause().getMessage(), lock.cause());
+                    transaction.rollback();
+                    monoSink.error(new Exception("Failed to claim consent notifications"));
+                    return;
+                }
+                transaction.preparedQuery(CLAIM_NOTIFICATIONS)
+                        .execute(Tuple.of(batchSize, outboxProperties.getRelayClaim().toMillis()),
+                                handler -> {
+                                    if (handler.failed()) {
+                                        logger.error(handler.cause().getMessage(), handler.cause());
+                                        transaction.rollback();
+                                        monoSink.error(new Exception("Failed to claim consent notifications"));
+                                        return;
+                                    }
+                                    List<Row> claimed = new ArrayList<>();
+                                    for (Row row : handler.result()) {
+                                        claimed.add(row);
+                                    }
+                                    claimed.sort(Comparator.comparing(row -> row.getLong("id")));
+                                    transaction.commit(result -> {
+                                        if (result.failed()) {
+                                            monoSink.error(new RuntimeException(result.cause().getMessage()));
+                                            return;
+                                        }
+                                        monoSink.success(claimed);
+                                    });
+                                });
+            });
+        }));
+    }
+
+    // a notification that could not be published stops the rest of its consent request; it and the ones after it
+    // stay in the outbox for the next batch
+    private Mono<Long> publish(Row row) {
+        Long id = row.getLong("id");
+        return Mono.defer(() -> consentNotificationPublisher.publish(
+                decode(row, "message", ConsentArtefactsMessage.class),
+                row.getString("correlation_id")))
+                .thenReturn(id)
+                .doOnError(error -> logger.error("Failed to relay consent notification {}", id, error));
+    }
+
+    // the first notification of a consent request that was not relayed is the one that failed, the ones after it
+    // were never tried
+    private Mono<Integer> finish(List<Row> claimed, Set<Long> relayed) {
+        var failed = new ArrayList<Long>();
+        var untried = new ArrayList<Long>();
+        for (List<Row> notifications : byConsentRequest(claimed)) {
+            boolean stopped = false;
+            for (Row row : notifications) {
+                Long id = row.getLong("id");
+                if (relayed.contains(id)) {
+                    continue;
+                }
+                if (stopped) {
+                    untried.add(id);
+                    continue;
+                }
+                stopped = true;
+                failed.add(id);
+                if (row.getInteger("attempts") + 1 >= outboxProperties.getRelayAttempts()) {
+                    logger.error("Parking consent notification {} of consent request {} after {} attempts",
+                            id, row.getString("consent_request_id"), outboxProperties.getRelayAttempts());
+                }
+            }
+        }
+        var queries = new ArrayList<Query>();
+        if (!relayed.isEmpty()) {
+            queries.add(new Query(DELETE_NOTIFICATIONS, Tuple.of(relayed.toArray(Long[]::new))));
+        }
+        if (!failed.isEmpty()) {
+            var ids = failed.toArray(Long[]::new);
+            queries.add(new Query(RECORD_FAILURES, Tuple.of(ids)));
+            queries.add(new Query(PARK_NOTIFICATIONS, Tuple.of(ids, outboxProperties.getRelayAttempts())));
+        }
+        if (!untried.isEmpty()) {
+            queries.add(new Query(RELEASE_NOTIFICATIONS, Tuple.of(untried.toArray(Long[]::new))));
+        }
+        return Mono.<Void>create(monoSink -> dbClient.begin(connectionAttempt -> {
+            if (connectionAttempt.failed()) {
+                monoSink.error(new RuntimeException("Can not get connectionAttempt to storage."));
+                return;
+            }
+            new TransactionContext(connectionAttempt.result(), monoSink)
+                    .executeInTransaction(queries.iterator(), "Failed to delete relayed consent notifications");
+        })).thenReturn(relayed.size());
+    }
+}
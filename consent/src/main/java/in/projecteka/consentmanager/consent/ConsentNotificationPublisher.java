@@ -2,63 +2,58 @@ package in.projecteka.consentmanager.consent;
 
 import in.projecteka.consentmanager.DestinationsConfig;
 import in.projecteka.consentmanager.consent.model.ConsentArtefactsMessage;
+import in.projecteka.library.common.ConfirmedPublisher;
 import in.projecteka.library.common.TraceableMessage;
 import lombok.AllArgsConstructor;
-import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.MDC;
-import org.springframework.amqp.core.AmqpTemplate;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import static in.projecteka.consentmanager.Constants.HIP_CONSENT_NOTIFICATION_QUEUE;
 import static in.projecteka.consentmanager.Constants.HIU_CONSENT_NOTIFICATION_QUEUE;
-import static in.projecteka.library.common.Constants.CORRELATION_ID;
 
 @AllArgsConstructor
 public class ConsentNotificationPublisher {
     private static final Logger logger = LoggerFactory.getLogger(ConsentNotificationPublisher.class);
-    private final AmqpTemplate amqpTemplate;
+    private final ConfirmedPublisher confirmedPublisher;
     private final DestinationsConfig destinationsConfig;
 
-    public Mono<Void> publish(ConsentArtefactsMessage message) {
-        return Mono.create(monoSink -> {
-            broadcastArtefactsToHiu(message);
-            broadcastArtefactsToHips(message);
-            monoSink.success();
-        });
+    public Mono<Void> publish(ConsentArtefactsMessage message, String correlationId) {
+        return Mono.defer(() -> Mono.when(broadcastArtefactsToHiu(message, correlationId),
+                broadcastArtefactsToHips(message, correlationId)));
     }
 
-    @SneakyThrows
-    private void broadcastArtefactsToHiu(ConsentArtefactsMessage message) {
+    private Mono<Void> broadcastArtefactsToHiu(ConsentArtefactsMessage message, String correlationId) {
         DestinationsConfig.DestinationInfo destinationInfo = destinationsConfig.getQueues()
                 .get(HIU_CONSENT_NOTIFICATION_QUEUE);
 
-        sendMessage(message, destinationInfo.getExchange(), destinationInfo.getRoutingKey());
-        logger.info("Broadcasting consent artefact notification for Request Id: {}",
-                message.getConsentRequestId());
+        return sendMessage(message, correlationId, destinationInfo.getExchange(), destinationInfo.getRoutingKey())
+                .doOnSuccess(published -> logger.info(
+                        "Broadcasting consent artefact notification for Request Id: {}",
+                        message.getConsentRequestId()));
     }
 
-    @SneakyThrows
-    private void broadcastArtefactsToHips(ConsentArtefactsMessage message) {
+    private Mono<Void> broadcastArtefactsToHips(ConsentArtefactsMessage message, String correlationId) {
         DestinationsConfig.DestinationInfo destinationInfo = destinationsConfig.getQueues()
                 .get(HIP_CONSENT_NOTIFICATION_QUEUE);
 
-        message.getConsentArtefacts()
-                .forEach(consentArtefact -> {
-                    sendMessage(consentArtefact, destinationInfo.getExchange(), destinationInfo.getRoutingKey());
-                    logger.info(
-                            "Broadcasting consent artefact notification to hip for consent artefact: {}",
-                            consentArtefact.getConsentId()
-                    );
-                });
+        return Flux.fromIterable(message.getConsentArtefacts())
+                .flatMap(consentArtefact -> sendMessage(consentArtefact,
+                        correlationId,
+                        destinationInfo.getExchange(),
+                        destinationInfo.getRoutingKey())
+                        .doOnSuccess(published -> logger.info(
+                                "Broadcasting consent artefact notification to hip for consent artefact: {}",
+                                consentArtefact.getConsentId())))
+                .then();
     }
 
-    private void sendMessage(Object message, String exchange, String routingKey) {
+    private Mono<Void> sendMessage(Object message, String correlationId, String exchange, String routingKey) {
         TraceableMessage traceableMessage = TraceableMessage.builder()
-                .correlationId(MDC.get(CORRELATION_ID))
+                .correlationId(correlationId)
                 .message(message)
                 .build();
-        amqpTemplate.convertAndSend(exchange, routingKey, traceableMessage);
+        return confirmedPublisher.publish(exchange, routingKey, traceableMessage);
     }
 }
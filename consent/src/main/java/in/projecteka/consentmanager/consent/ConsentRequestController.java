@@ -2,9 +2,11 @@ package in.projecteka.consentmanager.consent;
 
 import in.projecteka.consentmanager.consent.model.CertResponse;
 import in.projecteka.consentmanager.consent.model.ConsentRequestValidator;
+import in.projecteka.consentmanager.consent.model.PageCursor;
 import in.projecteka.consentmanager.consent.model.request.ConsentApprovalRequest;
 import in.projecteka.consentmanager.consent.model.request.ConsentRequest;
 import in.projecteka.consentmanager.consent.model.response.ConsentApprovalResponse;
+import in.projecteka.consentmanager.consent.model.response.ConsentRequestSummaryResponse;
 import in.projecteka.consentmanager.consent.model.response.ConsentRequestsRepresentation;
 import in.projecteka.consentmanager.consent.model.response.RequestCreatedRepresentation;
 import in.projecteka.library.clients.model.ClientError;
@@ -72,20 +74,58 @@ public class ConsentRequestController {
     public Mono<ConsentRequestsRepresentation> allConsents(
             @RequestParam(defaultValue = "-1") int limit,
             @RequestParam(defaultValue = "0") int offset,
-            @RequestParam(defaultValue = "ALL") String status) {
+            @RequestParam(defaultValue = "ALL") String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count) {
         int pageSize = getPageSize(limit);
         return ReactiveSecurityContextHolder.getContext()
                 .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
-                .flatMap(caller -> consentManager
-                        .findRequestsForPatient(caller.getUsername(), pageSize, offset, status))
+                .map(Caller::getUsername)
+                .flatMap(patient -> cursor == null
+                                    ? consentManager.findRequestsForPatient(patient, pageSize, offset, status)
+                                    : before(cursor).flatMap(before -> consentManager.findRequestsForPatient(
+                                            patient, pageSize, before, status, count)))
                 .map(requests -> ConsentRequestsRepresentation.builder()
                         .size(requests.getTotal())
                         .requests(requests.getResult())
                         .limit(pageSize)
-                        .offset(offset)
+                        .offset(cursor == null ? offset : 0)
+                        .next(PageCursor.next(requests.getResult(), pageSize, request -> new PageCursor(
+                                request.getLastUpdated(),
+                                request.getRequestId())))
                         .build());
     }
 
+    @GetMapping(value = Constants.APP_PATH_GET_CONSENT_REQUESTS, params = "view=summary")
+    public Mono<ConsentRequestSummaryResponse> consentRequestSummaries(
+            @RequestParam(defaultValue = "-1") int limit,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "ALL") String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count) {
+        int pageSize = getPageSize(limit);
+        return ReactiveSecurityContextHolder.getContext()
+                .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
+                .map(Caller::getUsername)
+                .flatMap(patient -> cursor == null
+                                    ? consentManager.findRequestSummariesForPatient(patient, pageSize, offset, status)
+                                    : before(cursor).flatMap(before -> consentManager.findRequestSummariesForPatient(
+                                            patient, pageSize, before, status, count)))
+                .map(requests -> ConsentRequestSummaryResponse.builder()
+                        .size(requests.getTotal())
+                        .requests(requests.getResult())
+                        .limit(pageSize)
+                        .offset(cursor == null ? offset : 0)
+                        .next(PageCursor.next(requests.getResult(), pageSize, request -> new PageCursor(
+                                request.getLastUpdated(),
+                                request.getRequestId())))
+                        .build());
+    }
+
+    private static Mono<PageCursor> before(String cursor) {
+        return Mono.justOrEmpty(PageCursor.decode(cursor)).switchIfEmpty(Mono.error(ClientError.invalidPageCursor()));
+    }
+
     private int getPageSize(int limit) {
         if (limit < 0) {
             return serviceProperties.getDefaultPageSize();
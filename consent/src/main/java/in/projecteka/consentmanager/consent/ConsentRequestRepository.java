@@ -1,14 +1,17 @@
 package in.projecteka.consentmanager.consent;
 
 import in.projecteka.consentmanager.consent.model.ConsentRequestDetail;
+import in.projecteka.consentmanager.consent.model.ConsentRequestExpiry;
 import in.projecteka.consentmanager.consent.model.ConsentStatus;
 import in.projecteka.consentmanager.consent.model.ConsentStatusCallerDetail;
 import in.projecteka.consentmanager.consent.model.ListResult;
+import in.projecteka.consentmanager.consent.model.PageCursor;
+import in.projecteka.consentmanager.consent.model.Query;
 import in.projecteka.consentmanager.consent.model.request.RequestedDetail;
+import in.projecteka.consentmanager.consent.model.response.ConsentRequestSummary;
 import in.projecteka.library.common.DbOperationError;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
-import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.RowSet;
@@ -24,40 +27,73 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.CONSENT_REQUEST;
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.countOf;
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.counted;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.GRANTED;
-import static in.projecteka.library.common.Serializer.from;
-import static in.projecteka.library.common.Serializer.to;
+import static in.projecteka.library.common.JsonCodec.decode;
+import static in.projecteka.library.common.JsonCodec.encode;
 
 public class ConsentRequestRepository {
     private static final Logger logger = LoggerFactory.getLogger(ConsentRequestRepository.class);
     private static final String SELECT_CONSENT_REQUEST_BY_ID_AND_STATUS;
     private static final String SELECT_CONSENT_REQUEST_BY_ID;
-    private static final String SELECT_CONSENT_REQUESTS_BY_STATUS;
+    private static final String SELECT_CONSENT_REQUEST_EXPIRIES;
+    private static final String SELECT_CONSENT_REQUEST_EXPIRIES_AFTER;
     private static final String SELECT_CONSENT_DETAILS_FOR_PATIENT;
-    private static final String SELECT_CONSENT_REQUEST_COUNT = "SELECT COUNT(*) FROM consent_request " +
-            "WHERE LOWER(patient_id) = $1  and status != $3 and (status=$2 OR $2 IS NULL)";
-    private static final String INSERT_CONSENT_REQUEST_QUERY = "INSERT INTO consent_request " +
-            "(request_id, patient_id, status, details) VALUES ($1, $2, $3, $4)";
-    private static final String UPDATE_CONSENT_REQUEST_STATUS_QUERY = "UPDATE consent_request SET status=$1, " +
-            "date_modified=$2 WHERE request_id=$3";
+    private static final String SELECT_CONSENT_DETAILS_FOR_PATIENT_BEFORE;
+    private static final String SELECT_CONSENT_SUMMARIES_FOR_PATIENT;
+    private static final String SELECT_CONSENT_SUMMARIES_FOR_PATIENT_BEFORE;
+    private static final String SELECT_CONSENT_REQUEST_COUNT = countOf(CONSENT_REQUEST) + " AND status != $3";
+    private static final String INSERT_CONSENT_REQUEST_QUERY = counted(CONSENT_REQUEST,
+            "INSERT INTO consent_request (request_id, patient_id, status, details) VALUES ($1, $2, $3, $4) " +
+                    "RETURNING LOWER(patient_id) AS patient_id, NULL::text AS previous_status, status");
+    static final String UPDATE_CONSENT_REQUEST_STATUS_QUERY = counted(CONSENT_REQUEST,
+            "UPDATE consent_request cr SET status=$1, date_modified=$2 FROM (SELECT request_id, status " +
+                    "FROM consent_request WHERE request_id=$3 FOR UPDATE) previous " +
+                    "WHERE cr.request_id = previous.request_id " +
+                    "RETURNING LOWER(cr.patient_id) AS patient_id, previous.status AS previous_status, cr.status");
+    static final String UPDATE_CONSENT_REQUESTS_STATUS_QUERY = counted(CONSENT_REQUEST,
+            "UPDATE consent_request cr SET status=$1, date_modified=$2 FROM (SELECT request_id, status " +
+                    "FROM consent_request WHERE request_id = ANY($3) AND status=$4 FOR UPDATE SKIP LOCKED) previous " +
+                    "WHERE cr.request_id = previous.request_id " +
+                    "RETURNING cr.request_id, cr.date_created, cr.date_modified, " +
+                    "cr.details -> 'hiu' ->> 'id' as hiu_id, LOWER(cr.patient_id) AS patient_id, " +
+                    "previous.status AS previous_status, cr.status");
     private static final String SELECT_CONSENT_REQUEST_STATUS_DETAILS = "SELECT status, details " +
             "FROM consent_request WHERE request_id=$1";
     private static final String FAILED_TO_SAVE_CONSENT_REQUEST = "Failed to save consent request";
     private static final String UNKNOWN_ERROR_OCCURRED = "Unknown error occurred";
-    private static final String FAILED_TO_GET_CONSENT_REQUESTS_BY_STATUS = "Failed to get consent requests by status";
 
     private final PgPool dbClient;
 
     static {
         String s = "SELECT request_id, status, details, date_created, date_modified FROM consent_request " +
                 "where ";
-        SELECT_CONSENT_DETAILS_FOR_PATIENT = s + " LOWER(patient_id) = $1 and status!=$5 and (status=$4 OR $4 IS NULL) "
-                + "ORDER BY date_modified DESC"
+        String page = " LOWER(patient_id) = $1 and status!=$5 and (status=$4 OR $4 IS NULL) "
+                + "ORDER BY date_modified DESC, request_id DESC"
                 + " LIMIT $2 OFFSET $3";
+        String pageBefore = " LOWER(patient_id) = $1 and status!=$4 "
+                + "and (status=$3 OR $3 IS NULL) AND (date_modified, request_id) < ($5, $6) "
+                + "ORDER BY date_modified DESC, request_id DESC"
+                + " LIMIT $2";
+        String summaries = "SELECT request_id, status, date_created, date_modified, " +
+                ConsentSummaryColumns.of("details") +
+                " FROM consent_request where ";
+        SELECT_CONSENT_DETAILS_FOR_PATIENT = s + page;
+        SELECT_CONSENT_DETAILS_FOR_PATIENT_BEFORE = s + pageBefore;
+        SELECT_CONSENT_SUMMARIES_FOR_PATIENT = summaries + page;
+        SELECT_CONSENT_SUMMARIES_FOR_PATIENT_BEFORE = summaries + pageBefore;
         SELECT_CONSENT_REQUEST_BY_ID = s + "request_id=$1";
         SELECT_CONSENT_REQUEST_BY_ID_AND_STATUS = s + "request_id=$1 and status=$2 and patient_id=$3";
-        SELECT_CONSENT_REQUESTS_BY_STATUS = s + "status=$1";
+        String expiries = "SELECT request_id, date_created FROM consent_request WHERE status=$1 AND date_created < $2 " +
+                "AND " + ExpiryPartitions.partitionOf("request_id", "$4::int") + "::int = ANY($5::int[]) ";
+        String expiriesOrder = "ORDER BY date_created, request_id LIMIT $3";
+        SELECT_CONSENT_REQUEST_EXPIRIES = expiries + expiriesOrder;
+        SELECT_CONSENT_REQUEST_EXPIRIES_AFTER = expiries + "AND (date_created, request_id) > ($6, $7) " +
+                expiriesOrder;
     }
 
     public ConsentRequestRepository(PgPool dbClient) {
@@ -70,7 +106,7 @@ public class ConsentRequestRepository {
                         .execute(Tuple.of(requestId.toString(),
                                 requestedDetail.getPatient().getId(),
                                 ConsentStatus.REQUESTED.name(),
-                                new JsonObject(from(requestedDetail))),
+                                encode(requestedDetail)),
                                 handler -> {
                                     if (handler.failed()) {
                                         logger.error(handler.cause().getMessage(), handler.cause());
@@ -85,36 +121,90 @@ public class ConsentRequestRepository {
                                                                            int limit,
                                                                            int offset,
                                                                            String status) {
-        return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_CONSENT_DETAILS_FOR_PATIENT)
-                .execute(Tuple.of(patientId.toLowerCase(), limit, offset, status, GRANTED.toString()),
-                        handler -> {
-                            List<ConsentRequestDetail> requestList = getConsentRequestDetails(handler);
-                            dbClient.preparedQuery(SELECT_CONSENT_REQUEST_COUNT)
-                                    .execute(Tuple.of(patientId, status, GRANTED.toString()), counter -> {
-                                                if (handler.failed()) {
-                                                    logger.error(handler.cause().getMessage(), handler.cause());
-                                                    monoSink.error(new DbOperationError());
-                                                    return;
-                                                }
-                                                Integer count = counter.result().iterator()
-                                                        .next().getInteger("count");
-                                                monoSink.success(new ListResult<>(requestList, count));
-                                            }
-                                    );
-                        }));
+        return Mono.zip(requests(SELECT_CONSENT_DETAILS_FOR_PATIENT,
+                Tuple.of(patientId.toLowerCase(), limit, offset, status, GRANTED.toString()),
+                this::mapToConsentRequestDetail),
+                requestsCount(patientId, status),
+                ListResult::new);
     }
 
-    private List<ConsentRequestDetail> getConsentRequestDetails(AsyncResult<RowSet<Row>> handler) {
-        if (handler.failed()) {
-            return new ArrayList<>();
-        }
-        List<ConsentRequestDetail> requestList = new ArrayList<>();
-        RowSet<Row> results = handler.result();
-        for (Row result : results) {
-            ConsentRequestDetail aDetail = mapToConsentRequestDetail(result);
-            requestList.add(aDetail);
-        }
-        return requestList;
+    // keyset paginated on (date_modified, request_id), newest first
+    public Mono<ListResult<List<ConsentRequestDetail>>> requestsForPatient(String patientId,
+                                                                           int limit,
+                                                                           PageCursor before,
+                                                                           String status,
+                                                                           boolean withCount) {
+        return withCount(requests(SELECT_CONSENT_DETAILS_FOR_PATIENT_BEFORE,
+                Tuple.of(patientId.toLowerCase(), limit, status, GRANTED.toString())
+                        .addLocalDateTime(before.getDateModified())
+                        .addString(before.getId()),
+                this::mapToConsentRequestDetail),
+                patientId,
+                status,
+                withCount);
+    }
+
+    public Mono<ListResult<List<ConsentRequestSummary>>> requestSummariesForPatient(String patientId,
+                                                                                    int limit,
+                                                                                    int offset,
+                                                                                    String status) {
+        return Mono.zip(requests(SELECT_CONSENT_SUMMARIES_FOR_PATIENT,
+                Tuple.of(patientId.toLowerCase(), limit, offset, status, GRANTED.toString()),
+                this::mapToConsentRequestSummary),
+                requestsCount(patientId, status),
+                ListResult::new);
+    }
+
+    public Mono<ListResult<List<ConsentRequestSummary>>> requestSummariesForPatient(String patientId,
+                                                                                    int limit,
+                                                                                    PageCursor before,
+                                                                                    String status,
+                                                                                    boolean withCount) {
+        return withCount(requests(SELECT_CONSENT_SUMMARIES_FOR_PATIENT_BEFORE,
+                Tuple.of(patientId.toLowerCase(), limit, status, GRANTED.toString())
+                        .addLocalDateTime(before.getDateModified())
+                        .addString(before.getId()),
+                this::mapToConsentRequestSummary),
+                patientId,
+                status,
+                withCount);
+    }
+
+    private <T> Mono<ListResult<List<T>>> withCount(Mono<List<T>> requests,
+                                                    String patientId,
+                                                    String status,
+                                                    boolean withCount) {
+        return withCount
+               ? Mono.zip(requests, requestsCount(patientId, status), ListResult::new)
+               : requests.map(result -> new ListResult<>(result, null));
+    }
+
+    private <T> Mono<List<T>> requests(String query, Tuple params, Function<Row, T> mapper) {
+        return Mono.create(monoSink -> dbClient.preparedQuery(query)
+                .execute(params, handler -> {
+                    if (handler.failed()) {
+                        logger.error(handler.cause().getMessage(), handler.cause());
+                        monoSink.error(new DbOperationError());
+                        return;
+                    }
+                    List<T> requests = new ArrayList<>();
+                    for (Row row : handler.result()) {
+                        requests.add(mapper.apply(row));
+                    }
+                    monoSink.success(requests);
+                }));
+    }
+
+    private Mono<Integer> requestsCount(String patientId, String status) {
+        return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_CONSENT_REQUEST_COUNT)
+                .execute(Tuple.of(patientId.toLowerCase(), status, GRANTED.toString()), counter -> {
+                    if (counter.failed()) {
+                        logger.error(counter.cause().getMessage(), counter.cause());
+                        monoSink.error(new DbOperationError());
+                        return;
+                    }
+                    monoSink.success(counter.result().iterator().next().getInteger("count"));
+                }));
     }
 
     public Mono<ConsentRequestDetail> requestOf(String requestId, String status, String patientId) {
@@ -145,8 +235,23 @@ public class ConsentRequestRepository {
         };
     }
 
+    private ConsentRequestSummary mapToConsentRequestSummary(Row row) {
+        return ConsentRequestSummary.builder()
+                .requestId(row.getString("request_id"))
+                .status(getConsentStatus(row.getString("status")))
+                .createdAt(row.getLocalDateTime("date_created"))
+                .lastUpdated(row.getLocalDateTime("date_modified"))
+                .purpose(ConsentSummaryColumns.purpose(row))
+                .hip(ConsentSummaryColumns.hip(row))
+                .hiu(ConsentSummaryColumns.hiu(row))
+                .requesterName(row.getString("requester_name"))
+                .dateRange(ConsentSummaryColumns.dateRange(row))
+                .dataEraseAt(ConsentSummaryColumns.date(row, "data_erase_at"))
+                .build();
+    }
+
     private ConsentRequestDetail mapToConsentRequestDetail(Row result) {
-        RequestedDetail details = to(result.getValue("details").toString(), RequestedDetail.class);
+        RequestedDetail details = decode(result, "details", RequestedDetail.class);
         return ConsentRequestDetail
                 .builder()
                 .requestId(result.getString("request_id"))
@@ -164,39 +269,90 @@ public class ConsentRequestRepository {
                 .build();
     }
 
-    public Mono<Void> updateStatus(String id, ConsentStatus status) {
-        return Mono.create(monoSink -> dbClient.preparedQuery(UPDATE_CONSENT_REQUEST_STATUS_QUERY)
-                .execute(Tuple.of(status.toString(), LocalDateTime.now(ZoneOffset.UTC), id),
-                        updateHandler -> {
-                            if (updateHandler.failed()) {
-                                monoSink.error(new Exception("Failed to update status"));
-                                return;
-                            }
-                            monoSink.success();
-                        }));
+    // the notification of the change is written in the same transaction
+    public Mono<Void> updateStatus(String id, ConsentStatus status, Query notification) {
+        var update = new Query(UPDATE_CONSENT_REQUEST_STATUS_QUERY,
+                Tuple.of(status.toString(), LocalDateTime.now(ZoneOffset.UTC), id));
+        return Mono.create(monoSink -> dbClient.begin(connectionAttempt -> {
+            if (connectionAttempt.failed()) {
+                monoSink.error(new RuntimeException("Can not get connectionAttempt to storage."));
+                return;
+            }
+            TransactionContext context = new TransactionContext(connectionAttempt.result(), monoSink);
+            context.executeInTransaction(List.of(update, notification).iterator(), "Failed to update status");
+        }));
     }
 
     private ConsentStatus getConsentStatus(String status) {
         return ConsentStatus.valueOf(status);
     }
 
-    public Flux<ConsentRequestDetail> getConsentsByStatus(ConsentStatus status) {
-        return Flux.create(fluxSink -> dbClient.preparedQuery(SELECT_CONSENT_REQUESTS_BY_STATUS)
-                .execute(Tuple.of(status.toString()),
+    // keyset paginated on (date_created, request_id); a null 'after' reads the first chunk
+    public Mono<List<ConsentRequestExpiry>> getConsentRequestExpiries(LocalDateTime createdBefore,
+                                                                      int partitionCount,
+                                                                      List<Integer> partitions,
+                                                                      ConsentRequestExpiry after,
+                                                                      int limit) {
+        var query = after == null ? SELECT_CONSENT_REQUEST_EXPIRIES : SELECT_CONSENT_REQUEST_EXPIRIES_AFTER;
+        var params = Tuple.of(ConsentStatus.REQUESTED.toString(),
+                createdBefore,
+                limit,
+                partitionCount,
+                partitions.toArray(Integer[]::new));
+        if (after != null) {
+            params.addLocalDateTime(after.getCreatedAt()).addString(after.getRequestId());
+        }
+        return Mono.create(monoSink -> dbClient.preparedQuery(query)
+                .execute(params,
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
-                                fluxSink.error(new Exception(FAILED_TO_GET_CONSENT_REQUESTS_BY_STATUS));
+                                monoSink.error(new Exception("Failed to get consent request expiries"));
                                 return;
                             }
-                            RowSet<Row> results = handler.result();
-                            if (results.iterator().hasNext()) {
-                                results.forEach(row -> fluxSink.next(mapToConsentRequestDetail(row)));
+                            List<ConsentRequestExpiry> expiries = new ArrayList<>();
+                            for (Row row : handler.result()) {
+                                expiries.add(ConsentRequestExpiry.builder()
+                                        .requestId(row.getString("request_id"))
+                                        .createdAt(row.getLocalDateTime("date_created"))
+                                        .build());
                             }
-                            fluxSink.complete();
+                            monoSink.success(expiries);
                         }));
     }
 
+    // returns only the requests that were still in currentStatus, so a concurrently changed request is skipped; the
+    // notifications of the expired requests are written in the same transaction
+    public Flux<ConsentRequestExpiry> updateStatus(List<String> ids,
+                                                   ConsentStatus currentStatus,
+                                                   ConsentStatus status,
+                                                   Function<List<ConsentRequestExpiry>, List<Query>> notifications) {
+        var update = new Query(UPDATE_CONSENT_REQUESTS_STATUS_QUERY,
+                Tuple.of(status.toString(),
+                        LocalDateTime.now(ZoneOffset.UTC),
+                        ids.toArray(String[]::new),
+                        currentStatus.toString()));
+        return Flux.defer(() -> {
+            List<ConsentRequestExpiry> requestExpiries = new ArrayList<>();
+            return Mono.<Void>create(monoSink -> dbClient.begin(connectionAttempt -> {
+                if (connectionAttempt.failed()) {
+                    monoSink.error(new RuntimeException("Can not get connectionAttempt to storage."));
+                    return;
+                }
+                TransactionContext context = new TransactionContext(connectionAttempt.result(), monoSink);
+                context.executeInTransaction(update, rows -> {
+                    rows.forEach(row -> requestExpiries.add(ConsentRequestExpiry.builder()
+                            .requestId(row.getString("request_id"))
+                            .createdAt(row.getLocalDateTime("date_created"))
+                            .hiuId(row.getString("hiu_id"))
+                            .dateModified(row.getLocalDateTime("date_modified"))
+                            .build()));
+                    return notifications.apply(requestExpiries);
+                }, "Failed to update status");
+            })).thenMany(Flux.fromIterable(requestExpiries));
+        });
+    }
+
     public Mono<ConsentStatusCallerDetail> getConsentRequestStatusAndCallerDetails (String requestId) {
         return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_CONSENT_REQUEST_STATUS_DETAILS)
                 .execute(Tuple.of(requestId),
@@ -213,7 +369,7 @@ public class ConsentRequestRepository {
                             }
                             var row = iterator.next();
                             try {
-                                RequestedDetail details = to(row.getValue("details").toString(), RequestedDetail.class);
+                                RequestedDetail details = decode(row, "details", RequestedDetail.class);
                                 var consentRequestDetails = ConsentStatusCallerDetail.builder()
                                         .status(getConsentStatus(row.getString("status")))
                                         .hiuId(details.getHIUId())
@@ -11,6 +11,9 @@ import org.springframework.boot.context.properties.ConstructorBinding;
 @ConstructorBinding
 public class ConsentServiceProperties {
     private static final int DEFAULT_MAX_PAGE_SIZE = 50;
+    private static final int DEFAULT_ARTEFACT_CACHE_SIZE = 10000;
+    private static final int DEFAULT_ARTEFACT_CACHE_EXPIRY = 5;
+    private static final int DEFAULT_ARTEFACT_NEAR_CACHE_EXPIRY = 30;
     private final int maxPageSize;
     private final int defaultPageSize;
     private final String url;
@@ -18,6 +21,11 @@ public class ConsentServiceProperties {
     private final String purposeOfUseDefUrl;
     private final String hiTypesDefUrl;
     private final String name;
+    private final String signatureAlgorithm;
+    private final int signingThreads;
+    private final int artefactCacheSize;
+    private final int artefactCacheExpiry;
+    private final int artefactNearCacheExpiry;
 
     public int getMaxPageSize() {
         return maxPageSize > 0 ? maxPageSize : DEFAULT_MAX_PAGE_SIZE;
@@ -26,4 +34,24 @@ public class ConsentServiceProperties {
     public int getDefaultPageSize() {
         return defaultPageSize > 0 ? defaultPageSize : DEFAULT_MAX_PAGE_SIZE;
     }
+
+    public String getSignatureAlgorithm() {
+        return signatureAlgorithm != null ? signatureAlgorithm : ConsentArtefactSigner.SHA_1_WITH_RSA;
+    }
+
+    public int getSigningThreads() {
+        return signingThreads > 0 ? signingThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int getArtefactCacheSize() {
+        return artefactCacheSize > 0 ? artefactCacheSize : DEFAULT_ARTEFACT_CACHE_SIZE;
+    }
+
+    public int getArtefactCacheExpiry() {
+        return artefactCacheExpiry > 0 ? artefactCacheExpiry : DEFAULT_ARTEFACT_CACHE_EXPIRY;
+    }
+
+    public int getArtefactNearCacheExpiry() {
+        return artefactNearCacheExpiry > 0 ? artefactNearCacheExpiry : DEFAULT_ARTEFACT_NEAR_CACHE_EXPIRY;
+    }
 }
@@ -0,0 +1,34 @@
+package in.projecteka.consentmanager.consent;
+
+import static java.lang.String.format;
+
+/**
+ * Per patient, per status counts of consent artefacts and consent requests, kept in consent_status_count. Every
+ * statement that inserts a row or changes its status is wrapped by {@link #counted(String, String)}, so the counts
+ * are moved in the same statement as the change itself.
+ */
+final class ConsentStatusCounts {
+    static final String CONSENT_ARTEFACT = "CONSENT_ARTEFACT";
+    static final String CONSENT_REQUEST = "CONSENT_REQUEST";
+
+    private ConsentStatusCounts() {
+    }
+
+    // the change has to return patient_id, previous_status (null for an insert) and status
+    static String counted(String entity, String change) {
+        return format("WITH changed AS (%s), " +
+                "counted AS (INSERT INTO consent_status_count (patient_id, entity, status, count) " +
+                "SELECT patient_id, '%s', status, SUM(delta) FROM (" +
+                "SELECT patient_id, status, 1 AS delta FROM changed UNION ALL " +
+                "SELECT patient_id, previous_status, -1 FROM changed WHERE previous_status IS NOT NULL) deltas " +
+                "GROUP BY patient_id, status HAVING SUM(delta) <> 0 " +
+                "ON CONFLICT (patient_id, entity, status) " +
+                "DO UPDATE SET count = consent_status_count.count + EXCLUDED.count) " +
+                "SELECT * FROM changed", change, entity);
+    }
+
+    static String countOf(String entity) {
+        return format("SELECT COALESCE(SUM(count), 0)::int AS count FROM consent_status_count " +
+                "WHERE entity = '%s' AND patient_id = $1 AND (status = $2 OR $2 IS NULL)", entity);
+    }
+}
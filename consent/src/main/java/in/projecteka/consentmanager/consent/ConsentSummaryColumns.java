@@ -0,0 +1,58 @@
+package in.projecteka.consentmanager.consent;
+
+import in.projecteka.consentmanager.consent.model.AccessPeriod;
+import in.projecteka.consentmanager.consent.model.ConsentPurpose;
+import in.projecteka.consentmanager.consent.model.HIPReference;
+import in.projecteka.consentmanager.consent.model.HIUReference;
+import io.vertx.sqlclient.Row;
+
+import java.time.LocalDateTime;
+
+import static java.lang.String.format;
+
+/**
+ * The few fields the consent lists show, read straight out of the JSONB document as text columns, so that a list
+ * page neither transfers nor deserializes whole consent documents.
+ */
+final class ConsentSummaryColumns {
+    private ConsentSummaryColumns() {
+    }
+
+    static String of(String document) {
+        return format("%1$s ->> 'createdAt' AS created_at, " +
+                "%1$s -> 'purpose' ->> 'text' AS purpose_text, " +
+                "%1$s -> 'purpose' ->> 'code' AS purpose_code, " +
+                "%1$s -> 'hip' ->> 'id' AS hip_id, " +
+                "%1$s -> 'hip' ->> 'name' AS hip_name, " +
+                "%1$s -> 'hiu' ->> 'id' AS hiu_id, " +
+                "%1$s -> 'requester' ->> 'name' AS requester_name, " +
+                "%1$s -> 'permission' -> 'dateRange' ->> 'from' AS date_from, " +
+                "%1$s -> 'permission' -> 'dateRange' ->> 'to' AS date_to, " +
+                "%1$s -> 'permission' ->> 'dataEraseAt' AS data_erase_at", document);
+    }
+
+    static ConsentPurpose purpose(Row row) {
+        var purpose = new ConsentPurpose();
+        purpose.setText(row.getString("purpose_text"));
+        purpose.setCode(row.getString("purpose_code"));
+        return purpose;
+    }
+
+    static HIPReference hip(Row row) {
+        var hipId = row.getString("hip_id");
+        return hipId == null ? null : new HIPReference(hipId, row.getString("hip_name"));
+    }
+
+    static HIUReference hiu(Row row) {
+        return new HIUReference(row.getString("hiu_id"));
+    }
+
+    static AccessPeriod dateRange(Row row) {
+        return new AccessPeriod(date(row, "date_from"), date(row, "date_to"));
+    }
+
+    static LocalDateTime date(Row row, String column) {
+        var value = row.getString(column);
+        return value == null ? null : LocalDateTime.parse(value);
+    }
+}
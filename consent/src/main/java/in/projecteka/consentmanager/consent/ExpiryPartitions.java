@@ -0,0 +1,205 @@
+package in.projecteka.consentmanager.consent;
+
+import io.vertx.core.Vertx;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgConnection;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+
+/**
+ * Splits the expiry work between the running consent manager nodes. Ids are hashed into a fixed number of
+ * partitions and each node leases its share of them as Postgres session advisory locks, held on a connection of its
+ * own, opened outside the pool so that every pooled connection stays free for requests. A node that goes away loses
+ * its session and with it its leases, which the others pick up on their next rebalance. Every node also holds one
+ * member lock, so that the number of live nodes can be read from pg_locks. Rebalances are not serialized here: the
+ * {@link ConsentExpiryEngine} starts one only when its previous one has finished.
+ */
+public class ExpiryPartitions {
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryPartitions.class);
+    private static final int LOCK_NAMESPACE = 0x434d;
+    private static final int MEMBER_LOCK_OFFSET = 100_000;
+    private static final int MAXIMUM_MEMBERS = 1024;
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_lock($1, $2) AS locked";
+    private static final String UNLOCK = "SELECT pg_advisory_unlock($1, $2) AS unlocked";
+    private static final String COUNT_MEMBERS = "SELECT COUNT(*) AS members FROM pg_locks WHERE locktype = " +
+            "'advisory' AND objsubid = 2 AND granted AND classid::bigint = $1 AND objid::bigint >= $2";
+
+    private final Mono<SqlConnection> connect;
+    private final int partitionCount;
+    private volatile SqlConnection connection;
+    private volatile Set<Integer> owned = Set.of();
+    private volatile Integer memberLock;
+
+    public ExpiryPartitions(Vertx vertx, PgConnectOptions connectOptions, int partitionCount) {
+        this(Mono.create(monoSink -> PgConnection.connect(vertx, connectOptions, handler -> {
+            if (handler.failed()) {
+                monoSink.error(handler.cause());
+                return;
+            }
+            monoSink.success(handler.result());
+        })), partitionCount);
+    }
+
+    ExpiryPartitions(Mono<SqlConnection> connect, int partitionCount) {
+        this.connect = connect;
+        this.partitionCount = partitionCount;
+    }
+
+    // ids are UUIDs, the partition is taken from their last 8 hex digits so that Postgres can compute the same
+    public static int partitionOf(String id, int partitionCount) {
+        return (int) (Long.parseLong(id.substring(id.length() - 8), 16) % partitionCount);
+    }
+
+    public static String partitionOf(String column, String partitionCountParameter) {
+        return format("mod(('x' || right(%s, 8))::bit(32)::bigint, %s)", column, partitionCountParameter);
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public List<Integer> owned() {
+        return List.copyOf(owned);
+    }
+
+    public boolean owns(String id) {
+        return owned.contains(partitionOf(id, partitionCount));
+    }
+
+    /**
+     * Takes or gives up leases until this node holds its fair share, and returns the partitions it newly acquired.
+     * Must not be called again before the previous rebalance has completed.
+     */
+    public Mono<Set<Integer>> rebalance() {
+        return connection()
+                .flatMap(this::joinMembers)
+                .flatMap(conn -> members(conn)
+                        .flatMap(members -> {
+                            int share = (int) Math.ceil((double) partitionCount / Math.max(members, 1));
+                            return owned.size() > share
+                                   ? release(conn, owned.size() - share).thenReturn(Set.<Integer>of())
+                                   : acquire(conn, share - owned.size());
+                        }))
+                .doOnNext(acquired -> {
+                    if (!acquired.isEmpty()) {
+                        logger.info("Acquired expiry partitions {}, owning {}", acquired, owned);
+                    }
+                })
+                .onErrorResume(error -> {
+                    logger.error("Failed to rebalance expiry partitions", error);
+                    return Mono.just(Set.of());
+                });
+    }
+
+    public synchronized void close() {
+        if (connection != null) {
+            connection.close();
+        }
+        lost();
+    }
+
+    private Mono<SqlConnection> connection() {
+        if (connection != null) {
+            return Mono.just(connection);
+        }
+        return connect.doOnNext(conn -> {
+            conn.closeHandler(unused -> lost());
+            connection = conn;
+        });
+    }
+
+    private synchronized void lost() {
+        if (!owned.isEmpty()) {
+            logger.warn("Lost expiry partitions {}", owned);
+        }
+        connection = null;
+        memberLock = null;
+        owned = Set.of();
+    }
+
+    private Mono<SqlConnection> joinMembers(SqlConnection conn) {
+        if (memberLock != null) {
+            return Mono.just(conn);
+        }
+        return Flux.range(MEMBER_LOCK_OFFSET, MAXIMUM_MEMBERS)
+                .concatMap(key -> tryLock(conn, key).filter(Boolean::booleanValue).map(locked -> key), 1)
+                .next()
+                .doOnNext(key -> memberLock = key)
+                .thenReturn(conn);
+    }
+
+    private Mono<Long> members(SqlConnection conn) {
+        return Mono.create(monoSink -> conn.preparedQuery(COUNT_MEMBERS)
+                .execute(Tuple.of(LOCK_NAMESPACE, MEMBER_LOCK_OFFSET), handler -> {
+                    if (handler.failed()) {
+                        monoSink.error(handler.cause());
+                        return;
+                    }
+                    monoSink.success(handler.result().iterator().next().getLong("members"));
+                }));
+    }
+
+    private Mono<Set<Integer>> acquire(SqlConnection conn, int wanted) {
+        if (wanted <= 0) {
+            return Mono.just(Set.of());
+        }
+        var free = IntStream.range(0, partitionCount)
+                .filter(partition -> !owned.contains(partition))
+                .boxed()
+                .collect(Collectors.toList());
+        return Flux.fromIterable(free)
+                .concatMap(partition -> tryLock(conn, partition)
+                        .filter(Boolean::booleanValue)
+                        .map(locked -> partition), 1)
+                .take(wanted)
+                .collect(Collectors.toSet())
+                .doOnNext(acquired -> {
+                    var partitions = new HashSet<>(owned);
+                    partitions.addAll(acquired);
+                    owned = Set.copyOf(partitions);
+                });
+    }
+
+    private Mono<Void> release(SqlConnection conn, int surplus) {
+        var released = owned.stream().sorted().skip(owned.size() - surplus).collect(Collectors.toSet());
+        var partitions = new HashSet<>(owned);
+        partitions.removeAll(released);
+        owned = Set.copyOf(partitions);
+        logger.info("Releasing expiry partitions {}, owning {}", released, owned);
+        return Flux.fromIterable(released).concatMap(partition -> unlock(conn, partition)).then();
+    }
+
+    private Mono<Boolean> tryLock(SqlConnection conn, int key) {
+        return Mono.create(monoSink -> conn.preparedQuery(TRY_LOCK)
+                .execute(Tuple.of(LOCK_NAMESPACE, key), handler -> {
+                    if (handler.failed()) {
+                        monoSink.error(handler.cause());
+                        return;
+                    }
+                    monoSink.success(handler.result().iterator().next().getBoolean("locked"));
+                }));
+    }
+
+    private Mono<Boolean> unlock(SqlConnection conn, int key) {
+        return Mono.create(monoSink -> conn.preparedQuery(UNLOCK)
+                .execute(Tuple.of(LOCK_NAMESPACE, key), handler -> {
+                    if (handler.failed()) {
+                        monoSink.error(handler.cause());
+                        return;
+                    }
+                    monoSink.success(handler.result().iterator().next().getBoolean("unlocked"));
+                }));
+    }
+}
@@ -0,0 +1,109 @@
+package in.projecteka.consentmanager.consent;
+
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Level 0 has {@code wheelSize} buckets of {@code tickMs} each; every next level has
+ * buckets as wide as the whole level below it. Adding an entry and firing it are O(1), an entry far in the future is
+ * moved down one level each time the clock reaches its bucket. Not thread safe, callers synchronize.
+ */
+class ExpiryWheel<K> {
+    private final long tickMs;
+    private final int wheelSize;
+    private final List<Level> levels = new ArrayList<>();
+    private long currentTime;
+    private int size;
+
+    ExpiryWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.currentTime = startMs - (startMs % tickMs);
+        levels.add(new Level(tickMs));
+    }
+
+    // an entry whose deadline has already passed fires on the next tick
+    void add(K key, long deadlineMs) {
+        place(new Entry<>(key, Math.max(deadlineMs, currentTime)));
+        size++;
+    }
+
+    List<K> advance(long nowMs) {
+        List<K> due = new ArrayList<>();
+        while (currentTime + tickMs <= nowMs) {
+            for (Entry<K> entry : levels.get(0).drain(currentTime)) {
+                due.add(entry.key);
+            }
+            currentTime += tickMs;
+            for (int i = levels.size() - 1; i > 0; i--) {
+                Level level = levels.get(i);
+                if (currentTime % level.tickMs == 0) {
+                    level.drain(currentTime).forEach(this::place);
+                }
+            }
+        }
+        size -= due.size();
+        return due;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void place(Entry<K> entry) {
+        int i = 0;
+        while (true) {
+            if (i == levels.size()) {
+                levels.add(new Level(levels.get(i - 1).tickMs * wheelSize));
+            }
+            Level level = levels.get(i);
+            if (entry.deadlineMs / level.tickMs - currentTime / level.tickMs < wheelSize) {
+                level.add(entry);
+                return;
+            }
+            i++;
+        }
+    }
+
+    private class Level {
+        private final long tickMs;
+        private final List<List<Entry<K>>> buckets;
+
+        Level(long tickMs) {
+            this.tickMs = tickMs;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(null);
+            }
+        }
+
+        void add(Entry<K> entry) {
+            int index = index(entry.deadlineMs);
+            List<Entry<K>> bucket = buckets.get(index);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                buckets.set(index, bucket);
+            }
+            bucket.add(entry);
+        }
+
+        List<Entry<K>> drain(long timeMs) {
+            int index = index(timeMs);
+            List<Entry<K>> bucket = buckets.get(index);
+            buckets.set(index, null);
+            return bucket == null ? List.of() : bucket;
+        }
+
+        private int index(long timeMs) {
+            return (int) ((timeMs / tickMs) % wheelSize);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Entry<K> {
+        private final K key;
+        private final long deadlineMs;
+    }
+}
@@ -1,27 +1,25 @@
 package in.projecteka.consentmanager.consent;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import in.projecteka.consentmanager.MessageListenerContainerFactory;
 import in.projecteka.consentmanager.clients.ConsentArtefactNotifier;
 import in.projecteka.consentmanager.consent.model.ConsentNotificationStatus;
 import in.projecteka.consentmanager.consent.model.HIPConsentArtefactRepresentation;
+import in.projecteka.consentmanager.consent.model.SignedHIPConsentArtefactRepresentation;
 import in.projecteka.consentmanager.consent.model.request.HIPNotificationRequest;
-import in.projecteka.library.common.TraceableMessage;
+import in.projecteka.consentmanager.consent.model.request.SignedHIPNotificationRequest;
+import in.projecteka.library.common.ReactiveMessageListener;
+import in.projecteka.library.common.RetryTiers;
+import in.projecteka.library.common.TraceableMessageCodec;
 import in.projecteka.library.common.cache.CacheAdapter;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
-import org.springframework.amqp.AmqpRejectAndDontRequeueException;
-import org.springframework.amqp.core.MessageListener;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.Optional;
 import java.util.UUID;
 
 import static in.projecteka.consentmanager.Constants.HIP_CONSENT_NOTIFICATION_QUEUE;
@@ -35,39 +33,28 @@ import static in.projecteka.library.common.Constants.CORRELATION_ID;
 public class HipConsentNotificationListener {
     private static final Logger logger = LoggerFactory.getLogger(HipConsentNotificationListener.class);
     private final MessageListenerContainerFactory messageListenerContainerFactory;
-    private final Jackson2JsonMessageConverter converter;
+    private final TraceableMessageCodec codec;
     private final ConsentArtefactNotifier consentArtefactNotifier;
     private final ConsentArtefactRepository consentArtefactRepository;
     private final CacheAdapter<String, String> cache;
+    private final RetryTiers retryTiers;
 
     @PostConstruct
     public void subscribe() {
         var mlc = messageListenerContainerFactory.createMessageListenerContainer(HIP_CONSENT_NOTIFICATION_QUEUE);
 
-        MessageListener messageListener = message -> {
-            try {
-                TraceableMessage traceableMessage = (TraceableMessage) converter.fromMessage(message);
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.registerModule(new JavaTimeModule());
-                HIPConsentArtefactRepresentation consentArtefact = mapper.convertValue(traceableMessage.getMessage()
-                        , HIPConsentArtefactRepresentation.class);
-                MDC.put(CORRELATION_ID, traceableMessage.getCorrelationId());
-                logger.info("Received notify consent to hip for consent artefact: {}",
-                        consentArtefact.getConsentId());
+        mlc.setupMessageListener(new ReactiveMessageListener(message -> {
+            var delivery = codec.decode(message, HIPConsentArtefactRepresentation.class);
+            HIPConsentArtefactRepresentation consentArtefact = delivery.getMessage();
+            var correlationId = delivery.getCorrelationId();
+            MDC.put(CORRELATION_ID, correlationId);
+            logger.info("Received notify consent to hip for consent artefact: {}",
+                    consentArtefact.getConsentId());
+            MDC.clear();
 
-                sendConsentArtefactToHIP(consentArtefact)
-                        .subscriberContext(ctx -> {
-                            Optional<String> correlationId = Optional.ofNullable(MDC.get(CORRELATION_ID));
-                            return correlationId.map(id -> ctx.put(CORRELATION_ID, id))
-                                    .orElseGet(() -> ctx.put(CORRELATION_ID, UUID.randomUUID().toString()));
-                        })
-                        .block();
-                MDC.clear();
-            } catch (Exception e) {
-                throw new AmqpRejectAndDontRequeueException(e.getMessage(), e);
-            }
-        };
-        mlc.setupMessageListener(messageListener);
+            return sendConsentArtefactToHIP(consentArtefact)
+                    .subscriberContext(ctx -> ctx.put(CORRELATION_ID, correlationId));
+        }, retryTiers));
 
         mlc.start();
     }
@@ -87,8 +74,12 @@ public class HipConsentNotificationListener {
             }
             var artefactPublisher = Mono.defer(() -> consentArtefactNotifier.sendConsentArtefactToHIP(notificationRequest, hipId));
             if (consentArtefact.getStatus() == GRANTED) {
+                var grantPublisher = consentArtefact.getSignedConsentDetail() == null
+                                     ? artefactPublisher
+                                     : Mono.defer(() -> consentArtefactNotifier.sendSignedConsentArtefactToHIP(
+                                             signedNotificationRequest(consentArtefact), hipId));
                 return cache.put(consentArtefact.getConsentId(), NOTIFYING.toString())
-                        .then(artefactPublisher);
+                        .then(grantPublisher);
             }
             return artefactPublisher;
         } catch (Exception e) {
@@ -97,6 +88,20 @@ public class HipConsentNotificationListener {
         }
     }
 
+    // the artefact goes out as the exact JSON it was signed over, without serializing it again
+    private SignedHIPNotificationRequest signedNotificationRequest(HIPConsentArtefactRepresentation consentArtefact) {
+        return SignedHIPNotificationRequest.builder()
+                .requestId(UUID.randomUUID())
+                .timestamp(LocalDateTime.now(ZoneOffset.UTC))
+                .notification(SignedHIPConsentArtefactRepresentation.builder()
+                        .consentDetail(consentArtefact.getSignedConsentDetail())
+                        .status(consentArtefact.getStatus())
+                        .signature(consentArtefact.getSignature())
+                        .consentId(consentArtefact.getConsentId())
+                        .build())
+                .build();
+    }
+
     private HIPNotificationRequest hipNotificationRequest(HIPConsentArtefactRepresentation consentArtefact) {
         var requestId = UUID.randomUUID();
         var timestamp = LocalDateTime.now(ZoneOffset.UTC);
@@ -0,0 +1,43 @@
+package in.projecteka.consentmanager.consent;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "consentmanager.outbox")
+@Getter
+@AllArgsConstructor
+@ConstructorBinding
+public class OutboxProperties {
+    private static final int DEFAULT_RELAY_BATCH_SIZE = 500;
+    private static final int DEFAULT_RELAY_INTERVAL = 200;
+    private static final int DEFAULT_RELAY_CLAIM = 60_000;
+    private static final int DEFAULT_RELAY_ATTEMPTS = 10;
+    private final boolean relayEnabled;
+    private final int relayBatchSize;
+    // in milliseconds
+    private final int relayInterval;
+    // in milliseconds; how long a claimed batch is left to its node before another one may claim it
+    private final int relayClaim;
+    // how many times a notification is tried before it is parked
+    private final int relayAttempts;
+
+    public int getRelayBatchSize() {
+        return relayBatchSize > 0 ? relayBatchSize : DEFAULT_RELAY_BATCH_SIZE;
+    }
+
+    public Duration getRelayInterval() {
+        return Duration.ofMillis(relayInterval > 0 ? relayInterval : DEFAULT_RELAY_INTERVAL);
+    }
+
+    public Duration getRelayClaim() {
+        return Duration.ofMillis(relayClaim > 0 ? relayClaim : DEFAULT_RELAY_CLAIM);
+    }
+
+    public int getRelayAttempts() {
+        return relayAttempts > 0 ? relayAttempts : DEFAULT_RELAY_ATTEMPTS;
+    }
+}
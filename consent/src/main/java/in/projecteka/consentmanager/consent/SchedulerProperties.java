@@ -0,0 +1,55 @@
+package in.projecteka.consentmanager.consent;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+@ConfigurationProperties(prefix = "consentmanager.scheduler")
+@Getter
+@AllArgsConstructor
+@ConstructorBinding
+public class SchedulerProperties {
+    private static final int DEFAULT_CONSENT_EXPIRY_BATCH_SIZE = 500;
+    private static final int DEFAULT_EXPIRY_TICK_INTERVAL = 1;
+    private static final int DEFAULT_EXPIRY_HORIZON = 60;
+    private static final int DEFAULT_EXPIRY_RELOAD_INTERVAL = 15;
+    private static final int DEFAULT_EXPIRY_PARTITIONS = 64;
+    private static final int DEFAULT_EXPIRY_LEASE_INTERVAL = 30;
+    private final boolean consentArtefactExpiryEnabled;
+    private final boolean consentRequestExpiryEnabled;
+    private final int consentExpiryBatchSize;
+    // in seconds
+    private final int expiryTickInterval;
+    // in minutes
+    private final int expiryHorizon;
+    // in minutes
+    private final int expiryReloadInterval;
+    private final int expiryPartitions;
+    // in seconds
+    private final int expiryLeaseInterval;
+
+    public int getConsentExpiryBatchSize() {
+        return consentExpiryBatchSize > 0 ? consentExpiryBatchSize : DEFAULT_CONSENT_EXPIRY_BATCH_SIZE;
+    }
+
+    public int getExpiryTickInterval() {
+        return expiryTickInterval > 0 ? expiryTickInterval : DEFAULT_EXPIRY_TICK_INTERVAL;
+    }
+
+    public int getExpiryHorizon() {
+        return Math.max(expiryHorizon > 0 ? expiryHorizon : DEFAULT_EXPIRY_HORIZON, 2 * getExpiryReloadInterval());
+    }
+
+    public int getExpiryReloadInterval() {
+        return expiryReloadInterval > 0 ? expiryReloadInterval : DEFAULT_EXPIRY_RELOAD_INTERVAL;
+    }
+
+    public int getExpiryPartitions() {
+        return expiryPartitions > 0 ? expiryPartitions : DEFAULT_EXPIRY_PARTITIONS;
+    }
+
+    public int getExpiryLeaseInterval() {
+        return expiryLeaseInterval > 0 ? expiryLeaseInterval : DEFAULT_EXPIRY_LEASE_INTERVAL;
+    }
+}
@@ -1,10 +1,16 @@
 package in.projecteka.consentmanager.consent;
 
 import in.projecteka.consentmanager.consent.model.Query;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
 import io.vertx.sqlclient.Transaction;
 import reactor.core.publisher.MonoSink;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
 
 public class TransactionContext {
     private final Transaction transaction;
@@ -29,22 +35,42 @@ public class TransactionContext {
         this.sink.error(e);
     }
 
+    // runs a statement and then, in the same transaction, the queries that follow from the rows it returned
+    public void executeInTransaction(Query query, Function<RowSet<Row>, List<Query>> followUp, String message) {
+        transaction.preparedQuery(query.getQueryString()).execute(query.getBatch().get(0), result -> {
+            if (result.failed()) {
+                error(new RuntimeException(message));
+                return;
+            }
+            List<Query> queries;
+            try {
+                queries = followUp.apply(result.result());
+            } catch (RuntimeException e) {
+                error(e);
+                return;
+            }
+            executeInTransaction(queries.iterator(), message);
+        });
+    }
+
     public void executeInTransaction(Iterator<Query> iterator, String message) {
-        if (iterator.hasNext()) {
+        if (!iterator.hasNext()) {
+            commit();
+        } else {
             Query query = iterator.next();
-            transaction.preparedQuery(query.getQueryString())
-                    .execute(query.getParams(),
-                            handler -> {
-                                if (handler.succeeded()) {
-                                    if (iterator.hasNext()) {
-                                        executeInTransaction(iterator, message);
-                                    } else {
-                                        commit();
-                                    }
-                                } else {
-                                    error(new RuntimeException(message));
-                                }
-                            });
+            Handler<AsyncResult<RowSet<Row>>> handler = result -> {
+                if (result.succeeded()) {
+                    executeInTransaction(iterator, message);
+                } else {
+                    error(new RuntimeException(message));
+                }
+            };
+            var preparedQuery = transaction.preparedQuery(query.getQueryString());
+            if (query.getBatch().size() == 1) {
+                preparedQuery.execute(query.getBatch().get(0), handler);
+            } else {
+                preparedQuery.executeBatch(query.getBatch(), handler);
+            }
         }
     }
 }
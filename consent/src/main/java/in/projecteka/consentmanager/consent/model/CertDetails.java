@@ -14,4 +14,5 @@ import lombok.NoArgsConstructor;
 public class CertDetails {
     private String publicKey;
     private String startDate;
+    private String algorithm;
 }
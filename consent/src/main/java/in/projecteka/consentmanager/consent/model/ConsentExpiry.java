@@ -13,6 +13,10 @@ import java.time.LocalDateTime;
 @Builder
 public class ConsentExpiry {
     private String consentId;
+    private String consentRequestId;
     private LocalDateTime consentExpiryDate;
-    private String patientId;
+    private HIPReference hip;
+    private String hiuId;
+    private LocalDateTime createdAt;
+    private LocalDateTime dateModified;
 }
@@ -0,0 +1,19 @@
+package in.projecteka.consentmanager.consent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ConsentRequestExpiry {
+    private String requestId;
+    private LocalDateTime createdAt;
+    private String hiuId;
+    private LocalDateTime dateModified;
+}
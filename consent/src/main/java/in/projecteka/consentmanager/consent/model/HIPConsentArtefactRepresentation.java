@@ -1,5 +1,6 @@
 package in.projecteka.consentmanager.consent.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,4 +15,7 @@ public class HIPConsentArtefactRepresentation {
     private ConsentStatus status;
     private String signature;
     private String consentId;
+    // the exact JSON the signature was computed over; sent to the HIP as is
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String signedConsentDetail;
 }
@@ -1,15 +1,16 @@
 package in.projecteka.consentmanager.consent.model;
 
 public class ListResult<T> {
-    private final int total;
+    // null when the total was not asked for
+    private final Integer total;
     private final T result;
 
-    public ListResult(T result, int total) {
+    public ListResult(T result, Integer total) {
         this.result = result;
         this.total = total;
     }
 
-    public int getTotal() {
+    public Integer getTotal() {
         return this.total;
     }
 
@@ -0,0 +1,46 @@
+package in.projecteka.consentmanager.consent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+// opaque continuation token of a listing ordered by (date_modified, id) descending
+@Value
+@AllArgsConstructor
+public class PageCursor {
+    private static final String SEPARATOR = "|";
+
+    LocalDateTime dateModified;
+    String id;
+
+    public String encode() {
+        var value = dateModified.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Optional<PageCursor> decode(String token) {
+        try {
+            var value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == value.length() - 1) {
+                return Optional.empty();
+            }
+            return Optional.of(new PageCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    // a page shorter than the limit is the last one
+    public static <T> String next(List<T> page, int limit, Function<T, PageCursor> cursorOf) {
+        return page.isEmpty() || page.size() < limit ? null : cursorOf.apply(page.get(page.size() - 1)).encode();
+    }
+}
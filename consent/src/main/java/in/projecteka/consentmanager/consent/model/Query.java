@@ -4,9 +4,16 @@ import io.vertx.sqlclient.Tuple;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.List;
+
+// a statement with one or more parameter sets; several sets are sent as a single batch
 @Getter
 @AllArgsConstructor
 public class Query {
     private final String queryString;
-    private final Tuple params;
+    private final List<Tuple> batch;
+
+    public Query(String queryString, Tuple params) {
+        this(queryString, List.of(params));
+    }
 }
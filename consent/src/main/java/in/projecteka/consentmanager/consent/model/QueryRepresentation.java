@@ -1,12 +1,16 @@
 package in.projecteka.consentmanager.consent.model;
 
+import io.vertx.sqlclient.Tuple;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -26,4 +30,15 @@ public class QueryRepresentation {
                         .flatMap(Collection::stream).collect(Collectors.toList());
         return new QueryRepresentation(consentArtefactQueries, hipConsentArtefactReps);
     }
+
+    // sends every statement once with all of its parameter sets, only for statements that do not depend on each other
+    public QueryRepresentation batched() {
+        Map<String, List<Tuple>> batches = new LinkedHashMap<>();
+        getQueries().forEach(query -> batches.computeIfAbsent(query.getQueryString(), statement -> new ArrayList<>())
+                .addAll(query.getBatch()));
+        List<Query> batchedQueries = batches.entrySet().stream()
+                .map(batch -> new Query(batch.getKey(), batch.getValue()))
+                .collect(Collectors.toList());
+        return new QueryRepresentation(batchedQueries, getHipConsentArtefactRepresentations());
+    }
 }
@@ -0,0 +1,15 @@
+package in.projecteka.consentmanager.consent.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class SignedHIPConsentArtefactRepresentation {
+    @JsonRawValue
+    String consentDetail;
+    ConsentStatus status;
+    String signature;
+    String consentId;
+}
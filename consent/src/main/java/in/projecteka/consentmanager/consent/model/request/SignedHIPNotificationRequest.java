@@ -0,0 +1,16 @@
+package in.projecteka.consentmanager.consent.model.request;
+
+import in.projecteka.consentmanager.consent.model.SignedHIPConsentArtefactRepresentation;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Value
+@Builder
+public class SignedHIPNotificationRequest {
+    SignedHIPConsentArtefactRepresentation notification;
+    UUID requestId;
+    LocalDateTime timestamp;
+}
@@ -1,6 +1,7 @@
 package in.projecteka.consentmanager.consent.model.response;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -16,8 +17,11 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 public class ConsentArtefactResponse {
-    private int size;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer size;
     private int limit;
     private int offset;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next;
     List<ConsentArtefactRepresentation> consentArtefacts;
 }
@@ -0,0 +1,30 @@
+package in.projecteka.consentmanager.consent.model.response;
+
+import in.projecteka.consentmanager.consent.model.AccessPeriod;
+import in.projecteka.consentmanager.consent.model.ConsentPurpose;
+import in.projecteka.consentmanager.consent.model.ConsentStatus;
+import in.projecteka.consentmanager.consent.model.HIPReference;
+import in.projecteka.consentmanager.consent.model.HIUReference;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ConsentRequestSummary {
+    private String requestId;
+    private ConsentStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastUpdated;
+    private ConsentPurpose purpose;
+    private HIPReference hip;
+    private HIUReference hiu;
+    private String requesterName;
+    private AccessPeriod dateRange;
+    private LocalDateTime dataEraseAt;
+}
@@ -0,0 +1,27 @@
+package in.projecteka.consentmanager.consent.model.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ConsentRequestSummaryResponse {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer size;
+    private int limit;
+    private int offset;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next;
+    private List<ConsentRequestSummary> requests;
+}
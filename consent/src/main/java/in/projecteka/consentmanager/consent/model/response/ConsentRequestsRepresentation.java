@@ -1,6 +1,7 @@
 package in.projecteka.consentmanager.consent.model.response;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import in.projecteka.consentmanager.consent.model.ConsentRequestDetail;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,8 +18,11 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 public class ConsentRequestsRepresentation {
-    private int size;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer size;
     private int limit;
     private int offset;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next;
     private List<ConsentRequestDetail> requests;
 }
@@ -7,6 +7,7 @@ public class Constants {
     public static final String APP_PATH_CONFIRM_LINK_REF_NUMBER = APP_PATH_CONFIRM_LINK + "/{linkRefNumber}";
     public static final String APP_PATH_CARE_CONTEXTS_DISCOVER = "/v1/care-contexts/discover";
     public static final String APP_PATH_INTERNAL_GET_LINKED_CARE_CONTEXTS = "/internal/patients/{username}/links";
+    public static final String APP_PATH_INTERNAL_HIP_CALLBACK_STATS = "/internal/hip-callbacks/stats";
     public static final String APP_PATH_LINK_INIT = "/v1/links/link/init";
     public static final String APP_PATH_GET_PATIENTS_LINKS = "/patients/links";
 
@@ -14,11 +14,17 @@ import in.projecteka.consentmanager.userauth.UserAuthentication;
 import in.projecteka.consentmanager.link.link.Link;
 import in.projecteka.consentmanager.link.link.LinkRepository;
 import in.projecteka.consentmanager.link.link.LinkTokenVerifier;
+import in.projecteka.consentmanager.link.link.PatientLinksIndex;
+import in.projecteka.consentmanager.properties.CallbackTimeoutProperties;
 import in.projecteka.consentmanager.properties.GatewayServiceProperties;
 import in.projecteka.consentmanager.properties.LinkServiceProperties;
 import in.projecteka.consentmanager.properties.RedisOptions;
 import in.projecteka.library.clients.UserServiceClient;
+import in.projecteka.library.common.CallbackCorrelator;
+import in.projecteka.library.common.CallbackRelay;
+import in.projecteka.library.common.CallbackTimeouts;
 import in.projecteka.library.common.CentralRegistry;
+import in.projecteka.library.common.RedisCallbackRelay;
 import in.projecteka.library.common.ServiceAuthentication;
 import in.projecteka.library.common.cache.CacheAdapter;
 import in.projecteka.library.common.cache.LoadingCacheAdapter;
@@ -33,10 +39,16 @@ import org.springframework.data.redis.core.ReactiveRedisOperations;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import java.security.PublicKey;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class LinkConfiguration {
+    private static final String GATEWAY_CALLBACKS_CHANNEL = "gateway-callbacks";
+    // callbacks are relayed as they come, polling only catches the ones whose relay was lost
+    private static final Duration CALLBACK_POLL_INTERVAL = Duration.ofSeconds(1);
+    // without redis, links added on another node are seen here at most this late
+    private static final Duration PATIENT_LINKS_EXPIRY = Duration.ofMinutes(1);
 
     @Bean
     public DiscoveryRepository discoveryRepository(PgPool pgPool) {
@@ -48,6 +60,20 @@ public class LinkConfiguration {
         return new LinkRepository(pgPool);
     }
 
+    @ConditionalOnProperty(value = "consentmanager.cacheMethod", havingValue = "guava", matchIfMissing = true)
+    @Bean
+    public PatientLinksIndex localPatientLinksIndex(LinkRepository linkRepository) {
+        return PatientLinksIndex.localOnly(linkRepository, PATIENT_LINKS_EXPIRY);
+    }
+
+    @ConditionalOnProperty(value = "consentmanager.cacheMethod", havingValue = "redis")
+    @Bean
+    public PatientLinksIndex redisPatientLinksIndex(
+            LinkRepository linkRepository,
+            ReactiveRedisOperations<String, String> stringReactiveRedisOperations) {
+        return new PatientLinksIndex(linkRepository, PATIENT_LINKS_EXPIRY, stringReactiveRedisOperations).listen();
+    }
+
     @Bean
     public LinkTokenVerifier linkTokenVerifier(@Qualifier("keySigningPublicKey") PublicKey key,
                                                LinkRepository linkRepository) {
@@ -58,19 +84,19 @@ public class LinkConfiguration {
     public Link link(@Qualifier("customBuilder") WebClient.Builder builder,
                      LinkRepository linkRepository,
                      GatewayServiceProperties gatewayServiceProperties,
-                     LinkServiceProperties serviceProperties,
-                     @Qualifier("linkResults") CacheAdapter<String, String> linkResults,
+                     CallbackCorrelator callbackCorrelator,
                      ServiceAuthentication serviceAuthentication,
                      LinkTokenVerifier linkTokenVerifier,
-                     LinkEventPublisher linkEventPublisher) {
+                     LinkEventPublisher linkEventPublisher,
+                     PatientLinksIndex patientLinksIndex) {
         return new Link(
                 new LinkServiceClient(builder.build(), serviceAuthentication, gatewayServiceProperties),
                 linkRepository,
                 serviceAuthentication,
-                serviceProperties,
-                linkResults,
+                callbackCorrelator,
                 linkTokenVerifier,
-                linkEventPublisher);
+                linkEventPublisher,
+                patientLinksIndex);
     }
 
     @Bean
@@ -87,16 +113,42 @@ public class LinkConfiguration {
                                CentralRegistry centralRegistry,
                                DiscoveryServiceClient discoveryServiceClient,
                                UserServiceClient userServiceClient,
-                               LinkServiceProperties linkServiceProperties,
-                               @Qualifier("linkResults") CacheAdapter<String, String> linkResults,
-                               LinkRepository linkRepository) {
+                               CallbackCorrelator callbackCorrelator,
+                               PatientLinksIndex patientLinksIndex) {
         return new Discovery(userServiceClient,
                 discoveryServiceClient,
                 discoveryRepository,
                 centralRegistry,
-                linkServiceProperties,
-                linkResults,
-                linkRepository);
+                callbackCorrelator,
+                patientLinksIndex);
+    }
+
+    @Bean
+    public CallbackCorrelator callbackCorrelator(@Qualifier("linkResults") CacheAdapter<String, String> linkResults,
+                                                 CallbackRelay callbackRelay,
+                                                 CallbackTimeouts callbackTimeouts) {
+        return new CallbackCorrelator(linkResults, callbackRelay, CALLBACK_POLL_INTERVAL, callbackTimeouts);
+    }
+
+    @Bean
+    public CallbackTimeouts callbackTimeouts(LinkServiceProperties linkServiceProperties,
+                                             CallbackTimeoutProperties callbackTimeoutProperties) {
+        return new CallbackTimeouts(callbackTimeoutProperties.getPercentile(),
+                callbackTimeoutProperties.getFloor(),
+                Duration.ofMillis(linkServiceProperties.getTxnTimeout()),
+                callbackTimeoutProperties.getMinimumSamples());
+    }
+
+    @ConditionalOnProperty(value = "consentmanager.cacheMethod", havingValue = "guava", matchIfMissing = true)
+    @Bean
+    public CallbackRelay localCallbackRelay() {
+        return CallbackRelay.none();
+    }
+
+    @ConditionalOnProperty(value = "consentmanager.cacheMethod", havingValue = "redis")
+    @Bean
+    public CallbackRelay redisCallbackRelay(ReactiveRedisOperations<String, String> stringReactiveRedisOperations) {
+        return new RedisCallbackRelay(stringReactiveRedisOperations, GATEWAY_CALLBACKS_CHANNEL);
     }
 
     @Bean
@@ -1,15 +1,13 @@
 package in.projecteka.consentmanager.link.discovery;
 
 import in.projecteka.consentmanager.clients.DiscoveryServiceClient;
-import in.projecteka.consentmanager.clients.model.CareContextRepresentation;
 import in.projecteka.consentmanager.link.discovery.model.patient.request.Patient;
 import in.projecteka.consentmanager.link.discovery.model.patient.request.PatientIdentifier;
 import in.projecteka.consentmanager.link.discovery.model.patient.request.PatientRequest;
 import in.projecteka.consentmanager.link.discovery.model.patient.response.CareContext;
 import in.projecteka.consentmanager.link.discovery.model.patient.response.DiscoveryResponse;
 import in.projecteka.consentmanager.link.discovery.model.patient.response.DiscoveryResult;
-import in.projecteka.consentmanager.link.link.LinkRepository;
-import in.projecteka.consentmanager.properties.LinkServiceProperties;
+import in.projecteka.consentmanager.link.link.PatientLinksIndex;
 import in.projecteka.library.clients.ErrorMap;
 import in.projecteka.library.clients.UserServiceClient;
 import in.projecteka.library.clients.model.ClientError;
@@ -20,9 +18,9 @@ import in.projecteka.library.clients.model.Identifier;
 import in.projecteka.library.clients.model.Provider;
 import in.projecteka.library.clients.model.RespError;
 import in.projecteka.library.clients.model.User;
+import in.projecteka.library.common.CallbackCorrelator;
 import in.projecteka.library.common.CentralRegistry;
 import in.projecteka.library.common.DelayTimeoutException;
-import in.projecteka.library.common.cache.CacheAdapter;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,11 +40,8 @@ import java.util.stream.Collectors;
 import static in.projecteka.library.clients.model.ClientError.gatewayTimeOut;
 import static in.projecteka.library.clients.model.ClientError.invalidResponseFromHIP;
 import static in.projecteka.library.clients.model.ClientError.requestAlreadyExists;
-import static in.projecteka.library.common.CustomScheduler.scheduleThis;
 import static in.projecteka.library.common.Serializer.from;
 import static in.projecteka.library.common.Serializer.tryTo;
-import static java.time.Duration.ofMillis;
-import static reactor.core.publisher.Mono.defer;
 import static reactor.core.publisher.Mono.error;
 import static reactor.core.publisher.Mono.just;
 
@@ -58,9 +53,8 @@ public class Discovery {
     private final DiscoveryServiceClient discoveryServiceClient;
     private final DiscoveryRepository discoveryRepository;
     private final CentralRegistry centralRegistry;
-    private final LinkServiceProperties serviceProperties;
-    private final CacheAdapter<String, String> discoveryResults;
-    private final LinkRepository linkRepository;
+    private final CallbackCorrelator discoveryResults;
+    private final PatientLinksIndex patientLinksIndex;
 
     public Flux<ProviderRepresentation> providersFrom(String name) {
         return centralRegistry.providersOf(name)
@@ -83,12 +77,12 @@ public class Discovery {
                 .filterWhen(this::validateRequest)
                 .switchIfEmpty(error(requestAlreadyExists()))
                 .flatMap(val -> userWith(userName))
-                .flatMap(user -> scheduleThis(discoveryServiceClient.requestPatientFor(
-                        requestFor(user, transactionId, unverifiedIdentifiers, requestId),
-                        providerId))
-                        .timeout(ofMillis(getExpectedFlowResponseDuration()))
-                        .responseFrom(discard -> defer(() -> discoveryResults.get(requestId.toString())
-                                .zipWith(just(user.getIdentifier())))))
+                .flatMap(user -> discoveryResults.exchange(requestId.toString(),
+                        providerId,
+                        discoveryServiceClient.requestPatientFor(
+                                requestFor(user, transactionId, unverifiedIdentifiers, requestId),
+                                providerId))
+                        .zipWith(just(user.getIdentifier())))
                 .onErrorResume(DelayTimeoutException.class, discard -> error(gatewayTimeOut()))
                 .flatMap(response -> tryTo(response.getT1(), DiscoveryResult.class)
                         .map(result -> just(result).zipWith(just(response.getT2())))
@@ -130,18 +124,10 @@ public class Discovery {
     }
 
     private Mono<List<CareContext>> ignoreLinkedCareContexts(String userId, List<CareContext> careContexts) {
-        return linkRepository.getCareContextsForAUserId(userId)
-                .flatMap(linkedCareContexts -> {
-                    List<CareContext> filteredCareContexts = careContexts.stream().filter(careContext -> !filter(linkedCareContexts, careContext))
-                            .collect(Collectors.toList());
-                    return just(filteredCareContexts);
-                });
-    }
-
-    private boolean filter(List<CareContextRepresentation> linkedCareContexts, CareContext careContext) {
-        return linkedCareContexts.stream()
-                .anyMatch(linkedCareContext ->
-                        linkedCareContext.getReferenceNumber().equals(careContext.getReferenceNumber()));
+        return patientLinksIndex.linkedReferencesOf(userId)
+                .map(linkedReferences -> careContexts.stream()
+                        .filter(careContext -> !linkedReferences.contains(careContext.getReferenceNumber()))
+                        .collect(Collectors.toList()));
     }
 
     private ErrorRepresentation cmErrorRepresentation(RespError respError) {
@@ -178,7 +164,7 @@ public class Discovery {
         }
 
         if (discoveryResult.hasResponseId()) {
-            return discoveryResults.put(discoveryResult.getResp().getRequestId(), from(discoveryResult));
+            return discoveryResults.complete(discoveryResult.getResp().getRequestId(), from(discoveryResult));
         }
         logger.error("[Discovery] Received a discovery response from Gateway without original request Id mentioned.{}",
                 discoveryResult.getRequestId());
@@ -198,7 +184,7 @@ public class Discovery {
                 .build();
 
         return discoveryResults
-                .put(requestId, from(errorDiscovery))
+                .complete(requestId, from(errorDiscovery))
                 .then(error(ClientError.invalidDiscovery(errorMessage)));
     }
 
@@ -209,10 +195,6 @@ public class Discovery {
                 );
     }
 
-    private long getExpectedFlowResponseDuration() {
-        return serviceProperties.getTxnTimeout();
-    }
-
     private Mono<Boolean> validateRequest(UUID requestId) {
         return discoveryRepository.getIfPresent(requestId)
                 .map(Objects::isNull)
@@ -10,7 +10,6 @@ import in.projecteka.consentmanager.clients.model.PatientRepresentation;
 import in.projecteka.consentmanager.link.Constants;
 import in.projecteka.consentmanager.link.LinkEventPublisher;
 import in.projecteka.consentmanager.link.link.model.Acknowledgement;
-import in.projecteka.consentmanager.link.link.model.AuthzHipAction;
 import in.projecteka.consentmanager.link.link.model.LinkConfirmationRequest;
 import in.projecteka.consentmanager.link.link.model.LinkConfirmationResult;
 import in.projecteka.consentmanager.link.link.model.LinkRequest;
@@ -20,15 +19,14 @@ import in.projecteka.consentmanager.link.link.model.PatientCareContext;
 import in.projecteka.consentmanager.link.link.model.PatientLinkReferenceRequest;
 import in.projecteka.consentmanager.link.link.model.PatientLinksResponse;
 import in.projecteka.consentmanager.link.link.model.TokenConfirmation;
-import in.projecteka.consentmanager.properties.LinkServiceProperties;
 import in.projecteka.library.clients.model.ClientError;
 import in.projecteka.library.clients.model.Error;
 import in.projecteka.library.clients.model.ErrorRepresentation;
 import in.projecteka.library.clients.model.GatewayResponse;
 import in.projecteka.library.clients.model.RespError;
+import in.projecteka.library.common.CallbackCorrelator;
 import in.projecteka.library.common.DelayTimeoutException;
 import in.projecteka.library.common.ServiceAuthentication;
-import in.projecteka.library.common.cache.CacheAdapter;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,7 +34,6 @@ import org.slf4j.MDC;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
@@ -51,7 +48,6 @@ import static in.projecteka.library.clients.ErrorMap.toCmError;
 import static in.projecteka.library.clients.model.ClientError.invalidResponseFromHIP;
 import static in.projecteka.library.clients.model.ErrorCode.TRANSACTION_ID_NOT_FOUND;
 import static in.projecteka.library.common.Constants.CORRELATION_ID;
-import static in.projecteka.library.common.CustomScheduler.scheduleThis;
 import static in.projecteka.library.common.Serializer.from;
 import static in.projecteka.library.common.Serializer.tryTo;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
@@ -66,10 +62,10 @@ public class Link {
     private final LinkServiceClient linkServiceClient;
     private final LinkRepository linkRepository;
     private final ServiceAuthentication serviceAuthentication;
-    private final LinkServiceProperties serviceProperties;
-    private final CacheAdapter<String, String> linkResults;
+    private final CallbackCorrelator linkResults;
     private final LinkTokenVerifier linkTokenVerifier;
     private final LinkEventPublisher linkEventPublisher;
+    private final PatientLinksIndex patientLinksIndex;
 
     public Mono<PatientLinkReferenceResponse> patientCareContexts(
             String patientId,
@@ -103,9 +99,9 @@ public class Link {
             UUID requestId) {
         return serviceAuthentication.authenticate()
                 .flatMap(token ->
-                        scheduleThis(linkServiceClient.linkPatientEnquiryRequest(linkReferenceRequest, token, hipId))
-                                .timeout(Duration.ofMillis(getExpectedFlowResponseDuration()))
-                                .responseFrom(discard -> Mono.defer(() -> linkResults.get(requestId.toString())))
+                        linkResults.exchange(requestId.toString(),
+                                hipId,
+                                linkServiceClient.linkPatientEnquiryRequest(linkReferenceRequest, token, hipId))
                                 .onErrorResume(DelayTimeoutException.class, discard -> error(ClientError.gatewayTimeOut()))
                                 .flatMap(response -> tryTo(response, PatientLinkReferenceResult.class).map(Mono::just).orElse(empty()))
                                 .flatMap(linkReferenceResult -> {
@@ -123,13 +119,13 @@ public class Link {
     }
 
     public Mono<PatientLinksResponse> getLinkedCareContexts(String patientId) {
-        return linkRepository.getLinkedCareContextsForAllHip(patientId)
+        return patientLinksIndex.linksOf(patientId)
                 .map(patientLinks -> PatientLinksResponse.builder().patient(patientLinks).build());
     }
 
     public Mono<Void> onLinkCareContexts(PatientLinkReferenceResult patientLinkReferenceResult) {
         if (patientLinkReferenceResult.hasResponseId()) {
-            return linkResults.put(patientLinkReferenceResult.getResp().getRequestId(),
+            return linkResults.complete(patientLinkReferenceResult.getResp().getRequestId(),
                     from(patientLinkReferenceResult));
         }
         logger.error("[Link] Received a patient link reference response from Gateway without" +
@@ -156,10 +152,9 @@ public class Link {
             String patientId,
             String hipId,
             UUID requestId) {
-        return scheduleThis(
+        return linkResults.exchange(requestId.toString(),
+                hipId,
                 linkServiceClient.confirmPatientLink(toLinkConfirmationRequest(patientLinkRequest, requestId), hipId))
-                .timeout(Duration.ofMillis(getExpectedFlowResponseDuration()))
-                .responseFrom(discard -> Mono.defer(() -> linkResults.get(requestId.toString())))
                 .onErrorResume(DelayTimeoutException.class, discard -> error(ClientError.gatewayTimeOut()))
                 .flatMap(response -> tryTo(response, LinkConfirmationResult.class).map(Mono::just).orElse(empty()))
                 .flatMap(confirmationResult -> {
@@ -179,6 +174,7 @@ public class Link {
                             patientLinkRequest.getLinkRefNumber(),
                             confirmationResult.getPatient(),
                             Constants.LINK_INITIATOR_CM)
+                            .doOnSuccess(discard -> patientLinksIndex.invalidate(patientId))
                             .doOnSuccess(requester -> defer(() -> broadcastNewLink(hipId, patientId, confirmationResult.getPatient()))
                                     .subscriberContext(ctx -> {
                                         Optional<String> correlationId = Optional.ofNullable(MDC.get(CORRELATION_ID));
@@ -205,13 +201,9 @@ public class Link {
                 .build();
     }
 
-    private long getExpectedFlowResponseDuration() {
-        return serviceProperties.getTxnTimeout();
-    }
-
     public Mono<Void> onConfirmLink(LinkConfirmationResult confirmationResult) {
         if (confirmationResult.hasResponseId()) {
-            return linkResults.put(confirmationResult.getResp().getRequestId(), from(confirmationResult));
+            return linkResults.complete(confirmationResult.getResp().getRequestId(), from(confirmationResult));
         } else {
             logger.error("[Link] Received a confirmation response from Gateway " +
                     "without original request Id mentioned.{}", confirmationResult.getRequestId());
@@ -223,24 +215,17 @@ public class Link {
         return linkTokenVerifier
                 .getHipIdFromToken(linkRequest.getLink().getAccessToken())
                 .flatMap(hipId ->
-                        linkTokenVerifier.validateSession(linkRequest.getLink().getAccessToken())
-                                .flatMap(linkTokenVerifier::validateHipAction)
-                                .flatMap(hipAction -> linkRepository.insertToLink(
-                                        hipAction.getRequesterId(),
-                                        hipAction.getPatientId(),
-                                        hipAction.getSessionId(),
+                        linkTokenVerifier.consumeHipAction(linkRequest.getLink().getAccessToken(),
+                                (sessionId, purposes) -> linkRepository.insertToLink(sessionId,
+                                        purposes,
                                         linkRequest.getLink().getPatient(),
-                                        Constants.LINK_INITIATOR_HIP)
-                                        .then(updateHipActionCounter(hipAction))
-                                        .thenReturn(linkSuccessResponse(linkRequest)))
+                                        Constants.LINK_INITIATOR_HIP))
+                                .doOnSuccess(hipAction -> patientLinksIndex.invalidate(hipAction.getPatientId()))
+                                .map(discard -> linkSuccessResponse(linkRequest))
                                 .onErrorResume(ClientError.class, exception -> linkFailureResponse(linkRequest, exception))
                                 .flatMap(linkResponse -> linkServiceClient.sendLinkResponseToGateway(linkResponse, hipId)));
     }
 
-    private Mono<Void> updateHipActionCounter(AuthzHipAction hipAction) {
-        return linkRepository.incrementHipActionCounter(hipAction.getSessionId());
-    }
-
     private Mono<? extends LinkResponse> linkFailureResponse(LinkRequest linkRequest, ClientError exception) {
         logger.error(exception.getError().getError().getMessage(), exception);
         var linkResponse = LinkResponse.builder()
@@ -10,6 +10,8 @@ import in.projecteka.consentmanager.link.link.model.LinkRequest;
 import in.projecteka.consentmanager.link.link.model.PatientLinkReferenceRequest;
 import in.projecteka.consentmanager.link.link.model.PatientLinksResponse;
 import in.projecteka.library.clients.model.ClientError;
+import in.projecteka.library.common.CallbackTimeouts;
+import in.projecteka.library.common.CallbackTimeouts.CallbackStats;
 import in.projecteka.library.common.Caller;
 import in.projecteka.library.common.RequestValidator;
 import lombok.AllArgsConstructor;
@@ -25,6 +27,7 @@ import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -41,6 +44,7 @@ import static reactor.core.publisher.Mono.just;
 public class LinkController {
     private final RequestValidator validator;
     private final Link link;
+    private final CallbackTimeouts callbackTimeouts;
 
     @GetMapping(Constants.APP_PATH_GET_PATIENTS_LINKS)
     public Mono<PatientLinksResponse> getLinkedCareContexts() {
@@ -55,6 +59,11 @@ public class LinkController {
         return link.getLinkedCareContexts(username);
     }
 
+    @GetMapping(Constants.APP_PATH_INTERNAL_HIP_CALLBACK_STATS)
+    public Mono<Map<String, CallbackStats>> hipCallbackStats() {
+        return Mono.fromSupplier(callbackTimeouts::stats);
+    }
+
     @PostMapping(PATH_LINK_ON_INIT)
     public Mono<Void> onLinkCareContexts(@RequestBody PatientLinkReferenceResult result) {
         return just(result)
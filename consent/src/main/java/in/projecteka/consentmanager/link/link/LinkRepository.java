@@ -1,7 +1,7 @@
 package in.projecteka.consentmanager.link.link;
 
-import in.projecteka.consentmanager.clients.model.CareContextRepresentation;
 import in.projecteka.consentmanager.clients.model.PatientLinkReferenceResult;
+import in.projecteka.consentmanager.clients.model.CareContextRepresentation;
 import in.projecteka.consentmanager.clients.model.PatientRepresentation;
 import in.projecteka.consentmanager.link.link.model.AuthzHipAction;
 import in.projecteka.consentmanager.link.link.model.Hip;
@@ -10,35 +10,40 @@ import in.projecteka.consentmanager.link.link.model.PatientLinks;
 import in.projecteka.consentmanager.userauth.model.RequesterType;
 import in.projecteka.library.common.DbOperation;
 import in.projecteka.library.common.DbOperationError;
-import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.RowIterator;
-import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Transaction;
 import io.vertx.sqlclient.Tuple;
 import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
 
 import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static in.projecteka.library.clients.model.ClientError.transactionIdNotFound;
-import static in.projecteka.library.common.Serializer.from;
-import static in.projecteka.library.common.Serializer.to;
+import static in.projecteka.library.common.JsonCodec.encode;
 
 public class LinkRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(LinkRepository.class);
 
-    private static final String SELECT_LINKED_CARE_CONTEXTS = "SELECT hip_id, patient FROM link WHERE " +
-            "consent_manager_user_id=$1";
+    private static final String SELECT_LINKED_CARE_CONTEXTS = "SELECT hip_id, reference_number, display, " +
+            "patient_reference, patient_display FROM care_context WHERE consent_manager_user_id=$1 ORDER BY id";
     private static final String INSERT_TO_LINK = "INSERT INTO link (hip_id, consent_manager_user_id, link_reference," +
             "patient, initiated_by) VALUES ($1, $2, $3, $4, $5)";
+    private static final String INSERT_CARE_CONTEXT = "INSERT INTO care_context (consent_manager_user_id, hip_id, " +
+            "reference_number, display, patient_reference, patient_display) VALUES ($1, $2, $3, $4, $5, $6) " +
+            "ON CONFLICT (consent_manager_user_id, hip_id, reference_number) DO UPDATE SET display = EXCLUDED.display, " +
+            "patient_reference = EXCLUDED.patient_reference, patient_display = EXCLUDED.patient_display";
     private static final String INSERT_TO_LINK_REFERENCE = "INSERT INTO link_reference (patient_link_reference, " +
             "hip_id, request_id) VALUES ($1, $2, $3)";
     private static final String SELECT_HIP_ID_FROM_DISCOVERY = "SELECT hip_id FROM discovery_request WHERE " +
@@ -51,10 +56,11 @@ public class LinkRepository {
     private static final String SELECT_HIP_AUTHZ_ACTION = "SELECT session_id, requester_id, patient_id, purpose, expiry, repeat, current_counter, requester_type " +
             "FROM authz_hip_actions " +
             "WHERE session_id = $1 AND expiry > timezone('utc'::text, now())";
-    private static final String UPDATE_HIP_ACTION_COUNTER = "UPDATE authz_hip_actions SET current_counter = current_counter + 1 " +
-            "WHERE session_id=$1";
-    private static final String SELECT_CARE_CONTEXTS_FOR_A_USER = "SELECT patient FROM link WHERE " +
-            "consent_manager_user_id=$1";
+    // checks and uses up one of the session's actions in a single statement, so concurrent calls cannot overrun it
+    private static final String CONSUME_HIP_ACTION = "UPDATE authz_hip_actions SET current_counter = current_counter + 1 " +
+            "WHERE session_id = $1 AND current_counter < repeat AND expiry > timezone('utc'::text, now()) " +
+            "AND purpose = ANY($2) " +
+            "RETURNING session_id, requester_id, patient_id, purpose, expiry, repeat, current_counter, requester_type";
 
     private final PgPool dbClient;
 
@@ -68,7 +74,7 @@ public class LinkRepository {
                              UUID requestId) {
         return Mono.create(monoSink ->
                 dbClient.preparedQuery(INSERT_TO_LINK_REFERENCE)
-                        .execute(Tuple.of(new JsonObject(from(linkReferenceResult)), hipId, requestId.toString()),
+                        .execute(Tuple.of(encode(linkReferenceResult), hipId, requestId.toString()),
                                 handler -> {
                                     if (handler.failed()) {
                                         logger.error(handler.cause().getMessage(), handler.cause());
@@ -110,18 +116,107 @@ public class LinkRepository {
                         }));
     }
 
+    // the care contexts are written as rows of their own, in the same transaction as the link; linking a care
+    // context again updates its row
     public Mono<Void> insertToLink(String hipId, String consentManagerUserId, String linkRefNumber,
                                    PatientRepresentation patient, String initiatedBy) {
-        return Mono.create(monoSink -> dbClient.preparedQuery(INSERT_TO_LINK)
-                .execute(Tuple.of(hipId, consentManagerUserId, linkRefNumber, new JsonObject(from(patient)), initiatedBy),
-                        handler -> {
-                            if (handler.failed()) {
-                                logger.error(handler.cause().getMessage(), handler.cause());
-                                monoSink.error(new DbOperationError());
+        return Mono.create(monoSink -> dbClient.begin(connectionAttempt -> {
+            if (connectionAttempt.failed()) {
+                logger.error(connectionAttempt.cause().getMessage(), connectionAttempt.cause());
+                monoSink.error(new DbOperationError());
+                return;
+            }
+            insertLink(connectionAttempt.result(), hipId, consentManagerUserId, linkRefNumber, patient, initiatedBy,
+                    null, monoSink);
+        }));
+    }
+
+    // uses up one of the session's actions in the transaction that links the care contexts to its patient, so a link
+    // that fails to insert leaves the action unused; empty, with nothing inserted, when the session has expired, has
+    // no actions left or is not for any of the purposes
+    public Mono<AuthzHipAction> insertToLink(String sessionId, List<String> purposes, PatientRepresentation patient,
+                                             String initiatedBy) {
+        return Mono.create(monoSink -> dbClient.begin(connectionAttempt -> {
+            if (connectionAttempt.failed()) {
+                logger.error(connectionAttempt.cause().getMessage(), connectionAttempt.cause());
+                monoSink.error(new DbOperationError());
+                return;
+            }
+            var transaction = connectionAttempt.result();
+            transaction.preparedQuery(CONSUME_HIP_ACTION)
+                    .execute(Tuple.of(sessionId).addStringArray(purposes.toArray(new String[0])),
+                            consumed -> {
+                                if (consumed.failed()) {
+                                    rollback(transaction, consumed.cause(), monoSink);
+                                    return;
+                                }
+                                RowIterator<Row> iterator = consumed.result().iterator();
+                                if (!iterator.hasNext()) {
+                                    transaction.rollback();
+                                    monoSink.success();
+                                    return;
+                                }
+                                var hipAction = hipActionOf(iterator.next());
+                                insertLink(transaction,
+                                        hipAction.getRequesterId(),
+                                        hipAction.getPatientId(),
+                                        hipAction.getSessionId(),
+                                        patient,
+                                        initiatedBy,
+                                        hipAction,
+                                        monoSink);
+                            });
+        }));
+    }
+
+    private <T> void insertLink(Transaction transaction, String hipId, String consentManagerUserId,
+                                String linkRefNumber, PatientRepresentation patient, String initiatedBy,
+                                T result, MonoSink<T> monoSink) {
+        var careContexts = patient.getCareContexts().stream()
+                .map(careContext -> Tuple.of(consentManagerUserId,
+                        hipId,
+                        careContext.getReferenceNumber(),
+                        careContext.getDisplay(),
+                        patient.getReferenceNumber(),
+                        patient.getDisplay()))
+                .collect(Collectors.toList());
+        transaction.preparedQuery(INSERT_TO_LINK)
+                .execute(Tuple.of(hipId, consentManagerUserId, linkRefNumber, encode(patient), initiatedBy),
+                        link -> {
+                            if (link.failed()) {
+                                rollback(transaction, link.cause(), monoSink);
                                 return;
                             }
-                            monoSink.success();
-                        }));
+                            if (careContexts.isEmpty()) {
+                                commit(transaction, result, monoSink);
+                                return;
+                            }
+                            transaction.preparedQuery(INSERT_CARE_CONTEXT)
+                                    .executeBatch(careContexts, inserted -> {
+                                        if (inserted.failed()) {
+                                            rollback(transaction, inserted.cause(), monoSink);
+                                            return;
+                                        }
+                                        commit(transaction, result, monoSink);
+                                    });
+                        });
+    }
+
+    private <T> void commit(Transaction transaction, T result, MonoSink<T> monoSink) {
+        transaction.commit(committed -> {
+            if (committed.failed()) {
+                logger.error(committed.cause().getMessage(), committed.cause());
+                monoSink.error(new DbOperationError());
+                return;
+            }
+            monoSink.success(result);
+        });
+    }
+
+    private <T> void rollback(Transaction transaction, Throwable cause, MonoSink<T> monoSink) {
+        logger.error(cause.getMessage(), cause);
+        transaction.rollback();
+        monoSink.error(new DbOperationError());
     }
 
     public Mono<PatientLinks> getLinkedCareContextsForAllHip(String patientId) {
@@ -133,27 +228,24 @@ public class LinkRepository {
                                 monoSink.error(new DbOperationError());
                                 return;
                             }
-                            RowSet<Row> results = handler.result();
-                            List<Links> linksList = new ArrayList<>();
-                            HashMap<String, Links> hipIdToLinksMap = new HashMap<>();
-                            for (Row row : results) {
-                                String hipId = row.getString("hip_id");
-                                PatientRepresentation patientRepresentation = to(
-                                        row.getValue("patient").toString(),
-                                        PatientRepresentation.class);
-                                if (hipIdToLinksMap.containsKey(hipId)) {
-                                    Links links = hipIdToLinksMap.get(hipId);
-                                    links.getPatientRepresentations().getCareContexts()
-                                            .addAll(patientRepresentation.getCareContexts());
-                                } else {
-                                    Links links = Links.builder()
-                                            .hip(Hip.builder().id(hipId).build())
-                                            .patientRepresentations(patientRepresentation)
-                                            .build();
-                                    hipIdToLinksMap.put(hipId, links);
-                                }
+                            Map<String, Links> hipIdToLinksMap = new LinkedHashMap<>();
+                            for (Row row : handler.result()) {
+                                var links = hipIdToLinksMap.computeIfAbsent(row.getString("hip_id"),
+                                        hipId -> Links.builder()
+                                                .hip(Hip.builder().id(hipId).build())
+                                                .patientRepresentations(PatientRepresentation.builder()
+                                                        .referenceNumber(row.getString("patient_reference"))
+                                                        .display(row.getString("patient_display"))
+                                                        .careContexts(new ArrayList<>())
+                                                        .build())
+                                                .build());
+                                links.getPatientRepresentations().getCareContexts()
+                                        .add(CareContextRepresentation.builder()
+                                                .referenceNumber(row.getString("reference_number"))
+                                                .display(row.getString("display"))
+                                                .build());
                             }
-                            hipIdToLinksMap.forEach((key, link) -> linksList.add(link));
+                            List<Links> linksList = new ArrayList<>(hipIdToLinksMap.values());
                             monoSink.success(PatientLinks.builder()
                                     .id(patientId)
                                     .links(linksList)
@@ -162,8 +254,12 @@ public class LinkRepository {
     }
 
     public Mono<AuthzHipAction> getAuthzHipAction(String sessionId) {
-        return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_HIP_AUTHZ_ACTION)
-                .execute(Tuple.of(sessionId),
+        return hipActionFrom(SELECT_HIP_AUTHZ_ACTION, Tuple.of(sessionId));
+    }
+
+    private Mono<AuthzHipAction> hipActionFrom(String query, Tuple parameters) {
+        return Mono.create(monoSink -> dbClient.preparedQuery(query)
+                .execute(parameters,
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
@@ -175,52 +271,20 @@ public class LinkRepository {
                                 monoSink.success();
                                 return;
                             }
-                            Row result = iterator.next();
-                            var hipAction = AuthzHipAction.builder()
-                                    .sessionId(result.getString("session_id"))
-                                    .requesterId(result.getString("requester_id"))
-                                    .patientId(result.getString("patient_id"))
-                                    .expiry(result.getLocalDateTime("expiry"))
-                                    .purpose(result.getString("purpose"))
-                                    .repeat(result.getInteger("repeat"))
-                                    .currentCounter(result.getInteger("current_counter"))
-                                    .requesterType(RequesterType.valueOf(result.getString("requester_type")))
-                                    .build();
-                            monoSink.success(hipAction);
+                            monoSink.success(hipActionOf(iterator.next()));
                         }));
     }
 
-    public Mono<Void> incrementHipActionCounter(String sessionId) {
-        return Mono.create(monoSink -> dbClient.preparedQuery(UPDATE_HIP_ACTION_COUNTER)
-                .execute(Tuple.of(sessionId),
-                        updateHandler -> {
-                            if (updateHandler.failed()) {
-                                logger.error(updateHandler.cause().getMessage(), updateHandler.cause());
-                                monoSink.error(new Exception("Failed to update hip action counter. sessionId:" + sessionId));
-                                return;
-                            }
-                            monoSink.success();
-                        }));
-    }
-
-    public Mono<List<CareContextRepresentation>> getCareContextsForAUserId(String userId) {
-        return Mono.create(monoSink -> dbClient.preparedQuery(SELECT_CARE_CONTEXTS_FOR_A_USER)
-                .execute(Tuple.of(userId),
-                        handler -> {
-                            if (handler.failed()) {
-                                logger.error(handler.cause().getMessage(), handler.cause());
-                                monoSink.error(new DbOperationError());
-                                return;
-                            }
-                            RowSet<Row> results = handler.result();
-                            List<CareContextRepresentation> careContextsForAUser = new ArrayList<>();
-                            for (Row row : results) {
-                                PatientRepresentation patientRepresentation = to(
-                                        row.getValue("patient").toString(),
-                                        PatientRepresentation.class);
-                                careContextsForAUser.addAll(patientRepresentation.getCareContexts());
-                            }
-                            monoSink.success(careContextsForAUser);
-                        }));
+    private static AuthzHipAction hipActionOf(Row result) {
+        return AuthzHipAction.builder()
+                .sessionId(result.getString("session_id"))
+                .requesterId(result.getString("requester_id"))
+                .patientId(result.getString("patient_id"))
+                .expiry(result.getLocalDateTime("expiry"))
+                .purpose(result.getString("purpose"))
+                .repeat(result.getInteger("repeat"))
+                .currentCounter(result.getInteger("current_counter"))
+                .requesterType(RequesterType.valueOf(result.getString("requester_type")))
+                .build();
     }
 }
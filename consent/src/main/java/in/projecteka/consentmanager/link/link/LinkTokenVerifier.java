@@ -15,8 +15,9 @@ import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
 
 import java.security.PublicKey;
-import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 @AllArgsConstructor
@@ -31,6 +32,7 @@ public class LinkTokenVerifier {
     private static final String ERROR_INVALID_TOKEN_FOR_PURPOSE = "Invalid token for intended action";
     public static final String ERROR_INVALID_TOKEN_REQUIRED_ATTRIBUTES_NOT_PRESENT = "Invalid Token. Required attributes are not present.";
     public static final String ERROR_INVALID_TOKEN_NO_HIP_ID = "Invalid Token. AccessToken does not have hipId";
+    private static final List<String> LINK_PURPOSES = List.of(AuthPurpose.LINK.name(), AuthPurpose.KYC_AND_LINK.name());
 
     public Mono<String> getHipIdFromToken(String accessToken) {
         Optional<String> optionalHipId = hipIdFrom(accessToken);
@@ -41,26 +43,25 @@ public class LinkTokenVerifier {
         return Mono.just(optionalHipId.get());
     }
 
-    public Mono<AuthzHipAction> validateSession(String accessToken) {
+    // validates the session and hands it to consume, which uses up one of its actions along with whatever the action
+    // does; only a refused session is read again, to say why
+    public Mono<AuthzHipAction> consumeHipAction(String accessToken,
+                                                 BiFunction<String, List<String>, Mono<AuthzHipAction>> consume) {
         Optional<String> optionalSessionId = sessionIdFrom(accessToken);
         if (optionalSessionId.isEmpty()) {
             return logAndThrowError(ERROR_INVALID_TOKEN_REQUIRED_ATTRIBUTES_NOT_PRESENT);
         }
-        return linkRepository.getAuthzHipAction(optionalSessionId.get())
-                .switchIfEmpty(logAndThrowError(ERROR_TOKEN_IS_INVALID_OR_EXPIRED));
+        return consume.apply(optionalSessionId.get(), LINK_PURPOSES)
+                .switchIfEmpty(Mono.defer(() -> linkRepository.getAuthzHipAction(optionalSessionId.get())
+                        .flatMap(this::refusalOf)
+                        .switchIfEmpty(logAndThrowError(ERROR_TOKEN_IS_INVALID_OR_EXPIRED))));
     }
 
-    public Mono<AuthzHipAction> validateHipAction(AuthzHipAction authHipAction) {
-        if ((authHipAction.getCurrentCounter() + 1) > authHipAction.getRepeat()) {
+    private Mono<AuthzHipAction> refusalOf(AuthzHipAction authHipAction) {
+        if (authHipAction.getCurrentCounter() >= authHipAction.getRepeat()) {
             return logAndThrowError(ERROR_NUMBER_OF_REPEAT_ACTION_EXCEEDED);
         }
-
-        if (!Arrays.asList(AuthPurpose.LINK, AuthPurpose.KYC_AND_LINK)
-                .contains(AuthPurpose.valueOf(authHipAction.getPurpose()))) {
-            return logAndThrowError(ERROR_INVALID_TOKEN_FOR_PURPOSE);
-        }
-        return Mono.just(authHipAction);
-
+        return logAndThrowError(ERROR_INVALID_TOKEN_FOR_PURPOSE);
     }
 
     private Mono<AuthzHipAction> logAndThrowError(String errorMessage) {
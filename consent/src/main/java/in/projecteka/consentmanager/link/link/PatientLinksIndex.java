@@ -0,0 +1,188 @@
+package in.projecteka.consentmanager.link.link;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import in.projecteka.consentmanager.clients.model.CareContextRepresentation;
+import in.projecteka.consentmanager.link.link.model.Links;
+import in.projecteka.consentmanager.link.link.model.PatientLinkedCareContext;
+import in.projecteka.consentmanager.link.link.model.PatientLinks;
+import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static java.util.Locale.ROOT;
+
+/**
+ * Keeps each patient's links, read once from the link table, with the linked care-context references indexed by
+ * HIP, so that discovery, consent approval and the links screen can check them without reading and decoding the
+ * link rows every time. A patient's entry is dropped as soon as a link is added for them, and the invalidation is
+ * published on a redis channel so every node drops it as well; without redis, other nodes see it once their entry
+ * expires. An approval that does not find a care context reads the links again before refusing it.
+ */
+public class PatientLinksIndex implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PatientLinksIndex.class);
+    private static final long MAXIMUM_PATIENTS = 10_000;
+    private static final String INVALIDATIONS_CHANNEL = "patient-links:invalidations";
+
+    private final LinkRepository linkRepository;
+    private final Cache<String, IndexedLinks> patients;
+    // bumped on every invalidation of the patient, so that a read which began before a link was added is not cached
+    private final Cache<String, AtomicLong> generations;
+    private final ReactiveRedisOperations<String, String> invalidations;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    public PatientLinksIndex(LinkRepository linkRepository,
+                             Duration expiry,
+                             ReactiveRedisOperations<String, String> invalidations) {
+        this.linkRepository = linkRepository;
+        this.patients = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_PATIENTS)
+                .expireAfterWrite(expiry.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        this.generations = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_PATIENTS)
+                .expireAfterAccess(expiry.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        this.invalidations = invalidations;
+    }
+
+    public static PatientLinksIndex localOnly(LinkRepository linkRepository, Duration expiry) {
+        return new PatientLinksIndex(linkRepository, expiry, null);
+    }
+
+    public PatientLinksIndex listen() {
+        if (invalidations != null) {
+            subscriptions.add(invalidations.listenToChannel(INVALIDATIONS_CHANNEL)
+                    .doOnNext(message -> drop(message.getMessage()))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1)))
+                    .subscribe());
+        }
+        return this;
+    }
+
+    public Mono<PatientLinks> linksOf(String patientId) {
+        return indexOf(patientId).map(IndexedLinks::getPatientLinks);
+    }
+
+    public Mono<Set<String>> linkedReferencesOf(String patientId) {
+        return indexOf(patientId).map(IndexedLinks::getReferences);
+    }
+
+    public Mono<List<PatientLinkedCareContext>> careContextsOf(String patientId, String hipId) {
+        return indexOf(patientId).map(index -> index.careContextsOf(hipId));
+    }
+
+    public Mono<Boolean> hasCareContexts(String patientId, String hipId, List<String> careContextReferences) {
+        return indexOf(patientId)
+                .filter(index -> index.hasCareContexts(hipId, careContextReferences))
+                .map(index -> true)
+                .switchIfEmpty(Mono.defer(() -> {
+                    invalidate(patientId);
+                    return indexOf(patientId).map(index -> index.hasCareContexts(hipId, careContextReferences));
+                }));
+    }
+
+    // a failed broadcast is only logged, the other nodes still drop the entry once it expires
+    public void invalidate(String patientId) {
+        drop(patientId);
+        if (invalidations != null) {
+            invalidations.convertAndSend(INVALIDATIONS_CHANNEL, patientId)
+                    .subscribe(receivers -> {
+                    }, error -> logger.error("Failed to broadcast the invalidation of links of {}", patientId, error));
+        }
+    }
+
+    @Override
+    public void close() {
+        subscriptions.dispose();
+    }
+
+    private void drop(String patientId) {
+        generationOf(patientId).incrementAndGet();
+        patients.invalidate(patientId);
+    }
+
+    @SneakyThrows
+    private AtomicLong generationOf(String patientId) {
+        return generations.get(patientId, AtomicLong::new);
+    }
+
+    private Mono<IndexedLinks> indexOf(String patientId) {
+        return Mono.defer(() -> {
+            var cached = patients.getIfPresent(patientId);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            var generation = generationOf(patientId);
+            long readAt = generation.get();
+            return linkRepository.getLinkedCareContextsForAllHip(patientId)
+                    .map(IndexedLinks::new)
+                    .doOnNext(index -> {
+                        // an evicted generation may have missed an invalidation
+                        if (generation.get() == readAt && generations.getIfPresent(patientId) == generation) {
+                            patients.put(patientId, index);
+                        }
+                    });
+        });
+    }
+
+    private static class IndexedLinks {
+        private final PatientLinks patientLinks;
+        // approval has always matched HIPs and care contexts ignoring case
+        private final Map<String, Set<String>> careContextsByHip = new HashMap<>();
+        // discovery matches the references of every HIP exactly
+        private final Set<String> references = new HashSet<>();
+
+        IndexedLinks(PatientLinks patientLinks) {
+            this.patientLinks = patientLinks;
+            for (Links links : patientLinks.getLinks()) {
+                var careContexts = careContextsByHip.computeIfAbsent(links.getHip().getId().toLowerCase(ROOT),
+                        hipId -> new HashSet<>());
+                for (CareContextRepresentation careContext : links.getPatientRepresentations().getCareContexts()) {
+                    careContexts.add(careContext.getReferenceNumber().toLowerCase(ROOT));
+                    references.add(careContext.getReferenceNumber());
+                }
+            }
+        }
+
+        PatientLinks getPatientLinks() {
+            return patientLinks;
+        }
+
+        Set<String> getReferences() {
+            return references;
+        }
+
+        boolean hasCareContexts(String hipId, List<String> careContextReferences) {
+            var careContexts = careContextsByHip.get(hipId.toLowerCase(ROOT));
+            return careContexts != null && careContextReferences.stream()
+                    .allMatch(reference -> careContexts.contains(reference.toLowerCase(ROOT)));
+        }
+
+        List<PatientLinkedCareContext> careContextsOf(String hipId) {
+            return patientLinks.getLinks().stream()
+                    .filter(links -> links.getHip().getId().equals(hipId))
+                    .flatMap(links -> links.getPatientRepresentations().getCareContexts().stream()
+                            .map(careContext -> PatientLinkedCareContext.builder()
+                                    .careContextRefNo(careContext.getReferenceNumber())
+                                    .patientRefNo(links.getPatientRepresentations().getReferenceNumber())
+                                    .build()))
+                    .collect(Collectors.toList());
+        }
+    }
+}
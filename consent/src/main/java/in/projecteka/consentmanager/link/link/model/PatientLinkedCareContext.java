@@ -0,0 +1,13 @@
+package in.projecteka.consentmanager.link.link.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+@Builder
+@AllArgsConstructor
+@Value
+public class PatientLinkedCareContext {
+    String patientRefNo;
+    String careContextRefNo;
+}
@@ -0,0 +1,35 @@
+package in.projecteka.consentmanager.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+import java.time.Duration;
+
+// the ceiling is the link service txnTimeout, which is how long every HIP was given before
+@ConfigurationProperties(prefix = "consentmanager.linkservice.callback-timeouts")
+@Getter
+@AllArgsConstructor
+@ConstructorBinding
+public class CallbackTimeoutProperties {
+    private static final double DEFAULT_PERCENTILE = 99;
+    private static final int DEFAULT_FLOOR = 1000;
+    private static final int DEFAULT_MINIMUM_SAMPLES = 20;
+    private final double percentile;
+    // in milliseconds
+    private final int floor;
+    private final int minimumSamples;
+
+    public double getPercentile() {
+        return percentile > 0 && percentile <= 100 ? percentile : DEFAULT_PERCENTILE;
+    }
+
+    public Duration getFloor() {
+        return Duration.ofMillis(floor > 0 ? floor : DEFAULT_FLOOR);
+    }
+
+    public int getMinimumSamples() {
+        return minimumSamples > 0 ? minimumSamples : DEFAULT_MINIMUM_SAMPLES;
+    }
+}
@@ -2,14 +2,41 @@ package in.projecteka.consentmanager.properties;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
 
+import java.util.Map;
+import java.util.Optional;
+
 @ConfigurationProperties(prefix = "consentmanager.listeners")
 @AllArgsConstructor
 @Getter
 @ConstructorBinding
 public class ListenerProperties {
-    private final int maximumRetries;
-    private final int retryInterval;
+    private static final int DEFAULT_PREFETCH_COUNT = 50;
+    private static final int DEFAULT_CONCURRENT_CONSUMERS = 1;
+    private final int prefetchCount;
+    private final int concurrentConsumers;
+    private final Map<String, QueueListener> queues;
+
+    public int getPrefetchCount(String queueName) {
+        return queue(queueName).map(QueueListener::getPrefetchCount).filter(count -> count > 0)
+                .orElse(prefetchCount > 0 ? prefetchCount : DEFAULT_PREFETCH_COUNT);
+    }
+
+    public int getConcurrentConsumers(String queueName) {
+        return queue(queueName).map(QueueListener::getConcurrentConsumers).filter(count -> count > 0)
+                .orElse(concurrentConsumers > 0 ? concurrentConsumers : DEFAULT_CONCURRENT_CONSUMERS);
+    }
+
+    private Optional<QueueListener> queue(String queueName) {
+        return Optional.ofNullable(queues).map(listeners -> listeners.get(queueName));
+    }
+
+    @Value
+    public static class QueueListener {
+        int prefetchCount;
+        int concurrentConsumers;
+    }
 }
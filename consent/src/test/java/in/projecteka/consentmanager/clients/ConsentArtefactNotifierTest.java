@@ -5,6 +5,7 @@ import in.projecteka.consentmanager.consent.model.request.ConsentNotifier;
 import in.projecteka.consentmanager.consent.model.request.HIPNotificationRequest;
 import in.projecteka.consentmanager.consent.model.request.HIUNotificationRequest;
 import in.projecteka.library.clients.model.ClientError;
+import in.projecteka.library.common.TargetIsolation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -21,6 +22,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -47,7 +49,8 @@ class ConsentArtefactNotifierTest {
 
         consentArtefactNotifier = new ConsentArtefactNotifier(webClientBuilder,
                 () -> Mono.just(token),
-                serviceProperties);
+                serviceProperties,
+                new TargetIsolation(10, 50, 5, Duration.ofSeconds(30)));
     }
 
     @Test
@@ -105,7 +108,8 @@ class ConsentArtefactNotifierTest {
         var serviceProperties = new GatewayServiceProperties("http://example.com", 2000, "", "", "", 10);
         var dataRequestNotifier = new ConsentArtefactNotifier(webClientBuilder,
                 () -> Mono.just(token),
-                serviceProperties);
+                serviceProperties,
+                new TargetIsolation(10, 50, 5, Duration.ofSeconds(30)));
         var request = new HIUNotificationRequest(LocalDateTime.now(), UUID.randomUUID(), new ConsentNotifier());
 
         StepVerifier.create(dataRequestNotifier.sendConsentArtifactToHIU(request, "1000005")).verifyComplete();
@@ -125,7 +129,8 @@ class ConsentArtefactNotifierTest {
         var serviceProperties = new GatewayServiceProperties("http://example.com", 2000, "", "", "", 10);
         ConsentArtefactNotifier dataRequestNotifier = new ConsentArtefactNotifier(webClientBuilder,
                 () -> Mono.just(token),
-                serviceProperties);
+                serviceProperties,
+                new TargetIsolation(10, 50, 5, Duration.ofSeconds(30)));
         var request = new HIUNotificationRequest(LocalDateTime.now(), UUID.randomUUID(), new ConsentNotifier());
 
         StepVerifier.create(dataRequestNotifier.sendConsentArtifactToHIU(request, "1000005"))
@@ -147,7 +152,8 @@ class ConsentArtefactNotifierTest {
         var serviceProperties = new GatewayServiceProperties("http://example.com", 2000, "", "", "", 10);
         var dataRequestNotifier = new ConsentArtefactNotifier(webClientBuilder,
                 () -> Mono.just(token),
-                serviceProperties);
+                serviceProperties,
+                new TargetIsolation(10, 50, 5, Duration.ofSeconds(30)));
         var request = new HIUNotificationRequest(LocalDateTime.now(), UUID.randomUUID(), new ConsentNotifier());
 
         StepVerifier.create(dataRequestNotifier.sendConsentArtifactToHIU(request, "1000005"))
@@ -0,0 +1,54 @@
+package in.projecteka.consentmanager.consent;
+
+import in.projecteka.consentmanager.consent.model.Query;
+import in.projecteka.consentmanager.consent.model.QueryRepresentation;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.stream.Collectors;
+
+import static in.projecteka.consentmanager.consent.TestBuilders.consentArtefact;
+import static in.projecteka.consentmanager.consent.TestBuilders.hipConsentArtefactRepresentation;
+import static in.projecteka.consentmanager.consent.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsentArtefactQueryGeneratorTest {
+    private final ConsentArtefactQueryGenerator queryGenerator = new ConsentArtefactQueryGenerator();
+
+    @Test
+    void shouldBatchInsertsOfAllGrantedConsentsAndUpdateRequestOnce() {
+        var requestId = string();
+        var consentQueries = Flux.range(0, 3)
+                .flatMap(index -> queryGenerator.toQueries(requestId,
+                        string(),
+                        consentArtefact().build(),
+                        hipConsentArtefactRepresentation().build(),
+                        string()))
+                .collectList()
+                .block();
+
+        QueryRepresentation grantQueries = queryGenerator.toGrantQueries(requestId, consentQueries);
+
+        assertThat(grantQueries.getQueries().stream().map(query -> query.getBatch().size()))
+                .containsExactly(3, 1);
+        assertThat(grantQueries.getQueries().stream().map(Query::getQueryString).collect(Collectors.toSet()))
+                .hasSize(2);
+        assertThat(grantQueries.getHipConsentArtefactRepresentations()).hasSize(3);
+    }
+
+    @Test
+    void shouldStoreOnlyTheSignatureOfTheHipArtefact() {
+        var hipConsentArtefact = hipConsentArtefactRepresentation().build();
+
+        var queries = queryGenerator.toQueries(string(),
+                string(),
+                consentArtefact().build(),
+                hipConsentArtefact,
+                string())
+                .block();
+
+        var insert = queries.getQueries().get(0).getBatch().get(0);
+        assertThat(insert.size()).isEqualTo(8);
+        assertThat(insert.getString(7)).isEqualTo(hipConsentArtefact.getSignature());
+    }
+}
@@ -0,0 +1,109 @@
+package in.projecteka.consentmanager.consent;
+
+import in.projecteka.consentmanager.consent.model.HIPConsentArtefact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static in.projecteka.consentmanager.consent.ConsentArtefactSigner.RSASSA_PSS;
+import static in.projecteka.consentmanager.consent.ConsentArtefactSigner.canonicalContentOf;
+import static in.projecteka.consentmanager.consent.TestBuilders.consentArtefact;
+import static in.projecteka.library.common.JsonCodec.decode;
+import static in.projecteka.library.common.JsonCodec.encode;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsentArtefactSignerTest {
+
+    private static KeyPair keyPair(String type, int size) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(type);
+        generator.initialize(size);
+        return generator.generateKeyPair();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"RSA, 2048, SHA1withRSA", "RSA, 2048, SHA256withRSA", "RSA, 2048, RSASSA-PSS", "EC, 256, SHA256withECDSA"})
+    void shouldSignTheCanonicalJsonOfTheArtefact(String type, int size, String algorithm) throws Exception {
+        var keyPair = keyPair(type, size);
+        var signer = new ConsentArtefactSigner(keyPair, algorithm, Schedulers.immediate());
+        Map<String, Object> artefact = new LinkedHashMap<>();
+        artefact.put("consentId", "id");
+        artefact.put("hip", Map.of("id", "hip"));
+
+        var signature = signer.signNow(artefact);
+
+        var verifier = Signature.getInstance(algorithm);
+        if (RSASSA_PSS.equals(algorithm)) {
+            verifier.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+        }
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update("{\"consentId\":\"id\",\"hip\":{\"id\":\"hip\"}}".getBytes(StandardCharsets.UTF_8));
+        assertThat(verifier.verify(Base64.getDecoder().decode(signature))).isTrue();
+    }
+
+    @Test
+    void shouldSignTheSameContentRegardlessOfKeyOrder() throws Exception {
+        var signer = new ConsentArtefactSigner(keyPair("RSA", 2048), "SHA256withRSA", Schedulers.immediate());
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("b", 2);
+        first.put("a", 1);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("a", 1);
+        second.put("b", 2);
+
+        StepVerifier.create(signer.sign(first))
+                .assertNext(signature -> assertThat(signature).isEqualTo(signer.signNow(second)))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldVerifyTheHipArtefactRebuiltFromTheStoredConsentArtefact() throws Exception {
+        var keyPair = keyPair("RSA", 2048);
+        var signer = new ConsentArtefactSigner(keyPair, "SHA256withRSA", Schedulers.immediate());
+        var consentArtefact = consentArtefact().build();
+        var hipConsentArtefact = HIPConsentArtefact.builder()
+                .consentId(consentArtefact.getConsentId())
+                .createdAt(consentArtefact.getCreatedAt())
+                .purpose(consentArtefact.getPurpose())
+                .careContexts(consentArtefact.getCareContexts())
+                .patient(consentArtefact.getPatient())
+                .hip(consentArtefact.getHip())
+                .hiTypes(consentArtefact.getHiTypes())
+                .permission(consentArtefact.getPermission())
+                .consentManager(consentArtefact.getConsentManager())
+                .build();
+        var signature = signer.signNow(hipConsentArtefact);
+        // as the row is read back: the consent_artefact column without what only concerns the HIU
+        var stored = encode(consentArtefact);
+        stored.remove("hiu");
+        stored.remove("requester");
+
+        var rebuilt = canonicalContentOf(decode(stored, HIPConsentArtefact.class));
+
+        var verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update(rebuilt.getBytes(StandardCharsets.UTF_8));
+        assertThat(verifier.verify(Base64.getDecoder().decode(signature))).isTrue();
+    }
+
+    @Test
+    void shouldRejectAnAlgorithmThatDoesNotFitTheKey() throws Exception {
+        var keyPair = keyPair("RSA", 2048);
+
+        assertThatThrownBy(() -> new ConsentArtefactSigner(keyPair, "SHA256withECDSA", Schedulers.immediate()))
+                .isInstanceOf(InvalidKeyException.class);
+    }
+}
@@ -9,6 +9,8 @@ import in.projecteka.consentmanager.consent.model.ListResult;
 import in.projecteka.consentmanager.consent.model.RevokeRequest;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactRepresentation;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactResponse;
+import in.projecteka.consentmanager.consent.model.response.ConsentArtefactSummary;
+import in.projecteka.consentmanager.consent.model.response.ConsentArtefactSummaryResponse;
 import in.projecteka.consentmanager.consent.model.response.ConsentStatusResponse;
 import in.projecteka.library.clients.model.Error;
 import in.projecteka.library.clients.model.ErrorCode;
@@ -71,6 +73,7 @@ import static java.util.List.of;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
@@ -163,9 +166,7 @@ class ConsentArtefactUserJourneyTest {
         consentArtefact.getConsentDetail().getPermission().setDataEraseAt(toDateWithMilliSeconds("253379772420000"));
         when(authenticator.verify(token)).thenReturn(just(new Caller(patientId, false)));
         when(consentArtefactRepository.getConsentArtefacts(eq(consentRequestId)))
-                .thenReturn(Flux.just(consentArtefact.getConsentDetail().getConsentId()));
-        when(consentArtefactRepository.getConsentArtefact(eq(consentArtefact.getConsentDetail().getConsentId())))
-                .thenReturn(just(consentArtefact));
+                .thenReturn(Flux.just(consentArtefact));
 
         webTestClient.get()
                 .uri("/consent-requests/" + consentRequestId + "/consent-artefacts")
@@ -192,8 +193,6 @@ class ConsentArtefactUserJourneyTest {
         when(authenticator.verify(token)).thenReturn(just(new Caller(patientId, false)));
         when(consentArtefactRepository.getConsentArtefacts(eq(consentRequestId)))
                 .thenReturn(Flux.empty());
-        when(consentArtefactRepository.getConsentArtefact(eq(consentArtefact.getConsentDetail().getConsentId())))
-                .thenReturn(just(consentArtefact));
 
         webTestClient.get()
                 .uri("/consent-requests/" + consentRequestId + "/consent-artefacts")
@@ -216,9 +215,7 @@ class ConsentArtefactUserJourneyTest {
         var consentRequestId = "request-id";
         when(authenticator.verify(token)).thenReturn(just(new Caller(anotherUser, false)));
         when(consentArtefactRepository.getConsentArtefacts(eq(consentRequestId)))
-                .thenReturn(Flux.just(consentArtefact.getConsentDetail().getConsentId()));
-        when(consentArtefactRepository.getConsentArtefact(eq(consentArtefact.getConsentDetail().getConsentId())))
-                .thenReturn(just(consentArtefact));
+                .thenReturn(Flux.just(consentArtefact));
 
         webTestClient.get()
                 .uri("/consent-requests/" + consentRequestId + "/consent-artefacts")
@@ -250,9 +247,8 @@ class ConsentArtefactUserJourneyTest {
                 .thenReturn(just(consentRepresentation));
         when(repository.requestOf(consentRequestId, GRANTED.toString(), patientId))
                 .thenReturn(just(consentRequestDetail));
-        when(consentArtefactRepository.updateStatus(consentId, consentRequestId, REVOKED))
+        when(consentArtefactRepository.updateStatus(eq(consentId), eq(consentRequestId), eq(REVOKED), any()))
                 .thenReturn(empty());
-        when(consentNotificationPublisher.publish(any())).thenReturn(empty());
         when(centralRegistry.providerWith(any())).thenReturn(just(Provider.builder().build()));
 
         webTestClient.post()
@@ -294,7 +290,7 @@ class ConsentArtefactUserJourneyTest {
                 .isEqualTo(412)
                 .expectBody()
                 .json(errorResponseJson);
-        verify(consentArtefactRepository, times(0)).updateStatus(any(), any(), any());
+        verify(consentArtefactRepository, times(0)).updateStatus(any(), any(), any(), any());
         verifyNoInteractions(consentNotificationPublisher);
     }
 
@@ -321,6 +317,31 @@ class ConsentArtefactUserJourneyTest {
                 .value(ConsentArtefactResponse::getOffset, Matchers.is(0));
     }
 
+    @Test
+    void shouldGetConsentArtefactSummaries() {
+        var token = string();
+        var limit = 20;
+        var summary = ConsentArtefactSummary.builder().consentId(string()).status(GRANTED).build();
+        var result = new ListResult<>(List.of(summary), 1);
+        when(authenticator.verify(token)).thenReturn(just(new Caller("shweta@ncg", true)));
+        when(consentArtefactRepository.getConsentArtefactSummaries("shweta@ncg", limit, 0, null))
+                .thenReturn(just(result));
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/consent-artefacts")
+                        .queryParam("limit", valueOf(limit))
+                        .queryParam("view", "summary")
+                        .build())
+                .accept(APPLICATION_JSON)
+                .header("Authorization", token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ConsentArtefactSummaryResponse.class)
+                .value(ConsentArtefactSummaryResponse::getConsentArtefacts, equalTo(List.of(summary)))
+                .value(ConsentArtefactSummaryResponse::getSize, Matchers.is(1));
+        verify(consentArtefactRepository, times(0)).getAllConsentArtefacts(any(), anyInt(), anyInt(), any());
+    }
+
     @Test
     void shouldGetAllConsentArtefactsForStatus() {
         var token = string();
@@ -0,0 +1,142 @@
+package in.projecteka.consentmanager.consent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class ConsentExpiryEngineTest {
+    private static final long START = 1_600_000_000_000L;
+
+    @Mock
+    private ConsentArtefactRepository consentArtefactRepository;
+
+    @Mock
+    private ConsentRequestRepository consentRequestRepository;
+
+    @Mock
+    private ConsentScheduler consentScheduler;
+
+    @Mock
+    private ConsentRequestScheduler consentRequestScheduler;
+
+    @Mock
+    private ConsentServiceProperties consentServiceProperties;
+
+    @Mock
+    private Clock clock;
+
+    private final AtomicLong now = new AtomicLong(START);
+
+    private ExpiryPartitions expiryPartitions;
+
+    private ConsentExpiryEngine consentExpiryEngine;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        when(clock.millis()).thenAnswer(invocation -> now.get());
+        // leases no partition at all, as on a node whose leases are all held by others
+        expiryPartitions = new ExpiryPartitions(null, null, 16);
+        consentExpiryEngine = new ConsentExpiryEngine(consentArtefactRepository,
+                consentRequestRepository,
+                consentScheduler,
+                consentRequestScheduler,
+                consentServiceProperties,
+                new SchedulerProperties(true, true, 0, 1, 0, 0, 16, 0),
+                expiryPartitions,
+                clock);
+        when(consentScheduler.expire(any())).thenReturn(Mono.just(1L));
+        when(consentRequestScheduler.expire(any())).thenReturn(Mono.just(1L));
+    }
+
+    @Test
+    void shouldExpireAConsentGrantedHereWhoeverLeasesItsPartition() {
+        var consentId = UUID.randomUUID().toString();
+        assertThat(expiryPartitions.owns(consentId)).isFalse();
+
+        consentExpiryEngine.scheduleConsent(consentId, startedAt());
+        now.addAndGet(1000);
+        consentExpiryEngine.tick();
+
+        verify(consentScheduler).expire(List.of(consentId));
+    }
+
+    @Test
+    void shouldExpireAConsentRequestMadeHereWhoeverLeasesItsPartition() {
+        var requestId = UUID.randomUUID().toString();
+        when(consentServiceProperties.getConsentRequestExpiry()).thenReturn(0);
+
+        consentExpiryEngine.scheduleConsentRequest(requestId, startedAt());
+        now.addAndGet(1000);
+        consentExpiryEngine.tick();
+
+        verify(consentRequestScheduler).expire(List.of(requestId));
+    }
+
+    @Test
+    void shouldLeaveADeadlineBeyondTheLoadedHorizonToTheReload() {
+        consentExpiryEngine.scheduleConsent(UUID.randomUUID().toString(),
+                startedAt().plusDays(1));
+        now.addAndGet(1000);
+        consentExpiryEngine.tick();
+
+        verify(consentScheduler, never()).expire(any());
+    }
+
+    @Test
+    void shouldRetryABatchThatFailedToExpireWithABackoff() {
+        var consentId = UUID.randomUUID().toString();
+        when(consentScheduler.expire(any()))
+                .thenReturn(Mono.error(new RuntimeException("connection reset")), Mono.just(1L));
+
+        consentExpiryEngine.scheduleConsent(consentId, startedAt());
+        now.addAndGet(1000);
+        consentExpiryEngine.tick();
+        verify(consentScheduler).expire(List.of(consentId));
+
+        now.addAndGet(2000);
+        consentExpiryEngine.tick();
+        verify(consentScheduler).expire(List.of(consentId));
+
+        now.addAndGet(1000);
+        consentExpiryEngine.tick();
+        verify(consentScheduler, times(2)).expire(List.of(consentId));
+    }
+
+    @Test
+    void shouldForgetAConsentOnceItHasExpired() {
+        var consentId = UUID.randomUUID().toString();
+
+        consentExpiryEngine.scheduleConsent(consentId, startedAt());
+        now.addAndGet(1000);
+        consentExpiryEngine.tick();
+        now.addAndGet(10_000);
+        consentExpiryEngine.tick();
+        consentExpiryEngine.scheduleConsent(consentId, startedAt());
+        now.addAndGet(1000);
+        consentExpiryEngine.tick();
+
+        verify(consentScheduler, times(2)).expire(List.of(consentId));
+    }
+
+    private static LocalDateTime startedAt() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(START), ZoneOffset.UTC);
+    }
+}
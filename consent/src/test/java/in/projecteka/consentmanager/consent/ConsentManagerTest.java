@@ -3,7 +3,6 @@ package in.projecteka.consentmanager.consent;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
 import in.projecteka.consentmanager.clients.ConsentManagerClient;
-import in.projecteka.consentmanager.clients.PatientServiceClient;
 import in.projecteka.consentmanager.consent.model.ConsentArtefactResult;
 import in.projecteka.consentmanager.consent.model.ConsentArtefactsMessage;
 import in.projecteka.consentmanager.consent.model.ConsentNotificationStatus;
@@ -13,17 +12,18 @@ import in.projecteka.consentmanager.consent.model.ConsentRequest;
 import in.projecteka.consentmanager.consent.model.ConsentRequestDetail;
 import in.projecteka.consentmanager.consent.model.ConsentStatus;
 import in.projecteka.consentmanager.consent.model.ConsentStatusCallerDetail;
-import in.projecteka.consentmanager.consent.model.HIPConsentArtefactRepresentation;
 import in.projecteka.consentmanager.consent.model.HIPReference;
 import in.projecteka.consentmanager.consent.model.HIType;
 import in.projecteka.consentmanager.consent.model.HIUReference;
 import in.projecteka.consentmanager.consent.model.ListResult;
+import in.projecteka.consentmanager.consent.model.Query;
 import in.projecteka.consentmanager.consent.model.RevokeRequest;
 import in.projecteka.consentmanager.consent.model.request.RequestedDetail;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactLightRepresentation;
 import in.projecteka.consentmanager.consent.model.response.ConsentArtefactRepresentation;
-import in.projecteka.library.clients.UserServiceClient;
 import in.projecteka.consentmanager.consent.model.response.ConsentStatusResponse;
+import in.projecteka.consentmanager.link.link.PatientLinksIndex;
+import in.projecteka.library.clients.UserServiceClient;
 import in.projecteka.library.clients.model.ClientError;
 import in.projecteka.library.clients.model.Provider;
 import in.projecteka.library.clients.model.User;
@@ -38,6 +38,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpHeaders;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 import java.security.KeyPair;
@@ -57,7 +58,6 @@ import static in.projecteka.consentmanager.consent.TestBuilders.consentArtefactR
 import static in.projecteka.consentmanager.consent.TestBuilders.consentRepresentation;
 import static in.projecteka.consentmanager.consent.TestBuilders.consentRequestDetail;
 import static in.projecteka.consentmanager.consent.TestBuilders.consentRequestStatus;
-import static in.projecteka.consentmanager.consent.TestBuilders.hipConsentArtefactRepresentation;
 import static in.projecteka.consentmanager.consent.TestBuilders.hipConsentNotificationAcknowledgement;
 import static in.projecteka.consentmanager.consent.TestBuilders.string;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.DENIED;
@@ -65,9 +65,11 @@ import static in.projecteka.consentmanager.consent.model.ConsentStatus.EXPIRED;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.GRANTED;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.REQUESTED;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.REVOKED;
+import static in.projecteka.library.common.JsonCodec.decode;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -92,13 +94,13 @@ class ConsentManagerTest {
     @Mock
     private UserServiceClient userClient;
     @Mock
-    private ConsentNotificationPublisher consentNotificationPublisher;
-    @Mock
     private PostConsentRequest postConsentRequestNotification;
     @Mock
-    private PatientServiceClient patientServiceClient;
+    private PatientLinksIndex patientLinksIndex;
     @Mock
     private ConsentManagerClient consentManagerClient;
+    @Mock
+    private ConsentExpiryEngine consentExpiryEngine;
     @SuppressWarnings("unused")
     @MockBean
     private ConsentRequestNotificationListener consentRequestNotificationListener;
@@ -113,7 +115,7 @@ class ConsentManagerTest {
     private ArgumentCaptor<ConsentArtefactResult> consentArtefactResponsecaptor;
 
     @Captor
-    private ArgumentCaptor<ConsentArtefactsMessage> consentArtefactsMessageArgumentCaptor;
+    private ArgumentCaptor<Query> notificationCaptor;
 
     @Captor
     private ArgumentCaptor<ConsentStatusResponse> consentStatusResponseArgumentCaptor;
@@ -129,15 +131,15 @@ class ConsentManagerTest {
                 consentServiceProperties,
                 repository,
                 consentArtefactRepository,
-                keyPair,
-                consentNotificationPublisher,
+                new ConsentArtefactSigner(keyPair, ConsentArtefactSigner.SHA_1_WITH_RSA, Schedulers.immediate()),
                 centralRegistry,
                 postConsentRequestNotification,
-                patientServiceClient,
+                patientLinksIndex,
                 cmProperties,
                 conceptValidator,
                 queryGenerator,
-                consentManagerClient);
+                consentManagerClient,
+                consentExpiryEngine);
     }
 
     @Test
@@ -145,26 +147,24 @@ class ConsentManagerTest {
         ConsentRepresentation consentRepresentation = consentRepresentation().build();
         consentRepresentation.setStatus(ConsentStatus.GRANTED);
         String consentRequestId = consentRepresentation.getConsentRequestId();
-        String consentId = consentRepresentation.getConsentDetail().getConsentId();
         String patientId = "user@ncg";
         consentRepresentation.getConsentDetail().getPatient().setId(patientId);
         consentRepresentation.getConsentDetail().getHiu().setId(patientId);
-        String[] consentIds = new String[]{consentId};
         ConsentArtefactRepresentation consentArtefactRepresentation = consentArtefactRepresentation().build();
         consentArtefactRepresentation.setConsentDetail(consentRepresentation.getConsentDetail());
         consentArtefactRepresentation.getConsentDetail().getPermission().setDataEraseAt(toDateWithMilliSeconds("253379772420000"));
 
         when(centralRegistry.providerWith(eq("hiu1"))).thenReturn(Mono.just(new Provider()));
-        when(consentArtefactRepository.getConsentArtefacts(consentRequestId)).thenReturn(Flux.fromArray(consentIds));
-        when(consentArtefactRepository.getConsentArtefact(consentId)).thenReturn(Mono.just(consentArtefactRepresentation));
+        when(consentArtefactRepository.getConsentArtefacts(consentRequestId))
+                .thenReturn(Flux.just(consentArtefactRepresentation));
 
         StepVerifier.create(consentManager.getConsents(consentRequestId, patientId)
                 .subscriberContext(context -> context.put(HttpHeaders.AUTHORIZATION, string())))
                 .expectNext(consentArtefactRepresentation)
                 .expectComplete()
                 .verify();
+        verify(consentArtefactRepository, never()).getConsentArtefact(any());
         verify(consentArtefactRepository, times(0)).updateConsentArtefactStatus(any(), any());
-        verifyNoInteractions(consentNotificationPublisher);
     }
 
     @Test
@@ -189,39 +189,34 @@ class ConsentManagerTest {
                 .expectComplete()
                 .verify();
         verify(consentArtefactRepository, times(0)).updateConsentArtefactStatus(any(), any());
-        verifyNoInteractions(consentNotificationPublisher);
     }
 
     @Test
     void getConsentArtefactLight() {
-        ConsentRepresentation consentRepresentation = consentRepresentation().build();
-        consentRepresentation.setStatus(ConsentStatus.GRANTED);
-        String patientId = consentRepresentation.getConsentDetail().getPatient().getId();
-        String consentId = consentRepresentation.getConsentDetail().getConsentId();
-        consentRepresentation.getConsentDetail().getHiu().setId(patientId);
-        ConsentArtefactRepresentation consentArtefactRepresentation = consentArtefactRepresentation().build();
-        consentArtefactRepresentation.setConsentDetail(consentRepresentation.getConsentDetail());
-        consentArtefactRepresentation.setStatus(ConsentStatus.GRANTED);
-        consentArtefactRepresentation.getConsentDetail().getPermission().setDataEraseAt(toDateWithMilliSeconds("253379772420000"));
-        HIPConsentArtefactRepresentation hipConsentArtefactRepresentation = hipConsentArtefactRepresentation().build();
+        String consentId = string();
         ConsentArtefactLightRepresentation artefactLightRepresentation = artefactLightRepresentation().build();
-        artefactLightRepresentation.getConsentDetail().setHiu(consentArtefactRepresentation.getConsentDetail().getHiu());
-        artefactLightRepresentation.getConsentDetail().setHip(consentArtefactRepresentation.getConsentDetail().getHip());
-        artefactLightRepresentation.getConsentDetail().setPermission(consentArtefactRepresentation.getConsentDetail().getPermission());
-        artefactLightRepresentation.setSignature(hipConsentArtefactRepresentation.getSignature());
-        artefactLightRepresentation.setStatus(consentArtefactRepresentation.getStatus());
 
-        when(centralRegistry.providerWith(eq("hiu1"))).thenReturn(Mono.just(new Provider()));
-        when(consentArtefactRepository.getHipConsentArtefact(consentId)).thenReturn(Mono.just(hipConsentArtefactRepresentation));
-        when(consentArtefactRepository.getConsentArtefact(consentId)).thenReturn(Mono.just(consentArtefactRepresentation));
+        when(consentArtefactRepository.getConsentArtefactLight(consentId))
+                .thenReturn(Mono.just(artefactLightRepresentation));
 
         StepVerifier.create(consentManager.getConsentArtefactLight(consentId)
                 .subscriberContext(context -> context.put(HttpHeaders.AUTHORIZATION, string())))
                 .expectNext(artefactLightRepresentation)
                 .expectComplete()
                 .verify();
-        verify(consentArtefactRepository, times(0)).updateConsentArtefactStatus(any(), any());
-        verifyNoInteractions(consentNotificationPublisher);
+        verify(consentArtefactRepository, never()).getConsentArtefact(any());
+    }
+
+    @Test
+    void shouldThrowNotFoundForMissingConsentArtefactLight() {
+        String consentId = string();
+
+        when(consentArtefactRepository.getConsentArtefactLight(consentId)).thenReturn(Mono.empty());
+
+        StepVerifier.create(consentManager.getConsentArtefactLight(consentId))
+                .expectErrorMatches(error -> error instanceof ClientError &&
+                        ((ClientError) error).getHttpStatus() == NOT_FOUND)
+                .verify();
     }
 
     @Test
@@ -309,14 +304,19 @@ class ConsentManagerTest {
         when(consentArtefactRepository.getConsentWithRequest(consentId)).thenReturn(Mono.just(consentRepresentation));
         when(repository.requestOf(consentRequestId, GRANTED.toString(), patientId))
                 .thenReturn(Mono.just(consentRequestDetail));
-        when(consentArtefactRepository.updateStatus(consentId, consentRequestId, REVOKED)).thenReturn(Mono.empty());
-        when(consentNotificationPublisher.publish(consentArtefactsMessageArgumentCaptor.capture())).thenReturn(Mono.empty());
+        when(consentArtefactRepository.updateStatus(eq(consentId),
+                eq(consentRequestId),
+                eq(REVOKED),
+                notificationCaptor.capture())).thenReturn(Mono.empty());
 
         StepVerifier.create(consentManager.revoke(revokeRequest, patientId))
                 .verifyComplete();
-        assertThat(consentArtefactsMessageArgumentCaptor.getValue().getConsentArtefacts().get(0).getConsentDetail()).isNotNull();
-        assertThat(consentArtefactsMessageArgumentCaptor.getValue().getConsentArtefacts().get(0).getSignature()).isNotNull();
-        assertThat(consentArtefactsMessageArgumentCaptor.getValue().getConsentArtefacts().get(0).getConsentId()).isNotNull();
+        var message = decode(notificationCaptor.getValue().getBatch().get(0).getValue(1),
+                ConsentArtefactsMessage.class);
+        assertThat(message.getStatus()).isEqualTo(REVOKED);
+        assertThat(message.getConsentArtefacts().get(0).getConsentDetail()).isNotNull();
+        assertThat(message.getConsentArtefacts().get(0).getSignature()).isNotNull();
+        assertThat(message.getConsentArtefacts().get(0).getConsentId()).isNotNull();
     }
 
     @Test
@@ -330,14 +330,17 @@ class ConsentManagerTest {
                 .status(REQUESTED);
         when(repository.requestOf(requestId)).thenReturn(Mono.just(consentRequestDetail.build()),
                         Mono.just(consentRequestDetail.status(DENIED).build()));
-        when(repository.updateStatus(requestId, DENIED)).thenReturn(Mono.empty());
+        when(repository.updateStatus(eq(requestId), eq(DENIED), notificationCaptor.capture())).thenReturn(Mono.empty());
         when(consentServiceProperties.getConsentRequestExpiry()).thenReturn(60);
-        when(consentNotificationPublisher.publish(any())).thenReturn(Mono.empty());
 
         Mono<? extends Void> publisher = consentManager.deny(requestId, patientId);
 
         StepVerifier.create(publisher)
                 .verifyComplete();
+        var message = decode(notificationCaptor.getValue().getBatch().get(0).getValue(1),
+                ConsentArtefactsMessage.class);
+        assertThat(message.getStatus()).isEqualTo(DENIED);
+        assertThat(message.getConsentRequestId()).isEqualTo(requestId);
     }
 
     @Test
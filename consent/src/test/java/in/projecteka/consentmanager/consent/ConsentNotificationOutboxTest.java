@@ -0,0 +1,208 @@
+package in.projecteka.consentmanager.consent;
+
+import in.projecteka.consentmanager.consent.model.ConsentArtefactsMessage;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Transaction;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import static in.projecteka.library.common.JsonCodec.encode;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class ConsentNotificationOutboxTest {
+    private static final String CLAIM = "UPDATE consent_notification_outbox SET claimed_until = timezone";
+
+    @Mock
+    private PgPool dbClient;
+
+    @Mock
+    private Transaction transaction;
+
+    @Mock
+    private ConsentNotificationPublisher consentNotificationPublisher;
+
+    private final Deque<List<Row>> batches = new ArrayDeque<>();
+
+    private final List<String> statements = new ArrayList<>();
+
+    private final List<Tuple> parameters = new ArrayList<>();
+
+    private ConsentNotificationOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        outbox = new ConsentNotificationOutbox(dbClient,
+                consentNotificationPublisher,
+                new OutboxProperties(true, 2, 0, 0, 3));
+        doAnswer(invocation -> {
+            Handler<AsyncResult<Transaction>> handler = invocation.getArgument(0);
+            handler.handle(Future.succeededFuture(transaction));
+            return null;
+        }).when(dbClient).begin(any());
+        when(transaction.preparedQuery(anyString())).thenAnswer(invocation -> statement(invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            Handler<AsyncResult<Void>> handler = invocation.getArgument(0);
+            handler.handle(Future.succeededFuture());
+            return null;
+        }).when(transaction).commit(any());
+        when(consentNotificationPublisher.publish(any(), any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void shouldDeleteTheConfirmedNotifications() {
+        batches.add(List.of(notification(1, "request-1", 0), notification(2, "request-2", 0)));
+
+        create(outbox.relayAll()).expectNext(2).verifyComplete();
+
+        verify(consentNotificationPublisher, times(2)).publish(any(), any());
+        assertThat(idsOf("DELETE FROM consent_notification_outbox WHERE")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(idsOf("UPDATE consent_notification_outbox SET attempts")).isEmpty();
+        assertThat(idsOf("UPDATE consent_notification_outbox SET claimed_until = NULL")).isEmpty();
+    }
+
+    @Test
+    void shouldReleaseTheNotificationsAfterTheOneThatFailed() {
+        batches.add(List.of(notification(1, "request-1", 0), notification(2, "request-1", 0)));
+        when(consentNotificationPublisher.publish(argThat(message -> message.getHiuId().equals("hiu-1")), any()))
+                .thenReturn(Mono.error(new RuntimeException("not confirmed")));
+
+        create(outbox.relayAll()).expectNext(0).verifyComplete();
+
+        assertThat(idsOf("UPDATE consent_notification_outbox SET attempts")).containsExactly(1L);
+        assertThat(idsOf("UPDATE consent_notification_outbox SET claimed_until = NULL")).containsExactly(2L);
+        assertThat(statements).noneMatch(statement -> statement.startsWith("DELETE FROM consent_notification_outbox"));
+    }
+
+    @Test
+    void shouldStopAConsentRequestAtItsFirstFailureAndRelayTheOthers() {
+        batches.add(List.of(notification(1, "request-1", 0),
+                notification(2, "request-2", 0),
+                notification(3, "request-1", 0)));
+        when(consentNotificationPublisher.publish(argThat(message -> message.getHiuId().equals("hiu-1")), any()))
+                .thenReturn(Mono.error(new RuntimeException("not confirmed")));
+
+        create(outbox.relayAll()).expectNext(1).verifyComplete();
+
+        verify(consentNotificationPublisher, times(2)).publish(any(), any());
+        verify(consentNotificationPublisher, never())
+                .publish(argThat(message -> message.getHiuId().equals("hiu-3")), any());
+        assertThat(idsOf("DELETE FROM consent_notification_outbox WHERE")).containsExactly(2L);
+        assertThat(idsOf("UPDATE consent_notification_outbox SET attempts")).containsExactly(1L);
+        assertThat(idsOf("UPDATE consent_notification_outbox SET claimed_until = NULL")).containsExactly(3L);
+    }
+
+    @Test
+    void shouldParkANotificationThatKeepsFailing() {
+        batches.add(List.of(notification(1, "request-1", 2)));
+        when(consentNotificationPublisher.publish(any(), any()))
+                .thenReturn(Mono.error(new RuntimeException("not confirmed")));
+
+        create(outbox.relayAll()).expectNext(0).verifyComplete();
+
+        var park = statements.indexOf(statements.stream()
+                .filter(statement -> statement.startsWith("WITH parked AS"))
+                .findFirst()
+                .orElseThrow());
+        assertThat(parameters.get(park).getLongArray(0)).containsExactly(1L);
+        assertThat(parameters.get(park).getInteger(1)).isEqualTo(3);
+    }
+
+    @Test
+    void shouldKeepDrainingWhileTheBatchesAreFull() {
+        batches.add(List.of(notification(1, "request-1", 0), notification(2, "request-2", 0)));
+        batches.add(List.of(notification(3, "request-3", 0), notification(4, "request-1", 0)));
+        batches.add(List.of(notification(5, "request-2", 0)));
+
+        create(outbox.relayAll()).expectNext(5).verifyComplete();
+
+        assertThat(statements.stream().filter(statement -> statement.startsWith(CLAIM))).hasSize(3);
+        verify(consentNotificationPublisher, times(5)).publish(any(), any());
+    }
+
+    @Test
+    void shouldStopDrainingWhenTheOutboxIsEmpty() {
+        create(outbox.relayAll()).expectNext(0).verifyComplete();
+
+        verify(consentNotificationPublisher, never()).publish(any(), any());
+        assertThat(statements).noneMatch(statement -> statement.startsWith("DELETE"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private PreparedQuery<RowSet<Row>> statement(String statement) {
+        PreparedQuery<RowSet<Row>> preparedQuery = mock(PreparedQuery.class);
+        doAnswer(invocation -> {
+            statements.add(statement);
+            parameters.add(invocation.getArgument(0));
+            List<Row> rows = statement.startsWith(CLAIM) && !batches.isEmpty()
+                             ? batches.poll()
+                             : List.of();
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.succeededFuture(rowSetOf(rows)));
+            return null;
+        }).when(preparedQuery).execute(any(Tuple.class), any());
+        return preparedQuery;
+    }
+
+    private Long[] idsOf(String statement) {
+        for (int i = 0; i < statements.size(); i++) {
+            if (statements.get(i).startsWith(statement)) {
+                return parameters.get(i).getLongArray(0);
+            }
+        }
+        return new Long[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RowSet<Row> rowSetOf(List<Row> rows) {
+        RowSet<Row> rowSet = mock(RowSet.class);
+        RowIterator<Row> rowIterator = mock(RowIterator.class);
+        Iterator<Row> iterator = rows.iterator();
+        when(rowIterator.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(rowIterator.next()).thenAnswer(invocation -> iterator.next());
+        when(rowSet.iterator()).thenReturn(rowIterator);
+        return rowSet;
+    }
+
+    private static Row notification(long id, String consentRequestId, int attempts) {
+        var message = ConsentArtefactsMessage.builder()
+                .consentRequestId(consentRequestId)
+                .hiuId("hiu-" + id)
+                .consentArtefacts(List.of())
+                .build();
+        Row row = mock(Row.class);
+        when(row.getLong("id")).thenReturn(id);
+        when(row.getString("consent_request_id")).thenReturn(consentRequestId);
+        when(row.getString("correlation_id")).thenReturn("correlation-" + id);
+        when(row.getValue("message")).thenReturn(encode(message));
+        when(row.getInteger("attempts")).thenReturn(attempts);
+        return row;
+    }
+}
@@ -1,22 +1,25 @@
 package in.projecteka.consentmanager.consent;
 
 import in.projecteka.consentmanager.consent.model.ConsentArtefactsMessage;
-import in.projecteka.consentmanager.consent.model.ConsentRequestDetail;
-import in.projecteka.consentmanager.consent.model.ConsentStatus;
+import in.projecteka.consentmanager.consent.model.ConsentRequestExpiry;
+import in.projecteka.consentmanager.consent.model.Query;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
-
-import static in.projecteka.consentmanager.consent.TestBuilders.consentRequestDetail;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
+import java.util.function.Function;
+
+import static in.projecteka.consentmanager.consent.model.ConsentStatus.EXPIRED;
+import static in.projecteka.consentmanager.consent.model.ConsentStatus.REQUESTED;
+import static in.projecteka.library.common.JsonCodec.decode;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -25,68 +28,62 @@ class ConsentRequestSchedulerTest {
     @Mock
     private ConsentRequestRepository consentRequestRepository;
 
-    @Mock
-    private ConsentServiceProperties consentServiceProperties;
-
-    @Mock
-    private ConsentNotificationPublisher consentNotificationPublisher;
+    private final List<Query> notifications = new ArrayList<>();
 
     private ConsentRequestScheduler consentRequestScheduler;
 
     @BeforeEach
     void setUp() {
         initMocks(this);
-        consentRequestScheduler = new ConsentRequestScheduler(consentRequestRepository,
-                consentServiceProperties,
-                consentNotificationPublisher);
+        consentRequestScheduler = new ConsentRequestScheduler(consentRequestRepository);
     }
 
     @Test
-    void processConsentRequestsWhenNoneOfTheRequestAreInRequestedState() {
-        when(consentRequestRepository.getConsentsByStatus(ConsentStatus.REQUESTED)).thenReturn(Flux.empty());
+    void shouldNotNotifyWhenRequestIsNoLongerRequested() {
+        var requestIds = List.of("request-1");
+        expiring(requestIds, List.of());
 
-        consentRequestScheduler.processExpiredConsentRequests();
+        StepVerifier.create(consentRequestScheduler.expire(requestIds))
+                .expectNext(0L)
+                .verifyComplete();
 
-        verify(consentRequestRepository, times(1)).getConsentsByStatus(ConsentStatus.REQUESTED);
+        assertThat(notifications).isEmpty();
     }
 
     @Test
-    void processConsentRequestsWhenRequestIsNotExpired() {
-        ConsentRequestDetail consentRequestDetail =
-                consentRequestDetail().status(ConsentStatus.REQUESTED).createdAt(LocalDateTime.now()).build();
-        when(consentRequestRepository.getConsentsByStatus(ConsentStatus.REQUESTED)).thenReturn(Flux.just(consentRequestDetail));
-        when(consentServiceProperties.getConsentRequestExpiry()).thenReturn(10);
-
-        consentRequestScheduler.processExpiredConsentRequests();
-
-        verify(consentRequestRepository, times(1)).getConsentsByStatus(ConsentStatus.REQUESTED);
-    }
-
-    @Test
-    void processConsentRequestsWhenRequestIsExpired() {
-        LocalDateTime createdAt = LocalDateTime.now(ZoneOffset.UTC).minus(Duration.ofHours(2));
-        var consentRequestDetail =
-                consentRequestDetail().status(ConsentStatus.REQUESTED).createdAt(createdAt).build();
+    void shouldExpireRequestsAndNotifyEach() {
+        var requestExpiry = ConsentRequestExpiry.builder()
+                .requestId("request-1")
+                .hiuId("hiu-1")
+                .createdAt(LocalDateTime.now().minusHours(2))
+                .dateModified(LocalDateTime.now())
+                .build();
         var consentArtefactsMessage = ConsentArtefactsMessage.builder()
-                .status(ConsentStatus.EXPIRED)
-                .timestamp(consentRequestDetail.getLastUpdated())
-                .consentRequestId(consentRequestDetail.getRequestId())
+                .status(EXPIRED)
+                .timestamp(requestExpiry.getDateModified())
+                .consentRequestId(requestExpiry.getRequestId())
                 .consentArtefacts(List.of())
-                .hiuId(consentRequestDetail.getHiu().getId())
+                .hiuId(requestExpiry.getHiuId())
                 .build();
-        when(consentRequestRepository.getConsentsByStatus(ConsentStatus.REQUESTED))
-                .thenReturn(Flux.just(consentRequestDetail));
-        when(consentServiceProperties.getConsentRequestExpiry()).thenReturn(1);
-        when(consentRequestRepository.updateStatus(consentRequestDetail.getRequestId(), ConsentStatus.EXPIRED))
-                .thenReturn(Mono.empty());
-        when(consentNotificationPublisher.publish(consentArtefactsMessage)).thenReturn(Mono.empty());
+        var requestIds = List.of("request-1", "request-2");
+        expiring(requestIds, List.of(requestExpiry));
 
-        consentRequestScheduler.processExpiredConsentRequests();
+        StepVerifier.create(consentRequestScheduler.expire(requestIds))
+                .expectNext(1L)
+                .verifyComplete();
 
-        verify(consentRequestRepository, times(1)).getConsentsByStatus(ConsentStatus.REQUESTED);
-        verify(consentRequestRepository, times(1))
-                .updateStatus(consentRequestDetail.getRequestId(), ConsentStatus.EXPIRED);
-        verify(consentNotificationPublisher, times(1)).publish(consentArtefactsMessage);
+        assertThat(notifications).hasSize(1);
+        assertThat(notifications.get(0).getBatch()).hasSize(1);
+        assertThat(decode(notifications.get(0).getBatch().get(0).getValue(1), ConsentArtefactsMessage.class))
+                .isEqualTo(consentArtefactsMessage);
+    }
 
+    private void expiring(List<String> requestIds, List<ConsentRequestExpiry> expired) {
+        when(consentRequestRepository.updateStatus(eq(requestIds), eq(REQUESTED), eq(EXPIRED), any()))
+                .thenAnswer(invocation -> {
+                    Function<List<ConsentRequestExpiry>, List<Query>> notificationsOf = invocation.getArgument(3);
+                    notifications.addAll(notificationsOf.apply(expired));
+                    return Flux.fromIterable(expired);
+                });
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,8 @@ package in.projecteka.consentmanager.consent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.nimbusds.jose.jwk.JWKSet;
 import in.projecteka.consentmanager.clients.ConsentManagerClient;
+import in.projecteka.consentmanager.clients.model.CareContextRepresentation;
+import in.projecteka.consentmanager.clients.model.PatientRepresentation;
 import in.projecteka.consentmanager.consent.model.AccessPeriod;
 import in.projecteka.consentmanager.consent.model.ConsentPermission;
 import in.projecteka.consentmanager.consent.model.ConsentPurpose;
@@ -12,12 +14,17 @@ import in.projecteka.consentmanager.consent.model.HIPReference;
 import in.projecteka.consentmanager.consent.model.HIType;
 import in.projecteka.consentmanager.consent.model.HIUReference;
 import in.projecteka.consentmanager.consent.model.ListResult;
+import in.projecteka.consentmanager.consent.model.PageCursor;
 import in.projecteka.consentmanager.consent.model.Requester;
 import in.projecteka.consentmanager.consent.model.request.RequestedDetail;
 import in.projecteka.consentmanager.consent.model.response.ConsentApprovalResponse;
 import in.projecteka.consentmanager.consent.model.response.ConsentRequestsRepresentation;
 import in.projecteka.consentmanager.consent.model.response.RequestCreatedRepresentation;
 import in.projecteka.consentmanager.consent.policies.NhsPolicyCheck;
+import in.projecteka.consentmanager.link.link.LinkRepository;
+import in.projecteka.consentmanager.link.link.model.Hip;
+import in.projecteka.consentmanager.link.link.model.Links;
+import in.projecteka.consentmanager.link.link.model.PatientLinks;
 import in.projecteka.library.clients.model.Provider;
 import in.projecteka.library.common.Authenticator;
 import in.projecteka.library.common.Caller;
@@ -134,10 +141,12 @@ class ConsentRequestUserJourneyTest {
     @MockBean
     private ConsentManagerClient consentManagerClient;
 
+    @MockBean
+    private LinkRepository linkRepository;
+
     private static final MockWebServer clientRegistryServer = new MockWebServer();
     private static final MockWebServer userServer = new MockWebServer();
     private static final MockWebServer identityServer = new MockWebServer();
-    private static final MockWebServer patientLinkServer = new MockWebServer();
     private static final MockWebServer gatewayServer = new MockWebServer();
     private static final String CONSENT_GRANT_JSON = "{\n" +
             "    \"consents\": [\n" +
@@ -176,7 +185,6 @@ class ConsentRequestUserJourneyTest {
         clientRegistryServer.shutdown();
         userServer.shutdown();
         identityServer.shutdown();
-        patientLinkServer.shutdown();
         gatewayServer.shutdown();
     }
 
@@ -319,6 +327,44 @@ class ConsentRequestUserJourneyTest {
                 .value(ConsentRequestsRepresentation::getSize, is(0));
     }
 
+    @Test
+    void shouldGetConsentRequestsAfterCursor() {
+        var token = string();
+        var before = new PageCursor(LocalDateTime.of(2020, 8, 12, 10, 15), string());
+        var lastUpdated = LocalDateTime.of(2020, 8, 11, 9, 30);
+        var detail = ConsentRequestDetail.builder().requestId(string()).lastUpdated(lastUpdated).build();
+        ListResult<List<ConsentRequestDetail>> result = new ListResult<>(List.of(detail), null);
+        when(authenticator.verify(token)).thenReturn(just(new Caller("Ganesh@ncg", true)));
+        when(repository.requestsForPatient("Ganesh@ncg", 1, before, null, false)).thenReturn(just(result));
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/consent-requests")
+                        .queryParam("limit", "1")
+                        .queryParam("cursor", before.encode())
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .header("Authorization", token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ConsentRequestsRepresentation.class)
+                .value(ConsentRequestsRepresentation::getSize, Matchers.nullValue())
+                .value(ConsentRequestsRepresentation::getNext,
+                        is(new PageCursor(lastUpdated, detail.getRequestId()).encode()));
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        var token = string();
+        when(authenticator.verify(token)).thenReturn(just(new Caller("Ganesh@ncg", true)));
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/consent-requests").queryParam("cursor", "not-a-cursor").build())
+                .accept(MediaType.APPLICATION_JSON)
+                .header("Authorization", token)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void shouldGetConsentRequestsForStatus() {
         var token = string();
@@ -360,29 +406,8 @@ class ConsentRequestUserJourneyTest {
         load(userServer, "{}");
         load(identityServer, "{}");
         load(identityServer, "{}");
-        String linkedPatientContextsJson = "{\n" +
-                "    \"patient\": {\n" +
-                "        \"id\": \"ashok.kumar@ncg\",\n" +
-                "        \"firstName\": \"ashok\",\n" +
-                "        \"lastName\": \"kumar\",\n" +
-                "        \"links\": [\n" +
-                "            {\n" +
-                "                \"hip\": {\n" +
-                "                    \"id\": \"10000005\"\n" +
-                "                },\n" +
-                "                \"referenceNumber\": \"ashokkumar@max\",\n" +
-                "                \"display\": \"Ashok Kumar\",\n" +
-                "                \"careContexts\": [\n" +
-                "                    {\n" +
-                "                        \"referenceNumber\": \"ashokkumar.opdcontext\",\n" +
-                "                        \"display\": \"National Cancer program - OPD\"\n" +
-                "                    }\n" +
-                "                ]\n" +
-                "            }\n" +
-                "        ]\n" +
-                "    }\n" +
-                "}";
-        load(patientLinkServer, linkedPatientContextsJson);
+        when(linkRepository.getLinkedCareContextsForAllHip("ashok.kumar@ncg"))
+                .thenReturn(just(linksOf("10000005", "ashokkumar@max", "ashokkumar.opdcontext")));
         String scope = "consentrequest.approve";
 
         var consentRequestDetail = consentRequestDetail()
@@ -397,7 +422,6 @@ class ConsentRequestUserJourneyTest {
         when(pinVerificationTokenService.validateToken(token, scope))
                 .thenReturn(just(new Caller(patientId, false, "randomSessionId")));
         when(consentArtefactRepository.process(any())).thenReturn(Mono.empty());
-        when(consentNotificationPublisher.publish(any())).thenReturn(Mono.empty());
         when(conceptValidator.validateHITypes(anyList())).thenReturn(just(true));
         when(centralRegistry.providerWith(eq("10000005"))).thenReturn(just(Provider.builder().build()));
 
@@ -429,29 +453,8 @@ class ConsentRequestUserJourneyTest {
         load(identityServer, session);
         //NOTE: referenceNumber of linked CareContext is different. ashokkumar.ipdContext
         //while the grant is for ashokkumar.opdcontext
-        String linkedPatientContextsJson = "{\n" +
-                "    \"patient\": {\n" +
-                "        \"id\": \"ashok.kumar@ncg\",\n" +
-                "        \"firstName\": \"ashok\",\n" +
-                "        \"lastName\": \"kumar\",\n" +
-                "        \"links\": [\n" +
-                "            {\n" +
-                "                \"hip\": {\n" +
-                "                    \"id\": \"10000005\"\n" +
-                "                },\n" +
-                "                \"referenceNumber\": \"ashokkumar@max\",\n" +
-                "                \"display\": \"Ashok Kumar\",\n" +
-                "                \"careContexts\": [\n" +
-                "                    {\n" +
-                "                        \"referenceNumber\": \"ashokkumar.ipdcontext\",\n" +
-                "                        \"display\": \"National Cancer program - OPD\"\n" +
-                "                    }\n" +
-                "                ]\n" +
-                "            }\n" +
-                "        ]\n" +
-                "    }\n" +
-                "}";
-        load(patientLinkServer, linkedPatientContextsJson);
+        when(linkRepository.getLinkedCareContextsForAllHip("ashok.kumar@ncg"))
+                .thenReturn(just(linksOf("10000005", "ashokkumar@max", "ashokkumar.ipdcontext")));
         String patientId = "ashok.kumar@ncg";
         var consentRequestDetail = consentRequestDetail().createdAt(now(UTC).minusMinutes(30))
                 .build();
@@ -463,7 +466,6 @@ class ConsentRequestUserJourneyTest {
         when(repository.requestOf("30d02f6d-de17-405e-b4ab-d31b2bb799d7", "REQUESTED", patientId))
                 .thenReturn(just(consentRequestDetail));
         when(consentArtefactRepository.process(any())).thenReturn(Mono.empty());
-        when(consentNotificationPublisher.publish(any())).thenReturn(Mono.empty());
         when(conceptValidator.validateHITypes(anyList())).thenReturn(just(true));
 
         webTestClient.post()
@@ -488,9 +490,8 @@ class ConsentRequestUserJourneyTest {
                 .createdAt(now(UTC))
                 .status(REQUESTED);
         when(authenticator.verify(token)).thenReturn(just(new Caller(patientId, false)));
-        when(repository.updateStatus(requestId, DENIED)).thenReturn(Mono.empty());
+        when(repository.updateStatus(eq(requestId), eq(DENIED), any())).thenReturn(Mono.empty());
         when(repository.requestOf(requestId)).thenReturn(just(consentRequestDetail.build()));
-        when(consentNotificationPublisher.publish(any())).thenReturn(Mono.empty());
 
         webTestClient.post()
                 .uri(uriBuilder -> uriBuilder.path(format("/consent-requests/%s/deny", requestId)).build())
@@ -667,7 +668,6 @@ class ConsentRequestUserJourneyTest {
                             "consentmanager.consentservice.maxPageSize=50",
                             "consentmanager.consentservice.consentRequestExpiry=60",
                             "consentmanager.keycloak.baseUrl=" + identityServer.url(""),
-                            "consentmanager.linkservice.url=" + patientLinkServer.url(""),
                             "consentmanager.gatewayservice.baseUrl=" + gatewayServer.url("")));
             values.applyTo(applicationContext);
         }
@@ -679,4 +679,16 @@ class ConsentRequestUserJourneyTest {
                 .setBody(body)
                 .setHeader("content-type", "application/json"));
     }
+
+    private static PatientLinks linksOf(String hipId, String patientReference, String careContextReference) {
+        var careContext = CareContextRepresentation.builder().referenceNumber(careContextReference).build();
+        var patient = PatientRepresentation.builder()
+                .referenceNumber(patientReference)
+                .careContexts(new ArrayList<>(List.of(careContext)))
+                .build();
+        return PatientLinks.builder()
+                .id("ashok.kumar@ncg")
+                .links(List.of(Links.builder().hip(Hip.builder().id(hipId).build()).patientRepresentations(patient).build()))
+                .build();
+    }
 }
@@ -0,0 +1,88 @@
+package in.projecteka.consentmanager.consent;
+
+import in.projecteka.consentmanager.consent.model.ConsentArtefactsMessage;
+import in.projecteka.consentmanager.consent.model.ConsentExpiry;
+import in.projecteka.consentmanager.consent.model.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static in.projecteka.consentmanager.consent.TestBuilders.consentExpiry;
+import static in.projecteka.consentmanager.consent.model.ConsentStatus.EXPIRED;
+import static in.projecteka.consentmanager.consent.model.ConsentStatus.GRANTED;
+import static in.projecteka.library.common.JsonCodec.decode;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class ConsentSchedulerTest {
+
+    @Mock
+    private ConsentArtefactRepository consentArtefactRepository;
+
+    private final List<Query> notifications = new ArrayList<>();
+
+    private ConsentScheduler consentScheduler;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        consentScheduler = new ConsentScheduler(consentArtefactRepository);
+    }
+
+    @Test
+    void shouldNotNotifyWhenNoConsentIsStillGranted() {
+        var consentIds = List.of("consent-1");
+        expiring(consentIds, List.of());
+
+        StepVerifier.create(consentScheduler.expire(consentIds))
+                .expectNext(0L)
+                .verifyComplete();
+
+        assertThat(notifications).isEmpty();
+    }
+
+    @Test
+    void shouldExpireConsentsTogetherAndNotifyOncePerRequest() {
+        var first = consentExpiry().consentRequestId("request-1").build();
+        var second = consentExpiry().consentRequestId("request-1").build();
+        var third = consentExpiry().consentRequestId("request-2").build();
+        var consentIds = List.of(first.getConsentId(), second.getConsentId(), third.getConsentId());
+        expiring(consentIds, List.of(first, second, third));
+
+        StepVerifier.create(consentScheduler.expire(consentIds))
+                .expectNext(3L)
+                .verifyComplete();
+
+        assertThat(notifications).hasSize(1);
+        var messages = notifications.get(0).getBatch().stream()
+                .map(params -> decode(params.getValue(1), ConsentArtefactsMessage.class))
+                .collect(Collectors.toList());
+        assertThat(messages).hasSize(2);
+        var message = messages.get(0);
+        assertThat(message.getStatus()).isEqualTo(EXPIRED);
+        assertThat(message.getConsentRequestId()).isEqualTo("request-1");
+        assertThat(message.getHiuId()).isEqualTo(first.getHiuId());
+        assertThat(message.getConsentArtefacts()).hasSize(2);
+        assertThat(message.getConsentArtefacts().get(1).getConsentDetail().getHip()).isEqualTo(second.getHip());
+        assertThat(messages.get(1).getConsentRequestId()).isEqualTo("request-2");
+    }
+
+    private void expiring(List<String> consentIds, List<ConsentExpiry> expired) {
+        when(consentArtefactRepository.updateConsentArtefactStatus(eq(consentIds), eq(GRANTED), eq(EXPIRED), any()))
+                .thenAnswer(invocation -> {
+                    Function<List<ConsentExpiry>, List<Query>> notificationsOf = invocation.getArgument(3);
+                    notifications.addAll(notificationsOf.apply(expired));
+                    return Flux.fromIterable(expired);
+                });
+    }
+}
@@ -0,0 +1,88 @@
+package in.projecteka.consentmanager.consent;
+
+import org.junit.jupiter.api.Test;
+
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.CONSENT_ARTEFACT;
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.CONSENT_REQUEST;
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.countOf;
+import static in.projecteka.consentmanager.consent.ConsentStatusCounts.counted;
+import static in.projecteka.consentmanager.consent.TestBuilders.consentArtefact;
+import static in.projecteka.consentmanager.consent.TestBuilders.hipConsentArtefactRepresentation;
+import static in.projecteka.consentmanager.consent.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsentStatusCountsTest {
+    private static final String PLUS_ONE = "SELECT patient_id, status, 1 AS delta FROM changed";
+    private static final String MINUS_ONE = "SELECT patient_id, previous_status, -1 FROM changed " +
+            "WHERE previous_status IS NOT NULL";
+
+    @Test
+    void shouldWrapTheChangeAndReturnItsRows() {
+        var change = "UPDATE consent_request SET status=$1 RETURNING patient_id, status AS previous_status, status";
+
+        var counted = counted(CONSENT_REQUEST, change);
+
+        assertThat(changeOf(counted)).isEqualTo(change);
+        assertThat(counted).endsWith("SELECT * FROM changed");
+    }
+
+    @Test
+    void shouldCountAnInsertOnlyUnderItsNewStatus() {
+        var insert = new ConsentArtefactQueryGenerator().toQueries(string(),
+                string(),
+                consentArtefact().build(),
+                hipConsentArtefactRepresentation().build(),
+                string())
+                .block()
+                .getQueries()
+                .get(0)
+                .getQueryString();
+
+        assertCounted(insert, CONSENT_ARTEFACT);
+        // a null previous status leaves the insert out of the -1 branch, so it only adds one under its status
+        assertThat(changeOf(insert)).endsWith("RETURNING patient_id, NULL::text AS previous_status, status");
+    }
+
+    @Test
+    void shouldMoveAStatusChangeFromThePreviousStatusToTheNewOne() {
+        var update = ConsentRequestRepository.UPDATE_CONSENT_REQUEST_STATUS_QUERY;
+
+        assertCounted(update, CONSENT_REQUEST);
+        // the previous status is read from the row locked before the update, not from the updated row
+        assertThat(changeOf(update)).contains("FOR UPDATE) previous")
+                .endsWith("previous.status AS previous_status, cr.status");
+    }
+
+    @Test
+    void shouldMoveEveryRowOfABulkStatusUpdate() {
+        var requests = ConsentRequestRepository.UPDATE_CONSENT_REQUESTS_STATUS_QUERY;
+        var artefacts = ConsentArtefactRepository.UPDATE_CONSENT_ARTEFACTS_STATUS_QUERY;
+
+        assertCounted(requests, CONSENT_REQUEST);
+        assertCounted(artefacts, CONSENT_ARTEFACT);
+        assertThat(changeOf(requests)).endsWith("previous.status AS previous_status, cr.status");
+        assertThat(changeOf(artefacts)).endsWith("previous.status AS previous_status, ca.status");
+        // the deltas of all the rows are summed per patient and status, and a status that nets out is not written
+        assertThat(requests).contains("GROUP BY patient_id, status HAVING SUM(delta) <> 0");
+    }
+
+    @Test
+    void shouldReadTheCountsOfTheGivenEntityOnly() {
+        assertThat(countOf(CONSENT_ARTEFACT)).contains("entity = 'CONSENT_ARTEFACT'")
+                .doesNotContain(CONSENT_REQUEST)
+                .contains("patient_id = $1 AND (status = $2 OR $2 IS NULL)");
+        assertThat(countOf(CONSENT_REQUEST)).contains("entity = 'CONSENT_REQUEST'")
+                .doesNotContain(CONSENT_ARTEFACT);
+    }
+
+    private static void assertCounted(String statement, String entity) {
+        assertThat(statement).startsWith("WITH changed AS (")
+                .contains("SELECT patient_id, '" + entity + "', status, SUM(delta)")
+                .contains(PLUS_ONE + " UNION ALL " + MINUS_ONE)
+                .contains("DO UPDATE SET count = consent_status_count.count + EXCLUDED.count");
+    }
+
+    private static String changeOf(String statement) {
+        return statement.substring("WITH changed AS (".length(), statement.indexOf("), counted AS ("));
+    }
+}
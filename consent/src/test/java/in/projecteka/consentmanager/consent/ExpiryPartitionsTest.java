@@ -0,0 +1,171 @@
+package in.projecteka.consentmanager.consent;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class ExpiryPartitionsTest {
+    private static final int MEMBER_LOCK_OFFSET = 100_000;
+
+    @Mock
+    private SqlConnection connection;
+
+    // advisory locks held by the other nodes
+    private final Set<Integer> lockedElsewhere = new HashSet<>();
+
+    private final Set<Integer> unlocked = new HashSet<>();
+
+    private final AtomicLong members = new AtomicLong(1);
+
+    private final AtomicInteger connects = new AtomicInteger();
+
+    private final List<Tuple> memberCounts = new ArrayList<>();
+
+    private ExpiryPartitions expiryPartitions;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        when(connection.preparedQuery(anyString())).thenAnswer(invocation -> statement(invocation.getArgument(0)));
+        expiryPartitions = new ExpiryPartitions(Mono.fromCallable(() -> {
+            connects.incrementAndGet();
+            return connection;
+        }), 16);
+    }
+
+    @Test
+    void partitionOfUsesTheLastEightHexDigits() {
+        assertThat(ExpiryPartitions.partitionOf("5b0b5c1c-3d6a-4f7e-9b8a-0000000000ff", 64)).isEqualTo(255 % 64);
+        assertThat(ExpiryPartitions.partitionOf("5b0b5c1c-3d6a-4f7e-9b8a-0000ffffffff", 64))
+                .isEqualTo((int) (0xffffffffL % 64));
+    }
+
+    @Test
+    void partitionOfIsWithinPartitionCount() {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(ExpiryPartitions.partitionOf(UUID.randomUUID().toString(), 7)).isBetween(0, 6);
+        }
+    }
+
+    @Test
+    void ownsNothingBeforeRebalance() {
+        var expiryPartitions = new ExpiryPartitions(null, null, 16);
+
+        assertThat(expiryPartitions.owns(UUID.randomUUID().toString())).isFalse();
+        assertThat(expiryPartitions.owned()).isEmpty();
+    }
+
+    @Test
+    void shouldAcquireUpToItsFairShareOfTheFreePartitions() {
+        members.set(2);
+        lockedElsewhere.addAll(Set.of(0, 1, 2));
+
+        create(expiryPartitions.rebalance())
+                .assertNext(acquired -> assertThat(acquired).containsExactlyInAnyOrder(3, 4, 5, 6, 7, 8, 9, 10))
+                .verifyComplete();
+
+        assertThat(expiryPartitions.owned()).hasSize(8);
+    }
+
+    @Test
+    void shouldReleaseTheSurplusWhenMoreNodesJoin() {
+        create(expiryPartitions.rebalance()).assertNext(acquired -> assertThat(acquired).hasSize(16)).verifyComplete();
+        members.set(4);
+
+        create(expiryPartitions.rebalance()).assertNext(acquired -> assertThat(acquired).isEmpty()).verifyComplete();
+
+        assertThat(expiryPartitions.owned()).containsExactlyInAnyOrder(0, 1, 2, 3);
+        assertThat(unlocked).containsExactlyInAnyOrder(4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15);
+    }
+
+    @Test
+    void shouldCountTheMembersByTheirMemberLocks() {
+        lockedElsewhere.add(MEMBER_LOCK_OFFSET);
+        members.set(3);
+
+        create(expiryPartitions.rebalance()).assertNext(acquired -> assertThat(acquired).hasSize(6)).verifyComplete();
+
+        assertThat(lockedElsewhere).contains(MEMBER_LOCK_OFFSET + 1).doesNotContain(MEMBER_LOCK_OFFSET + 2);
+        assertThat(memberCounts).hasSize(1);
+        assertThat(memberCounts.get(0).getInteger(0)).isEqualTo(0x434d);
+        assertThat(memberCounts.get(0).getInteger(1)).isEqualTo(MEMBER_LOCK_OFFSET);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldClearItsLeasesWhenItsConnectionIsLost() {
+        ArgumentCaptor<Handler<Void>> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        create(expiryPartitions.rebalance()).expectNextCount(1).verifyComplete();
+        verify(connection).closeHandler(closeHandler.capture());
+
+        // the session and every advisory lock it held go with the connection
+        lockedElsewhere.clear();
+        closeHandler.getValue().handle(null);
+
+        assertThat(expiryPartitions.owned()).isEmpty();
+        create(expiryPartitions.rebalance()).assertNext(acquired -> assertThat(acquired).hasSize(16)).verifyComplete();
+        assertThat(connects).hasValue(2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PreparedQuery<RowSet<Row>> statement(String statement) {
+        PreparedQuery<RowSet<Row>> preparedQuery = mock(PreparedQuery.class);
+        doAnswer(invocation -> {
+            Tuple parameters = invocation.getArgument(0);
+            Row row = mock(Row.class);
+            if (statement.startsWith("SELECT pg_try_advisory_lock")) {
+                int key = parameters.getInteger(1);
+                when(row.getBoolean("locked")).thenReturn(lockedElsewhere.add(key));
+            } else if (statement.startsWith("SELECT pg_advisory_unlock")) {
+                int key = parameters.getInteger(1);
+                unlocked.add(key);
+                when(row.getBoolean("unlocked")).thenReturn(lockedElsewhere.remove(key));
+            } else {
+                memberCounts.add(parameters);
+                when(row.getLong("members")).thenReturn(members.get());
+            }
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.succeededFuture(rowSetOf(row)));
+            return null;
+        }).when(preparedQuery).execute(any(Tuple.class), any());
+        return preparedQuery;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RowSet<Row> rowSetOf(Row row) {
+        RowSet<Row> rowSet = mock(RowSet.class);
+        RowIterator<Row> iterator = mock(RowIterator.class);
+        when(iterator.next()).thenReturn(row);
+        when(rowSet.iterator()).thenReturn(iterator);
+        return rowSet;
+    }
+}
@@ -0,0 +1,61 @@
+package in.projecteka.consentmanager.consent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiryWheelTest {
+    private static final long TICK = 1000;
+
+    @Test
+    void shouldFireEntriesOnTheTickAfterTheirDeadline() {
+        var wheel = new ExpiryWheel<String>(TICK, 8, 0);
+        wheel.add("first", 2500);
+        wheel.add("second", 5000);
+
+        assertThat(wheel.advance(2999)).isEmpty();
+        assertThat(wheel.advance(3000)).containsExactly("first");
+        assertThat(wheel.advance(5999)).isEmpty();
+        assertThat(wheel.advance(6000)).containsExactly("second");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void shouldFireOverdueEntriesOnTheNextTick() {
+        var wheel = new ExpiryWheel<String>(TICK, 8, 10_000);
+        wheel.add("overdue", 1000);
+
+        assertThat(wheel.advance(11_000)).containsExactly("overdue");
+    }
+
+    @Test
+    void shouldCascadeEntriesBeyondTheFirstLevel() {
+        var wheel = new ExpiryWheel<String>(TICK, 4, 0);
+        List<Long> deadlines = List.of(3_500L, 4_000L, 15_200L, 16_000L, 63_999L, 64_000L, 1_000_000L);
+        deadlines.forEach(deadline -> wheel.add(String.valueOf(deadline), deadline));
+
+        List<String> fired = new ArrayList<>();
+        for (long now = TICK; now <= 1_001_000; now += TICK) {
+            for (String key : wheel.advance(now)) {
+                long deadline = Long.parseLong(key);
+                assertThat(now).isGreaterThan(deadline).isLessThanOrEqualTo(deadline + TICK);
+                fired.add(key);
+            }
+        }
+
+        assertThat(fired).hasSize(deadlines.size());
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void shouldCatchUpWhenAdvancedOverManyTicks() {
+        var wheel = new ExpiryWheel<String>(TICK, 4, 0);
+        wheel.add("early", 2_000);
+        wheel.add("late", 90_000);
+
+        assertThat(wheel.advance(100_000)).containsExactlyInAnyOrder("early", "late");
+    }
+}
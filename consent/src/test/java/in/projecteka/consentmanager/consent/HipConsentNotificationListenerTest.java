@@ -1,12 +1,18 @@
 package in.projecteka.consentmanager.consent;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rabbitmq.client.Channel;
 import in.projecteka.consentmanager.MessageListenerContainerFactory;
 import in.projecteka.consentmanager.clients.ConsentArtefactNotifier;
 import in.projecteka.consentmanager.consent.model.ConsentNotificationStatus;
 import in.projecteka.consentmanager.consent.model.HIPConsentArtefact;
 import in.projecteka.consentmanager.consent.model.HIPConsentArtefactRepresentation;
 import in.projecteka.consentmanager.consent.model.HIPReference;
+import in.projecteka.consentmanager.consent.model.request.SignedHIPNotificationRequest;
+import in.projecteka.library.common.RetryTiers;
 import in.projecteka.library.common.TraceableMessage;
+import in.projecteka.library.common.TraceableMessageCodec;
 import in.projecteka.library.common.cache.CacheAdapter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,19 +21,25 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.amqp.core.Message;
-import org.springframework.amqp.core.MessageListener;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
 import reactor.core.publisher.Mono;
 
 import java.util.UUID;
 
 import static in.projecteka.consentmanager.Constants.HIP_CONSENT_NOTIFICATION_QUEUE;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.EXPIRED;
+import static in.projecteka.consentmanager.consent.model.ConsentStatus.GRANTED;
+import static in.projecteka.consentmanager.consent.model.HipConsentArtefactNotificationStatus.NOTIFYING;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,7 +52,10 @@ class HipConsentNotificationListenerTest {
     private MessageListenerContainer messageListenerContainer;
 
     @Mock
-    private Jackson2JsonMessageConverter converter;
+    private TraceableMessageCodec converter;
+
+    @Mock
+    private Channel channel;
 
     @Mock
     private ConsentArtefactNotifier consentArtefactNotifier;
@@ -53,6 +68,9 @@ class HipConsentNotificationListenerTest {
     @Mock
     private CacheAdapter<String, String> cache;
 
+    @Mock
+    private RetryTiers retryTiers;
+
     @BeforeEach
     void init() {
         MockitoAnnotations.initMocks(this);
@@ -61,12 +79,13 @@ class HipConsentNotificationListenerTest {
                 converter,
                 consentArtefactNotifier,
                 consentArtefactRepository,
-                cache);
+                cache,
+                retryTiers);
     }
 
     @Test
-    void shouldSendNotificationToHIPWithoutConsentArtefactsOnExpiry() {
-        var messageListenerCaptor = ArgumentCaptor.forClass(MessageListener.class);
+    void shouldSendNotificationToHIPWithoutConsentArtefactsOnExpiry() throws Exception {
+        var messageListenerCaptor = ArgumentCaptor.forClass(ChannelAwareMessageListener.class);
         var mockMessage = Mockito.mock(Message.class);
         var mockMessageProperties = Mockito.mock(MessageProperties.class);
         var consentId = "Consent_id";
@@ -85,7 +104,9 @@ class HipConsentNotificationListenerTest {
         when(messageListenerContainerFactory
                 .createMessageListenerContainer(HIP_CONSENT_NOTIFICATION_QUEUE)).thenReturn(messageListenerContainer);
         doNothing().when(messageListenerContainer).setupMessageListener(messageListenerCaptor.capture());
-        when(converter.fromMessage(any())).thenReturn(traceableMessage);
+        when(converter.decode(any(), eq(HIPConsentArtefactRepresentation.class)))
+                .thenReturn(new TraceableMessageCodec.Delivery<>(traceableMessage.getCorrelationId(),
+                        hipConsentArtefactRepresentation));
         when(consentArtefactNotifier.sendConsentArtefactToHIP(any(), anyString())).thenReturn(Mono.empty());
         when(consentArtefactRepository.saveConsentNotification(consentId, ConsentNotificationStatus.SENT, ConsentNotificationReceiver.HIP)).thenReturn(Mono.empty());
         when(mockMessage.getMessageProperties()).thenReturn(mockMessageProperties);
@@ -93,12 +114,91 @@ class HipConsentNotificationListenerTest {
 
         hipConsentNotificationListener.subscribe();
 
-        MessageListener messageListener = messageListenerCaptor.getValue();
-        messageListener.onMessage(mockMessage);
+        messageListenerCaptor.getValue().onMessage(mockMessage, channel);
         verify(messageListenerContainer, times(1)).start();
         verify(messageListenerContainer, times(1))
                 .setupMessageListener(messageListenerCaptor.capture());
 
         verify(consentArtefactNotifier).sendConsentArtefactToHIP(any(), anyString());
+        verify(channel).basicAck(0L, false);
+    }
+
+    @Test
+    void shouldSendTheMessageToItsRetryTierWhenNotifyingHIPFails() throws Exception {
+        var messageListenerCaptor = ArgumentCaptor.forClass(ChannelAwareMessageListener.class);
+        var mockMessage = Mockito.mock(Message.class);
+        var consentId = "Consent_id";
+        HIPConsentArtefactRepresentation hipConsentArtefactRepresentation = HIPConsentArtefactRepresentation.builder()
+                .status(EXPIRED)
+                .consentDetail(HIPConsentArtefact.builder()
+                        .hip(HIPReference.builder()
+                                .id("HIP_ID")
+                                .build())
+                        .build())
+                .consentId(consentId)
+                .build();
+        TraceableMessage traceableMessage = TraceableMessage.builder()
+                .correlationId(UUID.randomUUID().toString())
+                .message(hipConsentArtefactRepresentation).build();
+        when(messageListenerContainerFactory
+                .createMessageListenerContainer(HIP_CONSENT_NOTIFICATION_QUEUE)).thenReturn(messageListenerContainer);
+        doNothing().when(messageListenerContainer).setupMessageListener(messageListenerCaptor.capture());
+        when(converter.decode(any(), eq(HIPConsentArtefactRepresentation.class)))
+                .thenReturn(new TraceableMessageCodec.Delivery<>(traceableMessage.getCorrelationId(),
+                        hipConsentArtefactRepresentation));
+        when(consentArtefactNotifier.sendConsentArtefactToHIP(any(), anyString()))
+                .thenReturn(Mono.error(new Exception("Gateway unavailable")));
+        when(mockMessage.getMessageProperties()).thenReturn(new MessageProperties());
+        when(retryTiers.retry(mockMessage)).thenReturn(Mono.empty());
+
+        hipConsentNotificationListener.subscribe();
+        messageListenerCaptor.getValue().onMessage(mockMessage, channel);
+
+        verify(retryTiers).retry(mockMessage);
+        verify(channel).basicAck(0L, false);
+        verify(channel, never()).basicReject(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldSendTheSignedConsentArtefactAsItWasSignedOnGrant() throws Exception {
+        var messageListenerCaptor = ArgumentCaptor.forClass(ChannelAwareMessageListener.class);
+        var requestCaptor = ArgumentCaptor.forClass(SignedHIPNotificationRequest.class);
+        var consentId = "Consent_id";
+        var signedConsentDetail = "{\"consentId\":\"Consent_id\",\"hip\":{\"id\":\"HIP_ID\"}}";
+        HIPConsentArtefactRepresentation hipConsentArtefactRepresentation = HIPConsentArtefactRepresentation.builder()
+                .status(GRANTED)
+                .consentDetail(HIPConsentArtefact.builder()
+                        .consentId(consentId)
+                        .hip(HIPReference.builder()
+                                .id("HIP_ID")
+                                .build())
+                        .build())
+                .consentId(consentId)
+                .signature("signature")
+                .signedConsentDetail(signedConsentDetail)
+                .build();
+        TraceableMessage traceableMessage = TraceableMessage.builder()
+                .correlationId(UUID.randomUUID().toString())
+                .message(hipConsentArtefactRepresentation).build();
+        when(messageListenerContainerFactory
+                .createMessageListenerContainer(HIP_CONSENT_NOTIFICATION_QUEUE)).thenReturn(messageListenerContainer);
+        doNothing().when(messageListenerContainer).setupMessageListener(messageListenerCaptor.capture());
+        when(converter.decode(any(), eq(HIPConsentArtefactRepresentation.class)))
+                .thenReturn(new TraceableMessageCodec.Delivery<>(traceableMessage.getCorrelationId(),
+                        hipConsentArtefactRepresentation));
+        when(cache.put(consentId, NOTIFYING.toString())).thenReturn(Mono.empty());
+        when(consentArtefactNotifier.sendSignedConsentArtefactToHIP(requestCaptor.capture(), eq("HIP_ID")))
+                .thenReturn(Mono.empty());
+
+        hipConsentNotificationListener.subscribe();
+        var mockMessage = Mockito.mock(Message.class);
+        when(mockMessage.getMessageProperties()).thenReturn(new MessageProperties());
+        messageListenerCaptor.getValue().onMessage(mockMessage, channel);
+
+        verify(consentArtefactNotifier, never()).sendConsentArtefactToHIP(any(), anyString());
+        var mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        var body = mapper.readTree(mapper.writeValueAsString(requestCaptor.getValue()));
+        assertThat(body.get("notification").get("consentDetail").toString()).isEqualTo(signedConsentDetail);
+        assertThat(body.get("notification").get("signature").asText()).isEqualTo("signature");
     }
 }
@@ -1,22 +1,22 @@
 package in.projecteka.consentmanager.consent;
 
+import com.rabbitmq.client.Channel;
 import in.projecteka.consentmanager.MessageListenerContainerFactory;
 import in.projecteka.consentmanager.clients.ConsentArtefactNotifier;
 import in.projecteka.consentmanager.consent.model.ConsentArtefactsMessage;
-import in.projecteka.consentmanager.properties.ListenerProperties;
+import in.projecteka.library.common.RetryTiers;
 import in.projecteka.library.common.TraceableMessage;
+import in.projecteka.library.common.TraceableMessageCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
-import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.core.Message;
-import org.springframework.amqp.core.MessageListener;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
@@ -28,6 +28,7 @@ import static in.projecteka.consentmanager.consent.model.ConsentStatus.DENIED;
 import static in.projecteka.consentmanager.consent.model.ConsentStatus.EXPIRED;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -41,16 +42,16 @@ class HiuConsentNotificationListenerTest {
     private MessageListenerContainer messageListenerContainer;
 
     @Mock
-    private Jackson2JsonMessageConverter converter;
+    private TraceableMessageCodec converter;
 
     @Mock
-    private ConsentArtefactNotifier consentArtefactNotifier;
+    private Channel channel;
 
     @Mock
-    private AmqpTemplate amqpTemplate;
+    private ConsentArtefactNotifier consentArtefactNotifier;
 
     @Mock
-    private ListenerProperties listenerProperties;
+    private RetryTiers retryTiers;
 
     HiuConsentNotificationListener hiuConsentNotificationListener;
 
@@ -61,14 +62,13 @@ class HiuConsentNotificationListenerTest {
                 messageListenerContainerFactory,
                 converter,
                 consentArtefactNotifier,
-                amqpTemplate,
-                listenerProperties
+                retryTiers
         );
     }
 
     @Test
-    void shouldSendNotificationToHIUWithoutConsentArtefactsOnExpiry() {
-        var messageListenerCaptor = ArgumentCaptor.forClass(MessageListener.class);
+    void shouldSendNotificationToHIUWithoutConsentArtefactsOnExpiry() throws Exception {
+        var messageListenerCaptor = ArgumentCaptor.forClass(ChannelAwareMessageListener.class);
         var mockMessage = Mockito.mock(Message.class);
         var mockMessageProperties = Mockito.mock(MessageProperties.class);
         ConsentArtefactsMessage consentArtefactMessage = ConsentArtefactsMessage.builder()
@@ -84,25 +84,26 @@ class HiuConsentNotificationListenerTest {
         when(messageListenerContainerFactory
                 .createMessageListenerContainer(HIU_CONSENT_NOTIFICATION_QUEUE)).thenReturn(messageListenerContainer);
         doNothing().when(messageListenerContainer).setupMessageListener(messageListenerCaptor.capture());
-        when(converter.fromMessage(any())).thenReturn(traceableMessage);
+        when(converter.decode(any(), eq(ConsentArtefactsMessage.class)))
+                .thenReturn(new TraceableMessageCodec.Delivery<>(traceableMessage.getCorrelationId(),
+                        consentArtefactMessage));
         when(consentArtefactNotifier.sendConsentArtifactToHIU(any(), anyString())).thenReturn(Mono.empty());
         when(mockMessage.getMessageProperties()).thenReturn(mockMessageProperties);
-        when(mockMessageProperties.getXDeathHeader()).thenReturn(null);
 
         hiuConsentNotificationListener.subscribe();
 
-        MessageListener messageListener = messageListenerCaptor.getValue();
-        messageListener.onMessage(mockMessage);
+        messageListenerCaptor.getValue().onMessage(mockMessage, channel);
         verify(messageListenerContainer,times(1)).start();
         verify(messageListenerContainer,times(1))
                 .setupMessageListener(messageListenerCaptor.capture());
 
         verify(consentArtefactNotifier).sendConsentArtifactToHIU(any(), anyString());
+        verify(channel).basicAck(0L, false);
     }
 
     @Test
-    void shouldSendNotificationToHIUWithoutConsentArtefactsOnDeny() {
-        var messageListenerCaptor = ArgumentCaptor.forClass(MessageListener.class);
+    void shouldSendNotificationToHIUWithoutConsentArtefactsOnDeny() throws Exception {
+        var messageListenerCaptor = ArgumentCaptor.forClass(ChannelAwareMessageListener.class);
         var mockMessage = Mockito.mock(Message.class);
         var mockMessageProperties = Mockito.mock(MessageProperties.class);
         ConsentArtefactsMessage consentArtefactMessage = ConsentArtefactsMessage.builder()
@@ -118,19 +119,20 @@ class HiuConsentNotificationListenerTest {
         when(messageListenerContainerFactory
                 .createMessageListenerContainer(HIU_CONSENT_NOTIFICATION_QUEUE)).thenReturn(messageListenerContainer);
         doNothing().when(messageListenerContainer).setupMessageListener(messageListenerCaptor.capture());
-        when(converter.fromMessage(any())).thenReturn(traceableMessage);
+        when(converter.decode(any(), eq(ConsentArtefactsMessage.class)))
+                .thenReturn(new TraceableMessageCodec.Delivery<>(traceableMessage.getCorrelationId(),
+                        consentArtefactMessage));
         when(consentArtefactNotifier.sendConsentArtifactToHIU(any(), anyString())).thenReturn(Mono.empty());
         when(mockMessage.getMessageProperties()).thenReturn(mockMessageProperties);
-        when(mockMessageProperties.getXDeathHeader()).thenReturn(null);
 
         hiuConsentNotificationListener.subscribe();
 
-        MessageListener messageListener = messageListenerCaptor.getValue();
-        messageListener.onMessage(mockMessage);
+        messageListenerCaptor.getValue().onMessage(mockMessage, channel);
         verify(messageListenerContainer,times(1)).start();
         verify(messageListenerContainer,times(1))
                 .setupMessageListener(messageListenerCaptor.capture());
 
         verify(consentArtefactNotifier).sendConsentArtifactToHIU(any(), anyString());
+        verify(channel).basicAck(0L, false);
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package in.projecteka.consentmanager.consent;
 
 import in.projecteka.consentmanager.consent.model.CertResponse;
 import in.projecteka.consentmanager.consent.model.ConsentArtefact;
+import in.projecteka.consentmanager.consent.model.ConsentExpiry;
 import in.projecteka.consentmanager.consent.model.ConsentRepresentation;
 import in.projecteka.consentmanager.consent.model.ConsentRequestDetail;
 import in.projecteka.consentmanager.consent.model.FetchRequest;
@@ -75,6 +76,10 @@ public class TestBuilders {
         return easyRandom.nextObject(ConsentArtefactReference.ConsentArtefactReferenceBuilder.class);
     }
 
+    public static ConsentExpiry.ConsentExpiryBuilder consentExpiry() {
+        return easyRandom.nextObject(ConsentExpiry.ConsentExpiryBuilder.class);
+    }
+
     public static String string() {
         return easyRandom.nextObject(String.class);
     }
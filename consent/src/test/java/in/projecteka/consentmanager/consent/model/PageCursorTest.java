@@ -0,0 +1,33 @@
+package in.projecteka.consentmanager.consent.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageCursorTest {
+
+    @Test
+    void shouldDecodeEncodedCursor() {
+        var cursor = new PageCursor(LocalDateTime.of(2020, 8, 12, 10, 15, 30, 123456000), "a-request-id");
+
+        assertThat(PageCursor.decode(cursor.encode())).contains(cursor);
+    }
+
+    @Test
+    void shouldNotDecodeMalformedCursor() {
+        assertThat(PageCursor.decode("not a cursor")).isEmpty();
+        assertThat(PageCursor.decode(new PageCursor(LocalDateTime.now(), "").encode())).isEmpty();
+    }
+
+    @Test
+    void shouldHaveNextCursorOnlyForFullPage() {
+        var dateModified = LocalDateTime.of(2020, 8, 12, 10, 15);
+
+        assertThat(PageCursor.next(List.of("a", "b"), 3, id -> new PageCursor(dateModified, id))).isNull();
+        assertThat(PageCursor.decode(PageCursor.next(List.of("a", "b"), 2, id -> new PageCursor(dateModified, id))))
+                .contains(new PageCursor(dateModified, "b"));
+    }
+}
@@ -2,12 +2,17 @@ package in.projecteka.consentmanager.link.discovery;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import in.projecteka.consentmanager.clients.DiscoveryServiceClient;
+import in.projecteka.consentmanager.clients.model.CareContextRepresentation;
+import in.projecteka.consentmanager.clients.model.PatientRepresentation;
 import in.projecteka.consentmanager.link.discovery.model.patient.request.PatientIdentifier;
 import in.projecteka.consentmanager.link.discovery.model.patient.request.PatientIdentifierType;
 import in.projecteka.consentmanager.link.discovery.model.patient.response.CareContext;
 import in.projecteka.consentmanager.link.discovery.model.patient.response.DiscoveryResult;
 import in.projecteka.consentmanager.link.link.LinkRepository;
-import in.projecteka.consentmanager.properties.LinkServiceProperties;
+import in.projecteka.consentmanager.link.link.PatientLinksIndex;
+import in.projecteka.consentmanager.link.link.model.Hip;
+import in.projecteka.consentmanager.link.link.model.Links;
+import in.projecteka.consentmanager.link.link.model.PatientLinks;
 import in.projecteka.library.clients.UserServiceClient;
 import in.projecteka.library.clients.model.ClientError;
 import in.projecteka.library.clients.model.ErrorCode;
@@ -15,6 +20,9 @@ import in.projecteka.library.clients.model.GatewayResponse;
 import in.projecteka.library.clients.model.Identifier;
 import in.projecteka.library.clients.model.PatientName;
 import in.projecteka.library.clients.model.RespError;
+import in.projecteka.library.common.CallbackCorrelator;
+import in.projecteka.library.common.CallbackRelay;
+import in.projecteka.library.common.CallbackTimeouts;
 import in.projecteka.library.common.CentralRegistry;
 import in.projecteka.library.common.cache.CacheAdapter;
 import org.junit.jupiter.api.BeforeEach;
@@ -24,6 +32,8 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -68,8 +78,6 @@ class DiscoveryTest {
     @Mock
     DiscoveryRepository discoveryRepository;
 
-    LinkServiceProperties linkServiceProperties = new LinkServiceProperties("http://tmc.gov.in/ncg-gateway", 1000);
-
     @Mock
     CacheAdapter<String, String> discoveryResults;
 
@@ -86,9 +94,11 @@ class DiscoveryTest {
                 discoveryServiceClient,
                 discoveryRepository,
                 centralRegistry,
-                linkServiceProperties,
-                discoveryResults,
-                linkRepository);
+                new CallbackCorrelator(discoveryResults,
+                        CallbackRelay.none(),
+                        Duration.ofMillis(100),
+                        new CallbackTimeouts(99, Duration.ofMillis(1000), Duration.ofMillis(1000), 20)),
+                PatientLinksIndex.localOnly(linkRepository, Duration.ofMinutes(1)));
     }
 
     @Test
@@ -180,8 +190,8 @@ class DiscoveryTest {
                 .thenReturn(Mono.just(true));
         when(discoveryResults.get(requestId.toString())).thenReturn(Mono.just(discoveryResultInCache));
         when(discoveryRepository.insert(hipId, patientId, transactionId, requestId)).thenReturn(Mono.empty());
-        when(linkRepository.getCareContextsForAUserId(user.getIdentifier()))
-                .thenReturn(Mono.just(List.of(linkedCareContexts)));
+        when(linkRepository.getLinkedCareContextsForAllHip(user.getIdentifier()))
+                .thenReturn(Mono.just(linksTo(user.getIdentifier(), linkedCareContexts)));
         var discoveryResponse = discoveryResponse()
                 .patient(patientInResponse)
                 .transactionId(transactionId)
@@ -355,4 +365,12 @@ class DiscoveryTest {
 
         verify(discoveryResults, times(1)).put(discoveryResult.getResp().getRequestId(), from(discoveryResult));
     }
-}
\ No newline at end of file
+
+    private static PatientLinks linksTo(String patientId, CareContextRepresentation careContext) {
+        var patient = PatientRepresentation.builder().careContexts(new ArrayList<>(List.of(careContext))).build();
+        return PatientLinks.builder()
+                .id(patientId)
+                .links(List.of(Links.builder().hip(Hip.builder().id(string()).build()).patientRepresentations(patient).build()))
+                .build();
+    }
+}
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.nimbusds.jose.jwk.JWKSet;
 import in.projecteka.consentmanager.DestinationsConfig;
 import in.projecteka.consentmanager.clients.DiscoveryServiceClient;
+import in.projecteka.consentmanager.clients.model.CareContextRepresentation;
+import in.projecteka.consentmanager.clients.model.PatientRepresentation;
 import in.projecteka.consentmanager.consent.ConceptValidator;
 import in.projecteka.consentmanager.consent.ConsentRequestNotificationListener;
 import in.projecteka.consentmanager.consent.HipConsentNotificationListener;
@@ -13,6 +15,9 @@ import in.projecteka.consentmanager.link.Constants;
 import in.projecteka.consentmanager.link.discovery.model.patient.response.DiscoveryResponse;
 import in.projecteka.consentmanager.link.discovery.model.patient.response.DiscoveryResult;
 import in.projecteka.consentmanager.link.link.LinkRepository;
+import in.projecteka.consentmanager.link.link.model.Hip;
+import in.projecteka.consentmanager.link.link.model.Links;
+import in.projecteka.consentmanager.link.link.model.PatientLinks;
 import in.projecteka.library.clients.UserServiceClient;
 import in.projecteka.library.clients.model.Error;
 import in.projecteka.library.clients.model.ErrorCode;
@@ -51,6 +56,7 @@ import reactor.core.publisher.Mono;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -284,8 +290,8 @@ class DiscoveryUserJourneyTest {
         when(discoveryRepository.insert(anyString(), anyString(), any(), any())).thenReturn(Mono.empty());
         when(discoveryServiceClient.requestPatientFor(any(), eq("12345"))).thenReturn(Mono.just(true));
         when(discoveryResults.get(any())).thenReturn(Mono.just(patientResponse));
-        when(linkRepository.getCareContextsForAUserId(user.getIdentifier()))
-                .thenReturn(Mono.just(List.of(linkedCareContexts)));
+        when(linkRepository.getLinkedCareContextsForAllHip(user.getIdentifier()))
+                .thenReturn(Mono.just(linksTo(user.getIdentifier(), linkedCareContexts)));
 
         webTestClient.post()
                 .uri(Constants.APP_PATH_CARE_CONTEXTS_DISCOVER)
@@ -465,4 +471,12 @@ class DiscoveryUserJourneyTest {
                 .exchange()
                 .expectStatus().isBadRequest();
     }
-}
\ No newline at end of file
+
+    private static PatientLinks linksTo(String patientId, CareContextRepresentation careContext) {
+        var patient = PatientRepresentation.builder().careContexts(new ArrayList<>(List.of(careContext))).build();
+        return PatientLinks.builder()
+                .id(patientId)
+                .links(List.of(Links.builder().hip(Hip.builder().id(string()).build()).patientRepresentations(patient).build()))
+                .build();
+    }
+}
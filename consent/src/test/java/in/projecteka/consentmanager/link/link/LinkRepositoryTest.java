@@ -0,0 +1,279 @@
+package in.projecteka.consentmanager.link.link;
+
+import in.projecteka.consentmanager.clients.model.CareContextRepresentation;
+import in.projecteka.consentmanager.clients.model.PatientRepresentation;
+import in.projecteka.library.common.DbOperationError;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Transaction;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+import java.util.List;
+
+import static in.projecteka.consentmanager.link.link.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class LinkRepositoryTest {
+    @Mock
+    private PgPool dbClient;
+
+    @Mock
+    private PreparedQuery<RowSet<Row>> preparedQuery;
+
+    @Mock
+    private RowSet<Row> rowSet;
+
+    @Mock
+    private RowIterator<Row> rows;
+
+    @Mock
+    private Transaction transaction;
+
+    @Captor
+    private ArgumentCaptor<List<Tuple>> careContexts;
+
+    private LinkRepository linkRepository;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        linkRepository = new LinkRepository(dbClient);
+        when(dbClient.preparedQuery(anyString())).thenReturn(preparedQuery);
+        when(rowSet.iterator()).thenReturn(rows);
+        doAnswer(invocation -> {
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.succeededFuture(rowSet));
+            return null;
+        }).when(preparedQuery).execute(any(Tuple.class), any());
+        doAnswer(invocation -> {
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.succeededFuture(rowSet));
+            return null;
+        }).when(preparedQuery).executeBatch(any(), any());
+        doAnswer(invocation -> {
+            Handler<AsyncResult<Transaction>> handler = invocation.getArgument(0);
+            handler.handle(Future.succeededFuture(transaction));
+            return null;
+        }).when(dbClient).begin(any());
+        when(transaction.preparedQuery(anyString())).thenReturn(preparedQuery);
+        doAnswer(invocation -> {
+            Handler<AsyncResult<Void>> handler = invocation.getArgument(0);
+            handler.handle(Future.succeededFuture());
+            return null;
+        }).when(transaction).commit(any());
+    }
+
+    @Test
+    void shouldBindThePurposesAsOneArrayParameter() {
+        var sessionId = string();
+        var tuple = ArgumentCaptor.forClass(Tuple.class);
+
+        create(linkRepository.insertToLink(sessionId, List.of("LINK", "KYC_AND_LINK"), patient("cc-1 display"),
+                "HIP")).verifyComplete();
+
+        verify(preparedQuery).execute(tuple.capture(), any());
+        assertThat(tuple.getValue().size()).isEqualTo(2);
+        assertThat(tuple.getValue().getString(0)).isEqualTo(sessionId);
+        assertThat(tuple.getValue().getStringArray(1)).containsExactly("LINK", "KYC_AND_LINK");
+    }
+
+    @Test
+    void shouldBindASinglePurposeAsAnArray() {
+        var tuple = ArgumentCaptor.forClass(Tuple.class);
+
+        create(linkRepository.insertToLink(string(), List.of("LINK"), patient("cc-1 display"), "HIP"))
+                .verifyComplete();
+
+        verify(preparedQuery).execute(tuple.capture(), any());
+        assertThat(tuple.getValue().size()).isEqualTo(2);
+        assertThat(tuple.getValue().getValue(1)).isInstanceOf(String[].class);
+        assertThat(tuple.getValue().getStringArray(1)).containsExactly("LINK");
+    }
+
+    @Test
+    void shouldNotLinkWhenTheSessionHasNoActionLeft() {
+        create(linkRepository.insertToLink(string(), List.of("LINK"), patient("cc-1 display"), "HIP"))
+                .verifyComplete();
+
+        verify(transaction).preparedQuery(anyString());
+        verify(transaction).rollback();
+        verify(transaction, never()).commit(any());
+    }
+
+    @Test
+    void shouldConsumeTheActionAndLinkInOneTransaction() {
+        var hipAction = hipActionRow("session-1", "hip-1", "user-1");
+        when(rows.hasNext()).thenReturn(true);
+        when(rows.next()).thenReturn(hipAction);
+
+        create(linkRepository.insertToLink("session-1", List.of("LINK"), patient("cc-1 display"), "HIP"))
+                .assertNext(action -> {
+                    assertThat(action.getSessionId()).isEqualTo("session-1");
+                    assertThat(action.getRequesterId()).isEqualTo("hip-1");
+                    assertThat(action.getPatientId()).isEqualTo("user-1");
+                })
+                .verifyComplete();
+
+        var statements = ArgumentCaptor.forClass(String.class);
+        verify(transaction, times(3)).preparedQuery(statements.capture());
+        assertThat(statements.getAllValues().get(0)).startsWith("UPDATE authz_hip_actions ");
+        assertThat(statements.getAllValues().get(1)).startsWith("INSERT INTO link ");
+        assertThat(statements.getAllValues().get(2)).startsWith("INSERT INTO care_context ");
+        verify(preparedQuery).executeBatch(careContexts.capture(), any());
+        assertThat(careContexts.getValue().get(0).getString(0)).isEqualTo("user-1");
+        assertThat(careContexts.getValue().get(0).getString(1)).isEqualTo("hip-1");
+        verify(transaction).commit(any());
+    }
+
+    @Test
+    void shouldLeaveTheActionUnusedWhenTheLinkFailsToInsert() {
+        var hipAction = hipActionRow("session-1", "hip-1", "user-1");
+        when(rows.hasNext()).thenReturn(true);
+        when(rows.next()).thenReturn(hipAction);
+        doAnswer(invocation -> {
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.failedFuture(new RuntimeException("duplicate key")));
+            return null;
+        }).when(preparedQuery).executeBatch(any(), any());
+
+        create(linkRepository.insertToLink("session-1", List.of("LINK"), patient("cc-1 display"), "HIP"))
+                .verifyError(DbOperationError.class);
+
+        verify(transaction).rollback();
+        verify(transaction, never()).commit(any());
+    }
+
+    @Test
+    void shouldGroupTheLinkedCareContextsByHip() {
+        var patientId = string();
+        var first = careContextRow("hip-1", "cc-1", "patient-1");
+        var second = careContextRow("hip-2", "cc-2", "patient-2");
+        var third = careContextRow("hip-1", "cc-3", "patient-1");
+        when(rows.hasNext()).thenReturn(true, true, true, false);
+        when(rows.next()).thenReturn(first, second, third);
+
+        create(linkRepository.getLinkedCareContextsForAllHip(patientId))
+                .assertNext(patientLinks -> {
+                    assertThat(patientLinks.getId()).isEqualTo(patientId);
+                    assertThat(patientLinks.getLinks()).extracting(links -> links.getHip().getId())
+                            .containsExactly("hip-1", "hip-2");
+                    var hip1 = patientLinks.getLinks().get(0).getPatientRepresentations();
+                    assertThat(hip1.getReferenceNumber()).isEqualTo("patient-1");
+                    assertThat(hip1.getDisplay()).isEqualTo("patient-1 display");
+                    assertThat(hip1.getCareContexts())
+                            .extracting(CareContextRepresentation::getReferenceNumber,
+                                    CareContextRepresentation::getDisplay)
+                            .containsExactly(tuple("cc-1", "cc-1 display"), tuple("cc-3", "cc-3 display"));
+                    assertThat(patientLinks.getLinks().get(1).getPatientRepresentations().getCareContexts())
+                            .extracting(CareContextRepresentation::getReferenceNumber)
+                            .containsExactly("cc-2");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldInsertTheLinkAndItsCareContextsInOneTransaction() {
+        var patient = patient("cc-1 display");
+
+        create(linkRepository.insertToLink("hip-1", "user-1", string(), patient, "user-1")).verifyComplete();
+
+        var statements = ArgumentCaptor.forClass(String.class);
+        verify(transaction, times(2)).preparedQuery(statements.capture());
+        assertThat(statements.getAllValues().get(0)).startsWith("INSERT INTO link ");
+        assertThat(statements.getAllValues().get(1)).startsWith("INSERT INTO care_context ");
+        verify(preparedQuery).executeBatch(careContexts.capture(), any());
+        assertThat(careContexts.getValue()).hasSize(2);
+        assertThat(careContexts.getValue().get(0).getString(0)).isEqualTo("user-1");
+        assertThat(careContexts.getValue().get(0).getString(1)).isEqualTo("hip-1");
+        assertThat(careContexts.getValue().get(0).getString(2)).isEqualTo("cc-1");
+        assertThat(careContexts.getValue().get(0).getString(4)).isEqualTo(patient.getReferenceNumber());
+        verify(transaction).commit(any());
+    }
+
+    @Test
+    void shouldUpdateACareContextThatIsLinkedAgain() {
+        create(linkRepository.insertToLink("hip-1", "user-1", string(), patient("cc-1 display"), "user-1"))
+                .verifyComplete();
+        create(linkRepository.insertToLink("hip-1", "user-1", string(), patient("cc-1 renamed"), "user-1"))
+                .verifyComplete();
+
+        var statements = ArgumentCaptor.forClass(String.class);
+        verify(transaction, times(4)).preparedQuery(statements.capture());
+        assertThat(statements.getAllValues().get(3))
+                .contains("ON CONFLICT (consent_manager_user_id, hip_id, reference_number) DO UPDATE")
+                .contains("display = EXCLUDED.display");
+        verify(preparedQuery, times(2)).executeBatch(careContexts.capture(), any());
+        assertThat(careContexts.getAllValues().get(1).get(0).getString(2)).isEqualTo("cc-1");
+        assertThat(careContexts.getAllValues().get(1).get(0).getString(3)).isEqualTo("cc-1 renamed");
+        verify(transaction, times(2)).commit(any());
+    }
+
+    @Test
+    void shouldNotCommitALinkWhoseCareContextsFailToInsert() {
+        doAnswer(invocation -> {
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.failedFuture(new RuntimeException("duplicate key")));
+            return null;
+        }).when(preparedQuery).executeBatch(any(), any());
+
+        create(linkRepository.insertToLink("hip-1", "user-1", string(), patient("cc-1 display"), "user-1"))
+                .verifyError(DbOperationError.class);
+
+        verify(transaction).rollback();
+        verify(transaction, never()).commit(any());
+    }
+
+    private static PatientRepresentation patient(String firstDisplay) {
+        return PatientRepresentation.builder()
+                .referenceNumber("patient-1")
+                .display("patient-1 display")
+                .careContexts(List.of(
+                        CareContextRepresentation.builder().referenceNumber("cc-1").display(firstDisplay).build(),
+                        CareContextRepresentation.builder().referenceNumber("cc-2").display("cc-2 display").build()))
+                .build();
+    }
+
+    private static Row hipActionRow(String sessionId, String hipId, String patientId) {
+        Row row = mock(Row.class);
+        when(row.getString("session_id")).thenReturn(sessionId);
+        when(row.getString("requester_id")).thenReturn(hipId);
+        when(row.getString("patient_id")).thenReturn(patientId);
+        when(row.getString("purpose")).thenReturn("LINK");
+        when(row.getInteger("repeat")).thenReturn(1);
+        when(row.getInteger("current_counter")).thenReturn(1);
+        when(row.getString("requester_type")).thenReturn("HIP");
+        return row;
+    }
+
+    private static Row careContextRow(String hipId, String reference, String patientReference) {
+        Row row = mock(Row.class);
+        when(row.getString("hip_id")).thenReturn(hipId);
+        when(row.getString("reference_number")).thenReturn(reference);
+        when(row.getString("display")).thenReturn(reference + " display");
+        when(row.getString("patient_reference")).thenReturn(patientReference);
+        when(row.getString("patient_display")).thenReturn(patientReference + " display");
+        return row;
+    }
+}
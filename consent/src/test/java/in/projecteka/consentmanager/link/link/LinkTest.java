@@ -7,12 +7,15 @@ import in.projecteka.consentmanager.clients.model.PatientLinkResponse;
 import in.projecteka.consentmanager.clients.model.PatientRepresentation;
 import in.projecteka.consentmanager.link.Constants;
 import in.projecteka.consentmanager.link.LinkEventPublisher;
+import in.projecteka.consentmanager.link.link.model.AuthzHipAction;
 import in.projecteka.consentmanager.link.link.model.Hip;
 import in.projecteka.consentmanager.link.link.model.LinkResponse;
 import in.projecteka.consentmanager.link.link.model.Links;
 import in.projecteka.consentmanager.link.link.model.PatientLinksResponse;
-import in.projecteka.consentmanager.properties.LinkServiceProperties;
 import in.projecteka.library.clients.model.ClientError;
+import in.projecteka.library.common.CallbackCorrelator;
+import in.projecteka.library.common.CallbackRelay;
+import in.projecteka.library.common.CallbackTimeouts;
 import in.projecteka.library.common.ServiceAuthentication;
 import in.projecteka.library.common.cache.CacheAdapter;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,7 +28,10 @@ import org.springframework.http.HttpStatus;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
 
 import static in.projecteka.consentmanager.link.link.LinkTokenVerifier.ERROR_INVALID_TOKEN_NO_HIP_ID;
 import static in.projecteka.consentmanager.link.link.LinkTokenVerifier.ERROR_INVALID_TOKEN_REQUIRED_ATTRIBUTES_NOT_PRESENT;
@@ -71,15 +77,16 @@ class LinkTest {
     @BeforeEach
     void setUp() {
         initMocks(this);
-        LinkServiceProperties linkServiceProperties = new LinkServiceProperties("http://tmc.gov.in/ncg-gateway",
-                1000);
         link = Mockito.spy(new Link(linkServiceClient,
                 linkRepository,
                 serviceAuthentication,
-                linkServiceProperties,
-                linkResults,
+                new CallbackCorrelator(linkResults,
+                        CallbackRelay.none(),
+                        Duration.ofMillis(100),
+                        new CallbackTimeouts(99, Duration.ofMillis(1000), Duration.ofMillis(1000), 20)),
                 linkTokenVerifier,
-                linkEventPublisher));
+                linkEventPublisher,
+                PatientLinksIndex.localOnly(linkRepository, Duration.ofMinutes(1))));
     }
 
     @Test
@@ -168,13 +175,13 @@ class LinkTest {
         var linkRequest = linkRequest().build();
         var hipAction = linkHipAction().build();
         when(linkTokenVerifier.getHipIdFromToken(linkRequest.getLink().getAccessToken())).thenReturn(Mono.just(hipAction.getRequesterId()));
-        when(linkTokenVerifier.validateSession(linkRequest.getLink().getAccessToken())).thenReturn(Mono.just(hipAction));
-        when(linkTokenVerifier.validateHipAction(hipAction)).thenReturn(Mono.just(hipAction));
-        when(linkRepository.insertToLink(eq(hipAction.getRequesterId()), eq(hipAction.getPatientId()),
-                eq(hipAction.getSessionId()),
+        when(linkTokenVerifier.consumeHipAction(eq(linkRequest.getLink().getAccessToken()), any()))
+                .thenAnswer(invocation -> invocation.<BiFunction<String, List<String>, Mono<AuthzHipAction>>>getArgument(1)
+                        .apply(hipAction.getSessionId(), List.of("LINK")));
+        when(linkRepository.insertToLink(eq(hipAction.getSessionId()),
+                any(),
                 any(PatientRepresentation.class),
-                eq(Constants.LINK_INITIATOR_HIP))).thenReturn(Mono.empty());
-        when(linkRepository.incrementHipActionCounter(hipAction.getSessionId())).thenReturn(Mono.empty());
+                eq(Constants.LINK_INITIATOR_HIP))).thenReturn(Mono.just(hipAction));
         when(linkServiceClient.sendLinkResponseToGateway(linkResponseArgumentCaptor.capture(),
                 eq(hipAction.getRequesterId()))).thenReturn(Mono.empty());
 
@@ -182,16 +189,14 @@ class LinkTest {
         StepVerifier.create(producer)
                 .verifyComplete();
 
-        verify(linkTokenVerifier).validateSession(linkRequest.getLink().getAccessToken());
+        verify(linkTokenVerifier).consumeHipAction(eq(linkRequest.getLink().getAccessToken()), any());
         verify(linkRepository).insertToLink(
-                eq(hipAction.getRequesterId()),
-                eq(hipAction.getPatientId()),
                 eq(hipAction.getSessionId()),
+                eq(List.of("LINK")),
                 any(PatientRepresentation.class),
                 eq(Constants.LINK_INITIATOR_HIP));
         verify(linkServiceClient).sendLinkResponseToGateway(linkResponseArgumentCaptor.capture(),
                 eq(hipAction.getRequesterId()));
-        verify(linkRepository).incrementHipActionCounter(eq(hipAction.getSessionId()));
         assertThat(linkResponseArgumentCaptor.getValue().getAcknowledgement()).isNotNull();
         assertThat(linkResponseArgumentCaptor.getValue().getError()).isNull();
     }
@@ -201,7 +206,7 @@ class LinkTest {
         var linkRequest = linkRequest().build();
         var hipAction = linkHipAction().build();
         when(linkTokenVerifier.getHipIdFromToken(linkRequest.getLink().getAccessToken())).thenReturn(Mono.just(hipAction.getRequesterId()));
-        when(linkTokenVerifier.validateSession(linkRequest.getLink().getAccessToken())).thenReturn(Mono.error(ClientError.invalidToken(ERROR_TOKEN_IS_INVALID_OR_EXPIRED)));
+        when(linkTokenVerifier.consumeHipAction(eq(linkRequest.getLink().getAccessToken()), any())).thenReturn(Mono.error(ClientError.invalidToken(ERROR_TOKEN_IS_INVALID_OR_EXPIRED)));
         when(linkServiceClient.sendLinkResponseToGateway(linkResponseArgumentCaptor.capture(),
                 eq(hipAction.getRequesterId()))).thenReturn(Mono.empty());
 
@@ -209,7 +214,7 @@ class LinkTest {
         StepVerifier.create(producer)
                 .verifyComplete();
 
-        verify(linkTokenVerifier).validateSession(linkRequest.getLink().getAccessToken());
+        verify(linkTokenVerifier).consumeHipAction(eq(linkRequest.getLink().getAccessToken()), any());
         verify(linkServiceClient).sendLinkResponseToGateway(linkResponseArgumentCaptor.capture(),
                 eq(hipAction.getRequesterId()));
         assertThat(linkResponseArgumentCaptor.getValue().getError()).isNotNull();
@@ -221,13 +226,13 @@ class LinkTest {
         var linkRequest = linkRequest().build();
         var hipAction = linkHipAction().build();
         when(linkTokenVerifier.getHipIdFromToken(linkRequest.getLink().getAccessToken())).thenReturn(Mono.just(hipAction.getRequesterId()));
-        when(linkTokenVerifier.validateSession(linkRequest.getLink().getAccessToken())).thenReturn(Mono.error(ClientError.invalidToken(ERROR_INVALID_TOKEN_REQUIRED_ATTRIBUTES_NOT_PRESENT)));
+        when(linkTokenVerifier.consumeHipAction(eq(linkRequest.getLink().getAccessToken()), any())).thenReturn(Mono.error(ClientError.invalidToken(ERROR_INVALID_TOKEN_REQUIRED_ATTRIBUTES_NOT_PRESENT)));
         when(linkServiceClient.sendLinkResponseToGateway(linkResponseArgumentCaptor.capture(),
                 eq(hipAction.getRequesterId()))).thenReturn(Mono.empty());
 
         var producer = link.addCareContexts(linkRequest);
         StepVerifier.create(producer).verifyComplete();
-        verify(linkTokenVerifier).validateSession(linkRequest.getLink().getAccessToken());
+        verify(linkTokenVerifier).consumeHipAction(eq(linkRequest.getLink().getAccessToken()), any());
         verify(linkServiceClient).sendLinkResponseToGateway(linkResponseArgumentCaptor.capture(),
                 eq(hipAction.getRequesterId()));
         assertThat(linkResponseArgumentCaptor.getValue().getError()).isNotNull();
@@ -0,0 +1,104 @@
+package in.projecteka.consentmanager.link.link;
+
+import in.projecteka.library.clients.model.ClientError;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import reactor.core.publisher.Mono;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static in.projecteka.consentmanager.link.link.LinkTokenVerifier.ERROR_TOKEN_IS_INVALID_OR_EXPIRED;
+import static in.projecteka.consentmanager.link.link.TestBuilders.linkHipAction;
+import static in.projecteka.consentmanager.link.link.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class LinkTokenVerifierTest {
+    private static final List<String> LINK_PURPOSES = List.of("LINK", "KYC_AND_LINK");
+
+    @Mock
+    private LinkRepository linkRepository;
+
+    private KeyPair keyPair;
+
+    private LinkTokenVerifier linkTokenVerifier;
+
+    @BeforeEach
+    void setUp() throws NoSuchAlgorithmException {
+        initMocks(this);
+        keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        linkTokenVerifier = new LinkTokenVerifier(keyPair.getPublic(), linkRepository);
+    }
+
+    @Test
+    void shouldConsumeAnActionOfTheSession() {
+        var sessionId = string();
+        var hipAction = linkHipAction().sessionId(sessionId).build();
+        var consumed = new ArrayList<String>();
+
+        create(linkTokenVerifier.consumeHipAction(tokenFor(sessionId), (session, purposes) -> {
+            consumed.add(session);
+            assertThat(purposes).isEqualTo(LINK_PURPOSES);
+            return Mono.just(hipAction);
+        }))
+                .expectNext(hipAction)
+                .verifyComplete();
+
+        assertThat(consumed).containsExactly(sessionId);
+        verify(linkRepository, never()).getAuthzHipAction(anyString());
+    }
+
+    @Test
+    void shouldRefuseASessionWithNoActionsLeft() {
+        var sessionId = string();
+        var hipAction = linkHipAction().sessionId(sessionId).repeat(2).currentCounter(2).build();
+        when(linkRepository.getAuthzHipAction(sessionId)).thenReturn(Mono.just(hipAction));
+
+        create(linkTokenVerifier.consumeHipAction(tokenFor(sessionId), (session, purposes) -> Mono.empty()))
+                .expectErrorMatches(error -> error instanceof ClientError &&
+                        ((ClientError) error).getError().getError().getMessage().equals("Number of repeat action exceeded"))
+                .verify();
+    }
+
+    @Test
+    void shouldRefuseASessionForAnotherPurpose() {
+        var sessionId = string();
+        var hipAction = linkHipAction().sessionId(sessionId).repeat(2).currentCounter(0).purpose("KYC").build();
+        when(linkRepository.getAuthzHipAction(sessionId)).thenReturn(Mono.just(hipAction));
+
+        create(linkTokenVerifier.consumeHipAction(tokenFor(sessionId), (session, purposes) -> Mono.empty()))
+                .expectErrorMatches(error -> error instanceof ClientError &&
+                        ((ClientError) error).getError().getError().getMessage().equals("Invalid token for intended action"))
+                .verify();
+    }
+
+    @Test
+    void shouldRefuseAnExpiredSession() {
+        var sessionId = string();
+        when(linkRepository.getAuthzHipAction(sessionId)).thenReturn(Mono.empty());
+
+        create(linkTokenVerifier.consumeHipAction(tokenFor(sessionId), (session, purposes) -> Mono.empty()))
+                .expectErrorMatches(error -> error instanceof ClientError &&
+                        ((ClientError) error).getError().getError().getMessage().equals(ERROR_TOKEN_IS_INVALID_OR_EXPIRED))
+                .verify();
+    }
+
+    private String tokenFor(String sessionId) {
+        return Jwts.builder()
+                .claim("sessionId", sessionId)
+                .signWith(SignatureAlgorithm.RS256, keyPair.getPrivate())
+                .compact();
+    }
+}
@@ -11,6 +11,7 @@ import in.projecteka.consentmanager.consent.ConsentRequestNotificationListener;
 import in.projecteka.consentmanager.consent.HipConsentNotificationListener;
 import in.projecteka.consentmanager.consent.HiuConsentNotificationListener;
 import in.projecteka.consentmanager.link.Constants;
+import in.projecteka.consentmanager.link.link.model.AuthzHipAction;
 import in.projecteka.consentmanager.link.link.model.Hip;
 import in.projecteka.consentmanager.link.link.model.Links;
 import in.projecteka.consentmanager.link.link.model.PatientLinks;
@@ -57,6 +58,7 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -518,11 +520,11 @@ class LinkUserJourneyTest {
         gatewayServer.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody("{}"));
         when(validator.validate(anyString(), any(LocalDateTime.class))).thenReturn(just(TRUE));
         when(linkTokenVerifier.getHipIdFromToken(linkRequest.getLink().getAccessToken())).thenReturn(Mono.just(hipAction.getRequesterId()));
-        when(linkTokenVerifier.validateSession(linkRequest.getLink().getAccessToken())).thenReturn(Mono.just(hipAction));
-        when(linkTokenVerifier.validateHipAction(hipAction)).thenReturn(Mono.just(hipAction));
-        when(linkRepository.insertToLink(eq(hipAction.getRequesterId()), eq(hipAction.getPatientId()), eq(hipAction.getSessionId()),
-                any(PatientRepresentation.class), eq(Constants.LINK_INITIATOR_HIP))).thenReturn(Mono.empty());
-        when(linkRepository.incrementHipActionCounter(hipAction.getSessionId())).thenReturn(Mono.empty());
+        when(linkTokenVerifier.consumeHipAction(eq(linkRequest.getLink().getAccessToken()), any()))
+                .thenAnswer(invocation -> invocation.<BiFunction<String, List<String>, Mono<AuthzHipAction>>>getArgument(1)
+                        .apply(hipAction.getSessionId(), List.of("LINK")));
+        when(linkRepository.insertToLink(eq(hipAction.getSessionId()), any(),
+                any(PatientRepresentation.class), eq(Constants.LINK_INITIATOR_HIP))).thenReturn(Mono.just(hipAction));
         when(linkServiceClient.sendLinkResponseToGateway(any(), anyString())).thenReturn(Mono.empty());
         when(serviceAuthentication.authenticate()).thenReturn(just(string()));
 
@@ -0,0 +1,190 @@
+package in.projecteka.consentmanager.link.link;
+
+import in.projecteka.consentmanager.clients.model.CareContextRepresentation;
+import in.projecteka.consentmanager.link.link.model.Hip;
+import in.projecteka.consentmanager.link.link.model.PatientLinkedCareContext;
+import in.projecteka.consentmanager.link.link.model.PatientLinks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static in.projecteka.consentmanager.link.link.TestBuilders.links;
+import static in.projecteka.consentmanager.link.link.TestBuilders.patientLinks;
+import static in.projecteka.consentmanager.link.link.TestBuilders.patientRepresentation;
+import static in.projecteka.consentmanager.link.link.TestBuilders.string;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class PatientLinksIndexTest {
+    private static final String PATIENT_ID = "patient@ncg";
+    private static final String HIP_ID = "10000005";
+
+    @Mock
+    private LinkRepository linkRepository;
+
+    @Mock
+    private ReactiveRedisOperations<String, String> invalidations;
+
+    private PatientLinksIndex patientLinksIndex;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        patientLinksIndex = PatientLinksIndex.localOnly(linkRepository, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldReadThePatientsLinksOnlyOnce() {
+        var patientLinks = linksTo("ref.opd");
+        when(linkRepository.getLinkedCareContextsForAllHip(PATIENT_ID)).thenReturn(Mono.just(patientLinks));
+
+        create(patientLinksIndex.linksOf(PATIENT_ID)).expectNext(patientLinks).verifyComplete();
+        create(patientLinksIndex.linkedReferencesOf(PATIENT_ID))
+                .expectNextMatches(references -> references.contains("ref.opd"))
+                .verifyComplete();
+
+        verify(linkRepository, times(1)).getLinkedCareContextsForAllHip(PATIENT_ID);
+    }
+
+    @Test
+    void shouldReadThePatientsLinksAgainOnceInvalidated() {
+        when(linkRepository.getLinkedCareContextsForAllHip(PATIENT_ID))
+                .thenReturn(Mono.just(linksTo("ref.opd")))
+                .thenReturn(Mono.just(linksTo("ref.opd", "ref.ipd")));
+
+        create(patientLinksIndex.linkedReferencesOf(PATIENT_ID))
+                .expectNextMatches(references -> !references.contains("ref.ipd"))
+                .verifyComplete();
+        patientLinksIndex.invalidate(PATIENT_ID);
+
+        create(patientLinksIndex.linkedReferencesOf(PATIENT_ID))
+                .expectNextMatches(references -> references.contains("ref.ipd"))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldCacheAReadThatRacedAnInvalidationOfAnotherPatientOnly() {
+        MonoProcessor<PatientLinks> read = MonoProcessor.create();
+        when(linkRepository.getLinkedCareContextsForAllHip(PATIENT_ID)).thenReturn(read);
+        patientLinksIndex.linksOf(PATIENT_ID).subscribe();
+
+        patientLinksIndex.invalidate(string());
+        read.onNext(linksTo("ref.opd"));
+
+        create(patientLinksIndex.linksOf(PATIENT_ID)).expectNextCount(1).verifyComplete();
+        verify(linkRepository, times(1)).getLinkedCareContextsForAllHip(PATIENT_ID);
+    }
+
+    @Test
+    void shouldNotCacheAReadThatRacedAnInvalidationOfThePatient() {
+        MonoProcessor<PatientLinks> read = MonoProcessor.create();
+        when(linkRepository.getLinkedCareContextsForAllHip(PATIENT_ID))
+                .thenReturn(read)
+                .thenReturn(Mono.just(linksTo("ref.opd", "ref.ipd")));
+        patientLinksIndex.linksOf(PATIENT_ID).subscribe();
+
+        patientLinksIndex.invalidate(PATIENT_ID);
+        read.onNext(linksTo("ref.opd"));
+
+        create(patientLinksIndex.linkedReferencesOf(PATIENT_ID))
+                .expectNextMatches(references -> references.contains("ref.ipd"))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldBroadcastAnInvalidation() {
+        when(invalidations.listenToChannel(anyString())).thenReturn(Flux.never());
+        when(invalidations.convertAndSend(anyString(), anyString())).thenReturn(Mono.just(1L));
+        var broadcasting = new PatientLinksIndex(linkRepository, Duration.ofMinutes(1), invalidations).listen();
+
+        broadcasting.invalidate(PATIENT_ID);
+
+        verify(invalidations).convertAndSend("patient-links:invalidations", PATIENT_ID);
+        broadcasting.close();
+    }
+
+    @Test
+    void shouldDropAPatientInvalidatedOnAnotherNode() {
+        DirectProcessor<ReactiveSubscription.Message<String, String>> messages = DirectProcessor.create();
+        doReturn(messages).when(invalidations).listenToChannel(anyString());
+        when(linkRepository.getLinkedCareContextsForAllHip(PATIENT_ID))
+                .thenReturn(Mono.just(linksTo("ref.opd")))
+                .thenReturn(Mono.just(linksTo("ref.opd", "ref.ipd")));
+        var listening = new PatientLinksIndex(linkRepository, Duration.ofMinutes(1), invalidations).listen();
+        create(listening.linksOf(PATIENT_ID)).expectNextCount(1).verifyComplete();
+
+        messages.onNext(new ReactiveSubscription.ChannelMessage<>("patient-links:invalidations", PATIENT_ID));
+
+        create(listening.linkedReferencesOf(PATIENT_ID))
+                .expectNextMatches(references -> references.contains("ref.ipd"))
+                .verifyComplete();
+        verify(invalidations, never()).convertAndSend(anyString(), anyString());
+        listening.close();
+    }
+
+    @Test
+    void shouldFindTheCareContextsOfAHipIgnoringCase() {
+        when(linkRepository.getLinkedCareContextsForAllHip(PATIENT_ID))
+                .thenReturn(Mono.just(linksTo("ref.opd", "ref.ipd")));
+
+        create(patientLinksIndex.hasCareContexts(PATIENT_ID, HIP_ID, List.of("REF.OPD", "ref.ipd")))
+                .expectNext(true)
+                .verifyComplete();
+        create(patientLinksIndex.hasCareContexts(PATIENT_ID, string(), List.of("ref.opd")))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReadTheLinksAgainBeforeSayingACareContextIsNotLinked() {
+        when(linkRepository.getLinkedCareContextsForAllHip(PATIENT_ID))
+                .thenReturn(Mono.just(linksTo("ref.opd")))
+                .thenReturn(Mono.just(linksTo("ref.opd", "ref.ipd")));
+        create(patientLinksIndex.linksOf(PATIENT_ID)).expectNextCount(1).verifyComplete();
+
+        create(patientLinksIndex.hasCareContexts(PATIENT_ID, HIP_ID, List.of("ref.ipd")))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(linkRepository, times(2)).getLinkedCareContextsForAllHip(PATIENT_ID);
+    }
+
+    @Test
+    void shouldGiveTheCareContextsLinkedAtAHip() {
+        var patientLinks = linksTo("ref.opd");
+        var patientReference = patientLinks.getLinks().get(0).getPatientRepresentations().getReferenceNumber();
+        when(linkRepository.getLinkedCareContextsForAllHip(PATIENT_ID)).thenReturn(Mono.just(patientLinks));
+
+        create(patientLinksIndex.careContextsOf(PATIENT_ID, HIP_ID))
+                .expectNext(List.of(new PatientLinkedCareContext(patientReference, "ref.opd")))
+                .verifyComplete();
+    }
+
+    private static PatientLinks linksTo(String... careContextReferences) {
+        var careContexts = new ArrayList<CareContextRepresentation>();
+        for (String reference : careContextReferences) {
+            careContexts.add(CareContextRepresentation.builder().referenceNumber(reference).build());
+        }
+        var links = links()
+                .hip(Hip.builder().id(HIP_ID).build())
+                .patientRepresentations(patientRepresentation().careContexts(careContexts).build())
+                .build();
+        return patientLinks().id(PATIENT_ID).links(List.of(links)).build();
+    }
+}
@@ -10,6 +10,10 @@ public class Constants {
     public static final String PATH_HEALTH_HIP_INFORMATION_REQUEST = "/health-information/hip/request";
     public static final String HIP_DATA_FLOW_REQUEST_QUEUE = "hip-data-flow-request-queue";
     public static final String EXCHANGE = "exchange";
+    public static final String PARKING_EXCHANGE = "parking.exchange";
+    public static final String RETRY_10S_EXCHANGE = "cm-retry-10s-exchange";
+    public static final String RETRY_1M_EXCHANGE = "cm-retry-1m-exchange";
+    public static final String RETRY_10M_EXCHANGE = "cm-retry-10m-exchange";
 
     //GATEWAY URL PATHs
     public static final String PATH_DATA_FLOW_CM_ON_REQUEST = "/health-information/cm/on-request";
@@ -4,7 +4,10 @@ import in.projecteka.dataflow.properties.DataFlowConsentManagerProperties;
 import in.projecteka.dataflow.properties.DbOptions;
 import in.projecteka.dataflow.properties.GatewayServiceProperties;
 import in.projecteka.dataflow.properties.IdentityServiceProperties;
+import in.projecteka.dataflow.properties.ListenerProperties;
+import in.projecteka.dataflow.properties.PublisherProperties;
 import in.projecteka.dataflow.properties.RedisOptions;
+import in.projecteka.dataflow.properties.TargetIsolationProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
@@ -15,7 +18,10 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
         GatewayServiceProperties.class,
         DbOptions.class,
         IdentityServiceProperties.class,
-        RedisOptions.class})
+        RedisOptions.class,
+        ListenerProperties.class,
+        PublisherProperties.class,
+        TargetIsolationProperties.class})
 public class DataFlowApplication {
     public static void main(String[] args) {
         SpringApplication.run(DataFlowApplication.class, args);
@@ -12,15 +12,22 @@ import in.projecteka.dataflow.properties.DataFlowConsentManagerProperties;
 import in.projecteka.dataflow.properties.DbOptions;
 import in.projecteka.dataflow.properties.GatewayServiceProperties;
 import in.projecteka.dataflow.properties.IdentityServiceProperties;
+import in.projecteka.dataflow.properties.ListenerProperties;
+import in.projecteka.dataflow.properties.PublisherProperties;
 import in.projecteka.dataflow.properties.RedisOptions;
+import in.projecteka.dataflow.properties.TargetIsolationProperties;
 import in.projecteka.library.clients.IdentityServiceClient;
 import in.projecteka.library.clients.ServiceAuthenticationClient;
+import in.projecteka.library.common.ConfirmedPublisher;
 import in.projecteka.library.common.GatewayTokenVerifier;
 import in.projecteka.library.common.GlobalExceptionHandler;
 import in.projecteka.library.common.IdentityService;
 import in.projecteka.library.common.RequestValidator;
+import in.projecteka.library.common.RetryTiers;
 import in.projecteka.library.common.ServiceAuthentication;
 import in.projecteka.library.common.ServiceCredential;
+import in.projecteka.library.common.TargetIsolation;
+import in.projecteka.library.common.TraceableMessageCodec;
 import in.projecteka.library.common.cache.CacheAdapter;
 import in.projecteka.library.common.cache.LoadingCacheAdapter;
 import in.projecteka.library.common.cache.LoadingCacheGenericAdapter;
@@ -31,7 +38,7 @@ import io.lettuce.core.SocketOptions;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.PoolOptions;
-import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -63,10 +70,15 @@ import java.net.URL;
 import java.text.ParseException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static in.projecteka.dataflow.Constants.EXCHANGE;
 import static in.projecteka.dataflow.Constants.HIP_DATA_FLOW_REQUEST_QUEUE;
+import static in.projecteka.dataflow.Constants.PARKING_EXCHANGE;
+import static in.projecteka.dataflow.Constants.RETRY_10M_EXCHANGE;
+import static in.projecteka.dataflow.Constants.RETRY_10S_EXCHANGE;
+import static in.projecteka.dataflow.Constants.RETRY_1M_EXCHANGE;
 import static in.projecteka.library.common.Constants.DEFAULT_CACHE_VALUE;
 
 @Configuration
@@ -170,13 +182,30 @@ public class DataFlowConfiguration {
         HashMap<String, DestinationInfo> queues = new HashMap<>();
         queues.put(HIP_DATA_FLOW_REQUEST_QUEUE,
                 new DestinationInfo(EXCHANGE, HIP_DATA_FLOW_REQUEST_QUEUE));
-        return new DestinationsConfig(queues);
+        return new DestinationsConfig(queues, List.of(RETRY_10S_EXCHANGE, RETRY_1M_EXCHANGE, RETRY_10M_EXCHANGE));
     }
 
     @Bean
-    public in.projecteka.dataflow.PostDataFlowRequestApproval postDataFlowRequestApproval(AmqpTemplate amqpTemplate,
-                                                                                          DestinationsConfig destinationsConfig) {
-        return new in.projecteka.dataflow.PostDataFlowRequestApproval(amqpTemplate, destinationsConfig);
+    public ConfirmedPublisher confirmedPublisher(CachingConnectionFactory connectionFactory,
+                                                 Jackson2JsonMessageConverter jackson2JsonMessageConverter,
+                                                 PublisherProperties publisherProperties) {
+        return ConfirmedPublisher.of(connectionFactory,
+                jackson2JsonMessageConverter,
+                publisherProperties.getChannels(),
+                publisherProperties.getBatchSize(),
+                publisherProperties.getConfirmTimeout());
+    }
+
+    @Bean
+    public in.projecteka.dataflow.PostDataFlowRequestApproval postDataFlowRequestApproval(
+            ConfirmedPublisher confirmedPublisher,
+            DestinationsConfig destinationsConfig) {
+        return new in.projecteka.dataflow.PostDataFlowRequestApproval(confirmedPublisher, destinationsConfig);
+    }
+
+    @Bean
+    public RetryTiers retryTiers(ConfirmedPublisher confirmedPublisher, DestinationsConfig destinationsConfig) {
+        return new RetryTiers(confirmedPublisher, destinationsConfig.getRetryTiers(), PARKING_EXCHANGE);
     }
 
     @Bean
@@ -186,18 +215,19 @@ public class DataFlowConfiguration {
     }
 
     @Bean
-    public Jackson2JsonMessageConverter converter() {
+    public TraceableMessageCodec converter() {
         var objectMapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule())
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        return new Jackson2JsonMessageConverter(objectMapper);
+        return new TraceableMessageCodec(objectMapper);
     }
 
     @Bean
     public MessageListenerContainerFactory messageListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter jackson2JsonMessageConverter) {
-        return new MessageListenerContainerFactory(connectionFactory, jackson2JsonMessageConverter);
+            Jackson2JsonMessageConverter jackson2JsonMessageConverter,
+            ListenerProperties listenerProperties) {
+        return new MessageListenerContainerFactory(connectionFactory, jackson2JsonMessageConverter, listenerProperties);
     }
 
     @Bean
@@ -206,11 +236,13 @@ public class DataFlowConfiguration {
             DataFlowConsentManagerProperties dataFlowConsentManagerProperties,
             IdentityService identityService,
             MessageListenerContainerFactory messageListenerContainerFactory,
-            Jackson2JsonMessageConverter jackson2JsonMessageConverter,
-            DataRequestNotifier dataRequestNotifier) {
+            TraceableMessageCodec traceableMessageCodec,
+            DataRequestNotifier dataRequestNotifier,
+            RetryTiers retryTiers) {
         return new DataFlowBroadcastListener(messageListenerContainerFactory,
-                jackson2JsonMessageConverter,
+                traceableMessageCodec,
                 dataRequestNotifier,
+                retryTiers,
                 new ConsentManagerClient(builder,
                         dataFlowConsentManagerProperties.getUrl(),
                         identityService::authenticate));
@@ -303,11 +335,23 @@ public class DataFlowConfiguration {
         return new GatewayTokenVerifier(jwkSet);
     }
 
+    @Bean
+    public TargetIsolation targetIsolation(TargetIsolationProperties targetIsolationProperties) {
+        return new TargetIsolation(targetIsolationProperties.getMaxConcurrentCalls(),
+                targetIsolationProperties.getMaxQueuedCalls(),
+                targetIsolationProperties.getFailureThreshold(),
+                targetIsolationProperties.getOpenDuration());
+    }
+
     @Bean
     public DataRequestNotifier dataFlowClient(@Qualifier("customBuilder") WebClient.Builder builder,
                                               ServiceAuthentication serviceAuthentication,
-                                              GatewayServiceProperties gatewayServiceProperties) {
-        return new DataRequestNotifier(builder.build(), serviceAuthentication::authenticate, gatewayServiceProperties);
+                                              GatewayServiceProperties gatewayServiceProperties,
+                                              TargetIsolation targetIsolation) {
+        return new DataRequestNotifier(builder.build(),
+                serviceAuthentication::authenticate,
+                gatewayServiceProperties,
+                targetIsolation);
     }
 
     @Bean
@@ -5,7 +5,6 @@ import in.projecteka.dataflow.model.DataFlowRequestStatus;
 import in.projecteka.dataflow.model.HealthInfoNotificationRequest;
 import in.projecteka.library.common.DbOperation;
 import in.projecteka.library.common.DbOperationError;
-import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Tuple;
 import org.slf4j.Logger;
@@ -14,7 +13,7 @@ import reactor.core.publisher.Mono;
 
 import java.util.UUID;
 
-import static in.projecteka.library.common.Serializer.from;
+import static in.projecteka.library.common.JsonCodec.encode;
 
 public class DataFlowRequestRepository {
 
@@ -39,7 +38,7 @@ public class DataFlowRequestRepository {
         return Mono.create(monoSink -> dbClient.preparedQuery(INSERT_TO_DATA_FLOW_REQUEST)
                 .execute(Tuple.of(transactionId,
                         dataFlowRequest.getConsent().getId(),
-                        new JsonObject(from(dataFlowRequest))),
+                        encode(dataFlowRequest)),
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
@@ -54,7 +53,7 @@ public class DataFlowRequestRepository {
         return Mono.create(monoSink ->
                 dbClient.preparedQuery(INSERT_TO_HEALTH_INFO_NOTIFICATION)
                         .execute(Tuple.of(notificationRequest.getNotification().getTransactionId(),
-                                new JsonObject(from(notificationRequest)),
+                                encode(notificationRequest),
                                 notificationRequest.getRequestId().toString()),
                                 handler -> {
                                     if (handler.failed()) {
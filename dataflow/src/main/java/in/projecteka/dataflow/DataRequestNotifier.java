@@ -2,6 +2,7 @@ package in.projecteka.dataflow;
 
 import in.projecteka.dataflow.model.hip.DataRequest;
 import in.projecteka.dataflow.properties.GatewayServiceProperties;
+import in.projecteka.library.common.TargetIsolation;
 import lombok.AllArgsConstructor;
 import org.slf4j.MDC;
 import org.springframework.http.HttpStatus;
@@ -21,9 +22,10 @@ public class DataRequestNotifier {
     private final WebClient webClientBuilder;
     private final Supplier<Mono<String>> tokenGenerator;
     private final GatewayServiceProperties gatewayServiceProperties;
+    private final TargetIsolation targetIsolation;
 
     public Mono<Void> notifyHip(DataRequest dataFlowRequest, String hipId) {
-        return tokenGenerator.get()
+        return targetIsolation.call(hipId, tokenGenerator.get()
                 .flatMap(token ->
                         webClientBuilder
                                 .post()
@@ -36,7 +38,7 @@ public class DataRequestNotifier {
                                 .onStatus(HttpStatus::is5xxServerError,
                                         clientResponse -> Mono.error(unknownErrorOccurred()))
                                 .toBodilessEntity())
-                .then();
+                .then());
     }
 
     private String getDataFlowRequestUrl() {
@@ -1,6 +1,8 @@
 package in.projecteka.dataflow;
 
+import in.projecteka.dataflow.properties.ListenerProperties;
 import lombok.AllArgsConstructor;
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
 import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
@@ -11,10 +13,15 @@ import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 public class MessageListenerContainerFactory {
     private final ConnectionFactory connectionFactory;
     private final Jackson2JsonMessageConverter converter;
+    private final ListenerProperties listenerProperties;
 
     public MessageListenerContainer createMessageListenerContainer(String queueName) {
         SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
         container.addQueueNames(queueName);
+        // listeners ack once their pipeline completes, so the prefetch count bounds the messages in flight
+        container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        container.setPrefetchCount(listenerProperties.getPrefetchCount());
+        container.setConcurrentConsumers(listenerProperties.getConcurrentConsumers());
 
         MessageListenerAdapter messageListenerAdapter = new MessageListenerAdapter();
         messageListenerAdapter.setMessageConverter(converter);
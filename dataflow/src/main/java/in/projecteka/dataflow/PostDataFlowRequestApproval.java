@@ -1,12 +1,12 @@
 package in.projecteka.dataflow;
 
 import in.projecteka.dataflow.model.DataFlowRequestMessage;
+import in.projecteka.library.common.ConfirmedPublisher;
 import in.projecteka.library.common.TraceableMessage;
 import lombok.AllArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
-import org.springframework.amqp.core.AmqpTemplate;
 import reactor.core.publisher.Mono;
 
 import static in.projecteka.dataflow.Constants.HIP_DATA_FLOW_REQUEST_QUEUE;
@@ -15,7 +15,7 @@ import static in.projecteka.library.common.Constants.CORRELATION_ID;
 @AllArgsConstructor
 @Slf4j
 public class PostDataFlowRequestApproval {
-    private final AmqpTemplate amqpTemplate;
+    private final ConfirmedPublisher confirmedPublisher;
     private final DestinationsConfig destinationsConfig;
 
     @SneakyThrows
@@ -33,13 +33,10 @@ public class PostDataFlowRequestApproval {
                 .message(dataFlowRequestMessage)
                 .build();
 
-        return Mono.create(monoSink -> {
-            amqpTemplate.convertAndSend(
-                    destinationInfo.getExchange(),
-                    destinationInfo.getRoutingKey(),
-                    traceableMessage);
-            log.info("Broadcasting data flow request with transaction id : " + transactionId);
-            monoSink.success();
-        });
+        return confirmedPublisher.publish(destinationInfo.getExchange(),
+                destinationInfo.getRoutingKey(),
+                traceableMessage)
+                .doOnSuccess(published -> log.info(
+                        "Broadcasting data flow request with transaction id : " + transactionId));
     }
 }
@@ -0,0 +1,25 @@
+package in.projecteka.dataflow.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+@ConfigurationProperties(prefix = "dataflow.listeners")
+@AllArgsConstructor
+@Getter
+@ConstructorBinding
+public class ListenerProperties {
+    private static final int DEFAULT_PREFETCH_COUNT = 50;
+    private static final int DEFAULT_CONCURRENT_CONSUMERS = 1;
+    private final int prefetchCount;
+    private final int concurrentConsumers;
+
+    public int getPrefetchCount() {
+        return prefetchCount > 0 ? prefetchCount : DEFAULT_PREFETCH_COUNT;
+    }
+
+    public int getConcurrentConsumers() {
+        return concurrentConsumers > 0 ? concurrentConsumers : DEFAULT_CONCURRENT_CONSUMERS;
+    }
+}
@@ -0,0 +1,34 @@
+package in.projecteka.dataflow.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "dataflow.publisher")
+@AllArgsConstructor
+@Getter
+@ConstructorBinding
+public class PublisherProperties {
+    private static final int DEFAULT_CHANNELS = 10;
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int DEFAULT_CONFIRM_TIMEOUT = 5000;
+    private final int channels;
+    private final int batchSize;
+    // in milliseconds
+    private final int confirmTimeout;
+
+    public int getChannels() {
+        return channels > 0 ? channels : DEFAULT_CHANNELS;
+    }
+
+    public int getBatchSize() {
+        return batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    public Duration getConfirmTimeout() {
+        return Duration.ofMillis(confirmTimeout > 0 ? confirmTimeout : DEFAULT_CONFIRM_TIMEOUT);
+    }
+}
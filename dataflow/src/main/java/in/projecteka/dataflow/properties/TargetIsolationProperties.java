@@ -0,0 +1,42 @@
+package in.projecteka.dataflow.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "dataflow.gatewayservice.isolation")
+@Getter
+@AllArgsConstructor
+@ConstructorBinding
+public class TargetIsolationProperties {
+    private static final int DEFAULT_MAX_CONCURRENT_CALLS = 10;
+    private static final int DEFAULT_MAX_QUEUED_CALLS = 50;
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final int DEFAULT_OPEN_DURATION = 30;
+    // per HIP or HIU
+    private final int maxConcurrentCalls;
+    // calls that wait for one of the concurrent calls to finish
+    private final int maxQueuedCalls;
+    private final int failureThreshold;
+    // in seconds
+    private final int openDuration;
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls > 0 ? maxConcurrentCalls : DEFAULT_MAX_CONCURRENT_CALLS;
+    }
+
+    public int getMaxQueuedCalls() {
+        return maxQueuedCalls > 0 ? maxQueuedCalls : DEFAULT_MAX_QUEUED_CALLS;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold > 0 ? failureThreshold : DEFAULT_FAILURE_THRESHOLD;
+    }
+
+    public Duration getOpenDuration() {
+        return Duration.ofSeconds(openDuration > 0 ? openDuration : DEFAULT_OPEN_DURATION);
+    }
+}